@@ -1,9 +1,13 @@
 package org.heigit.ohsome.oshdb.api.db;
 
+import java.util.Optional;
 import java.util.OptionalLong;
 import org.heigit.ohsome.oshdb.OSHDB;
 import org.heigit.ohsome.oshdb.api.mapreducer.MapReducer;
+import org.heigit.ohsome.oshdb.api.mapreducer.MapReducerBatch;
 import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTimeoutException;
 
 /**
@@ -23,6 +27,19 @@ public abstract class OSHDBDatabase extends OSHDB implements AutoCloseable {
    */
   public abstract <X extends OSHDBMapReducible> MapReducer<X> createMapReducer(Class<X> forClass);
 
+  /**
+   * Creates a batch of queries which are executed together in a single pass over the data of
+   * this oshdb.
+   *
+   * <p>The queries of a batch must use the same area of interest and timestamps, see
+   * {@link MapReducerBatch} for details.</p>
+   *
+   * @return a new, empty batch of queries on this oshdb
+   */
+  public MapReducerBatch batch() {
+    return new MapReducerBatch(this);
+  }
+
   /**
    * Returns metadata about the given OSHDB.
    *
@@ -30,6 +47,42 @@ public abstract class OSHDBDatabase extends OSHDB implements AutoCloseable {
    */
   public abstract String metadata(String property);
 
+  /**
+   * Looks up the grid cells containing entities with a given tag in the inverted tag index of
+   * this OSHDB.
+   *
+   * <p>The inverted tag index is optional. Backends which don't provide one (or databases which
+   * were created without it) return an empty result.</p>
+   *
+   * @param type the OSM type of the entities
+   * @param key the tag key id
+   * @param value the tag value id, or -1 to look up cells containing the tag key with any value
+   * @return the sorted "level ids" (see {@link CellId#getLevelId()}) of all grid cells containing
+   *         at least one version of an entity with the given tag, or an empty optional if this
+   *         OSHDB has no inverted tag index
+   */
+  public Optional<long[]> tagIndexCells(OSMType type, int key, int value) {
+    return Optional.empty();
+  }
+
+  /**
+   * Looks up the grid cells containing the entities with the given ids in the id index of this
+   * OSHDB.
+   *
+   * <p>The id index is optional. Backends which don't provide one (or databases which were
+   * created without it) return an empty result.</p>
+   *
+   * @param type the OSM type of the entities
+   * @param fromId the smallest OSM id to look up
+   * @param toId the largest OSM id to look up
+   * @return the sorted "level ids" (see {@link CellId#getLevelId()}) of all grid cells containing
+   *         entities of the given type with an id in the given range, or an empty optional if this
+   *         OSHDB has no id index
+   */
+  public Optional<long[]> idIndexCells(OSMType type, long fromId, long toId) {
+    return Optional.empty();
+  }
+
   /**
    * Sets the "table/cache" name prefix to be used with this oshdb.
    */
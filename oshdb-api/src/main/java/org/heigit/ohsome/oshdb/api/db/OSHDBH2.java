@@ -48,6 +48,11 @@ public class OSHDBH2 extends OSHDBJdbc {
     return (OSHDBH2) super.multithreading(useMultithreading);
   }
 
+  @Override
+  public OSHDBH2 preloadKeytables(boolean preloadKeytables) {
+    return (OSHDBH2) super.preloadKeytables(preloadKeytables);
+  }
+
   /**
    * Creates an in-memory copy of the current oshdb data (using a volatile in-memory H2 database),
    * for faster subsequent queries.
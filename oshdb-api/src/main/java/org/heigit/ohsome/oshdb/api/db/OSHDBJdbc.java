@@ -6,10 +6,14 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.heigit.ohsome.oshdb.api.mapreducer.MapReducer;
@@ -17,8 +21,12 @@ import org.heigit.ohsome.oshdb.api.mapreducer.backend.MapReducerJdbcMultithread;
 import org.heigit.ohsome.oshdb.api.mapreducer.backend.MapReducerJdbcSinglethread;
 import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
 import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBKeytablesNotFoundException;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTableNotFoundException;
+import org.heigit.ohsome.oshdb.util.tagtranslator.PreloadedKeytables;
+import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
 
 /**
  * OSHDB database backend connector to a JDBC database file.
@@ -27,6 +35,9 @@ public class OSHDBJdbc extends OSHDBDatabase implements AutoCloseable {
 
   protected Connection connection;
   private boolean useMultithreading = true;
+  private Set<String> tables = null;
+  private boolean preloadKeytables = false;
+  private PreloadedKeytables preloadedKeytables = null;
 
   public OSHDBJdbc(String classToLoad, String jdbcString)
       throws SQLException, ClassNotFoundException {
@@ -96,6 +107,65 @@ public class OSHDBJdbc extends OSHDBDatabase implements AutoCloseable {
     }
   }
 
+  @Override
+  public Optional<long[]> tagIndexCells(OSMType type, int key, int value) {
+    String tableName = TableNames.T_TAG_INDEX.toString(this.prefix());
+    if (!this.hasTable(tableName)) {
+      return Optional.empty();
+    }
+    return Optional.of(this.queryCells(
+        "select level, id from " + tableName + " where type = ? and key = ? and value = ?",
+        type.intValue(), key, value));
+  }
+
+  @Override
+  public Optional<long[]> idIndexCells(OSMType type, long fromId, long toId) {
+    String tableName = TableNames.T_ID_INDEX.toString(this.prefix());
+    if (!this.hasTable(tableName)) {
+      return Optional.empty();
+    }
+    return Optional.of(this.queryCells("select distinct level, id from " + tableName
+        + " where type = ? and osmid between ? and ?", type.intValue(), fromId, toId));
+  }
+
+  private boolean hasTable(String tableName) {
+    try {
+      if (this.tables == null) {
+        Set<String> tables = new HashSet<>();
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, "%",
+            new String[]{"TABLE"})) {
+          while (rs.next()) {
+            tables.add(rs.getString("TABLE_NAME").toLowerCase());
+          }
+        }
+        this.tables = tables;
+      }
+      return this.tables.contains(tableName.toLowerCase());
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  // returns the sorted level ids of the cells returned by a query for (level, id) pairs
+  private long[] queryCells(String query, Object... parameters) {
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      for (int i = 0; i < parameters.length; i++) {
+        stmt.setObject(i + 1, parameters[i]);
+      }
+      LongStream.Builder cells = LongStream.builder();
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          cells.add(CellId.getLevelId(rs.getInt(1), rs.getLong(2)));
+        }
+      }
+      long[] result = cells.build().toArray();
+      Arrays.sort(result);
+      return result;
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public Connection getConnection() {
     return this.connection;
   }
@@ -109,6 +179,41 @@ public class OSHDBJdbc extends OSHDBDatabase implements AutoCloseable {
     return this.useMultithreading;
   }
 
+  /**
+   * Sets whether the keytables of this database are loaded into memory (once, on first use) and
+   * shared by all tag translators created from this database, instead of being queried on demand.
+   *
+   * @param preloadKeytables true to preload the keytables
+   * @return this database object
+   */
+  public OSHDBJdbc preloadKeytables(boolean preloadKeytables) {
+    this.preloadKeytables = preloadKeytables;
+    return this;
+  }
+
+  public boolean preloadKeytables() {
+    return this.preloadKeytables;
+  }
+
+  /**
+   * Creates a tag translator for the keytables of this database.
+   *
+   * @return a tag translator, using the preloaded keytables if enabled via
+   *         {@link #preloadKeytables(boolean)}
+   * @throws OSHDBKeytablesNotFoundException if this database doesn't contain keytables
+   */
+  public TagTranslator createTagTranslator() throws OSHDBKeytablesNotFoundException {
+    if (!this.preloadKeytables) {
+      return new TagTranslator(this.connection);
+    }
+    synchronized (this) {
+      if (this.preloadedKeytables == null) {
+        this.preloadedKeytables = PreloadedKeytables.load(this.connection);
+      }
+      return new TagTranslator(this.preloadedKeytables);
+    }
+  }
+
   @Override
   public void close() throws Exception {
     this.connection.close();
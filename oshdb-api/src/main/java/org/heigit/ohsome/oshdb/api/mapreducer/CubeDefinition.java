@@ -0,0 +1,113 @@
+package org.heigit.ohsome.oshdb.api.mapreducer;
+
+import java.io.Serializable;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableFunction;
+import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.geometry.Geo;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestampList;
+
+/**
+ * Declarative definition of a {@link StatisticsCube}.
+ *
+ * <p>A cube holds the value of a {@link Metric} of all entity snapshots matching a filter at the
+ * given timestamps, pre-aggregated per grid cell of the given grid level inside an extent.</p>
+ */
+public final class CubeDefinition implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The metric which is aggregated in a cube.
+   */
+  public enum Metric {
+    /**
+     * The number of matching entity snapshots. Can only be used for filters which select nodes,
+     * because other features can span multiple grid cells.
+     */
+    COUNT(null),
+    /**
+     * The length (in meters) of the matching entity snapshots' geometries.
+     */
+    LENGTH(snapshot -> Geo.lengthOf(snapshot.getGeometry())),
+    /**
+     * The area (in square meters) of the matching entity snapshots' geometries.
+     */
+    AREA(snapshot -> Geo.areaOf(snapshot.getGeometry()));
+
+    private final SerializableFunction<OSMEntitySnapshot, Double> function;
+
+    Metric(SerializableFunction<OSMEntitySnapshot, Double> function) {
+      this.function = function;
+    }
+
+    SerializableFunction<OSMEntitySnapshot, Double> getFunction() {
+      return function;
+    }
+  }
+
+  private final String name;
+  private final String filter;
+  private final TreeSet<OSHDBTimestamp> timestamps;
+  private final Metric metric;
+  private final int gridLevel;
+  private final OSHDBBoundingBox extent;
+
+  /**
+   * Creates a new cube definition.
+   *
+   * @param name the name under which the cube is stored in the database
+   * @param filter the filter (see {@link MapReducer#filter(String)}) which selects the entities
+   * @param timestamps the timestamps of the entity snapshots
+   * @param metric the metric to aggregate
+   * @param gridLevel the level of the grid whose cells hold the pre-aggregated values
+   * @param extent the region for which the cube is materialized, only grid cells which are
+   *        completely inside of it are stored
+   */
+  public CubeDefinition(@Nonnull String name, @Nonnull String filter,
+      @Nonnull OSHDBTimestampList timestamps, @Nonnull Metric metric, int gridLevel,
+      @Nonnull OSHDBBoundingBox extent) {
+    if (gridLevel < 0 || gridLevel > 30) {
+      throw new IllegalArgumentException("grid level must be between 0 and 30: " + gridLevel);
+    }
+    this.name = name;
+    this.filter = filter;
+    this.timestamps = new TreeSet<>(timestamps.get());
+    this.metric = metric;
+    this.gridLevel = gridLevel;
+    this.extent = extent;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getFilter() {
+    return filter;
+  }
+
+  public SortedSet<OSHDBTimestamp> getTimestamps() {
+    return new TreeSet<>(timestamps);
+  }
+
+  public Metric getMetric() {
+    return metric;
+  }
+
+  public int getGridLevel() {
+    return gridLevel;
+  }
+
+  public OSHDBBoundingBox getExtent() {
+    return extent;
+  }
+
+  @Override
+  public String toString() {
+    return "cube " + name + " (" + metric + " of " + filter + " at " + timestamps.size()
+        + " timestamps, grid level " + gridLevel + ", extent " + extent + ")";
+  }
+}
@@ -9,6 +9,7 @@ import java.io.Serializable;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -18,6 +19,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -41,23 +43,30 @@ import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
 import org.heigit.ohsome.oshdb.api.object.OSMContribution;
 import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
 import org.heigit.ohsome.oshdb.filter.AndOperator;
+import org.heigit.ohsome.oshdb.filter.CompiledFilter;
 import org.heigit.ohsome.oshdb.filter.Filter;
 import org.heigit.ohsome.oshdb.filter.FilterExpression;
 import org.heigit.ohsome.oshdb.filter.FilterParser;
 import org.heigit.ohsome.oshdb.filter.GeometryTypeFilter;
+import org.heigit.ohsome.oshdb.filter.IdFilterEquals;
+import org.heigit.ohsome.oshdb.filter.IdFilterEqualsAnyOf;
+import org.heigit.ohsome.oshdb.filter.IdFilterRange;
 import org.heigit.ohsome.oshdb.filter.TagFilterEquals;
 import org.heigit.ohsome.oshdb.filter.TagFilterEqualsAny;
 import org.heigit.ohsome.oshdb.filter.TypeFilter;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
 import org.heigit.ohsome.oshdb.index.XYGridTree;
 import org.heigit.ohsome.oshdb.index.XYGridTree.CellIdRange;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
 import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 import org.heigit.ohsome.oshdb.util.OSHDBTag;
 import org.heigit.ohsome.oshdb.util.OSHDBTagKey;
 import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+import org.heigit.ohsome.oshdb.util.celliterator.CellTagKeyFilter;
 import org.heigit.ohsome.oshdb.util.celliterator.ContributionType;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBInvalidTimestampException;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBKeytablesNotFoundException;
@@ -70,6 +79,7 @@ import org.heigit.ohsome.oshdb.util.tagtranslator.OSMTagInterface;
 import org.heigit.ohsome.oshdb.util.tagtranslator.OSMTagKey;
 import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
 import org.heigit.ohsome.oshdb.util.time.IsoDateTimeParser;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestampInterval;
 import org.heigit.ohsome.oshdb.util.time.OSHDBTimestampList;
 import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
 import org.heigit.ohsome.oshdb.util.time.TimestampFormatter;
@@ -158,9 +168,17 @@ public abstract class MapReducer<X> implements
   private Geometry polyFilter = null;
   protected EnumSet<OSMType> typeFilter = EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
   private final List<SerializablePredicate<OSHEntity>> preFilters = new ArrayList<>();
+  private CellTagKeyFilter cellTagKeyFilter = CellTagKeyFilter.NONE;
+  // sorted level ids of the grid cells which can contain matching data (null: any cell)
+  private long[] indexedCells = null;
   private final List<SerializablePredicate<OSMEntity>> filters = new ArrayList<>();
+  // filter expressions whose geometry checks can be started before geometries are clipped
+  private final List<FilterExpression> geometryPreFilters = new ArrayList<>();
   final List<MapFunction> mappers = new LinkedList<>();
 
+  // set if this map reducer is part of a batch of queries (see MapReducerBatch)
+  transient MapReducerBatch.Recording batchRecording = null;
+
 
   // basic constructor
   protected MapReducer(OSHDBDatabase oshdb, Class<? extends OSHDBMapReducible> forClass) {
@@ -184,8 +202,12 @@ public abstract class MapReducer<X> implements
     this.polyFilter = obj.polyFilter;
     this.typeFilter = obj.typeFilter.clone();
     this.preFilters.addAll(obj.preFilters);
+    this.cellTagKeyFilter = obj.cellTagKeyFilter;
+    this.indexedCells = obj.indexedCells;
     this.filters.addAll(obj.filters);
+    this.geometryPreFilters.addAll(obj.geometryPreFilters);
     this.mappers.addAll(obj.mappers);
+    this.batchRecording = obj.batchRecording;
   }
 
   @NotNull
@@ -492,10 +514,12 @@ public abstract class MapReducer<X> implements
     if (!keyId.isPresentInKeytables()) {
       LOG.warn("Tag key {} not found. No data will match this filter.", key.toString());
       ret.preFilters.add(ignored -> false);
+      ret.cellTagKeyFilter = ret.cellTagKeyFilter.and();
       ret.filters.add(ignored -> false);
       return ret;
     }
     ret.preFilters.add(oshEntitiy -> oshEntitiy.hasTagKey(keyId));
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.and(keyId.toInt());
     ret.filters.add(osmEntity -> osmEntity.hasTagKey(keyId));
     return ret;
   }
@@ -532,11 +556,13 @@ public abstract class MapReducer<X> implements
       LOG.warn("Tag {}={} not found. No data will match this filter.",
           tag.getKey(), tag.getValue());
       ret.preFilters.add(ignored -> false);
+      ret.cellTagKeyFilter = ret.cellTagKeyFilter.and();
       ret.filters.add(ignored -> false);
       return ret;
     }
     OSHDBTagKey keyId = new OSHDBTagKey(keyValueId.getKey());
     ret.preFilters.add(oshEntitiy -> oshEntitiy.hasTagKey(keyId));
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.and(keyId.toInt());
     ret.filters.add(osmEntity -> osmEntity.hasTagValue(keyValueId.getKey(), keyValueId.getValue()));
     return ret;
   }
@@ -560,6 +586,7 @@ public abstract class MapReducer<X> implements
       LOG.warn((values.size() > 0 ? "Tag key {} not found." : "Empty tag value list.")
           + " No data will match this filter.", key);
       ret.preFilters.add(ignored -> false);
+      ret.cellTagKeyFilter = ret.cellTagKeyFilter.and();
       ret.filters.add(ignored -> false);
       return ret;
     }
@@ -573,6 +600,7 @@ public abstract class MapReducer<X> implements
       }
     }
     ret.preFilters.add(oshEntitiy -> oshEntitiy.hasTagKey(keyId));
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.and(keyId);
     ret.filters.add(osmEntity -> {
       int[] tags = osmEntity.getRawTags();
       for (int i = 0; i < tags.length; i += 2) {
@@ -604,10 +632,12 @@ public abstract class MapReducer<X> implements
     if (!oshdbKey.isPresentInKeytables()) {
       LOG.warn("Tag key {} not found. No data will match this filter.", key);
       ret.preFilters.add(ignored -> false);
+      ret.cellTagKeyFilter = ret.cellTagKeyFilter.and();
       ret.filters.add(ignored -> false);
       return ret;
     }
     ret.preFilters.add(oshEntitiy -> oshEntitiy.hasTagKey(keyId));
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.and(keyId);
     ret.filters.add(osmEntity -> {
       int[] tags = osmEntity.getRawTags();
       for (int i = 0; i < tags.length; i += 2) {
@@ -639,6 +669,7 @@ public abstract class MapReducer<X> implements
     if (tags.isEmpty()) {
       LOG.warn("Empty tag list. No data will match this filter.");
       ret.preFilters.add(ignored -> false);
+      ret.cellTagKeyFilter = ret.cellTagKeyFilter.and();
       ret.filters.add(ignored -> false);
       return ret;
     }
@@ -665,6 +696,7 @@ public abstract class MapReducer<X> implements
         keyIds.add(keyId.toInt());
       }
     }
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.and(preKeyIds);
     ret.preFilters.add(oshEntitiy -> {
       for (int key : oshEntitiy.getRawTagKeys()) {
         if (preKeyIds.contains(key)) {
@@ -750,8 +782,15 @@ public abstract class MapReducer<X> implements
   @Contract(pure = true)
   public MapReducer<X> filter(FilterExpression f) {
     MapReducer<X> ret = this.copy();
+    FilterExpression compiled = CompiledFilter.compile(f);
+    // the compiled form only pays off for OSM entities, OSH entities use the expression tree
     ret.preFilters.add(f::applyOSH);
-    ret.filters.add(f::applyOSM);
+    ret.filters.add(compiled::applyOSM);
+    if (ret.forClass.equals(OSMEntitySnapshot.class)) {
+      // snapshots are dropped if their geometry doesn't match: let the cell iterator check this
+      // as early as possible. (contributions must be kept if their previous geometry matches)
+      ret.geometryPreFilters.add(compiled);
+    }
     // apply geometry filter as first map function
     final List<MapFunction> remainingMappers = List.copyOf(ret.mappers);
     ret.mappers.clear();
@@ -1919,7 +1958,7 @@ public abstract class MapReducer<X> implements
         if (this.keytables == null) {
           throw new OSHDBKeytablesNotFoundException();
         }
-        this.tagTranslator = new TagTranslator(this.keytables.getConnection());
+        this.tagTranslator = this.keytables.createTagTranslator();
       } catch (OSHDBKeytablesNotFoundException e) {
         LOG.error(e.getMessage());
         throw new RuntimeException(e);
@@ -1930,7 +1969,7 @@ public abstract class MapReducer<X> implements
 
   // Helper that chains multiple oshEntity filters together
   protected CellIterator.OSHEntityFilter getPreFilter() {
-    return this.preFilters.isEmpty()
+    CellIterator.OSHEntityFilter preFilter = this.preFilters.isEmpty()
         ? oshEntity -> true
         : oshEntity -> {
           for (SerializablePredicate<OSHEntity> filter : this.preFilters) {
@@ -1940,20 +1979,99 @@ public abstract class MapReducer<X> implements
           }
           return true;
         };
+    return this.cellTagKeyFilter.isEmpty()
+        ? preFilter
+        : withCellTagKeyFilter(preFilter, this.cellTagKeyFilter);
+  }
+
+  // Helper that adds a cell-level tag key check to an oshEntity filter
+  private static CellIterator.OSHEntityFilter withCellTagKeyFilter(
+      CellIterator.OSHEntityFilter preFilter, CellTagKeyFilter cellTagKeyFilter) {
+    return new CellIterator.OSHEntityFilter() {
+      @Override
+      public boolean test(OSHEntity oshEntity) {
+        return preFilter.test(oshEntity);
+      }
+
+      @Override
+      public boolean testCell(GridOSHEntity cell) {
+        return cellTagKeyFilter.test(cell);
+      }
+    };
+  }
+
+  /**
+   * Returns the tag keys which must be present in a grid cell for it to contain any matching data.
+   *
+   * <p>Backends can use this to skip grid cells before fetching or deserializing them.</p>
+   */
+  protected CellTagKeyFilter getCellTagKeyFilter() {
+    return this.cellTagKeyFilter;
+  }
+
+  /**
+   * Returns the time interval in which any entity of a grid cell must have been modified for the
+   * cell to contain any matching data.
+   *
+   * <p>Contributions can only be found in cells with modifications in the requested time interval,
+   * while snapshots require entities which have been created before the last requested timestamp.
+   * Backends can use this to skip grid cells before fetching or deserializing them (see
+   * {@link GridOSHEntity#mayBeModifiedBetween}).</p>
+   */
+  protected OSHDBTimestampInterval getCellModificationInterval() {
+    SortedSet<OSHDBTimestamp> timestamps = this.tstamps.get();
+    if (this.forClass.equals(OSMContribution.class)) {
+      return new OSHDBTimestampInterval(timestamps);
+    }
+    return new OSHDBTimestampInterval(new OSHDBTimestamp(Long.MIN_VALUE), timestamps.last());
   }
 
   // Helper that chains multiple osmEntity filters together
   protected CellIterator.OSMEntityFilter getFilter() {
-    return this.filters.isEmpty()
+    CellIterator.OSMEntityFilter filter = this.filters.isEmpty()
         ? osmEntity -> true
         : osmEntity -> {
-          for (SerializablePredicate<OSMEntity> filter : this.filters) {
-            if (!filter.test(osmEntity)) {
+          for (SerializablePredicate<OSMEntity> f : this.filters) {
+            if (!f.test(osmEntity)) {
               return false;
             }
           }
           return true;
         };
+    return this.geometryPreFilters.isEmpty()
+        ? filter
+        : withGeometryPreFilters(filter, List.copyOf(this.geometryPreFilters));
+  }
+
+  // Helper that adds early geometry checks of filter expressions to an osmEntity filter
+  private static CellIterator.OSMEntityFilter withGeometryPreFilters(
+      CellIterator.OSMEntityFilter filter, List<FilterExpression> geometryPreFilters) {
+    return new CellIterator.OSMEntityFilter() {
+      @Override
+      public boolean test(OSMEntity osmEntity) {
+        return filter.test(osmEntity);
+      }
+
+      @Override
+      public boolean testGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+        for (FilterExpression f : geometryPreFilters) {
+          if (!f.mayMatchGeometryType(entity, tagInterpreter)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public boolean testUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+        for (FilterExpression f : geometryPreFilters) {
+          if (!f.mayMatchUnclippedGeometry(entity, unclippedGeometry)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
   }
 
   // get all cell ids covered by the current area of interest's bounding box
@@ -1966,7 +2084,97 @@ public abstract class MapReducer<X> implements
       LOG.warn("area of interest not set or empty");
       return Collections.emptyList();
     }
-    return grid.bbox2CellIdRanges(this.bboxFilter, true);
+    Iterable<CellIdRange> cellIdRanges = grid.bbox2CellIdRanges(this.bboxFilter, true);
+    if (this.indexedCells == null) {
+      return cellIdRanges;
+    }
+    return restrictCellIdRanges(cellIdRanges, this.indexedCells);
+  }
+
+  /**
+   * Restricts cell id ranges to the given cells.
+   *
+   * @param cellIdRanges the cell id ranges to restrict
+   * @param cells the sorted level ids (see {@link CellId#getLevelId()}) of the cells to keep
+   * @return the (possibly split up) cell id ranges which cover only the given cells
+   */
+  static List<CellIdRange> restrictCellIdRanges(Iterable<CellIdRange> cellIdRanges, long[] cells) {
+    List<CellIdRange> result = new ArrayList<>();
+    for (CellIdRange cellIdRange : cellIdRanges) {
+      long end = cellIdRange.getEnd().getLevelId();
+      int pos = Arrays.binarySearch(cells, cellIdRange.getStart().getLevelId());
+      if (pos < 0) {
+        pos = -pos - 1;
+      }
+      while (pos < cells.length && cells[pos] <= end) {
+        long first = cells[pos];
+        // merge runs of consecutive cells into a single range
+        while (pos + 1 < cells.length && cells[pos + 1] == cells[pos] + 1
+            && cells[pos + 1] <= end) {
+          pos++;
+        }
+        result.add(CellIdRange.of(CellId.fromLevelId(first), CellId.fromLevelId(cells[pos])));
+        pos++;
+      }
+    }
+    return result;
+  }
+
+  // -----------------------------------------------------------------------------------------------
+  // Helper methods for the shared execution of a batch of queries (see MapReducerBatch)
+  // -----------------------------------------------------------------------------------------------
+
+  /**
+   * Checks if the given map reducer uses the same database, area of interest and timestamps as
+   * this one.
+   */
+  boolean hasSameSettings(MapReducer<?> other) {
+    return this.oshdb == other.oshdb
+        && (this.tagInterpreter == other.tagInterpreter
+            // (lazily initialized) default tag interpreters
+            || isDefault(this.tagInterpreter) && isDefault(other.tagInterpreter))
+        && this.tstamps.get().equals(other.tstamps.get())
+        && this.bboxFilter.equals(other.bboxFilter)
+        && (this.polyFilter == null
+            ? other.polyFilter == null
+            : this.polyFilter.equals(other.polyFilter));
+  }
+
+  private static boolean isDefault(TagInterpreter tagInterpreter) {
+    return tagInterpreter == null || tagInterpreter.getClass() == DefaultTagInterpreter.class;
+  }
+
+  /**
+   * Checks if the given map reducer iterates over exactly the same data as this one.
+   */
+  boolean hasSameFilters(MapReducer<?> other) {
+    return this.forClass.equals(other.forClass)
+        && this.typeFilter.equals(other.typeFilter)
+        && this.cellTagKeyFilter == other.cellTagKeyFilter
+        && Arrays.equals(this.indexedCells, other.indexedCells)
+        // lambdas are compared by identity
+        && this.preFilters.equals(other.preFilters)
+        && this.filters.equals(other.filters)
+        && this.geometryPreFilters.equals(other.geometryPreFilters);
+  }
+
+  /**
+   * Returns a copy of this map reducer which fetches all grid cells needed by the given map
+   * reducers.
+   */
+  MapReducer<X> copyForSharedScan(Collection<MapReducer<?>> mapReducers) {
+    MapReducer<X> ret = this.copy();
+    ret.batchRecording = null;
+    ret.typeFilter = EnumSet.noneOf(OSMType.class);
+    ret.cellTagKeyFilter = CellTagKeyFilter.NONE;
+    ret.indexedCells = new long[0];
+    for (MapReducer<?> mapReducer : mapReducers) {
+      ret.typeFilter.addAll(mapReducer.typeFilter);
+      ret.indexedCells = ret.indexedCells == null || mapReducer.indexedCells == null
+          ? null
+          : unionSorted(ret.indexedCells, mapReducer.indexedCells);
+    }
+    return ret;
   }
 
   // hack, so that we can use a variable that is of both Geometry and implements Polygonal (i.e.
@@ -2166,6 +2374,7 @@ public abstract class MapReducer<X> implements
     List<List<Filter>> filterNormalized = filter.normalize();
     // collect all OSMTypes in all of the clauses
     EnumSet<OSMType> allTypes = EnumSet.noneOf(OSMType.class);
+    List<EnumSet<OSMType>> clauseTypes = new ArrayList<>(filterNormalized.size());
     for (List<Filter> andSubFilter : filterNormalized) {
       EnumSet<OSMType> subTypes = EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
       for (Filter subFilter : andSubFilter) {
@@ -2176,8 +2385,13 @@ public abstract class MapReducer<X> implements
         }
       }
       allTypes.addAll(subTypes);
+      clauseTypes.add(subTypes);
     }
     mapRed = mapRed.osmType(allTypes);
+    // skip grid cells which don't contain the tag keys required by any of the clauses
+    mapRed = optimizeFiltersCellTagKeys(mapRed, filterNormalized);
+    // only fetch grid cells which are listed in the tag or id index (if present)
+    mapRed = optimizeFiltersCellIndex(mapRed, filterNormalized, clauseTypes);
     // (todo) intelligently group queried tags
     /*
      * here, we could optimize a few situations further: when a specific tag or key is used in all
@@ -2187,4 +2401,182 @@ public abstract class MapReducer<X> implements
      */
     return mapRed;
   }
+
+  /**
+   * Skips grid cells which don't contain all tag keys required by at least one clause of the
+   * filter's DNF (see {@link CellTagKeyFilter#andAnyOf}).
+   *
+   * <p>This is only possible if every clause requires at least one tag key to be present. Filters
+   * with a single clause are already covered by the basic optimizations.</p>
+   *
+   * @param mapRed the mapReducer to optimize
+   * @param filterNormalized the DNF of the filter expression
+   * @param <O> the type of the mapReducer to optimize (can be anything)
+   * @return a mapReducer which skips cells that can't contain matching entities, or the unchanged
+   *         mapReducer if the filter doesn't require specific tag keys
+   */
+  private <O> MapReducer<O> optimizeFiltersCellTagKeys(MapReducer<O> mapRed,
+      List<List<Filter>> filterNormalized) {
+    if (filterNormalized.size() < 2) {
+      return mapRed;
+    }
+    List<int[]> keySets = new ArrayList<>(filterNormalized.size());
+    for (List<Filter> andSubFilter : filterNormalized) {
+      List<OSHDBTagKey> keys = new ArrayList<>(andSubFilter.size());
+      for (Filter subFilter : andSubFilter) {
+        if (subFilter instanceof TagFilterEquals) {
+          keys.add(new OSHDBTagKey(((TagFilterEquals) subFilter).getTag().getKey()));
+        } else if (subFilter instanceof TagFilterEqualsAny) {
+          keys.add(((TagFilterEqualsAny) subFilter).getTag());
+        }
+      }
+      if (keys.isEmpty()) {
+        // at least one clause can match entities with arbitrary tag keys
+        return mapRed;
+      }
+      if (keys.stream().allMatch(OSHDBTagKey::isPresentInKeytables)) {
+        // (clauses requiring a tag key which isn't in the keytables can't match anything)
+        keySets.add(keys.stream().mapToInt(OSHDBTagKey::toInt).toArray());
+      }
+    }
+    MapReducer<O> ret = mapRed.copy();
+    ret.cellTagKeyFilter = ret.cellTagKeyFilter.andAnyOf(keySets);
+    return ret;
+  }
+
+  /**
+   * Restricts the queried grid cells to the ones listed in the cell indices of the OSHDB (the
+   * inverted tag index and the id index).
+   *
+   * <p>This is only possible if every clause of the filter's DNF requires a specific tag (or tag
+   * key) to be present, or restricts the OSM ids of the matching entities. The cells of a clause
+   * are the intersection of the cells listed for each of these filters, the cells of the whole
+   * filter are the union of the cells of all clauses.</p>
+   *
+   * @param mapRed the mapReducer to optimize
+   * @param filterNormalized the DNF of the filter expression
+   * @param clauseTypes the OSM types which can be matched by the respective clauses of the DNF
+   * @param <O> the type of the mapReducer to optimize (can be anything)
+   * @return a mapReducer which only queries cells that can contain matching entities, or the
+   *         unchanged mapReducer if the cell indices can't be used
+   */
+  private <O> MapReducer<O> optimizeFiltersCellIndex(MapReducer<O> mapRed,
+      List<List<Filter>> filterNormalized, List<EnumSet<OSMType>> clauseTypes) {
+    if (!filterNormalized.stream().allMatch(andSubFilter ->
+        andSubFilter.stream().anyMatch(MapReducer::isIndexable))) {
+      // at least one clause can match entities with arbitrary tags and ids
+      return mapRed;
+    }
+    long[] cells = new long[0];
+    for (int i = 0; i < filterNormalized.size(); i++) {
+      long[] clauseCells = null;
+      for (Filter subFilter : filterNormalized.get(i)) {
+        if (!isIndexable(subFilter)) {
+          continue;
+        }
+        long[] filterCells = new long[0];
+        for (OSMType type : clauseTypes.get(i)) {
+          Optional<long[]> typeCells = this.indexCells(subFilter, type);
+          if (!typeCells.isPresent()) {
+            // no suitable index available
+            filterCells = null;
+            break;
+          }
+          filterCells = unionSorted(filterCells, typeCells.get());
+        }
+        if (filterCells != null) {
+          clauseCells = clauseCells == null
+              ? filterCells
+              : intersectSorted(clauseCells, filterCells);
+        }
+      }
+      if (clauseCells == null) {
+        return mapRed;
+      }
+      cells = unionSorted(cells, clauseCells);
+    }
+    MapReducer<O> ret = mapRed.copy();
+    ret.indexedCells = mapRed.indexedCells == null
+        ? cells
+        : intersectSorted(mapRed.indexedCells, cells);
+    return ret;
+  }
+
+  // checks if a filter can be looked up in one of the cell indices
+  private static boolean isIndexable(Filter filter) {
+    return filter instanceof TagFilterEquals || filter instanceof TagFilterEqualsAny
+        || filter instanceof IdFilterEquals || filter instanceof IdFilterEqualsAnyOf
+        || filter instanceof IdFilterRange;
+  }
+
+  // looks up the cells which can contain entities of the given type matching the given filter
+  private Optional<long[]> indexCells(Filter filter, OSMType type) {
+    if (filter instanceof TagFilterEquals) {
+      OSHDBTag tag = ((TagFilterEquals) filter).getTag();
+      return this.oshdb.tagIndexCells(type, tag.getKey(), tag.getValue());
+    } else if (filter instanceof TagFilterEqualsAny) {
+      return this.oshdb.tagIndexCells(type, ((TagFilterEqualsAny) filter).getTag().toInt(), -1);
+    } else if (filter instanceof IdFilterEquals) {
+      long id = ((IdFilterEquals) filter).getId();
+      return this.oshdb.idIndexCells(type, id, id);
+    } else if (filter instanceof IdFilterEqualsAnyOf) {
+      long[] cells = new long[0];
+      for (long id : ((IdFilterEqualsAnyOf) filter).getIds()) {
+        Optional<long[]> idCells = this.oshdb.idIndexCells(type, id, id);
+        if (!idCells.isPresent()) {
+          return Optional.empty();
+        }
+        cells = unionSorted(cells, idCells.get());
+      }
+      return Optional.of(cells);
+    } else if (filter instanceof IdFilterRange) {
+      IdFilterRange range = (IdFilterRange) filter;
+      return this.oshdb.idIndexCells(type, range.getFromId(), range.getToId());
+    }
+    return Optional.empty();
+  }
+
+  // union of two sorted arrays of distinct values
+  private static long[] unionSorted(long[] a, long[] b) {
+    long[] result = new long[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        result[k++] = a[i++];
+      } else if (a[i] > b[j]) {
+        result[k++] = b[j++];
+      } else {
+        result[k++] = a[i++];
+        j++;
+      }
+    }
+    while (i < a.length) {
+      result[k++] = a[i++];
+    }
+    while (j < b.length) {
+      result[k++] = b[j++];
+    }
+    return Arrays.copyOf(result, k);
+  }
+
+  // intersection of two sorted arrays of distinct values
+  private static long[] intersectSorted(long[] a, long[] b) {
+    long[] result = new long[Math.min(a.length, b.length)];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[k++] = a[i++];
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, k);
+  }
 }
@@ -0,0 +1,440 @@
+package org.heigit.ohsome.oshdb.api.mapreducer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import org.heigit.ohsome.oshdb.api.db.OSHDBDatabase;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableBiFunction;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableBinaryOperator;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableSupplier;
+import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.IterateAllEntry;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.IterateByTimestampEntry;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.locationtech.jts.geom.Geometry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A batch of queries which are executed together in a single pass over the data.
+ *
+ * <p>All queries of a batch must use the same database, area of interest and timestamps. Each
+ * grid cell is then fetched and decoded only once, and the entity snapshots or contributions
+ * produced by a shared {@link CellIterator} are dispatched to the filters, map and reduce
+ * functions of the individual queries. Queries on {@link OSMEntitySnapshotView snapshots} always
+ * share a pass over the data. Because the contributions of an entity depend on the filters of a
+ * query, queries on {@link OSMContributionView contributions} share a pass over the data only if
+ * they use exactly the same filters (i.e. they only differ in their map and reduce functions).</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * MapReducerBatch batch = oshdb.batch();
+ * MapReducer<OSMEntitySnapshot> base = OSMEntitySnapshotView.on(oshdb)
+ *     .areaOfInterest(bbox).timestamps(timestamps);
+ * Future<SortedMap<OSHDBTimestamp, Integer>> buildings = batch.add(base,
+ *     mr -> mr.osmTag("building").aggregateByTimestamp().count());
+ * Future<SortedMap<OSHDBTimestamp, Number>> roads = batch.add(base,
+ *     mr -> mr.osmTag("highway").aggregateByTimestamp().sum(s -> Geo.lengthOf(s.getGeometry())));
+ * batch.execute();
+ * }</pre>
+ *
+ * <p>A query is executed in two steps: First, it is applied to a map reducer which records its
+ * (first) reduce operation. After all recorded reduce operations have been executed together, the
+ * query is applied a second time, which returns the precomputed result. This means that queries
+ * must not have side effects and must not catch exceptions thrown by the reduce operation. Further
+ * reduce operations of a query (e.g. when it combines the results of several reductions) as well
+ * as streams are executed one by one. The same is true for all queries on backends which don't
+ * support shared execution (see {@link MapReducerBatchable}).</p>
+ */
+public class MapReducerBatch {
+  private static final Logger LOG = LoggerFactory.getLogger(MapReducerBatch.class);
+
+  /**
+   * A query on a map reducer.
+   *
+   * @param <X> the type of the map reducer's data
+   * @param <R> the type of the query's result
+   */
+  @FunctionalInterface
+  public interface Query<X, R> {
+    R apply(MapReducer<X> mapReducer) throws Exception;
+  }
+
+  private final OSHDBDatabase oshdb;
+  private final List<Entry<?, ?>> entries = new ArrayList<>();
+  private boolean executed = false;
+
+  public MapReducerBatch(OSHDBDatabase oshdb) {
+    this.oshdb = oshdb;
+  }
+
+  /**
+   * Adds a query to this batch.
+   *
+   * @param mapReducer the map reducer to run the query on
+   * @param query the query
+   * @param <X> the type of the map reducer's data
+   * @param <R> the type of the query's result
+   * @return a future which is completed with the result of the query by {@link #execute()}
+   * @throws IllegalArgumentException if the map reducer uses a different database, area of
+   *         interest or timestamps than the other queries of this batch
+   */
+  public synchronized <X, R> CompletableFuture<R> add(MapReducer<X> mapReducer,
+      Query<X, R> query) {
+    if (this.executed) {
+      throw new IllegalStateException("batch has already been executed");
+    }
+    if (mapReducer.oshdb != this.oshdb) {
+      throw new IllegalArgumentException("all queries of a batch must use the same database");
+    }
+    if (!this.entries.isEmpty() && !this.entries.get(0).mapReducer.hasSameSettings(mapReducer)) {
+      throw new IllegalArgumentException(
+          "all queries of a batch must use the same area of interest and timestamps");
+    }
+    Entry<X, R> entry = new Entry<>(mapReducer, query);
+    this.entries.add(entry);
+    return entry.result;
+  }
+
+  /**
+   * Executes all queries of this batch.
+   *
+   * <p>The result (or exception) of each query is passed to the future returned by
+   * {@link #add}. If a shared pass over the data fails, the queries of this pass are completed
+   * with its exception, while the other passes are still executed.</p>
+   *
+   * @throws Exception if any of the shared passes over the data fails (after all queries have
+   *         been completed)
+   */
+  public synchronized void execute() throws Exception {
+    if (this.executed) {
+      throw new IllegalStateException("batch has already been executed");
+    }
+    this.executed = true;
+    // record the reduce operations
+    List<Entry<?, ?>> recorded = new ArrayList<>();
+    for (Entry<?, ?> entry : this.entries) {
+      if (entry.record()) {
+        recorded.add(entry);
+      }
+    }
+    if (recorded.isEmpty()) {
+      return;
+    }
+    // execute them in as few passes over the data as possible
+    Map<Entry<?, ?>, List<Entry<?, ?>>> groups = new LinkedHashMap<>();
+    for (Entry<?, ?> entry : recorded) {
+      MapReducer<?> mapReducer = entry.recording.reduction.mapReducer;
+      Entry<?, ?> group = groups.keySet().stream()
+          .filter(leader -> {
+            MapReducer<?> other = leader.recording.reduction.mapReducer;
+            return mapReducer.forClass.equals(OSMEntitySnapshot.class)
+                ? other.forClass.equals(OSMEntitySnapshot.class)
+                : mapReducer.hasSameFilters(other);
+          })
+          .findFirst().orElse(entry);
+      groups.computeIfAbsent(group, ignored -> new ArrayList<>()).add(entry);
+    }
+    LOG.info("executing {} batched queries in {} pass(es) over the data",
+        recorded.size(), groups.size());
+    Exception failure = null;
+    try {
+      for (List<Entry<?, ?>> group : groups.values()) {
+        try {
+          executeShared(group.stream()
+              .map(entry -> entry.recording.reduction)
+              .collect(Collectors.toList()));
+        } catch (Exception e) {
+          group.forEach(entry -> entry.result.completeExceptionally(e));
+          if (failure == null) {
+            failure = e;
+          } else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+      // replay the queries with the results of the reduce operations
+      for (Entry<?, ?> entry : recorded) {
+        if (!entry.result.isDone()) {
+          entry.replay();
+        }
+      }
+    } catch (Error e) {
+      // never leave callers waiting for the futures
+      recorded.forEach(entry -> entry.result.completeExceptionally(e));
+      throw e;
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static void executeShared(List<Reduction<?>> reductions) throws Exception {
+    List<MapReducer<?>> mapReducers = reductions.stream()
+        .map(reduction -> reduction.mapReducer)
+        .collect(Collectors.toList());
+    // (a copy of a map reducer has the same backend)
+    MapReducerBatchable<?> leader =
+        (MapReducerBatchable<?>) mapReducers.get(0).copyForSharedScan(mapReducers);
+    TagInterpreter tagInterpreter = leader.getTagInterpreter();
+    CellIterator.OSHEntityFilter[] preFilters = new CellIterator.OSHEntityFilter[reductions.size()];
+    CellIterator.OSMEntityFilter[] filters = new CellIterator.OSMEntityFilter[reductions.size()];
+    for (int i = 0; i < reductions.size(); i++) {
+      preFilters[i] = mapReducers.get(i).getPreFilter();
+      filters[i] = mapReducers.get(i).getFilter();
+    }
+    final boolean isSnapshot = leader.forClass.equals(OSMEntitySnapshot.class);
+    final CellIterator cellIterator;
+    if (isSnapshot) {
+      cellIterator = new CellIterator(
+          leader.tstamps.get(),
+          leader.bboxFilter, leader.getPolyFilter(),
+          tagInterpreter, anyPreFilter(mapReducers, preFilters), anyFilter(mapReducers, filters),
+          false
+      );
+    } else {
+      // contributions are only shared between queries with identical filters
+      cellIterator = new CellIterator(
+          leader.tstamps.get(),
+          leader.bboxFilter, leader.getPolyFilter(),
+          tagInterpreter, preFilters[0], filters[0], false
+      );
+    }
+
+    Object[] identity = reductions.stream().map(Reduction::identity).toArray();
+    Object[] results = leader.getCellsStream()
+        .map(cell -> {
+          Object[] partial = new Object[reductions.size()];
+          if (isSnapshot) {
+            List<IterateByTimestampEntry> entries =
+                cellIterator.iterateByTimestamps(cell).collect(Collectors.toList());
+            for (int i = 0; i < partial.length; i++) {
+              if (!preFilters[i].testCell(cell)) {
+                partial[i] = identity[i];
+                continue;
+              }
+              final MapReducer<?> mapReducer = mapReducers.get(i);
+              final CellIterator.OSHEntityFilter preFilter = preFilters[i];
+              final CellIterator.OSMEntityFilter filter = filters[i];
+              partial[i] = reductions.get(i).apply(cell, new SharedCellIterator(
+                  entries.stream().filter(entry ->
+                      mapReducer.typeFilter.contains(entry.oshEntity.getType())
+                          && preFilter.test(entry.oshEntity)
+                          && filter.test(entry.osmEntity)
+                          && filter.testGeometryType(entry.osmEntity, tagInterpreter)
+                  ).collect(Collectors.toList()),
+                  null
+              ));
+            }
+          } else {
+            List<IterateAllEntry> entries =
+                cellIterator.iterateByContribution(cell).collect(Collectors.toList());
+            for (int i = 0; i < partial.length; i++) {
+              partial[i] = reductions.get(i).apply(cell, new SharedCellIterator(null, entries));
+            }
+          }
+          return partial;
+        })
+        .reduce(identity, (a, b) -> {
+          Object[] combined = new Object[a.length];
+          for (int i = 0; i < combined.length; i++) {
+            combined[i] = reductions.get(i).combine(a[i], b[i]);
+          }
+          return combined;
+        });
+    for (int i = 0; i < results.length; i++) {
+      reductions.get(i).result = results[i];
+    }
+  }
+
+  // accepts entities which are accepted by any of the given pre-filters
+  private static CellIterator.OSHEntityFilter anyPreFilter(List<MapReducer<?>> mapReducers,
+      CellIterator.OSHEntityFilter[] preFilters) {
+    return new CellIterator.OSHEntityFilter() {
+      @Override
+      public boolean test(OSHEntity oshEntity) {
+        for (int i = 0; i < preFilters.length; i++) {
+          if (mapReducers.get(i).typeFilter.contains(oshEntity.getType())
+              && preFilters[i].test(oshEntity)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public boolean testCell(GridOSHEntity cell) {
+        for (CellIterator.OSHEntityFilter preFilter : preFilters) {
+          if (preFilter.testCell(cell)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  // accepts entities which are accepted by any of the given filters
+  private static CellIterator.OSMEntityFilter anyFilter(List<MapReducer<?>> mapReducers,
+      CellIterator.OSMEntityFilter[] filters) {
+    return new CellIterator.OSMEntityFilter() {
+      @Override
+      public boolean test(OSMEntity osmEntity) {
+        for (int i = 0; i < filters.length; i++) {
+          if (mapReducers.get(i).typeFilter.contains(osmEntity.getType())
+              && filters[i].test(osmEntity)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public boolean testGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+        for (int i = 0; i < filters.length; i++) {
+          if (mapReducers.get(i).typeFilter.contains(entity.getType())
+              && filters[i].test(entity)
+              && filters[i].testGeometryType(entity, tagInterpreter)) {
+            return true;
+          }
+        }
+        return false;
+      }
+
+      @Override
+      public boolean testUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+        for (int i = 0; i < filters.length; i++) {
+          if (mapReducers.get(i).typeFilter.contains(entity.getType())
+              && filters[i].test(entity)
+              && filters[i].testUnclippedGeometry(entity, unclippedGeometry)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * A reduce operation recorded from a query.
+   */
+  private static class Reduction<S> {
+    private final MapReducerBatchable<?> mapReducer;
+    private final SerializableBiFunction<GridOSHEntity, CellIterator, S> processor;
+    private final SerializableSupplier<S> identitySupplier;
+    private final SerializableBinaryOperator<S> combiner;
+    private Object result;
+
+    private Reduction(MapReducerBatchable<?> mapReducer,
+        SerializableBiFunction<GridOSHEntity, CellIterator, S> processor,
+        SerializableSupplier<S> identitySupplier, SerializableBinaryOperator<S> combiner) {
+      this.mapReducer = mapReducer;
+      this.processor = processor;
+      this.identitySupplier = identitySupplier;
+      this.combiner = combiner;
+    }
+
+    private Object identity() {
+      return this.identitySupplier.get();
+    }
+
+    private Object apply(GridOSHEntity cell, CellIterator cellIterator) {
+      return this.processor.apply(cell, cellIterator);
+    }
+
+    @SuppressWarnings("unchecked") // results are only ever produced by this reduction
+    private Object combine(Object a, Object b) {
+      return this.combiner.apply((S) a, (S) b);
+    }
+  }
+
+  /**
+   * Records the first reduce operation of a query and replays its result.
+   */
+  static class Recording {
+    private enum State { RECORD, REPLAY, DONE }
+
+    private State state = State.RECORD;
+    private Reduction<?> reduction = null;
+
+    boolean isPending() {
+      return this.state != State.DONE;
+    }
+
+    @SuppressWarnings("unchecked") // the result was produced by the same reduce operation
+    <S> S reduce(MapReducerBatchable<?> mapReducer,
+        SerializableBiFunction<GridOSHEntity, CellIterator, S> processor,
+        SerializableSupplier<S> identitySupplier, SerializableBinaryOperator<S> combiner) {
+      switch (this.state) {
+        case RECORD:
+          this.reduction = new Reduction<>(mapReducer, processor, identitySupplier, combiner);
+          throw Recorded.INSTANCE;
+        case REPLAY:
+          this.state = State.DONE;
+          return (S) this.reduction.result;
+        default:
+          throw new IllegalStateException("reduce operation has already been replayed");
+      }
+    }
+  }
+
+  // aborts a query after its reduce operation has been recorded
+  private static class Recorded extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final Recorded INSTANCE = new Recorded();
+
+    private Recorded() {
+      super("reduce operation recorded", null, false, false);
+    }
+  }
+
+  private static class Entry<X, R> {
+    private final MapReducer<X> mapReducer;
+    private final Query<X, R> query;
+    private final CompletableFuture<R> result = new CompletableFuture<>();
+    private final Recording recording = new Recording();
+
+    private Entry(MapReducer<X> mapReducer, Query<X, R> query) {
+      this.mapReducer = mapReducer;
+      this.query = query;
+    }
+
+    private MapReducer<X> batched() {
+      MapReducer<X> ret = this.mapReducer.copy();
+      ret.batchRecording = this.recording;
+      return ret;
+    }
+
+    // returns true if a reduce operation has been recorded, otherwise the query is completed
+    private boolean record() {
+      try {
+        R value = this.query.apply(this.batched());
+        // no reduce operation (or one on a backend without support for batches)
+        this.recording.state = Recording.State.DONE;
+        this.result.complete(value);
+        return false;
+      } catch (Recorded recorded) {
+        return true;
+      } catch (Exception e) {
+        this.result.completeExceptionally(e);
+        return false;
+      }
+    }
+
+    private void replay() {
+      this.recording.state = Recording.State.REPLAY;
+      try {
+        this.result.complete(this.query.apply(this.batched()));
+      } catch (Exception e) {
+        this.result.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package org.heigit.ohsome.oshdb.api.mapreducer;
+
+import java.util.stream.Stream;
+import org.heigit.ohsome.oshdb.api.db.OSHDBDatabase;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableBiFunction;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableBinaryOperator;
+import org.heigit.ohsome.oshdb.api.generic.function.SerializableSupplier;
+import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+
+/**
+ * A map reducer of a backend which can execute its queries as part of a {@link MapReducerBatch},
+ * i.e. in a single pass over the data shared with other queries.
+ *
+ * <p>Such backends must provide the grid cells to process to the client (see
+ * {@link #getCellsStream()}). Queries on other backends are executed one by one inside a
+ * batch.</p>
+ *
+ * @param <X> the type that is returned by the currently set of mapper function. the next added
+ *        mapper function will be called with a parameter of this type as input
+ */
+public abstract class MapReducerBatchable<X> extends MapReducer<X> {
+
+  protected MapReducerBatchable(OSHDBDatabase oshdb,
+      Class<? extends OSHDBMapReducible> forClass) {
+    super(oshdb, forClass);
+  }
+
+  // copy constructor
+  protected MapReducerBatchable(MapReducerBatchable<?> obj) {
+    super(obj);
+  }
+
+  /**
+   * Returns true if the next reduce operation of this map reducer is executed as part of a batch.
+   *
+   * <p>Implementations must hand over their reduce operations to {@link #batchReduce} in this
+   * case.</p>
+   */
+  protected boolean isBatched() {
+    return this.batchRecording != null && this.batchRecording.isPending();
+  }
+
+  /**
+   * Hands over a reduce operation to the batch this map reducer is part of.
+   *
+   * @param processor the function which reduces the data of a single grid cell
+   * @param identitySupplier a factory function that returns a new object representing the neutral
+   *        element of the reduction
+   * @param combiner a function that calculates the "sum" of two &lt;S&gt; values
+   * @param <S> the data type of the reduction result
+   * @return the result of the reduce operation, computed in a shared pass over the data
+   */
+  protected <S> S batchReduce(
+      SerializableBiFunction<GridOSHEntity, CellIterator, S> processor,
+      SerializableSupplier<S> identitySupplier,
+      SerializableBinaryOperator<S> combiner
+  ) {
+    return this.batchRecording.reduce(this, processor, identitySupplier, combiner);
+  }
+
+  /**
+   * Returns all grid cells which have to be processed by this map reducer.
+   *
+   * <p>Used to execute a batch of queries in a single pass over the data.</p>
+   */
+  protected abstract Stream<GridOSHEntity> getCellsStream() throws Exception;
+}
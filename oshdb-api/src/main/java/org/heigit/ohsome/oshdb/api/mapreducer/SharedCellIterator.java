@@ -0,0 +1,38 @@
+package org.heigit.ohsome.oshdb.api.mapreducer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+
+/**
+ * A cell iterator which returns the (already computed) data of a single grid cell.
+ *
+ * <p>Used by {@link MapReducerBatch} to pass the results of a shared cell iterator to the cell
+ * processors of the individual queries.</p>
+ */
+class SharedCellIterator extends CellIterator {
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<IterateByTimestampEntry> snapshots;
+  private final transient List<IterateAllEntry> contributions;
+
+  SharedCellIterator(List<IterateByTimestampEntry> snapshots, List<IterateAllEntry> contributions) {
+    super(new TreeSet<>(), (OSHDBBoundingBox) null, null, null, null, false);
+    this.snapshots = snapshots == null ? Collections.emptyList() : snapshots;
+    this.contributions = contributions == null ? Collections.emptyList() : contributions;
+  }
+
+  @Override
+  public Stream<IterateByTimestampEntry> iterateByTimestamps(GridOSHEntity cell) {
+    return this.snapshots.stream();
+  }
+
+  @Override
+  public Stream<IterateAllEntry> iterateByContribution(GridOSHEntity cell) {
+    return this.contributions.stream();
+  }
+}
@@ -0,0 +1,377 @@
+package org.heigit.ohsome.oshdb.api.mapreducer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.heigit.ohsome.oshdb.api.db.OSHDBJdbc;
+import org.heigit.ohsome.oshdb.api.generic.OSHDBCombinedIndex;
+import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.filter.AndOperator;
+import org.heigit.ohsome.oshdb.filter.FilterExpression;
+import org.heigit.ohsome.oshdb.filter.FilterParser;
+import org.heigit.ohsome.oshdb.filter.GeometryTypeFilter;
+import org.heigit.ohsome.oshdb.filter.OrOperator;
+import org.heigit.ohsome.oshdb.filter.TypeFilter;
+import org.heigit.ohsome.oshdb.index.XYGrid;
+import org.heigit.ohsome.oshdb.index.XYGrid.IdRange;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTableNotFoundException;
+import org.heigit.ohsome.oshdb.util.geometry.OSHDBGeometryBuilder;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.util.PolygonExtracter;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.operation.union.CascadedPolygonUnion;
+
+/**
+ * A statistics cube: the pre-aggregated values of a metric (count, length or area) of the entity
+ * snapshots selected by a {@link CubeDefinition}, stored per grid cell in the database.
+ *
+ * <p>A cube answers queries for an arbitrary area of interest by summing up the pre-aggregated
+ * values of all grid cells which are completely inside of the area of interest. Only the remaining
+ * parts of the area of interest along its border are computed from the raw data, using a regular
+ * {@link MapReducer} with the filter and timestamps of the cube.</p>
+ *
+ * <p>This works because lengths and areas of clipped geometries can be summed up. Counts can not
+ * (a feature spanning multiple grid cells would be counted once per cell), which is why cubes of
+ * the {@link CubeDefinition.Metric#COUNT COUNT} metric can only be defined for filters which
+ * select nodes.</p>
+ *
+ * <p>Example:</p>
+ * <pre>{@code
+ * StatisticsCube.materialize(oshdb, new CubeDefinition("highway_length",
+ *     "type:way and highway=*", timestamps, Metric.LENGTH, 14, extent));
+ * ...
+ * SortedMap<OSHDBTimestamp, Number> result = StatisticsCube.load(oshdb, "highway_length")
+ *     .aggregate(areaOfInterest);
+ * }</pre>
+ */
+public class StatisticsCube {
+  private final OSHDBJdbc oshdb;
+  private final CubeDefinition definition;
+  private final XYGrid grid;
+  // values of the non-empty cells, indexed like the cube's timestamps
+  private final Map<Long, double[]> cells;
+
+  private StatisticsCube(OSHDBJdbc oshdb, CubeDefinition definition, Map<Long, double[]> cells) {
+    this.oshdb = oshdb;
+    this.definition = definition;
+    this.grid = new XYGrid(definition.getGridLevel());
+    this.cells = cells;
+  }
+
+  /**
+   * Computes the cube of the given definition and stores it in the database, replacing any
+   * existing cube of the same name.
+   *
+   * @param oshdb the database to compute the cube from and to store the cube in
+   * @param definition the definition of the cube
+   * @return the computed cube
+   * @throws IllegalArgumentException if the cube uses the {@code COUNT} metric with a filter which
+   *         doesn't only select nodes
+   * @throws Exception if the computation fails or the cube cannot be stored
+   */
+  public static StatisticsCube materialize(OSHDBJdbc oshdb, CubeDefinition definition)
+      throws Exception {
+    MapReducer<OSMEntitySnapshot> snapshots = OSMEntitySnapshotView.on(oshdb)
+        .timestamps(definition::getTimestamps);
+    FilterExpression filter = parseFilter(snapshots, definition);
+    XYGrid grid = new XYGrid(definition.getGridLevel());
+    OSHDBBoundingBox extent = definition.getExtent();
+    Map<Long, Polygon> cellGeometries = new HashMap<>();
+    for (IdRange range : grid.bbox2CellIdRanges(extent, false)) {
+      for (long id = range.getStart(); id <= range.getEnd(); id++) {
+        OSHDBBoundingBox cellBbox = grid.getCellDimensions(id);
+        if (cellBbox.isInside(extent)) {
+          cellGeometries.put(id, OSHDBGeometryBuilder.getGeometry(cellBbox));
+        }
+      }
+    }
+
+    List<OSHDBTimestamp> timestamps = new ArrayList<>(definition.getTimestamps());
+    Map<Long, double[]> cells = new HashMap<>();
+    if (!cellGeometries.isEmpty()) {
+      MapAggregator<OSHDBCombinedIndex<Long, OSHDBTimestamp>, OSMEntitySnapshot> aggregator =
+          snapshots.areaOfInterest(extent).aggregateByGeometry(cellGeometries)
+              .filter(filter)
+              .aggregateByTimestamp(OSMEntitySnapshot::getTimestamp);
+      SortedMap<OSHDBCombinedIndex<Long, OSHDBTimestamp>, ? extends Number> values =
+          definition.getMetric() == CubeDefinition.Metric.COUNT
+              ? aggregator.count()
+              : aggregator.sum(definition.getMetric().getFunction());
+      values.forEach((index, value) -> {
+        if (value.doubleValue() != 0) {
+          cells.computeIfAbsent(index.getFirstIndex(), ignored -> new double[timestamps.size()])
+              [timestamps.indexOf(index.getSecondIndex())] = value.doubleValue();
+        }
+      });
+    }
+    store(oshdb, definition, cells, timestamps);
+    return new StatisticsCube(oshdb, definition, cells);
+  }
+
+  /**
+   * Loads a previously materialized cube from the database.
+   *
+   * @param oshdb the database the cube is stored in
+   * @param name the name of the cube
+   * @return the cube
+   * @throws OSHDBTableNotFoundException if the database doesn't contain any cubes
+   * @throws IllegalArgumentException if the database doesn't contain a cube of this name
+   * @throws SQLException if the cube cannot be read
+   * @throws IOException if the cube's definition cannot be read
+   * @throws ClassNotFoundException if the cube's definition cannot be read
+   */
+  public static StatisticsCube load(OSHDBJdbc oshdb, String name)
+      throws OSHDBTableNotFoundException, SQLException, IOException, ClassNotFoundException {
+    String cubeTable = TableNames.T_CUBES.toString(oshdb.prefix());
+    String cellTable = TableNames.T_CUBE_CELLS.toString(oshdb.prefix());
+    Connection conn = oshdb.getConnection();
+    CubeDefinition definition;
+    try (PreparedStatement stmt =
+        conn.prepareStatement("select definition from " + cubeTable + " where name = ?")) {
+      stmt.setString(1, name);
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (!rs.next()) {
+          throw new IllegalArgumentException("unknown statistics cube: " + name);
+        }
+        definition = (CubeDefinition)
+            new ObjectInputStream(rs.getBinaryStream(1)).readObject();
+      }
+    } catch (SQLException e) {
+      if (!hasTable(conn, cubeTable)) {
+        throw new OSHDBTableNotFoundException(cubeTable);
+      }
+      throw e;
+    }
+
+    List<OSHDBTimestamp> timestamps = new ArrayList<>(definition.getTimestamps());
+    Map<OSHDBTimestamp, Integer> timestampIndex = new HashMap<>();
+    for (int i = 0; i < timestamps.size(); i++) {
+      timestampIndex.put(timestamps.get(i), i);
+    }
+    Map<Long, double[]> cells = new HashMap<>();
+    try (PreparedStatement stmt = conn.prepareStatement(
+        "select id, timestamp, value from " + cellTable + " where cube = ?")) {
+      stmt.setString(1, name);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          cells.computeIfAbsent(rs.getLong(1), ignored -> new double[timestamps.size()])
+              [timestampIndex.get(new OSHDBTimestamp(rs.getLong(2)))] = rs.getDouble(3);
+        }
+      }
+    }
+    return new StatisticsCube(oshdb, definition, cells);
+  }
+
+  public CubeDefinition getDefinition() {
+    return definition;
+  }
+
+  /**
+   * Returns the cube's metric at each of its timestamps inside the given area of interest.
+   *
+   * @param areaOfInterest the bounding box to query the data in
+   * @return the aggregated values (integers for the {@code COUNT} metric, doubles otherwise)
+   * @throws Exception if the computation of the border regions fails
+   */
+  public SortedMap<OSHDBTimestamp, Number> aggregate(OSHDBBoundingBox areaOfInterest)
+      throws Exception {
+    return this.aggregate(OSHDBGeometryBuilder.getGeometry(areaOfInterest));
+  }
+
+  /**
+   * Returns the cube's metric at each of its timestamps inside the given area of interest.
+   *
+   * @param areaOfInterest the polygon to query the data in
+   * @return the aggregated values (integers for the {@code COUNT} metric, doubles otherwise)
+   * @throws Exception if the computation of the border regions fails
+   */
+  public <P extends Geometry & Polygonal> SortedMap<OSHDBTimestamp, Number> aggregate(
+      P areaOfInterest) throws Exception {
+    List<OSHDBTimestamp> timestamps = new ArrayList<>(definition.getTimestamps());
+    double[] sums = new double[timestamps.size()];
+
+    // sum up the cells which are completely inside of the area of interest
+    PreparedGeometry preparedAreaOfInterest = PreparedGeometryFactory.prepare(areaOfInterest);
+    OSHDBBoundingBox extent = OSHDBBoundingBox.intersect(definition.getExtent(),
+        OSHDBGeometryBuilder.boundingBoxOf(areaOfInterest.getEnvelopeInternal()));
+    List<Geometry> insideCells = new ArrayList<>();
+    for (IdRange range : grid.bbox2CellIdRanges(extent, false)) {
+      for (long id = range.getStart(); id <= range.getEnd(); id++) {
+        OSHDBBoundingBox cellBbox = grid.getCellDimensions(id);
+        if (!cellBbox.isInside(definition.getExtent())) {
+          continue;
+        }
+        Polygon cellGeometry = OSHDBGeometryBuilder.getGeometry(cellBbox);
+        if (preparedAreaOfInterest.covers(cellGeometry)) {
+          insideCells.add(cellGeometry);
+          double[] values = cells.get(id);
+          for (int i = 0; values != null && i < values.length; i++) {
+            sums[i] += values[i];
+          }
+        }
+      }
+    }
+
+    // compute the remaining border regions from the raw data
+    Geometry border = insideCells.isEmpty()
+        ? areaOfInterest
+        : areaOfInterest.difference(CascadedPolygonUnion.union(insideCells));
+    if (!(border instanceof Polygonal)) {
+      // the difference can be a collection which also contains lower dimensional leftovers of
+      // the cell boundaries: only its polygonal parts have an area to be queried
+      List<?> parts = PolygonExtracter.getPolygons(border);
+      border = parts.size() == 1
+          ? (Polygon) parts.get(0)
+          : border.getFactory().createMultiPolygon(GeometryFactory.toPolygonArray(parts));
+    }
+    if (!border.isEmpty()) {
+      MapReducer<OSMEntitySnapshot> snapshots = OSMEntitySnapshotView.on(oshdb)
+          .timestamps(definition::getTimestamps);
+      MapAggregator<OSHDBTimestamp, OSMEntitySnapshot> aggregator = snapshots
+          .areaOfInterest((Geometry & Polygonal) border)
+          .filter(parseFilter(snapshots, definition))
+          .aggregateByTimestamp();
+      SortedMap<OSHDBTimestamp, ? extends Number> values =
+          definition.getMetric() == CubeDefinition.Metric.COUNT
+              ? aggregator.count()
+              : aggregator.sum(definition.getMetric().getFunction());
+      for (int i = 0; i < timestamps.size(); i++) {
+        Number value = values.get(timestamps.get(i));
+        sums[i] += value == null ? 0 : value.doubleValue();
+      }
+    }
+
+    SortedMap<OSHDBTimestamp, Number> result = new TreeMap<>();
+    for (int i = 0; i < timestamps.size(); i++) {
+      result.put(timestamps.get(i), definition.getMetric() == CubeDefinition.Metric.COUNT
+          ? (Number) (int) Math.round(sums[i])
+          : (Number) sums[i]);
+    }
+    return result;
+  }
+
+  private static FilterExpression parseFilter(MapReducer<?> mapReducer,
+      CubeDefinition definition) {
+    FilterExpression filter =
+        new FilterParser(mapReducer.getTagTranslator()).parse(definition.getFilter());
+    if (definition.getMetric() == CubeDefinition.Metric.COUNT && !selectsOnlyNodes(filter)) {
+      throw new IllegalArgumentException(
+          "statistics cubes of the COUNT metric can only be defined for nodes: " + definition);
+    }
+    return filter;
+  }
+
+  private static boolean selectsOnlyNodes(FilterExpression filter) {
+    if (filter instanceof TypeFilter) {
+      return ((TypeFilter) filter).getType() == OSMType.NODE;
+    } else if (filter instanceof GeometryTypeFilter) {
+      return ((GeometryTypeFilter) filter).getOSMTypes().equals(EnumSet.of(OSMType.NODE));
+    } else if (filter instanceof AndOperator) {
+      return selectsOnlyNodes(((AndOperator) filter).getLeftOperand())
+          || selectsOnlyNodes(((AndOperator) filter).getRightOperand());
+    } else if (filter instanceof OrOperator) {
+      return selectsOnlyNodes(((OrOperator) filter).getLeftOperand())
+          && selectsOnlyNodes(((OrOperator) filter).getRightOperand());
+    }
+    return false;
+  }
+
+  private static void store(OSHDBJdbc oshdb, CubeDefinition definition,
+      Map<Long, double[]> cells, List<OSHDBTimestamp> timestamps)
+      throws SQLException, IOException {
+    String cubeTable = TableNames.T_CUBES.toString(oshdb.prefix());
+    String cellTable = TableNames.T_CUBE_CELLS.toString(oshdb.prefix());
+    Connection conn = oshdb.getConnection();
+    boolean autoCommit = conn.getAutoCommit();
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("create table if not exists " + cubeTable
+          + "(name varchar primary key, definition blob)");
+      stmt.execute("create table if not exists " + cellTable
+          + "(cube varchar, id bigint, timestamp bigint, value double,"
+          + " primary key(cube, id, timestamp))");
+    }
+    // replace the old cube in one transaction, so that readers never see it partially stored
+    conn.setAutoCommit(false);
+    try {
+      replace(conn, cubeTable, cellTable, definition, cells, timestamps);
+      conn.commit();
+    } catch (Throwable e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(autoCommit);
+    }
+  }
+
+  private static void replace(Connection conn, String cubeTable, String cellTable,
+      CubeDefinition definition, Map<Long, double[]> cells, List<OSHDBTimestamp> timestamps)
+      throws SQLException, IOException {
+    for (String table : new String[] {cubeTable, cellTable}) {
+      try (PreparedStatement stmt = conn.prepareStatement("delete from " + table
+          + " where " + (table.equals(cubeTable) ? "name" : "cube") + " = ?")) {
+        stmt.setString(1, definition.getName());
+        stmt.executeUpdate();
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(definition);
+    }
+    try (PreparedStatement stmt =
+        conn.prepareStatement("insert into " + cubeTable + " (name, definition) values (?, ?)")) {
+      stmt.setString(1, definition.getName());
+      stmt.setBytes(2, out.toByteArray());
+      stmt.executeUpdate();
+    }
+    try (PreparedStatement stmt = conn.prepareStatement("insert into " + cellTable
+        + " (cube, id, timestamp, value) values (?, ?, ?, ?)")) {
+      for (Map.Entry<Long, double[]> cell : cells.entrySet()) {
+        double[] values = cell.getValue();
+        for (int i = 0; i < values.length; i++) {
+          if (values[i] == 0) {
+            continue;
+          }
+          stmt.setString(1, definition.getName());
+          stmt.setLong(2, cell.getKey());
+          stmt.setLong(3, timestamps.get(i).getRawUnixTimestamp());
+          stmt.setDouble(4, values[i]);
+          stmt.addBatch();
+        }
+      }
+      stmt.executeBatch();
+    }
+  }
+
+  private static boolean hasTable(Connection conn, String table) throws SQLException {
+    try (ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[] {"TABLE"})) {
+      while (rs.next()) {
+        if (rs.getString("TABLE_NAME").equalsIgnoreCase(table)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -46,6 +46,7 @@ import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 import org.heigit.ohsome.oshdb.util.TableNames;
 import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+import org.heigit.ohsome.oshdb.util.celliterator.CellTagKeyFilter;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTimeoutException;
 import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.jetbrains.annotations.NotNull;
@@ -94,6 +95,22 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
     return cellIdRange.getStart().getId() <= id && cellIdRange.getEnd().getId() >= id;
   }
 
+  /**
+   * Checks if a cell can contain data matching the given tag key filter, without deserializing
+   * the cell if it is stored in Ignite's binary format.
+   */
+  static boolean cellMayMatch(Object cell, CellTagKeyFilter cellTagKeyFilter) {
+    if (cellTagKeyFilter.isEmpty()) {
+      return true;
+    }
+    if (cell instanceof BinaryObject) {
+      BinaryObject binaryCell = (BinaryObject) cell;
+      return !binaryCell.hasField("tagKeys")
+          || cellTagKeyFilter.test(binaryCell.<int[]>field("tagKeys"));
+    }
+    return !(cell instanceof GridOSHEntity) || cellTagKeyFilter.test((GridOSHEntity) cell);
+  }
+
   @NotNull
   @Override
   protected MapReducer<X> copy() {
@@ -118,7 +135,8 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       String cacheName = TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix());
       return mapReduceOnIgniteCache((OSHDBIgnite) this.oshdb, cacheName, identitySupplier, combiner,
           new MapReduceCellsOSMContributionOnIgniteCacheComputeJob<>(
-              tagInterpreter, cacheName, this.getCellIdRangesByLevel(), this.tstamps.get(),
+              tagInterpreter, cacheName, this.getCellIdRangesByLevel(),
+              this.getCellTagKeyFilter(), this.tstamps.get(),
               this.bboxFilter, this.getPolyFilter(), this.getPreFilter(), this.getFilter(),
               mapper, identitySupplier, accumulator, combiner));
     }).reduce(identitySupplier.get(), combiner);
@@ -136,7 +154,8 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       String cacheName = TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix());
       return mapReduceOnIgniteCache((OSHDBIgnite) this.oshdb, cacheName, identitySupplier, combiner,
           new FlatMapReduceCellsOSMContributionOnIgniteCacheComputeJob<>(
-              tagInterpreter, cacheName, this.getCellIdRangesByLevel(), this.tstamps.get(),
+              tagInterpreter, cacheName, this.getCellIdRangesByLevel(),
+              this.getCellTagKeyFilter(), this.tstamps.get(),
               this.bboxFilter, this.getPolyFilter(), this.getPreFilter(), this.getFilter(),
               mapper, identitySupplier, accumulator, combiner));
     }).reduce(identitySupplier.get(), combiner);
@@ -155,7 +174,8 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       String cacheName = TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix());
       return mapReduceOnIgniteCache((OSHDBIgnite) this.oshdb, cacheName, identitySupplier, combiner,
           new MapReduceCellsOSMEntitySnapshotOnIgniteCacheComputeJob<>(
-              tagInterpreter, cacheName, this.getCellIdRangesByLevel(), this.tstamps.get(),
+              tagInterpreter, cacheName, this.getCellIdRangesByLevel(),
+              this.getCellTagKeyFilter(), this.tstamps.get(),
               this.bboxFilter, this.getPolyFilter(), this.getPreFilter(), this.getFilter(),
               mapper, identitySupplier, accumulator, combiner));
     }).reduce(identitySupplier.get(), combiner);
@@ -173,7 +193,8 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       String cacheName = TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix());
       return mapReduceOnIgniteCache((OSHDBIgnite) this.oshdb, cacheName, identitySupplier, combiner,
           new FlatMapReduceCellsOSMEntitySnapshotOnIgniteCacheComputeJob<>(
-              tagInterpreter, cacheName, this.getCellIdRangesByLevel(), this.tstamps.get(),
+              tagInterpreter, cacheName, this.getCellIdRangesByLevel(),
+              this.getCellTagKeyFilter(), this.tstamps.get(),
               this.bboxFilter, this.getPolyFilter(), this.getPreFilter(), this.getFilter(),
               mapper, identitySupplier, accumulator, combiner));
     }).reduce(identitySupplier.get(), combiner);
@@ -192,6 +213,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
             (OSHDBIgnite) this.oshdb,
             TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix()),
             this.getCellIdRangesByLevel(),
+            this.getCellTagKeyFilter(),
             new CellIterator(this.tstamps.get(), this.bboxFilter, this.getPolyFilter(),
                 tagInterpreter, this.getPreFilter(), this.getFilter(), false),
             Kernels.getOSMContributionCellStreamer(mapper)
@@ -209,6 +231,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
             (OSHDBIgnite) this.oshdb,
             TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix()),
             this.getCellIdRangesByLevel(),
+            this.getCellTagKeyFilter(),
             new CellIterator(this.tstamps.get(), this.bboxFilter, this.getPolyFilter(),
                 tagInterpreter, this.getPreFilter(), this.getFilter(), false),
             Kernels.getOSMContributionGroupingCellStreamer(mapper)
@@ -226,6 +249,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
             (OSHDBIgnite) this.oshdb,
             TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix()),
             this.getCellIdRangesByLevel(),
+            this.getCellTagKeyFilter(),
             new CellIterator(this.tstamps.get(), this.bboxFilter, this.getPolyFilter(),
                 tagInterpreter, this.getPreFilter(), this.getFilter(), false),
             Kernels.getOSMEntitySnapshotCellStreamer(mapper)
@@ -243,6 +267,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
             (OSHDBIgnite) this.oshdb,
             TableNames.forOSMType(osmType).get().toString(this.oshdb.prefix()),
             this.getCellIdRangesByLevel(),
+            this.getCellTagKeyFilter(),
             new CellIterator(this.tstamps.get(), this.bboxFilter, this.getPolyFilter(),
                 tagInterpreter, this.getPreFilter(), this.getFilter(), false),
             Kernels.getOSMEntitySnapshotGroupingCellStreamer(mapper)
@@ -290,6 +315,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
     /* computation settings */
     final String cacheName;
     final Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel;
+    final CellTagKeyFilter cellTagKeyFilter;
     final CellIterator cellIterator;
     final SerializableFunction<V, M> mapper;
     final SerializableSupplier<S> identitySupplier;
@@ -298,12 +324,13 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
 
     MapReduceCellsOnIgniteCacheComputeJob(TagInterpreter tagInterpreter, String cacheName,
         Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
-        SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
+        CellTagKeyFilter cellTagKeyFilter, SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
         CellIterator.OSHEntityFilter preFilter, CellIterator.OSMEntityFilter filter,
         SerializableFunction<V, M> mapper, SerializableSupplier<S> identitySupplier,
         SerializableBiFunction<S, R, S> accumulator, SerializableBinaryOperator<S> combiner) {
       this.cacheName = cacheName;
       this.cellIdRangesByLevel = cellIdRangesByLevel;
+      this.cellTagKeyFilter = cellTagKeyFilter;
       this.cellIterator = new CellIterator(
           tstamps, bbox, poly, tagInterpreter, preFilter, filter, false
       );
@@ -334,6 +361,7 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
                 QueryCursor<S> cursor = cache.query(
                     new ScanQuery<Long, Object>((key, cell) ->
                         this.isActive() && this.cellKeyInRange(key)
+                            && cellMayMatch(cell, this.cellTagKeyFilter)
                     ).setPartition(part), cacheEntry -> {
                       if (!this.isActive()) {
                         return identitySupplier.get();
@@ -367,13 +395,14 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       extends MapReduceCellsOnIgniteCacheComputeJob<OSMContribution, R, R, S, P> {
     MapReduceCellsOSMContributionOnIgniteCacheComputeJob(TagInterpreter tagInterpreter,
         String cacheName, Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
-        SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
+        CellTagKeyFilter cellTagKeyFilter, SortedSet<OSHDBTimestamp> tstamps,
+        OSHDBBoundingBox bbox, P poly,
         CellIterator.OSHEntityFilter preFilter, CellIterator.OSMEntityFilter filter,
         SerializableFunction<OSMContribution, R> mapper,
         SerializableSupplier<S> identitySupplier, SerializableBiFunction<S, R, S> accumulator,
         SerializableBinaryOperator<S> combiner) {
-      super(tagInterpreter, cacheName, cellIdRangesByLevel, tstamps, bbox, poly, preFilter, filter,
-          mapper, identitySupplier, accumulator, combiner);
+      super(tagInterpreter, cacheName, cellIdRangesByLevel, cellTagKeyFilter, tstamps, bbox, poly,
+          preFilter, filter, mapper, identitySupplier, accumulator, combiner);
     }
 
     @Override
@@ -392,13 +421,14 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       extends MapReduceCellsOnIgniteCacheComputeJob<List<OSMContribution>, R, Iterable<R>, S, P> {
     FlatMapReduceCellsOSMContributionOnIgniteCacheComputeJob(TagInterpreter tagInterpreter,
         String cacheName, Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
-        SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
+        CellTagKeyFilter cellTagKeyFilter, SortedSet<OSHDBTimestamp> tstamps,
+        OSHDBBoundingBox bbox, P poly,
         CellIterator.OSHEntityFilter preFilter, CellIterator.OSMEntityFilter filter,
         SerializableFunction<List<OSMContribution>, Iterable<R>> mapper,
         SerializableSupplier<S> identitySupplier, SerializableBiFunction<S, R, S> accumulator,
         SerializableBinaryOperator<S> combiner) {
-      super(tagInterpreter, cacheName, cellIdRangesByLevel, tstamps, bbox, poly, preFilter, filter,
-          mapper, identitySupplier, accumulator, combiner);
+      super(tagInterpreter, cacheName, cellIdRangesByLevel, cellTagKeyFilter, tstamps, bbox, poly,
+          preFilter, filter, mapper, identitySupplier, accumulator, combiner);
     }
 
     @Override
@@ -417,13 +447,14 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       extends MapReduceCellsOnIgniteCacheComputeJob<OSMEntitySnapshot, R, R, S, P> {
     MapReduceCellsOSMEntitySnapshotOnIgniteCacheComputeJob(TagInterpreter tagInterpreter,
         String cacheName, Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
-        SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
+        CellTagKeyFilter cellTagKeyFilter, SortedSet<OSHDBTimestamp> tstamps,
+        OSHDBBoundingBox bbox, P poly,
         CellIterator.OSHEntityFilter preFilter, CellIterator.OSMEntityFilter filter,
         SerializableFunction<OSMEntitySnapshot, R> mapper,
         SerializableSupplier<S> identitySupplier, SerializableBiFunction<S, R, S> accumulator,
         SerializableBinaryOperator<S> combiner) {
-      super(tagInterpreter, cacheName, cellIdRangesByLevel, tstamps, bbox, poly, preFilter, filter,
-          mapper, identitySupplier, accumulator, combiner);
+      super(tagInterpreter, cacheName, cellIdRangesByLevel, cellTagKeyFilter, tstamps, bbox, poly,
+          preFilter, filter, mapper, identitySupplier, accumulator, combiner);
     }
 
     @Override
@@ -442,13 +473,14 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       extends MapReduceCellsOnIgniteCacheComputeJob<List<OSMEntitySnapshot>, R, Iterable<R>, S, P> {
     FlatMapReduceCellsOSMEntitySnapshotOnIgniteCacheComputeJob(TagInterpreter tagInterpreter,
         String cacheName, Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
-        SortedSet<OSHDBTimestamp> tstamps, OSHDBBoundingBox bbox, P poly,
+        CellTagKeyFilter cellTagKeyFilter, SortedSet<OSHDBTimestamp> tstamps,
+        OSHDBBoundingBox bbox, P poly,
         CellIterator.OSHEntityFilter preFilter, CellIterator.OSMEntityFilter filter,
         SerializableFunction<List<OSMEntitySnapshot>, Iterable<R>> mapper,
         SerializableSupplier<S> identitySupplier, SerializableBiFunction<S, R, S> accumulator,
         SerializableBinaryOperator<S> combiner) {
-      super(tagInterpreter, cacheName, cellIdRangesByLevel, tstamps, bbox, poly, preFilter, filter,
-          mapper, identitySupplier, accumulator, combiner);
+      super(tagInterpreter, cacheName, cellIdRangesByLevel, cellTagKeyFilter, tstamps, bbox, poly,
+          preFilter, filter, mapper, identitySupplier, accumulator, combiner);
     }
 
     @Override
@@ -523,12 +555,14 @@ public class MapReducerIgniteScanQuery<X> extends MapReducer<X> {
       OSHDBIgnite oshdb,
       String cacheName,
       Map<Integer, TreeMap<Long, CellIdRange>> cellIdRangesByLevel,
+      CellTagKeyFilter cellTagKeyFilter,
       CellIterator cellIterator,
       CellProcessor<Stream<X>> cellProcessor
   ) {
     QueryCursor<List<X>> cursor = oshdb.getIgnite().cache(cacheName).withKeepBinary().query(
         new ScanQuery<Long, Object>((key, cell) ->
             /*isActive() &&*/ MapReducerIgniteScanQuery.cellKeyInRange(key, cellIdRangesByLevel)
+                && MapReducerIgniteScanQuery.cellMayMatch(cell, cellTagKeyFilter)
         ).setPageSize(SCAN_QUERY_PAGE_SIZE), cacheEntry -> {
           // iterate over the history of all OSM objects in the current cell
           Object data = cacheEntry.getValue();
@@ -5,9 +5,15 @@ import java.io.ObjectInputStream;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterators;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -15,15 +21,18 @@ import java.util.stream.StreamSupport;
 import javax.annotation.Nonnull;
 import org.heigit.ohsome.oshdb.api.db.OSHDBDatabase;
 import org.heigit.ohsome.oshdb.api.db.OSHDBJdbc;
-import org.heigit.ohsome.oshdb.api.mapreducer.MapReducer;
+import org.heigit.ohsome.oshdb.api.mapreducer.MapReducerBatchable;
 import org.heigit.ohsome.oshdb.api.mapreducer.backend.Kernels.CancelableProcessStatus;
 import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
 import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
 import org.heigit.ohsome.oshdb.index.XYGridTree.CellIdRange;
 import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.celliterator.CellTagKeyFilter;
 import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTimeoutException;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestampInterval;
 
-abstract class MapReducerJdbc<X> extends MapReducer<X> implements CancelableProcessStatus {
+abstract class MapReducerJdbc<X> extends MapReducerBatchable<X>
+    implements CancelableProcessStatus {
 
   /**
    * Stores the start time of reduce/stream operation as returned by
@@ -31,6 +40,11 @@ abstract class MapReducerJdbc<X> extends MapReducer<X> implements CancelableProc
    */
   protected long executionStartTimeMillis;
 
+  /**
+   * Column names of all tables, by (lower case) table name. Lazily initialized.
+   */
+  private transient volatile Map<String, Set<String>> tableColumns = null;
+
   MapReducerJdbc(OSHDBDatabase oshdb, Class<? extends OSHDBMapReducible> forClass) {
     super(oshdb, forClass);
   }
@@ -55,7 +69,8 @@ abstract class MapReducerJdbc<X> extends MapReducer<X> implements CancelableProc
             TableNames.forOSMType(osmType).map(tn -> tn.toString(this.oshdb.prefix()))
         )
         .filter(Optional::isPresent).map(Optional::get)
-        .map(tn -> "(select data from " + tn + " where level = ?1 and id between ?2 and ?3)")
+        .map(tn -> "(select data from " + tn + " where level = ?1 and id between ?2 and ?3"
+            + getCellTagKeysCondition(tn) + getCellModificationCondition(tn) + ")")
         .collect(Collectors.joining(" union all "));
     PreparedStatement pstmt = ((OSHDBJdbc) this.oshdb).getConnection().prepareStatement(sqlQuery);
     pstmt.setInt(1, cellIdRange.getStart().getZoomLevel());
@@ -64,6 +79,82 @@ abstract class MapReducerJdbc<X> extends MapReducer<X> implements CancelableProc
     return pstmt.executeQuery();
   }
 
+  /**
+   * Returns an sql condition which excludes cells that don't contain any of the required tag keys.
+   *
+   * <p>Only applicable to grid tables which store the tag keys of each cell in a "keys" array
+   * column (as created by the oshdb etl tool). For other tables, an empty string is returned.</p>
+   */
+  private String getCellTagKeysCondition(String tableName) {
+    CellTagKeyFilter cellTagKeyFilter = this.getCellTagKeyFilter();
+    if (cellTagKeyFilter.isEmpty() || !this.hasColumn(tableName, "keys")) {
+      return "";
+    }
+    StringBuilder condition = new StringBuilder();
+    for (int[] keyGroup : cellTagKeyFilter.getKeyGroups()) {
+      condition.append(" and (keys is null");
+      for (int key : keyGroup) {
+        condition.append(" or array_contains(keys, ").append(key).append(")");
+      }
+      condition.append(")");
+    }
+    for (List<int[]> keySetGroup : cellTagKeyFilter.getKeySetGroups()) {
+      condition.append(" and (keys is null");
+      for (int[] keySet : keySetGroup) {
+        condition.append(" or (true");
+        for (int key : keySet) {
+          condition.append(" and array_contains(keys, ").append(key).append(")");
+        }
+        condition.append(")");
+      }
+      condition.append(")");
+    }
+    return condition.toString();
+  }
+
+  /**
+   * Returns an sql condition which excludes cells that don't contain any entity modified in the
+   * time interval relevant to this query.
+   *
+   * <p>Only applicable to grid tables which store the first and last modification timestamps of
+   * each cell (as created by the oshdb etl tool). For other tables, an empty string is
+   * returned.</p>
+   */
+  private String getCellModificationCondition(String tableName) {
+    if (!this.hasColumn(tableName, "first_modification")
+        || !this.hasColumn(tableName, "last_modification")) {
+      return "";
+    }
+    OSHDBTimestampInterval interval = this.getCellModificationInterval();
+    long from = interval.getFromTimestamp().getRawUnixTimestamp();
+    long to = interval.getToTimestamp().getRawUnixTimestamp();
+    StringBuilder condition = new StringBuilder(" and (first_modification is null or (");
+    condition.append("first_modification <= ").append(to);
+    if (from != Long.MIN_VALUE) {
+      condition.append(" and last_modification >= ").append(from);
+    }
+    condition.append("))");
+    return condition.toString();
+  }
+
+  private boolean hasColumn(String tableName, String columnName) {
+    if (this.tableColumns == null) {
+      Map<String, Set<String>> columns = new HashMap<>();
+      try (ResultSet rs = ((OSHDBJdbc) this.oshdb).getConnection().getMetaData()
+          .getColumns(null, null, "%", "%")) {
+        while (rs.next()) {
+          columns.computeIfAbsent(rs.getString("TABLE_NAME").toLowerCase(), ignored ->
+              new HashSet<>()).add(rs.getString("COLUMN_NAME").toLowerCase());
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+      this.tableColumns = columns;
+    }
+    return this.tableColumns.getOrDefault(tableName.toLowerCase(), Collections.emptySet())
+        .contains(columnName);
+  }
+
   /**
    * Returns data of one cell from the raw data stream.
    */
@@ -15,6 +15,7 @@ import org.heigit.ohsome.oshdb.api.mapreducer.backend.Kernels.CellProcessor;
 import org.heigit.ohsome.oshdb.api.object.OSHDBMapReducible;
 import org.heigit.ohsome.oshdb.api.object.OSMContribution;
 import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
 import org.heigit.ohsome.oshdb.index.XYGridTree.CellIdRange;
 import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
 import org.jetbrains.annotations.NotNull;
@@ -48,6 +49,9 @@ public class MapReducerJdbcMultithread<X> extends MapReducerJdbc<X> {
       SerializableSupplier<S> identitySupplier,
       SerializableBinaryOperator<S> combiner
   ) throws ParseException, SQLException, IOException {
+    if (this.isBatched()) {
+      return this.batchReduce(processor, identitySupplier, combiner);
+    }
     this.executionStartTimeMillis = System.currentTimeMillis();
 
     CellIterator cellIterator = new CellIterator(
@@ -67,6 +71,19 @@ public class MapReducerJdbcMultithread<X> extends MapReducerJdbc<X> {
         .reduce(identitySupplier.get(), combiner);
   }
 
+  @Override
+  protected Stream<GridOSHEntity> getCellsStream() {
+    this.executionStartTimeMillis = System.currentTimeMillis();
+
+    final List<CellIdRange> cellIdRanges = new ArrayList<>();
+    this.getCellIdRanges().forEach(cellIdRanges::add);
+
+    return cellIdRanges.parallelStream()
+        .filter(ignored -> this.isActive())
+        .flatMap(this::getOshCellsStream)
+        .filter(ignored -> this.isActive());
+  }
+
   private Stream<X> stream(
       CellProcessor<Stream<X>> processor
   ) throws ParseException, SQLException, IOException {
@@ -49,6 +49,9 @@ public class MapReducerJdbcSinglethread<X> extends MapReducerJdbc<X> {
       SerializableSupplier<S> identitySupplier,
       SerializableBinaryOperator<S> combiner
   ) throws ParseException, SQLException, IOException, ClassNotFoundException {
+    if (this.isBatched()) {
+      return this.batchReduce(cellProcessor, identitySupplier, combiner);
+    }
     this.executionStartTimeMillis = System.currentTimeMillis();
 
     CellIterator cellIterator = new CellIterator(
@@ -75,6 +78,14 @@ public class MapReducerJdbcSinglethread<X> extends MapReducerJdbc<X> {
     return result;
   }
 
+  @Override
+  protected Stream<GridOSHEntity> getCellsStream() {
+    this.executionStartTimeMillis = System.currentTimeMillis();
+
+    return Streams.stream(this.getCellIdRanges())
+        .flatMap(this::getOshCellsStream);
+  }
+
   private Stream<X> stream(
       CellProcessor<Stream<X>> cellProcessor
   ) throws ParseException, SQLException, IOException, ClassNotFoundException {
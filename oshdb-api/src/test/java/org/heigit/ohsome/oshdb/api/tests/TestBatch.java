@@ -0,0 +1,193 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import org.heigit.ohsome.oshdb.api.db.OSHDBDatabase;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.MapReducer;
+import org.heigit.ohsome.oshdb.api.mapreducer.MapReducerBatch;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.api.object.OSMContribution;
+import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.geometry.Geo;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the shared execution of a batch of queries.
+ */
+public class TestBatch {
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8.65, 49.38, 8.66, 49.39);
+  private final OSHDBTimestamps timestamps = new OSHDBTimestamps("2010-01-01", "2015-01-01",
+      OSHDBTimestamps.Interval.YEARLY);
+
+  private final List<OSHDBDatabase> databases;
+
+  /**
+   * Creates the test runner using the singlethreaded and multithreaded H2 backends.
+   * @throws Exception if something goes wrong
+   */
+  public TestBatch() throws Exception {
+    databases = List.of(
+        new OSHDBH2("./src/test/resources/test-data").multithreading(false),
+        new OSHDBH2("./src/test/resources/test-data").multithreading(true)
+    );
+  }
+
+  /**
+   * Closes the databases.
+   */
+  @After
+  public void tearDown() throws Exception {
+    for (OSHDBDatabase oshdb : databases) {
+      oshdb.close();
+    }
+  }
+
+  private MapReducer<OSMEntitySnapshot> snapshots(OSHDBDatabase oshdb) {
+    return OSMEntitySnapshotView.on(oshdb).areaOfInterest(bbox).timestamps(timestamps);
+  }
+
+  private MapReducer<OSMContribution> contributions(OSHDBDatabase oshdb) {
+    return OSMContributionView.on(oshdb).areaOfInterest(bbox).timestamps(timestamps);
+  }
+
+  @Test
+  public void testSnapshots() throws Exception {
+    for (OSHDBDatabase oshdb : databases) {
+      MapReducerBatch.Query<OSMEntitySnapshot, SortedMap<OSHDBTimestamp, Integer>> buildings =
+          mr -> mr.filter("building=* and geometry:polygon").aggregateByTimestamp().count();
+      MapReducerBatch.Query<OSMEntitySnapshot, SortedMap<OSHDBTimestamp, Number>> highways =
+          mr -> mr.osmType(OSMType.WAY).osmTag("highway").aggregateByTimestamp()
+              .sum(s -> Geo.lengthOf(s.getGeometry()));
+      MapReducerBatch.Query<OSMEntitySnapshot, Set<Long>> nodes =
+          mr -> mr.osmType(OSMType.NODE).osmEntityFilter(e -> e.getId() % 2 == 0)
+              .map(s -> s.getEntity().getId()).uniq();
+      MapReducerBatch.Query<OSMEntitySnapshot, Integer> all = MapReducer::count;
+
+      MapReducerBatch batch = oshdb.batch();
+      CompletableFuture<SortedMap<OSHDBTimestamp, Integer>> buildingsResult =
+          batch.add(snapshots(oshdb), buildings);
+      CompletableFuture<SortedMap<OSHDBTimestamp, Number>> highwaysResult =
+          batch.add(snapshots(oshdb), highways);
+      CompletableFuture<Set<Long>> nodesResult = batch.add(snapshots(oshdb), nodes);
+      CompletableFuture<Integer> allResult = batch.add(snapshots(oshdb), all);
+      batch.execute();
+
+      assertTrue(buildingsResult.get().values().stream().anyMatch(count -> count > 0));
+      assertEquals(buildings.apply(snapshots(oshdb)), buildingsResult.get());
+      assertEquals(highways.apply(snapshots(oshdb)).values().stream()
+              .map(Number::doubleValue).collect(Collectors.toList()),
+          highwaysResult.get().values().stream()
+              .map(Number::doubleValue).collect(Collectors.toList()));
+      assertEquals(nodes.apply(snapshots(oshdb)), nodesResult.get());
+      assertEquals(all.apply(snapshots(oshdb)), allResult.get());
+    }
+  }
+
+  @Test
+  public void testContributions() throws Exception {
+    for (OSHDBDatabase oshdb : databases) {
+      MapReducer<OSMContribution> highways = contributions(oshdb).osmTag("highway");
+      MapReducerBatch.Query<OSMContribution, Integer> count = MapReducer::count;
+      MapReducerBatch.Query<OSMContribution, Set<Integer>> users =
+          mr -> mr.map(OSMContribution::getContributorUserId).uniq();
+      MapReducerBatch.Query<OSMContribution, Integer> buildings =
+          mr -> mr.filter("building=*").count();
+
+      MapReducerBatch batch = oshdb.batch();
+      CompletableFuture<Integer> countResult = batch.add(highways, count);
+      CompletableFuture<Set<Integer>> usersResult = batch.add(highways, users);
+      CompletableFuture<Integer> buildingsResult = batch.add(contributions(oshdb), buildings);
+      batch.execute();
+
+      assertTrue(countResult.get() > 0);
+      assertEquals(count.apply(highways), countResult.get());
+      assertEquals(users.apply(highways), usersResult.get());
+      assertEquals(buildings.apply(contributions(oshdb)), buildingsResult.get());
+    }
+  }
+
+  @Test
+  public void testMultipleReductions() throws Exception {
+    OSHDBDatabase oshdb = databases.get(1);
+    MapReducerBatch.Query<OSMEntitySnapshot, Integer> difference =
+        mr -> mr.osmTag("building").count() - mr.osmTag("highway").count();
+    MapReducerBatch batch = oshdb.batch();
+    CompletableFuture<Integer> result = batch.add(snapshots(oshdb), difference);
+    batch.execute();
+    assertEquals(difference.apply(snapshots(oshdb)), result.get());
+  }
+
+  @Test
+  public void testWithoutReduction() throws Exception {
+    OSHDBDatabase oshdb = databases.get(1);
+    MapReducerBatch batch = oshdb.batch();
+    CompletableFuture<Long> result = batch.add(snapshots(oshdb), mr -> mr.stream().count());
+    CompletableFuture<Integer> failing = batch.add(snapshots(oshdb), mr -> {
+      throw new IllegalStateException();
+    });
+    batch.execute();
+    assertEquals((long) snapshots(oshdb).count(), (long) result.get());
+    assertTrue(failing.isCompletedExceptionally());
+    try {
+      failing.get();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testFailingPass() throws Exception {
+    OSHDBDatabase oshdb = databases.get(1);
+    MapReducerBatch batch = oshdb.batch();
+    CompletableFuture<Integer> failing = batch.add(snapshots(oshdb), mr -> mr.map(s -> {
+      if (s.getEntity().getId() > 0) {
+        throw new IllegalStateException("failing query");
+      }
+      return s;
+    }).count());
+    CompletableFuture<Integer> sameGroup = batch.add(snapshots(oshdb), MapReducer::count);
+    CompletableFuture<Integer> otherGroup = batch.add(contributions(oshdb), MapReducer::count);
+    try {
+      batch.execute();
+      fail("the failure of the shared pass must be reported");
+    } catch (IllegalStateException e) {
+      assertEquals("failing query", e.getMessage());
+    }
+    // all queries are completed: the ones of the failed pass with its exception
+    assertTrue(failing.isCompletedExceptionally());
+    assertTrue(sameGroup.isCompletedExceptionally());
+    assertEquals(contributions(oshdb).count(), otherGroup.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDifferentAreaOfInterest() {
+    OSHDBDatabase oshdb = databases.get(0);
+    MapReducerBatch batch = oshdb.batch();
+    batch.add(snapshots(oshdb), MapReducer::count);
+    batch.add(snapshots(oshdb).areaOfInterest(new OSHDBBoundingBox(8.655, 49.385, 8.66, 49.39)),
+        MapReducer::count);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDifferentTimestamps() {
+    OSHDBDatabase oshdb = databases.get(0);
+    MapReducerBatch batch = oshdb.batch();
+    batch.add(snapshots(oshdb), MapReducer::count);
+    batch.add(snapshots(oshdb).timestamps("2012-01-01"), MapReducer::count);
+  }
+}
@@ -0,0 +1,117 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ObjectInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.Test;
+
+/**
+ * Tests skipping of grid cells based on the modification timestamps stored alongside each cell.
+ */
+public class TestCellModificationTimestamps {
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8, 49, 9, 50);
+
+  /**
+   * Creates an in-memory copy of the test database with additional "first_modification" and
+   * "last_modification" columns in each grid table, as they are created by the etl tool.
+   *
+   * @param fixed if not null, all cells pretend to be modified only within this time interval
+   */
+  private static OSHDBH2 createDatabase(long[] fixed) throws Exception {
+    OSHDBH2 oshdb = new OSHDBH2("./src/test/resources/test-data").inMemory(true);
+    Connection conn = oshdb.getConnection();
+    for (TableNames table : new TableNames[] {
+        TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("alter table " + table + " add column first_modification bigint");
+        stmt.execute("alter table " + table + " add column last_modification bigint");
+      }
+      PreparedStatement update = conn.prepareStatement("update " + table
+          + " set first_modification = ?, last_modification = ? where level = ? and id = ?");
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select level, id, data from " + table)) {
+        while (rs.next()) {
+          GridOSHEntity cell = (GridOSHEntity)
+              new ObjectInputStream(rs.getBinaryStream(3)).readObject();
+          long first = Long.MAX_VALUE;
+          long last = Long.MIN_VALUE;
+          for (OSHEntity osh : cell.getEntities()) {
+            List<OSHDBTimestamp> modifications = OSHEntities.getModificationTimestamps(osh);
+            first = Math.min(first, modifications.get(0).getRawUnixTimestamp());
+            last = Math.max(last, modifications.get(modifications.size() - 1)
+                .getRawUnixTimestamp());
+          }
+          update.setLong(1, fixed == null ? first : fixed[0]);
+          update.setLong(2, fixed == null ? last : fixed[1]);
+          update.setInt(3, rs.getInt(1));
+          update.setLong(4, rs.getLong(2));
+          update.executeUpdate();
+        }
+      }
+    }
+    return oshdb;
+  }
+
+  private int countSnapshots(OSHDBH2 oshdb, OSHDBTimestamps timestamps) throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .count();
+  }
+
+  private int countContributions(OSHDBH2 oshdb, OSHDBTimestamps timestamps) throws Exception {
+    return OSMContributionView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .count();
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    OSHDBH2 plain = new OSHDBH2("./src/test/resources/test-data");
+    OSHDBH2 withTimestamps = createDatabase(null);
+    for (OSHDBTimestamps timestamps : new OSHDBTimestamps[] {
+        new OSHDBTimestamps("2008-01-01", "2018-01-01", OSHDBTimestamps.Interval.YEARLY),
+        new OSHDBTimestamps("2012-01-01", "2012-02-01", OSHDBTimestamps.Interval.MONTHLY),
+        new OSHDBTimestamps("2000-01-01", "2001-01-01", OSHDBTimestamps.Interval.YEARLY)}) {
+      assertEquals(countSnapshots(plain, timestamps), countSnapshots(withTimestamps, timestamps));
+      assertEquals(
+          countContributions(plain, timestamps), countContributions(withTimestamps, timestamps));
+    }
+    withTimestamps.close();
+    plain.close();
+  }
+
+  @Test
+  public void testCellsAreSkipped() throws Exception {
+    // if the cells' modification timestamps say that there are no modifications in the requested
+    // time interval, the cells must not be read at all
+    OSHDBTimestamps timestamps =
+        new OSHDBTimestamps("2010-01-01", "2015-01-01", OSHDBTimestamps.Interval.YEARLY);
+    OSHDBH2 modifiedBefore = createDatabase(new long[] {0, 1});
+    assertTrue(countSnapshots(modifiedBefore, timestamps) > 0);
+    assertEquals(0, countContributions(modifiedBefore, timestamps));
+    modifiedBefore.close();
+
+    OSHDBH2 modifiedAfter = createDatabase(new long[] {Integer.MAX_VALUE, Integer.MAX_VALUE});
+    assertEquals(0, countSnapshots(modifiedAfter, timestamps));
+    assertEquals(0, countContributions(modifiedAfter, timestamps));
+    modifiedAfter.close();
+  }
+}
@@ -0,0 +1,114 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ObjectInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.TreeSet;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.Test;
+
+/**
+ * Tests skipping of grid cells based on the tag keys stored alongside each cell.
+ */
+public class TestCellTagKeys {
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8, 49, 9, 50);
+  private final OSHDBTimestamps timestamps = new OSHDBTimestamps("2010-01-01", "2015-01-01",
+      OSHDBTimestamps.Interval.YEARLY);
+
+  /**
+   * Creates an in-memory copy of the test database with an additional "keys" column in each grid
+   * table, as it is created by the etl tool.
+   *
+   * @param emptyKeys if true, all cells pretend to contain no tag keys at all
+   */
+  private static OSHDBH2 createDatabase(boolean emptyKeys) throws Exception {
+    OSHDBH2 oshdb = new OSHDBH2("./src/test/resources/test-data").inMemory(true);
+    Connection conn = oshdb.getConnection();
+    for (TableNames table : new TableNames[] {
+        TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("alter table " + table + " add column keys array");
+      }
+      PreparedStatement update = conn.prepareStatement(
+          "update " + table + " set keys = ? where level = ? and id = ?");
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select level, id, data from " + table)) {
+        while (rs.next()) {
+          GridOSHEntity cell = (GridOSHEntity)
+              new ObjectInputStream(rs.getBinaryStream(3)).readObject();
+          TreeSet<Integer> keys = new TreeSet<>();
+          if (!emptyKeys) {
+            for (OSHEntity osh : cell.getEntities()) {
+              Arrays.stream(osh.getRawTagKeys()).forEach(keys::add);
+            }
+          }
+          update.setObject(1, keys.toArray(new Integer[0]));
+          update.setInt(2, rs.getInt(1));
+          update.setLong(3, rs.getLong(2));
+          update.executeUpdate();
+        }
+      }
+    }
+    return oshdb;
+  }
+
+  private int countSnapshots(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  private int countContributions(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMContributionView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    OSHDBH2 plain = new OSHDBH2("./src/test/resources/test-data");
+    OSHDBH2 withKeys = createDatabase(false);
+    for (String filter : new String[] {
+        "building=*", "building=yes", "highway=* and type:way", "building=* or highway=*",
+        "type:node", "buildingsss=*", "(building=* and name=*) or highway=residential",
+        "building=* or type:way", "buildingsss=* or highway=*"}) {
+      assertEquals(filter, countSnapshots(plain, filter), countSnapshots(withKeys, filter));
+      assertEquals(filter,
+          countContributions(plain, filter), countContributions(withKeys, filter));
+    }
+    withKeys.close();
+    plain.close();
+  }
+
+  @Test
+  public void testCellsAreSkipped() throws Exception {
+    // if the cells' tag key summaries say that there is no data with the given key, the cells
+    // must not be read at all
+    OSHDBH2 withKeys = createDatabase(true);
+    assertTrue(countSnapshots(withKeys, "type:way") > 0);
+    assertEquals(0, countSnapshots(withKeys, "building=*"));
+    assertEquals(0, countContributions(withKeys, "building=*"));
+    // also for filters with several clauses, each requiring some tag keys
+    assertEquals(0, countSnapshots(withKeys, "building=* or highway=*"));
+    assertEquals(0, countContributions(withKeys, "(building=* and name=*) or highway=primary"));
+    assertTrue(countSnapshots(withKeys, "building=* or type:way") > 0);
+    withKeys.close();
+  }
+}
@@ -0,0 +1,114 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ObjectInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Optional;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.Test;
+
+/**
+ * Tests the usage of the id index to restrict the queried grid cells.
+ */
+public class TestIdIndex {
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8, 49, 9, 50);
+  private final OSHDBTimestamps timestamps = new OSHDBTimestamps("2010-01-01", "2015-01-01",
+      OSHDBTimestamps.Interval.YEARLY);
+
+  /**
+   * Creates an in-memory copy of the test database with an id index, as it is created by the etl
+   * tool.
+   *
+   * @param emptyIndex if true, the id index pretends that no cell contains any entities at all
+   */
+  private static OSHDBH2 createDatabase(boolean emptyIndex) throws Exception {
+    OSHDBH2 oshdb = new OSHDBH2("./src/test/resources/test-data").inMemory(true);
+    Connection conn = oshdb.getConnection();
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("create table " + TableNames.T_ID_INDEX + "(type int, osmid bigint, "
+          + "level int, id bigint, primary key(type,osmid,level,id))");
+    }
+    if (emptyIndex) {
+      return oshdb;
+    }
+    PreparedStatement insert = conn.prepareStatement("insert into " + TableNames.T_ID_INDEX
+        + " (type,osmid,level,id) values(?,?,?,?)");
+    for (OSMType type : OSMType.values()) {
+      Optional<TableNames> table = TableNames.forOSMType(type);
+      if (!table.isPresent()) {
+        continue;
+      }
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select level, id, data from " + table.get())) {
+        while (rs.next()) {
+          GridOSHEntity cell = (GridOSHEntity)
+              new ObjectInputStream(rs.getBinaryStream(3)).readObject();
+          insert.setInt(1, type.intValue());
+          insert.setInt(3, rs.getInt(1));
+          insert.setLong(4, rs.getLong(2));
+          for (OSHEntity osh : cell.getEntities()) {
+            insert.setLong(2, osh.getId());
+            insert.executeUpdate();
+          }
+        }
+      }
+    }
+    return oshdb;
+  }
+
+  private int countSnapshots(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  private int countContributions(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMContributionView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    OSHDBH2 plain = new OSHDBH2("./src/test/resources/test-data");
+    OSHDBH2 withIndex = createDatabase(false);
+    for (String filter : new String[] {
+        "id:617308093", "type:node and id:617308093", "type:way and id:617308093",
+        "id:(617308093,25325380,1)", "id:(1..1000000000)", "id:(617308093..)",
+        "id:617308093 or highway=residential", "id:617308093 or type:way", "id:1"}) {
+      assertEquals(filter, countSnapshots(plain, filter), countSnapshots(withIndex, filter));
+      assertEquals(filter,
+          countContributions(plain, filter), countContributions(withIndex, filter));
+    }
+    assertTrue(countContributions(plain, "id:617308093") > 0);
+    withIndex.close();
+    plain.close();
+  }
+
+  @Test
+  public void testCellsAreSkipped() throws Exception {
+    // if the id index doesn't list any cells for the queried ids, no cells must be read at all
+    OSHDBH2 withIndex = createDatabase(true);
+    assertTrue(countSnapshots(withIndex, "id:617308093 or type:way") > 0);
+    assertEquals(0, countSnapshots(withIndex, "id:617308093"));
+    assertEquals(0, countContributions(withIndex, "id:(1..1000000000)"));
+    withIndex.close();
+  }
+}
@@ -0,0 +1,15 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+
+public class TestMapReduceOSHDBH2PreloadedKeytables extends TestMapReduce {
+  /**
+   * Creates the test runner using the H2 backend with keytables preloaded into memory.
+   * @throws Exception if something goes wrong
+   */
+  public TestMapReduceOSHDBH2PreloadedKeytables() throws Exception {
+    super(
+        (new OSHDBH2("./src/test/resources/test-data")).preloadKeytables(true)
+    );
+  }
+}
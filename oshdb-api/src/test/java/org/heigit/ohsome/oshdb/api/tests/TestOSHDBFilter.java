@@ -10,6 +10,7 @@ import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
 import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
 import org.heigit.ohsome.oshdb.api.object.OSMContribution;
 import org.heigit.ohsome.oshdb.api.object.OSMEntitySnapshot;
+import org.heigit.ohsome.oshdb.filter.FilterExpression;
 import org.heigit.ohsome.oshdb.filter.FilterParser;
 import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
@@ -115,4 +116,22 @@ public class TestOSHDBFilter {
 
     assertEquals(osmTypeFilterResult, stringFilterResult);
   }
+
+  @Test
+  public void testGeometryFilterPushdown() throws Exception {
+    // geometry checks done by the cell iterator before clipping must not change the results
+    for (String filter : new String[] {
+        "geometry:polygon", "geometry:line and highway=*", "not geometry:polygon",
+        "area:(1000..)", "building=* and area:(..1000)", "length:(100..) or geometry:point"}) {
+      FilterExpression expression = filterParser.parse(filter);
+      Number expected = createMapReducerOSMEntitySnapshot()
+          .osmEntityFilter(expression::applyOSM)
+          .filter(s -> expression.applyOSMGeometry(s.getEntity(), s::getGeometry))
+          .count();
+      Number result = createMapReducerOSMEntitySnapshot()
+          .filter(expression)
+          .count();
+      assertEquals(filter, expected, result);
+    }
+  }
 }
@@ -0,0 +1,157 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SortedMap;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.CubeDefinition;
+import org.heigit.ohsome.oshdb.api.mapreducer.CubeDefinition.Metric;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.api.mapreducer.StatisticsCube;
+import org.heigit.ohsome.oshdb.index.XYGrid;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTableNotFoundException;
+import org.heigit.ohsome.oshdb.util.geometry.Geo;
+import org.heigit.ohsome.oshdb.util.geometry.OSHDBGeometryBuilder;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Tests the pre-aggregated statistics cubes.
+ */
+public class TestStatisticsCube {
+  private final OSHDBBoundingBox extent = new OSHDBBoundingBox(8.6, 49.35, 8.72, 49.43);
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8.65, 49.38, 8.69, 49.41);
+  private final Polygon polygon = new GeometryFactory().createPolygon(new Coordinate[] {
+      new Coordinate(8.64, 49.37), new Coordinate(8.71, 49.38), new Coordinate(8.68, 49.42),
+      new Coordinate(8.64, 49.37)});
+  private final OSHDBTimestamps timestamps =
+      new OSHDBTimestamps("2010-01-01", "2015-01-01", OSHDBTimestamps.Interval.YEARLY);
+
+  private OSHDBH2 oshdb;
+
+  @Before
+  public void setUp() throws Exception {
+    // cubes are stored in the database: use a writable copy of the test data
+    oshdb = new OSHDBH2("./src/test/resources/test-data").inMemory(true);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    oshdb.close();
+  }
+
+  private static void assertSameValues(
+      SortedMap<OSHDBTimestamp, ? extends Number> expected,
+      SortedMap<OSHDBTimestamp, ? extends Number> actual) {
+    assertEquals(expected.keySet(), actual.keySet());
+    expected.forEach((timestamp, value) -> assertEquals(value.doubleValue(),
+        actual.get(timestamp).doubleValue(), 1E-6 * value.doubleValue()));
+  }
+
+  @Test
+  public void testLength() throws Exception {
+    StatisticsCube cube = StatisticsCube.materialize(oshdb, new CubeDefinition("highways",
+        "type:way and highway=*", timestamps, Metric.LENGTH, 16, extent));
+
+    SortedMap<OSHDBTimestamp, Number> expected = OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter("type:way and highway=*")
+        .aggregateByTimestamp()
+        .sum(s -> Geo.lengthOf(s.getGeometry()));
+    assertTrue(expected.get(expected.lastKey()).doubleValue() > 0);
+    assertSameValues(expected, cube.aggregate(bbox));
+
+    expected = OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(polygon)
+        .timestamps(timestamps)
+        .filter("type:way and highway=*")
+        .aggregateByTimestamp()
+        .sum(s -> Geo.lengthOf(s.getGeometry()));
+    assertSameValues(expected, cube.aggregate(polygon));
+  }
+
+  @Test
+  public void testArea() throws Exception {
+    StatisticsCube cube = StatisticsCube.materialize(oshdb, new CubeDefinition("buildings",
+        "building=* and geometry:polygon", timestamps, Metric.AREA, 16, extent));
+
+    SortedMap<OSHDBTimestamp, Number> expected = OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(polygon)
+        .timestamps(timestamps)
+        .filter("building=* and geometry:polygon")
+        .aggregateByTimestamp()
+        .sum(s -> Geo.areaOf(s.getGeometry()));
+    assertTrue(expected.get(expected.lastKey()).doubleValue() > 0);
+    assertSameValues(expected, cube.aggregate(polygon));
+  }
+
+  @Test
+  public void testCount() throws Exception {
+    StatisticsCube cube = StatisticsCube.materialize(oshdb, new CubeDefinition("nodes",
+        "type:node", timestamps, Metric.COUNT, 16, extent));
+
+    SortedMap<OSHDBTimestamp, Integer> expected = OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .osmType(OSMType.NODE)
+        .aggregateByTimestamp()
+        .count();
+    assertTrue(expected.get(expected.lastKey()) > 0);
+    assertEquals(expected, cube.aggregate(bbox));
+  }
+
+  @Test
+  public void testCellAlignedAreaOfInterest() throws Exception {
+    StatisticsCube cube = StatisticsCube.materialize(oshdb, new CubeDefinition("nodes",
+        "type:node", timestamps, Metric.COUNT, 16, extent));
+
+    // an area of interest made up of whole cells leaves no border to query from the raw data
+    XYGrid grid = new XYGrid(16);
+    OSHDBBoundingBox lowerLeft = grid.getCellDimensions(grid.getId(8.66, 49.39));
+    OSHDBBoundingBox upperRight = grid.getCellDimensions(grid.getId(8.68, 49.40));
+    OSHDBBoundingBox cells = new OSHDBBoundingBox(lowerLeft.getMinLon(),
+        lowerLeft.getMinLat(), upperRight.getMaxLon(), upperRight.getMaxLat());
+    SortedMap<OSHDBTimestamp, Integer> expected = OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(cells)
+        .timestamps(timestamps)
+        .osmType(OSMType.NODE)
+        .aggregateByTimestamp()
+        .count();
+    assertTrue(expected.get(expected.lastKey()) > 0);
+    assertEquals(expected, cube.aggregate(OSHDBGeometryBuilder.getGeometry(cells)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCountOfWays() throws Exception {
+    StatisticsCube.materialize(oshdb, new CubeDefinition("highways",
+        "highway=*", timestamps, Metric.COUNT, 16, extent));
+  }
+
+  @Test
+  public void testLoad() throws Exception {
+    CubeDefinition definition = new CubeDefinition("highways",
+        "type:way and highway=*", timestamps, Metric.LENGTH, 16, extent);
+    StatisticsCube materialized = StatisticsCube.materialize(oshdb, definition);
+    // materializing a cube again replaces the stored one
+    StatisticsCube.materialize(oshdb, definition);
+
+    StatisticsCube loaded = StatisticsCube.load(oshdb, "highways");
+    assertEquals(definition.toString(), loaded.getDefinition().toString());
+    assertEquals(materialized.aggregate(bbox), loaded.aggregate(bbox));
+  }
+
+  @Test(expected = OSHDBTableNotFoundException.class)
+  public void testLoadWithoutCubes() throws Exception {
+    StatisticsCube.load(oshdb, "highways");
+  }
+}
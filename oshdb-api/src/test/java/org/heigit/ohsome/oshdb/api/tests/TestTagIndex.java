@@ -0,0 +1,124 @@
+package org.heigit.ohsome.oshdb.api.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ObjectInputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Optional;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.junit.Test;
+
+/**
+ * Tests the usage of the inverted tag index to restrict the queried grid cells.
+ */
+public class TestTagIndex {
+  private final OSHDBBoundingBox bbox = new OSHDBBoundingBox(8, 49, 9, 50);
+  private final OSHDBTimestamps timestamps = new OSHDBTimestamps("2010-01-01", "2015-01-01",
+      OSHDBTimestamps.Interval.YEARLY);
+
+  /**
+   * Creates an in-memory copy of the test database with an inverted tag index, as it is created
+   * by the etl tool.
+   *
+   * @param emptyIndex if true, the tag index pretends that no cell contains any tags at all
+   */
+  private static OSHDBH2 createDatabase(boolean emptyIndex) throws Exception {
+    OSHDBH2 oshdb = new OSHDBH2("./src/test/resources/test-data").inMemory(true);
+    Connection conn = oshdb.getConnection();
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("create table " + TableNames.T_TAG_INDEX + "(type int, key int, value int, "
+          + "level int, id bigint, primary key(type,key,value,level,id))");
+    }
+    if (emptyIndex) {
+      return oshdb;
+    }
+    PreparedStatement insert = conn.prepareStatement("merge into " + TableNames.T_TAG_INDEX
+        + " (type,key,value,level,id) values(?,?,?,?,?)");
+    for (OSMType type : OSMType.values()) {
+      Optional<TableNames> table = TableNames.forOSMType(type);
+      if (!table.isPresent()) {
+        continue;
+      }
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select level, id, data from " + table.get())) {
+        while (rs.next()) {
+          GridOSHEntity cell = (GridOSHEntity)
+              new ObjectInputStream(rs.getBinaryStream(3)).readObject();
+          insert.setInt(1, type.intValue());
+          insert.setInt(4, rs.getInt(1));
+          insert.setLong(5, rs.getLong(2));
+          for (OSHEntity osh : cell.getEntities()) {
+            for (OSMEntity osm : osh.getVersions()) {
+              int[] tags = osm.getRawTags();
+              for (int i = 0; i < tags.length; i += 2) {
+                insert.setInt(2, tags[i]);
+                insert.setInt(3, -1);
+                insert.executeUpdate();
+                insert.setInt(3, tags[i + 1]);
+                insert.executeUpdate();
+              }
+            }
+          }
+        }
+      }
+    }
+    return oshdb;
+  }
+
+  private int countSnapshots(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  private int countContributions(OSHDBH2 oshdb, String filter) throws Exception {
+    return OSMContributionView.on(oshdb)
+        .areaOfInterest(bbox)
+        .timestamps(timestamps)
+        .filter(filter)
+        .count();
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    OSHDBH2 plain = new OSHDBH2("./src/test/resources/test-data");
+    OSHDBH2 withIndex = createDatabase(false);
+    for (String filter : new String[] {
+        "building=*", "building=yes", "highway=* and type:way", "building=* or highway=*",
+        "type:way and (building=* or highway=residential)", "type:node", "building=* or type:node",
+        "highway=* and not building=*", "buildingsss=*"}) {
+      assertEquals(filter, countSnapshots(plain, filter), countSnapshots(withIndex, filter));
+      assertEquals(filter,
+          countContributions(plain, filter), countContributions(withIndex, filter));
+    }
+    withIndex.close();
+    plain.close();
+  }
+
+  @Test
+  public void testCellsAreSkipped() throws Exception {
+    // if the tag index doesn't list any cells for the queried tags, no cells must be read at all
+    OSHDBH2 withIndex = createDatabase(true);
+    assertTrue(countSnapshots(withIndex, "type:way") > 0);
+    assertTrue(countSnapshots(withIndex, "building=* or type:way") > 0);
+    assertEquals(0, countSnapshots(withIndex, "building=*"));
+    assertEquals(0, countSnapshots(withIndex, "building=* or highway=*"));
+    assertEquals(0, countContributions(withIndex, "building=*"));
+    withIndex.close();
+  }
+}
@@ -0,0 +1,76 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData;
+import org.heigit.ohsome.oshdb.util.bytearray.ByteArrayOutputWrapper;
+import org.heigit.ohsome.oshdb.util.bytearray.ByteArrayWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Varint decoding of {@link ByteArrayWrapper}, which is at the core of every OSH entity decoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ByteArrayWrapperBenchmark {
+  private static final int VALUES = 10_000;
+
+  /** Upper bound of the encoded values, determines the number of bytes per varint (1-5). */
+  @Param({"127", "16383", "2147483647"})
+  public int maxValue;
+
+  private byte[] unsignedData;
+  private byte[] signedData;
+
+  /**
+   * Encodes {@value #VALUES} pseudo random values as unsigned and as zigzag encoded varints.
+   */
+  @Setup
+  public void setup() throws IOException {
+    Random random = new SyntheticData().getRandom();
+    ByteArrayOutputWrapper unsigned = new ByteArrayOutputWrapper();
+    ByteArrayOutputWrapper signed = new ByteArrayOutputWrapper();
+    for (int i = 0; i < VALUES; i++) {
+      int value = random.nextInt(maxValue);
+      unsigned.writeUInt32(value);
+      signed.writeSInt64(random.nextBoolean() ? value : -value);
+    }
+    unsignedData = unsigned.array();
+    signedData = signed.array();
+  }
+
+  @Benchmark
+  public long readUInt32() throws IOException {
+    ByteArrayWrapper wrapper = ByteArrayWrapper.newInstance(unsignedData);
+    long sum = 0;
+    for (int i = 0; i < VALUES; i++) {
+      sum += wrapper.readUInt32();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long readSInt64() throws IOException {
+    ByteArrayWrapper wrapper = ByteArrayWrapper.newInstance(signedData);
+    long sum = 0;
+    for (int i = 0; i < VALUES; i++) {
+      sum += wrapper.readSInt64();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,112 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.TestData;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.IterateAllEntry;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.IterateByTimestampEntry;
+import org.heigit.ohsome.oshdb.util.taginterpreter.DefaultTagInterpreter;
+import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
+import org.locationtech.jts.geom.Geometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Iteration over all grid cells of the bundled test data with the {@link CellIterator},
+ * including building and clipping of all geometries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CellIteratorBenchmark {
+  /** An area of interest which only partially covers the test data, so clipping is needed. */
+  private static final OSHDBBoundingBox BBOX =
+      new OSHDBBoundingBox(8.651133, 49.387611, 8.6561, 49.390513);
+
+  /** The grid table to iterate over. */
+  @Param({"T_NODES", "T_WAYS", "T_RELATIONS"})
+  public String table;
+
+  /** Number of requested snapshot timestamps. */
+  @Param({"1", "12", "72"})
+  public int timestamps;
+
+  private OSHDBH2 oshdb;
+  private TagTranslator tagTranslator;
+  private List<GridOSHEntity> cells;
+  private CellIterator cellIterator;
+
+  /**
+   * Loads all grid cells of the selected table into memory.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    oshdb = TestData.openDatabase();
+    tagTranslator = new TagTranslator(oshdb.getConnection());
+    cells = TestData.loadCells(oshdb, TableNames.valueOf(table));
+    SortedSet<OSHDBTimestamp> timestampList = TestData.timestamps(timestamps).get();
+    cellIterator = new CellIterator(
+        timestampList,
+        BBOX,
+        new DefaultTagInterpreter(tagTranslator),
+        oshEntity -> true,
+        osmEntity -> true,
+        false
+    );
+  }
+
+  /**
+   * Closes the database connections.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    tagTranslator.close();
+    oshdb.close();
+  }
+
+  @Benchmark
+  public void iterateByTimestamps(Blackhole blackhole) {
+    for (GridOSHEntity cell : cells) {
+      cellIterator.iterateByTimestamps(cell).forEach(entry -> consume(entry, blackhole));
+    }
+  }
+
+  @Benchmark
+  public void iterateByContribution(Blackhole blackhole) {
+    for (GridOSHEntity cell : cells) {
+      cellIterator.iterateByContribution(cell).forEach(entry -> consume(entry, blackhole));
+    }
+  }
+
+  private static void consume(IterateByTimestampEntry entry, Blackhole blackhole) {
+    Geometry geometry = entry.geometry.get();
+    blackhole.consume(geometry);
+  }
+
+  private static void consume(IterateAllEntry entry, Blackhole blackhole) {
+    Geometry geometry = entry.geometry.get();
+    blackhole.consume(geometry);
+  }
+}
@@ -0,0 +1,87 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData;
+import org.heigit.ohsome.oshdb.index.XYGrid;
+import org.heigit.ohsome.oshdb.util.CellId;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.geometry.fip.FastBboxInPolygon;
+import org.heigit.ohsome.oshdb.util.geometry.fip.FastBboxOutsidePolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tests of grid cell bounding boxes against a complex area of interest with
+ * {@link FastBboxInPolygon} and {@link FastBboxOutsidePolygon}, as done for every cell and entity
+ * by the CellIterator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastBboxInPolygonBenchmark {
+  /** Number of vertices of the polygon. */
+  @Param({"100", "1000", "10000"})
+  public int polygonComplexity;
+
+  /** Zoom level of the grid cells which are tested, determines the size of the bounding boxes. */
+  @Param({"8", "12"})
+  public int cellZoom;
+
+  private FastBboxInPolygon bboxInPolygon;
+  private FastBboxOutsidePolygon bboxOutsidePolygon;
+  private OSHDBBoundingBox[] cellBboxes;
+
+  /**
+   * Creates a polygon of about 2 by 2 degrees and collects all grid cells of the given zoom
+   * level overlapping its bounding box.
+   */
+  @Setup
+  public void setup() {
+    SyntheticData data = new SyntheticData();
+    Polygon areaOfInterest = data.polygon(polygonComplexity, 8.5, 49.5, 1.0);
+    bboxInPolygon = new FastBboxInPolygon(areaOfInterest);
+    bboxOutsidePolygon = new FastBboxOutsidePolygon(areaOfInterest);
+    XYGrid grid = new XYGrid(cellZoom);
+    cellBboxes = grid.bbox2CellIdRanges(new OSHDBBoundingBox(7.5, 48.5, 9.5, 50.5), false)
+        .stream()
+        .flatMap(range -> LongStream.rangeClosed(range.getStart(), range.getEnd()).boxed())
+        .map(id -> XYGrid.getBoundingBox(new CellId(cellZoom, id), true))
+        .toArray(OSHDBBoundingBox[]::new);
+  }
+
+  @Benchmark
+  public int bboxInPolygon() {
+    int count = 0;
+    for (OSHDBBoundingBox bbox : cellBboxes) {
+      if (bboxInPolygon.test(bbox)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int bboxOutsidePolygon() {
+    int count = 0;
+    for (OSHDBBoundingBox bbox : cellBboxes) {
+      if (bboxOutsidePolygon.test(bbox)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
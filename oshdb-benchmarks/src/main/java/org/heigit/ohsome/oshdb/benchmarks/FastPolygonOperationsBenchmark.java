@@ -0,0 +1,68 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData;
+import org.heigit.ohsome.oshdb.util.geometry.fip.FastPolygonOperations;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Clipping of geometries to a complex area of interest with
+ * {@link FastPolygonOperations#intersection(Geometry)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastPolygonOperationsBenchmark {
+  private static final int GEOMETRIES = 100;
+
+  /** Number of vertices of the clipping polygon. */
+  @Param({"100", "1000", "10000"})
+  public int polygonComplexity;
+
+  /** Size (approximate diameter) of the clipped geometries, the clip polygon's size is 2.0. */
+  @Param({"0.01", "0.1"})
+  public double geometrySize;
+
+  private FastPolygonOperations clipper;
+  private Geometry[] geometries;
+
+  /**
+   * Creates the clipping polygon and {@value #GEOMETRIES} polygons to clip.
+   */
+  @Setup
+  public void setup() {
+    SyntheticData data = new SyntheticData();
+    Polygon areaOfInterest = data.polygon(polygonComplexity, 0, 0, 1.0);
+    clipper = new FastPolygonOperations(areaOfInterest);
+    geometries = new Geometry[GEOMETRIES];
+    for (int i = 0; i < GEOMETRIES; i++) {
+      // place geometries on a diagonal crossing the boundary of the area of interest
+      double offset = 1.5 * i / GEOMETRIES;
+      geometries[i] = data.polygon(20, offset, offset, geometrySize / 2);
+    }
+  }
+
+  @Benchmark
+  public double intersection() {
+    double area = 0;
+    for (Geometry geometry : geometries) {
+      area += clipper.intersection(geometry).getArea();
+    }
+    return area;
+  }
+}
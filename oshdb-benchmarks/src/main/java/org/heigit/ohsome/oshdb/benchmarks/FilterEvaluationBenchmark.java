@@ -0,0 +1,109 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.TestData;
+import org.heigit.ohsome.oshdb.filter.CompiledFilter;
+import org.heigit.ohsome.oshdb.filter.FilterExpression;
+import org.heigit.ohsome.oshdb.filter.FilterParser;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of filter expressions on all ways (and their versions) of the test data, comparing
+ * the expression trees created by the {@link FilterParser} with their {@link CompiledFilter}
+ * counterparts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterEvaluationBenchmark {
+  /** The filter to evaluate. */
+  @Param({
+      "building=*",
+      "highway in (primary, secondary, tertiary, residential) and name=*",
+      "(building=* and building!=no) or (landuse in (residential, retail, commercial) "
+          + "and name!=*) or (highway=* and (surface=asphalt or surface=paved) and "
+          + "lanes in (1, 2, 3)) or amenity=parking or leisure=park or natural=water"
+  })
+  public String filter;
+
+  private FilterExpression expression;
+  private FilterExpression compiled;
+  private List<OSHEntity> entities;
+  private List<OSMEntity> versions;
+
+  /**
+   * Parses the filter and loads all ways of the test data.
+   */
+  @Setup
+  public void setup() throws Exception {
+    try (OSHDBH2 oshdb = TestData.openDatabase()) {
+      TagTranslator tagTranslator = new TagTranslator(oshdb.getConnection());
+      expression = new FilterParser(tagTranslator).parse(filter);
+      compiled = CompiledFilter.compile(expression);
+      entities = new ArrayList<>();
+      versions = new ArrayList<>();
+      for (GridOSHEntity cell : TestData.loadCells(oshdb, TableNames.T_WAYS)) {
+        for (OSHEntity osh : cell.getEntities()) {
+          entities.add(osh);
+          osh.getVersions().forEach(versions::add);
+        }
+      }
+    }
+  }
+
+  private static int applyOSM(FilterExpression expression, List<OSMEntity> versions) {
+    int matches = 0;
+    for (OSMEntity osm : versions) {
+      if (expression.applyOSM(osm)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  private static int applyOSH(FilterExpression expression, List<OSHEntity> entities) {
+    int matches = 0;
+    for (OSHEntity osh : entities) {
+      if (expression.applyOSH(osh)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+
+  @Benchmark
+  public int applyOSM() {
+    return applyOSM(expression, versions);
+  }
+
+  @Benchmark
+  public int applyOSMCompiled() {
+    return applyOSM(compiled, versions);
+  }
+
+  @Benchmark
+  public int applyOSH() {
+    return applyOSH(expression, entities);
+  }
+}
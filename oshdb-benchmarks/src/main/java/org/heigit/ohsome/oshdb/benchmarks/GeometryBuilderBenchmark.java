@@ -0,0 +1,73 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData.SyntheticTagInterpreter;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.geometry.OSHDBGeometryBuilder;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.locationtech.jts.geom.Geometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Geometry building of ways and multipolygon relations with
+ * {@link OSHDBGeometryBuilder#getGeometry(org.heigit.ohsome.oshdb.osm.OSMEntity, OSHDBTimestamp,
+ * TagInterpreter)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeometryBuilderBenchmark {
+  private static final int NODE_VERSIONS = 5;
+  private static final int INNERS_PER_RELATION = 4;
+
+  /** Number of nodes of each way (ring). */
+  @Param({"10", "100", "1000"})
+  public int nodes;
+
+  private final TagInterpreter tagInterpreter = new SyntheticTagInterpreter();
+  private OSMWay way;
+  private OSHDBTimestamp wayTimestamp;
+  private OSMRelation relation;
+  private OSHDBTimestamp relationTimestamp;
+
+  /**
+   * Creates a closed way whose nodes have several versions and a multipolygon relation.
+   */
+  @Setup
+  public void setup() throws IOException {
+    SyntheticData data = new SyntheticData();
+    way = OSHEntities.toList(data.ring(1, nodes, 1, NODE_VERSIONS, 1).getVersions()).get(0);
+    wayTimestamp = SyntheticData.timestampAfter(NODE_VERSIONS + 1);
+    relation = OSHEntities.toList(
+        data.multipolygon(1, INNERS_PER_RELATION, nodes, 1).getVersions()).get(0);
+    relationTimestamp = SyntheticData.timestampAfter(2);
+  }
+
+  @Benchmark
+  public Geometry way() {
+    return OSHDBGeometryBuilder.getGeometry(way, wayTimestamp, tagInterpreter);
+  }
+
+  @Benchmark
+  public Geometry multipolygon() {
+    return OSHDBGeometryBuilder.getGeometry(relation, relationTimestamp, tagInterpreter);
+  }
+}
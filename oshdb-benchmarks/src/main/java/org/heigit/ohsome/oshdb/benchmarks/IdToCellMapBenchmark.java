@@ -0,0 +1,106 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.LongToLongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.MappedLong2LongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.SortedLong2LongMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Id to cell lookups of the transform step of the etl (as done for the nodes of ways and the
+ * members of relations) with the paged {@link SortedLong2LongMap} and the memory-mapped
+ * {@link MappedLong2LongMap}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdToCellMapBenchmark {
+  private static final int IDS = 8_000_000;
+  private static final int LOOKUPS = 10_000;
+  // as used by the transform step
+  private static final int PAGE_POWER = 17;
+  // heap memory for the page cache of the paged map, a quarter of its data
+  private static final long CACHE_MEMORY = IDS * 8L / 4;
+
+  /** Implementation of the map: paged or mapped. */
+  @Param({"paged", "mapped"})
+  public String map;
+
+  private Path directory;
+  private LongToLongMap idToCell;
+  private long[] randomIds;
+  private long firstSequentialId;
+
+  /**
+   * Writes a map of {@value #IDS} ids (with gaps) to synthetic cell ids, and opens it.
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("oshdb-benchmarks");
+    Path path = directory.resolve("idToCell");
+    Random random = new Random(42);
+    long id = 0;
+    try (SortedLong2LongMap.Sink sink = new SortedLong2LongMap.Sink(path, PAGE_POWER)) {
+      for (int i = 0; i < IDS; i++) {
+        id += 1 + (random.nextInt(10) == 0 ? random.nextInt(10) : 0);
+        sink.put(id, (15L << 56) + random.nextInt(1 << 30));
+      }
+    }
+    final long maxId = id;
+    randomIds = random.longs(LOOKUPS, 0, maxId).toArray();
+    firstSequentialId = maxId / 2;
+    idToCell = "mapped".equals(map)
+        ? new MappedLong2LongMap(path)
+        : new SortedLong2LongMap(path, CACHE_MEMORY);
+  }
+
+  /**
+   * Closes the map and deletes its files.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    idToCell.close();
+    for (File file : directory.toFile().listFiles()) {
+      file.delete();
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public long sequential() {
+    long sum = 0;
+    for (long id = firstSequentialId; id < firstSequentialId + LOOKUPS; id++) {
+      sum += idToCell.get(id);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long random() {
+    long sum = 0;
+    for (long id : randomIds) {
+      sum += idToCell.get(id);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,98 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMContributionView;
+import org.heigit.ohsome.oshdb.api.mapreducer.OSMEntitySnapshotView;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.TestData;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.geometry.Geo;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end queries on the bundled test data, aggregated by timestamp with
+ * {@link org.heigit.ohsome.oshdb.api.mapreducer.MapAggregator#reduce}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapAggregatorBenchmark {
+  private static final OSHDBBoundingBox BBOX = new OSHDBBoundingBox(8, 49, 9, 50);
+
+  /** Number of requested timestamps. */
+  @Param({"1", "12", "72"})
+  public int timestamps;
+
+  private OSHDBH2 oshdb;
+  private OSHDBTimestamps timestampList;
+
+  /**
+   * Opens the test database (single threaded, for more stable results).
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    oshdb = TestData.openDatabase();
+    oshdb.multithreading(false);
+    timestampList = TestData.timestamps(timestamps);
+  }
+
+  /**
+   * Closes the database connection.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    oshdb.close();
+  }
+
+  @Benchmark
+  public SortedMap<OSHDBTimestamp, Integer> snapshotCount() throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(BBOX)
+        .timestamps(timestampList)
+        .osmType(OSMType.WAY)
+        .osmTag("building")
+        .aggregateByTimestamp()
+        .count();
+  }
+
+  @Benchmark
+  public SortedMap<OSHDBTimestamp, Number> snapshotSumArea() throws Exception {
+    return OSMEntitySnapshotView.on(oshdb)
+        .areaOfInterest(BBOX)
+        .timestamps(timestampList)
+        .osmType(OSMType.WAY)
+        .osmTag("building")
+        .aggregateByTimestamp()
+        .sum(snapshot -> Geo.areaOf(snapshot.getGeometry()));
+  }
+
+  @Benchmark
+  public SortedMap<OSHDBTimestamp, Integer> contributionCount() throws Exception {
+    return OSMContributionView.on(oshdb)
+        .areaOfInterest(BBOX)
+        .timestamps(timestampList)
+        .osmType(OSMType.WAY)
+        .osmTag("building")
+        .aggregateByTimestamp()
+        .count();
+  }
+}
@@ -0,0 +1,115 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.SyntheticData;
+import org.heigit.ohsome.oshdb.impl.osh.OSHNodeImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHRelationImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHWayImpl;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osh.OSHRelation;
+import org.heigit.ohsome.oshdb.osh.OSHWay;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of the binary representation of {@link OSHNodeImpl}, {@link OSHWayImpl} and
+ * {@link OSHRelationImpl} and iteration over all of their versions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OSHEntityDecodingBenchmark {
+  private static final int NODES_PER_WAY = 20;
+  private static final int INNERS_PER_RELATION = 4;
+
+  /** Number of versions of each entity. */
+  @Param({"1", "10", "100"})
+  public int versions;
+
+  private byte[] nodeRecord;
+  private byte[] wayRecord;
+  private byte[] relationRecord;
+
+  /**
+   * Serializes one synthetic node, way and relation.
+   */
+  @Setup
+  public void setup() throws IOException {
+    SyntheticData data = new SyntheticData();
+    OSHNode node = data.node(1, versions, 86_000_000L, 494_000_000L);
+    nodeRecord = toArray(OSHNodeImpl.buildRecord(OSHEntities.toList(node.getVersions()),
+        0, 0, 0, 0));
+    OSHWay way = data.ring(1, NODES_PER_WAY, versions, 1, 1);
+    wayRecord = toArray(OSHWayImpl.buildRecord(OSHEntities.toList(way.getVersions()),
+        way.getNodes(), 0, 0, 0, 0));
+    OSHRelation relation = data.multipolygon(1, INNERS_PER_RELATION, NODES_PER_WAY, versions);
+    relationRecord = toArray(OSHRelationImpl.buildRecord(
+        OSHEntities.toList(relation.getVersions()), relation.getNodes(), relation.getWays(),
+        0, 0, 0, 0));
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] result = new byte[buffer.remaining()];
+    buffer.get(result);
+    return result;
+  }
+
+  @Benchmark
+  public void decodeNode(Blackhole blackhole) throws IOException {
+    OSHNode node = OSHNodeImpl.instance(nodeRecord, 0, nodeRecord.length);
+    for (OSMNode version : node.getVersions()) {
+      blackhole.consume(version);
+    }
+  }
+
+  @Benchmark
+  public void decodeWay(Blackhole blackhole) throws IOException {
+    OSHWay way = OSHWayImpl.instance(wayRecord, 0, wayRecord.length);
+    for (OSMWay version : way.getVersions()) {
+      blackhole.consume(version);
+    }
+  }
+
+  @Benchmark
+  public void decodeWayWithNodes(Blackhole blackhole) throws IOException {
+    OSHWay way = OSHWayImpl.instance(wayRecord, 0, wayRecord.length);
+    List<OSHNode> nodes = new ArrayList<>(way.getNodes());
+    for (OSMWay version : way.getVersions()) {
+      blackhole.consume(version);
+    }
+    for (OSHNode node : nodes) {
+      for (OSMNode version : node.getVersions()) {
+        blackhole.consume(version);
+      }
+    }
+  }
+
+  @Benchmark
+  public void decodeRelation(Blackhole blackhole) throws IOException {
+    OSHRelation relation = OSHRelationImpl.instance(relationRecord, 0, relationRecord.length);
+    for (OSMRelation version : relation.getVersions()) {
+      blackhole.consume(version);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import com.google.protobuf.ByteString;
+import crosby.binary.Fileformat;
+import crosby.binary.Osmformat.DenseInfo;
+import crosby.binary.Osmformat.DenseNodes;
+import crosby.binary.Osmformat.Info;
+import crosby.binary.Osmformat.PrimitiveBlock;
+import crosby.binary.Osmformat.PrimitiveGroup;
+import crosby.binary.Osmformat.StringTable;
+import crosby.binary.Osmformat.Way;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
+import org.heigit.ohsome.oshpbf.parser.pbf.OsmPrimitiveBlockDecoder;
+import org.heigit.ohsome.oshpbf.parser.pbf.OsmPrimitveBlockIterator;
+import org.heigit.ohsome.oshpbf.parser.pbf.PbfBlob;
+import org.heigit.ohsome.oshpbf.parser.rx.Osh;
+import org.heigit.ohsome.oshpbf.parser.rx.RxOshPbfReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Inflating and decoding of a single zlib compressed data blob of a (full history) OSM pbf file,
+ * as done for every blob by the extract and transform steps of the etl.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PbfParserBenchmark {
+  private static final int ENTITIES = 8_000;
+  private static final int VERSIONS = 4;
+  private static final Set<OSMType> TYPES =
+      EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
+
+  /** Type of the entities in the blob: dense nodes or ways. */
+  @Param({"NODE", "WAY"})
+  public OSMType type;
+
+  private PbfBlob blob;
+  private final OsmPrimitiveBlockDecoder decoder = new OsmPrimitiveBlockDecoder();
+
+  /**
+   * Creates a blob of {@value #ENTITIES} entity versions with synthetic tags and coordinates.
+   */
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    StringTable.Builder strings = StringTable.newBuilder().addS(ByteString.EMPTY);
+    for (int i = 1; i < 200; i++) {
+      strings.addS(ByteString.copyFromUtf8("string" + i));
+    }
+    PrimitiveGroup.Builder group = PrimitiveGroup.newBuilder();
+    if (type == OSMType.NODE) {
+      DenseNodes.Builder dense = DenseNodes.newBuilder();
+      DenseInfo.Builder info = DenseInfo.newBuilder();
+      for (int i = 0; i < ENTITIES; i++) {
+        boolean first = i % VERSIONS == 0;
+        dense.addId(first ? 1 : 0)
+            .addLon(random.nextInt(2000) - 1000)
+            .addLat(random.nextInt(2000) - 1000);
+        info.addVersion(i % VERSIONS + 1).addTimestamp(random.nextInt(1_000_000))
+            .addChangeset(random.nextInt(1000)).addUid(random.nextInt(100) - 50)
+            .addUserSid(0).addVisible(true);
+        for (int t = random.nextInt(3); t > 0; t--) {
+          dense.addKeysVals(1 + random.nextInt(199)).addKeysVals(1 + random.nextInt(199));
+        }
+        dense.addKeysVals(0);
+      }
+      group.setDense(dense.setDenseinfo(info));
+    } else {
+      for (int i = 0; i < ENTITIES; i++) {
+        Way.Builder way = Way.newBuilder().setId(i / VERSIONS)
+            .setInfo(Info.newBuilder().setVersion(i % VERSIONS + 1)
+                .setTimestamp(random.nextInt(1_000_000)).setChangeset(random.nextInt(1000))
+                .setUid(random.nextInt(100)).setUserSid(0).setVisible(true));
+        for (int n = 0; n < 10; n++) {
+          way.addRefs(random.nextInt(2000) - 1000);
+        }
+        for (int t = 1 + random.nextInt(3); t > 0; t--) {
+          way.addKeys(1 + random.nextInt(199)).addVals(1 + random.nextInt(199));
+        }
+        group.addWays(way);
+      }
+    }
+    byte[] data = PrimitiveBlock.newBuilder().setStringtable(strings).addPrimitivegroup(group)
+        .build().toByteArray();
+
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] compressed = new byte[data.length + 1024];
+    int length = deflater.deflate(compressed);
+    deflater.end();
+    Fileformat.Blob content = Fileformat.Blob.newBuilder().setRawSize(data.length)
+        .setZlibData(ByteString.copyFrom(compressed, 0, length)).build();
+    Fileformat.BlobHeader header = Fileformat.BlobHeader.newBuilder().setType("OSMData")
+        .setDatasize(content.getSerializedSize()).build();
+    blob = new PbfBlob(0, header, content, false, false);
+  }
+
+  /**
+   * Inflating with a new inflater and new arrays for every blob, for comparison.
+   */
+  @Benchmark
+  public byte[] inflateNewInflater() throws DataFormatException {
+    byte[] data = new byte[blob.content.getRawSize()];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(blob.content.getZlibData().toByteArray());
+      inflater.inflate(data);
+    } finally {
+      inflater.end();
+    }
+    return data;
+  }
+
+  @Benchmark
+  public ByteBuffer inflatePooled() {
+    return blob.getDataBuffer();
+  }
+
+  @Benchmark
+  public void parseGenerated(Blackhole blackhole) throws Exception {
+    OsmPrimitveBlockIterator entities =
+        new OsmPrimitveBlockIterator(blob.pos, blob.getPrimitivBlock(), TYPES);
+    while (entities.hasNext()) {
+      blackhole.consume(entities.next());
+    }
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) throws Exception {
+    ByteBuffer data = blob.getDataBuffer();
+    decoder.reset(blob.pos, data.array(), data.limit(), TYPES);
+    while (decoder.hasNext()) {
+      Entity entity = decoder.next();
+      blackhole.consume(entity);
+    }
+  }
+
+  @Benchmark
+  public void blobToOsh(Blackhole blackhole) throws Exception {
+    for (Osh osh : RxOshPbfReader.blobToOSHItr(blob, false)) {
+      blackhole.consume(osh);
+    }
+  }
+}
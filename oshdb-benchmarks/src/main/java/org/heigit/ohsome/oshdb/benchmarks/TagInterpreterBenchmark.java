@@ -0,0 +1,103 @@
+package org.heigit.ohsome.oshdb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.benchmarks.helpers.TestData;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.taginterpreter.DefaultTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.MemoizingTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Area decisions of the {@link DefaultTagInterpreter} for all versions of the ways and relations
+ * of the test data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TagInterpreterBenchmark {
+  private TagInterpreter tagInterpreter;
+  private List<OSMEntity> versions;
+
+  /**
+   * Creates the tag interpreter and loads all ways and relations of the test data.
+   */
+  @Setup
+  public void setup() throws Exception {
+    try (OSHDBH2 oshdb = TestData.openDatabase()) {
+      tagInterpreter = new DefaultTagInterpreter(new TagTranslator(oshdb.getConnection()));
+      versions = new ArrayList<>();
+      for (TableNames table : new TableNames[] {TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+        for (GridOSHEntity cell : TestData.loadCells(oshdb, table)) {
+          for (OSHEntity osh : cell.getEntities()) {
+            osh.getVersions().forEach(versions::add);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Each version is checked once.
+   */
+  @Benchmark
+  public int isArea() {
+    int areas = 0;
+    for (OSMEntity osm : versions) {
+      if (tagInterpreter.isArea(osm)) {
+        areas++;
+      }
+    }
+    return areas;
+  }
+
+  /**
+   * Each version is checked three times in a row, like the cell iterator does when a geometry type
+   * filter is used (filter, geometry builder and the filter's check of the built geometry).
+   */
+  @Benchmark
+  public int isAreaRepeated() {
+    int areas = 0;
+    for (OSMEntity osm : versions) {
+      if (tagInterpreter.isArea(osm) && tagInterpreter.isArea(osm) && tagInterpreter.isArea(osm)) {
+        areas++;
+      }
+    }
+    return areas;
+  }
+
+  /**
+   * Like {@link #isAreaRepeated()}, but remembering the last area decision like the cell iterator
+   * does.
+   */
+  @Benchmark
+  public int isAreaRepeatedMemoized() {
+    TagInterpreter memoized = new MemoizingTagInterpreter(tagInterpreter);
+    int areas = 0;
+    for (OSMEntity osm : versions) {
+      if (memoized.isArea(osm) && memoized.isArea(osm) && memoized.isArea(osm)) {
+        areas++;
+      }
+    }
+    return areas;
+  }
+}
@@ -0,0 +1,240 @@
+package org.heigit.ohsome.oshdb.benchmarks.helpers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.heigit.ohsome.oshdb.OSHDB;
+import org.heigit.ohsome.oshdb.impl.osh.OSHNodeImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHRelationImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHWayImpl;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osh.OSHRelation;
+import org.heigit.ohsome.oshdb.osh.OSHWay;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMMember;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Generates reproducible synthetic OSM history data for the benchmarks.
+ *
+ * <p>All generated data is derived from a pseudo random number generator with a fixed seed, so
+ * that every benchmark run works on exactly the same input.</p>
+ */
+public class SyntheticData {
+  /** The seed used for all generated data. */
+  public static final long SEED = 4711L;
+
+  private static final long START_TIMESTAMP = 1262304000L; // 2010-01-01
+  private static final long VERSION_INTERVAL = 30L * 24 * 60 * 60;
+  private static final int ROLE_OUTER = 1;
+  private static final int ROLE_INNER = 2;
+
+  private final Random random;
+
+  public SyntheticData() {
+    this(SEED);
+  }
+
+  public SyntheticData(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Creates the history of a node, which is slightly moved in each of its versions.
+   *
+   * @param id the id of the node
+   * @param versions number of versions of the node
+   * @param lon longitude of the first version in OSHDB's integer coordinate representation
+   * @param lat latitude of the first version in OSHDB's integer coordinate representation
+   * @return the OSH node
+   */
+  public OSHNode node(long id, int versions, long lon, long lat) throws IOException {
+    List<OSMNode> osmNodes = new ArrayList<>(versions);
+    for (int v = 1; v <= versions; v++) {
+      osmNodes.add(new OSMNode(id, v, timestamp(v), v, 1, new int[0],
+          lon + random.nextInt(100), lat + random.nextInt(100)));
+    }
+    return OSHNodeImpl.build(osmNodes);
+  }
+
+  /**
+   * Creates the history of a closed way (ring) with a given number of nodes.
+   *
+   * <p>The way is tagged with a tag (key 1, value 1) in all of its versions, the first version
+   * is an untagged ring. All nodes of the way have the given number of versions.</p>
+   *
+   * @param id the id of the way
+   * @param numNodes number of distinct nodes of the ring (at least 3)
+   * @param wayVersions number of versions of the way
+   * @param nodeVersions number of versions of each node
+   * @param firstNodeId the id of the first node of the way
+   * @return the OSH way
+   */
+  public OSHWay ring(long id, int numNodes, int wayVersions, int nodeVersions, long firstNodeId)
+      throws IOException {
+    List<OSHNode> nodes = ringNodes(numNodes, nodeVersions, firstNodeId, 0.01, 0.0, 0.0);
+    OSMMember[] refs = new OSMMember[numNodes + 1];
+    for (int i = 0; i < numNodes; i++) {
+      refs[i] = new OSMMember(nodes.get(i).getId(), OSMType.NODE, -1);
+    }
+    refs[numNodes] = refs[0];
+    List<OSMWay> versions = new ArrayList<>(wayVersions);
+    for (int v = 1; v <= wayVersions; v++) {
+      // the way is modified after all of its nodes have been created
+      versions.add(new OSMWay(id, v, timestamp(nodeVersions + v), v, 1,
+          v == 1 ? new int[0] : new int[] {1, v}, refs));
+    }
+    return OSHWayImpl.build(versions, nodes);
+  }
+
+  /**
+   * Creates the history of a multipolygon relation consisting of one outer and several inner
+   * rings, each made up of a single closed way.
+   *
+   * @param id the id of the relation
+   * @param numInners number of inner rings
+   * @param nodesPerRing number of distinct nodes of each ring
+   * @param versions number of versions of the relation
+   * @return the OSH relation
+   */
+  public OSHRelation multipolygon(long id, int numInners, int nodesPerRing, int versions)
+      throws IOException {
+    List<OSHWay> ways = new ArrayList<>(numInners + 1);
+    List<OSHNode> allNodes = new ArrayList<>();
+    long nextNodeId = 1;
+    ways.add(ringWay(1, nodesPerRing, nextNodeId, 0.1, 0.0, 0.0, allNodes));
+    nextNodeId += nodesPerRing;
+    for (int i = 0; i < numInners; i++) {
+      double angle = 2 * Math.PI * i / Math.max(1, numInners);
+      ways.add(ringWay(2 + i, nodesPerRing, nextNodeId, 0.1 / (numInners + 2),
+          Math.cos(angle) * 0.05, Math.sin(angle) * 0.05, allNodes));
+      nextNodeId += nodesPerRing;
+    }
+    OSMMember[] members = new OSMMember[ways.size()];
+    for (int i = 0; i < ways.size(); i++) {
+      members[i] = new OSMMember(ways.get(i).getId(), OSMType.WAY, i == 0 ? ROLE_OUTER : ROLE_INNER);
+    }
+    List<OSMRelation> osmRelations = new ArrayList<>(versions);
+    for (int v = 1; v <= versions; v++) {
+      osmRelations.add(new OSMRelation(id, v, timestamp(1 + v), v, 1, new int[] {2, v}, members));
+    }
+    return OSHRelationImpl.build(osmRelations, Collections.emptyList(), ways);
+  }
+
+  /**
+   * Creates a star shaped, valid polygon with the given number of vertices.
+   *
+   * @param vertices number of vertices of the polygon's exterior ring (at least 3)
+   * @param centerX x coordinate of the polygon's center
+   * @param centerY y coordinate of the polygon's center
+   * @param radius approximate radius of the polygon
+   * @return the polygon
+   */
+  public Polygon polygon(int vertices, double centerX, double centerY, double radius) {
+    Coordinate[] coords = new Coordinate[vertices + 1];
+    for (int i = 0; i < vertices; i++) {
+      double angle = 2 * Math.PI * i / vertices;
+      double r = radius * (0.5 + 0.5 * random.nextDouble());
+      coords[i] = new Coordinate(centerX + Math.cos(angle) * r, centerY + Math.sin(angle) * r);
+    }
+    coords[vertices] = coords[0];
+    return new GeometryFactory().createPolygon(coords);
+  }
+
+  /**
+   * Returns the used pseudo random number generator.
+   */
+  public Random getRandom() {
+    return random;
+  }
+
+  private OSHWay ringWay(long id, int numNodes, long firstNodeId, double radius,
+      double centerX, double centerY, List<OSHNode> allNodes) throws IOException {
+    List<OSHNode> nodes = ringNodes(numNodes, 1, firstNodeId, radius, centerX, centerY);
+    allNodes.addAll(nodes);
+    OSMMember[] refs = new OSMMember[numNodes + 1];
+    for (int i = 0; i < numNodes; i++) {
+      refs[i] = new OSMMember(nodes.get(i).getId(), OSMType.NODE, -1);
+    }
+    refs[numNodes] = refs[0];
+    List<OSMWay> versions = new ArrayList<>(1);
+    versions.add(new OSMWay(id, 1, timestamp(1), 1, 1, new int[0], refs));
+    return OSHWayImpl.build(versions, nodes);
+  }
+
+  private List<OSHNode> ringNodes(int numNodes, int nodeVersions, long firstNodeId,
+      double radius, double centerX, double centerY) throws IOException {
+    List<OSHNode> nodes = new ArrayList<>(numNodes);
+    for (int i = 0; i < numNodes; i++) {
+      double angle = 2 * Math.PI * i / numNodes;
+      nodes.add(node(firstNodeId + i, nodeVersions,
+          (long) ((centerX + Math.cos(angle) * radius) * OSHDB.GEOM_PRECISION_TO_LONG),
+          (long) ((centerY + Math.sin(angle) * radius) * OSHDB.GEOM_PRECISION_TO_LONG)));
+    }
+    return nodes;
+  }
+
+  private static OSHDBTimestamp timestamp(int version) {
+    return new OSHDBTimestamp(START_TIMESTAMP + version * VERSION_INTERVAL);
+  }
+
+  /**
+   * Returns a timestamp after all modifications of generated entities with the given number of
+   * versions.
+   */
+  public static OSHDBTimestamp timestampAfter(int versions) {
+    return timestamp(versions + 1);
+  }
+
+  /**
+   * A tag interpreter for the synthetic data: closed ways and all relations are areas, the role
+   * ids 1 and 2 are used for outer and inner multipolygon members.
+   */
+  public static class SyntheticTagInterpreter implements TagInterpreter {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public boolean isArea(OSMEntity entity) {
+      if (entity instanceof OSMWay) {
+        OSMMember[] nds = ((OSMWay) entity).getRefs();
+        return nds.length >= 4 && nds[0].getId() == nds[nds.length - 1].getId();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isLine(OSMEntity entity) {
+      return !isArea(entity);
+    }
+
+    @Override
+    public boolean hasInterestingTagKey(OSMEntity osm) {
+      return true;
+    }
+
+    @Override
+    public boolean isMultipolygonOuterMember(OSMMember osmMember) {
+      return osmMember.getRawRoleId() == ROLE_OUTER;
+    }
+
+    @Override
+    public boolean isMultipolygonInnerMember(OSMMember osmMember) {
+      return osmMember.getRawRoleId() == ROLE_INNER;
+    }
+
+    @Override
+    public boolean isOldStyleMultipolygon(OSMRelation osmRelation) {
+      return false;
+    }
+  }
+}
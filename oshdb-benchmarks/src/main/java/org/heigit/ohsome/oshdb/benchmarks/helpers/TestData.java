@@ -0,0 +1,98 @@
+package org.heigit.ohsome.oshdb.benchmarks.helpers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.heigit.ohsome.oshdb.api.db.OSHDBH2;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+
+/**
+ * Gives access to the H2 test fixture bundled with the benchmarks.
+ *
+ * <p>This is the same database which is used by the unit tests of the oshdb-api and oshdb-util
+ * modules. It is copied from the classpath into a temporary directory once per JVM.</p>
+ */
+public class TestData {
+  private static final String RESOURCE = "/test-data.mv.db";
+  private static Path databaseFile = null;
+
+  private TestData() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * Returns the location of the H2 test database (without the ".mv.db" file ending).
+   */
+  public static synchronized String databaseFile() throws IOException {
+    if (databaseFile == null) {
+      Path dir = Files.createTempDirectory("oshdb-benchmarks");
+      Path file = dir.resolve("test-data.mv.db");
+      try (InputStream in = TestData.class.getResourceAsStream(RESOURCE)) {
+        if (in == null) {
+          throw new IOException("test data " + RESOURCE + " not found on classpath");
+        }
+        Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      file.toFile().deleteOnExit();
+      dir.toFile().deleteOnExit();
+      databaseFile = file;
+    }
+    return databaseFile.toString().replaceAll("\\.mv\\.db$", "");
+  }
+
+  /**
+   * Opens the H2 test database.
+   */
+  public static OSHDBH2 openDatabase() throws IOException, SQLException, ClassNotFoundException {
+    return new OSHDBH2(databaseFile());
+  }
+
+  /**
+   * Returns a list of regularly spaced timestamps between 2010 and 2016 (the time range covered
+   * by the test data).
+   *
+   * @param count the number of timestamps, must be a divisor of 72
+   * @return a list of exactly {@code count} timestamps, the last one being 2015-12-31
+   */
+  public static OSHDBTimestamps timestamps(int count) {
+    if (count < 1 || 72 % count != 0) {
+      throw new IllegalArgumentException("number of timestamps must be a divisor of 72");
+    }
+    return new OSHDBTimestamps("2010-01-01", "2015-12-31", "P" + (72 / count) + "M", true);
+  }
+
+  /**
+   * Loads and deserializes all grid cells of the given table.
+   *
+   * @param oshdb the database to read from
+   * @param table one of the grid tables ({@link TableNames#T_NODES}, {@link TableNames#T_WAYS} or
+   *        {@link TableNames#T_RELATIONS})
+   * @return the deserialized grid cells
+   */
+  public static List<GridOSHEntity> loadCells(OSHDBH2 oshdb, TableNames table)
+      throws SQLException, IOException, ClassNotFoundException {
+    List<GridOSHEntity> cells = new ArrayList<>();
+    Connection conn = oshdb.getConnection();
+    try (PreparedStatement stmt = conn.prepareStatement("select data from " + table)) {
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          try (ObjectInputStream ois = new ObjectInputStream(rs.getBinaryStream(1))) {
+            cells.add((GridOSHEntity) ois.readObject());
+          }
+        }
+      }
+    }
+    return cells;
+  }
+}
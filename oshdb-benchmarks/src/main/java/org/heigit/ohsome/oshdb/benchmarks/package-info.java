@@ -0,0 +1,6 @@
+/**
+ * JMH benchmarks of the OSHDB's performance critical code paths.
+ *
+ * <p>See the README file of the oshdb-benchmarks module for instructions on how to run them.</p>
+ */
+package org.heigit.ohsome.oshdb.benchmarks;
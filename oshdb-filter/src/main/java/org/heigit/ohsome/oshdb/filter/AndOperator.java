@@ -3,6 +3,7 @@ package org.heigit.ohsome.oshdb.filter;
 import java.util.function.Supplier;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.locationtech.jts.geom.Geometry;
 
 /**
@@ -29,6 +30,18 @@ public class AndOperator extends BinaryOperator {
         && op2.applyOSMGeometry(entity, geometrySupplier);
   }
 
+  @Override
+  public boolean mayMatchGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+    return op1.mayMatchGeometryType(entity, tagInterpreter)
+        && op2.mayMatchGeometryType(entity, tagInterpreter);
+  }
+
+  @Override
+  public boolean mayMatchUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+    return op1.mayMatchUnclippedGeometry(entity, unclippedGeometry)
+        && op2.mayMatchUnclippedGeometry(entity, unclippedGeometry);
+  }
+
   @Override
   public FilterExpression negate() {
     return new OrOperator(op1.negate(), op2.negate());
@@ -0,0 +1,318 @@
+package org.heigit.ohsome.oshdb.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBTag;
+import org.heigit.ohsome.oshdb.util.OSHDBTagKey;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.jetbrains.annotations.Contract;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * A filter expression which is "compiled" into a flat representation for faster evaluation.
+ *
+ * <p>Evaluating a filter expression tree requires a virtual method call per node, and some tag
+ * filters allocate a new {@link OSHDBTag} object for each tag of the tested entity. A compiled
+ * filter instead evaluates all tag filters of the expression in a single sorted-merge pass over
+ * the raw tags of an OSM entity (see {@link OSMEntity#getRawTags()}), storing the results in the
+ * bits of a single {@code long}. The boolean structure of the expression is converted into a disjunctive normal
+ * form, where each clause is a bit mask of the filters which must all be fulfilled. Neither step
+ * allocates any objects.</p>
+ *
+ * <p>Filters which don't operate on tags (e.g. type, id or geometry filters) are evaluated by
+ * calling their respective methods as usual, but only if all tag filters of a clause are
+ * fulfilled. Geometry checks ({@link #applyOSMGeometry(OSMEntity, Supplier)}) are delegated to the
+ * original expression, as well as the checks of OSH entities ({@link #applyOSH(OSHEntity)}): these
+ * only test for the presence of tag keys, where the expression tree is faster for the typical
+ * small expressions.</p>
+ *
+ * <p>The results are exactly the same as the ones of the original filter expression.</p>
+ */
+public class CompiledFilter implements FilterExpression {
+  private static final long serialVersionUID = 1L;
+
+  /** The maximum number of individual filters of a compiled filter. */
+  static final int MAX_FILTERS = Long.SIZE;
+  /** The maximum number of clauses of the disjunctive normal form of a compiled filter. */
+  static final int MAX_CLAUSES = 256;
+
+  private final FilterExpression expression;
+  private final FilterExpression[] filters;
+  // bit mask of the filters which are evaluated in the tag matching pass
+  private final long tagFilters;
+  // bit mask of the tag filters which are negated (e.g. key!=value)
+  private final long negatedTagFilters;
+  // bit mask of the (not negated) tag filters which are part of every clause: if one of them isn't
+  // fulfilled, the evaluation can be stopped early
+  private final long requiredTagFilters;
+  // tag filters, sorted by key
+  private final int[] tagKeys;
+  private final int[][] tagValues;
+  private final long[] tagMasks;
+  // the clauses of the disjunctive normal form: bit masks of filters which must all be fulfilled
+  private final long[] clauses;
+
+  private CompiledFilter(FilterExpression expression, List<FilterExpression> filters,
+      long[] clauses) {
+    this.expression = expression;
+    this.filters = filters.toArray(new FilterExpression[0]);
+    this.clauses = clauses;
+    List<Integer> tagFilterIndices = new ArrayList<>();
+    for (int i = 0; i < this.filters.length; i++) {
+      if (isTagFilter(this.filters[i])) {
+        tagFilterIndices.add(i);
+      }
+    }
+    tagFilterIndices.sort(Comparator.comparingInt(i -> tagKey(this.filters[i])));
+    int numTagFilters = tagFilterIndices.size();
+    this.tagKeys = new int[numTagFilters];
+    this.tagValues = new int[numTagFilters][];
+    this.tagMasks = new long[numTagFilters];
+    long tagFilterMask = 0;
+    long negatedTagFilterMask = 0;
+    for (int j = 0; j < numTagFilters; j++) {
+      int i = tagFilterIndices.get(j);
+      this.tagKeys[j] = tagKey(this.filters[i]);
+      this.tagValues[j] = tagValues(this.filters[i]);
+      this.tagMasks[j] = 1L << i;
+      tagFilterMask |= 1L << i;
+      if (isNegatedTagFilter(this.filters[i])) {
+        negatedTagFilterMask |= 1L << i;
+      }
+    }
+    this.tagFilters = tagFilterMask;
+    this.negatedTagFilters = negatedTagFilterMask;
+    long required = tagFilterMask & ~negatedTagFilterMask;
+    for (long clause : clauses) {
+      required &= clause;
+    }
+    this.requiredTagFilters = required;
+  }
+
+  /**
+   * Compiles a filter expression.
+   *
+   * <p>Expressions consisting of a single filter or more than {@value #MAX_FILTERS} individual
+   * filters, or whose disjunctive normal form has more than {@value #MAX_CLAUSES} clauses, are
+   * returned unchanged.</p>
+   *
+   * @param expression the filter expression to compile
+   * @return a filter expression which produces the same results as the given one, but can be
+   *         evaluated faster
+   */
+  @Contract(pure = true)
+  public static FilterExpression compile(FilterExpression expression) {
+    if (!(expression instanceof BinaryOperator)) {
+      // single filters (or already compiled ones) can't be evaluated any faster
+      return expression;
+    }
+    List<FilterExpression> filters = new ArrayList<>();
+    collectFilters(expression, filters);
+    if (filters.size() > MAX_FILTERS) {
+      return expression;
+    }
+    long[] clauses = normalize(expression, filters);
+    if (clauses == null) {
+      return expression;
+    }
+    return new CompiledFilter(expression, filters, clauses);
+  }
+
+  private static void collectFilters(FilterExpression expression, List<FilterExpression> filters) {
+    if (expression instanceof BinaryOperator) {
+      collectFilters(((BinaryOperator) expression).getLeftOperand(), filters);
+      collectFilters(((BinaryOperator) expression).getRightOperand(), filters);
+    } else {
+      filters.add(expression);
+    }
+  }
+
+  // returns the clauses of the DNF of the given expression, or null if there are too many
+  private static long[] normalize(FilterExpression expression, List<FilterExpression> filters) {
+    if (expression instanceof BinaryOperator) {
+      long[] clauses1 = normalize(((BinaryOperator) expression).getLeftOperand(), filters);
+      long[] clauses2 = normalize(((BinaryOperator) expression).getRightOperand(), filters);
+      if (clauses1 == null || clauses2 == null) {
+        return null;
+      }
+      LongStream clauses;
+      if (expression instanceof AndOperator) {
+        if ((long) clauses1.length * clauses2.length > MAX_CLAUSES) {
+          return null;
+        }
+        clauses = Arrays.stream(clauses1).flatMap(c1 -> Arrays.stream(clauses2).map(c2 -> c1 | c2));
+      } else {
+        clauses = LongStream.concat(Arrays.stream(clauses1), Arrays.stream(clauses2));
+      }
+      long[] result = clauses.distinct().toArray();
+      return result.length > MAX_CLAUSES ? null : result;
+    }
+    // identity comparison: the same filter object can occur multiple times in an expression
+    for (int i = 0; i < filters.size(); i++) {
+      if (filters.get(i) == expression) {
+        return new long[] {1L << i};
+      }
+    }
+    throw new IllegalStateException("filter not found in list of filters");
+  }
+
+  private static boolean isTagFilter(FilterExpression filter) {
+    return filter instanceof TagFilter || filter instanceof TagFilterAnyOf;
+  }
+
+  private static boolean isNegatedTagFilter(FilterExpression filter) {
+    return filter instanceof TagFilterNotEquals || filter instanceof TagFilterNotEqualsAny
+        || filter instanceof TagFilterNotEqualsAnyOf;
+  }
+
+  private static int tagKey(FilterExpression filter) {
+    if (filter instanceof TagFilterAnyOf) {
+      return ((TagFilterAnyOf) filter).keyId;
+    }
+    Object tag = ((TagFilter) filter).getTag();
+    return tag instanceof OSHDBTag ? ((OSHDBTag) tag).getKey() : ((OSHDBTagKey) tag).toInt();
+  }
+
+  // returns the sorted tag values of a tag filter, or null if the filter only checks the key
+  private static int[] tagValues(FilterExpression filter) {
+    if (filter instanceof TagFilterAnyOf) {
+      return ((TagFilterAnyOf) filter).tags.stream().mapToInt(OSHDBTag::getValue)
+          .sorted().toArray();
+    }
+    Object tag = ((TagFilter) filter).getTag();
+    return tag instanceof OSHDBTag ? new int[] {((OSHDBTag) tag).getValue()} : null;
+  }
+
+  /**
+   * Returns the original (uncompiled) filter expression.
+   *
+   * @return the filter expression this object was compiled from.
+   */
+  @Contract(pure = true)
+  public FilterExpression getExpression() {
+    return this.expression;
+  }
+
+  @Override
+  public boolean applyOSM(OSMEntity entity) {
+    int[] tags = entity.getRawTags();
+    long results = 0;
+    int pos = 0;
+    for (int j = 0; j < tagKeys.length; j++) {
+      int key = tagKeys[j];
+      while (pos < tags.length && tags[pos] < key) {
+        pos += 2;
+      }
+      if (pos >= tags.length) {
+        break;
+      }
+      if (tags[pos] == key && matchesValue(tagValues[j], tags[pos + 1])) {
+        results |= tagMasks[j];
+      } else if ((tagMasks[j] & requiredTagFilters) != 0) {
+        return false;
+      }
+    }
+    if ((results & requiredTagFilters) != requiredTagFilters) {
+      return false;
+    }
+    return evaluate(results ^ negatedTagFilters, tagFilters, entity);
+  }
+
+  private static boolean matchesValue(int[] values, int value) {
+    if (values == null) {
+      return true;
+    } else if (values.length == 1) {
+      return values[0] == value;
+    } else {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+  }
+
+  @Override
+  public boolean applyOSH(OSHEntity entity) {
+    return expression.applyOSH(entity);
+  }
+
+  /**
+   * Evaluates the clauses of the disjunctive normal form.
+   *
+   * @param results the results of the already evaluated filters
+   * @param evaluated bit mask of the already evaluated filters, all other filters are evaluated
+   *        on demand on the given OSM entity
+   */
+  private boolean evaluate(long results, long evaluated, OSMEntity entity) {
+    for (long clause : clauses) {
+      long clauseEvaluated = clause & evaluated;
+      if ((results & clauseEvaluated) != clauseEvaluated) {
+        continue;
+      }
+      long remaining = clause & ~evaluated;
+      while (remaining != 0) {
+        int i = Long.numberOfTrailingZeros(remaining);
+        long mask = 1L << i;
+        boolean result = filters[i].applyOSM(entity);
+        evaluated |= mask;
+        if (result) {
+          results |= mask;
+          remaining &= ~mask;
+        } else {
+          break;
+        }
+      }
+      if (remaining == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean applyOSMGeometry(OSMEntity entity, Supplier<Geometry> geometrySupplier) {
+    return expression.applyOSMGeometry(entity, geometrySupplier);
+  }
+
+  @Override
+  public boolean mayMatchGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+    return expression.mayMatchGeometryType(entity, tagInterpreter);
+  }
+
+  @Override
+  public boolean mayMatchUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+    return expression.mayMatchUnclippedGeometry(entity, unclippedGeometry);
+  }
+
+  @Override
+  public FilterExpression negate() {
+    return compile(expression.negate());
+  }
+
+  @Override
+  public List<List<Filter>> normalize() {
+    return expression.normalize();
+  }
+
+  @Override
+  public String toString() {
+    return expression.toString();
+  }
+
+  /**
+   * Returns the number of tag filters which are evaluated in the tag matching pass.
+   */
+  int getNumberOfTagFilters() {
+    return Long.bitCount(tagFilters);
+  }
+
+  /**
+   * Returns the number of clauses of the disjunctive normal form of this filter.
+   */
+  int getNumberOfClauses() {
+    return clauses.length;
+  }
+}
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.function.Supplier;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.jetbrains.annotations.Contract;
 import org.locationtech.jts.geom.Geometry;
 
@@ -73,6 +74,41 @@ public interface FilterExpression extends Serializable {
     return applyOSMGeometry(entity, () -> geometry);
   }
 
+  /**
+   * Checks if an "OSM feature" can fulfill this filter, without building its geometry.
+   *
+   * <p>Uses only cheap properties of the entity, such as its OSM type and whether it is
+   * interpreted as an area by the given tag interpreter. Only returns false if
+   * {@link #applyOSMGeometry(OSMEntity, Supplier)} is guaranteed to return false for the entity's
+   * geometry, also after it has been clipped to an area of interest. The default implementation
+   * always returns true.</p>
+   *
+   * @param entity the OSM entity to check.
+   * @param tagInterpreter the tag interpreter used to build the entity's geometry.
+   * @return false if the OSM feature can't fulfill the specified filter, otherwise true.
+   */
+  @Contract(pure = true)
+  default boolean mayMatchGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+    return true;
+  }
+
+  /**
+   * Checks if an "OSM feature" can fulfill this filter, based on its full (unclipped) geometry.
+   *
+   * <p>Only returns false if {@link #applyOSMGeometry(OSMEntity, Supplier)} is guaranteed to
+   * return false for any geometry obtained by clipping the given geometry to an area of interest.
+   * This allows to skip clipping geometries of features which can't match the filter anyway. The
+   * default implementation always returns true.</p>
+   *
+   * @param entity the OSM entity to check.
+   * @param unclippedGeometry the full geometry of this OSM feature.
+   * @return false if the OSM feature can't fulfill the specified filter, otherwise true.
+   */
+  @Contract(pure = true)
+  default boolean mayMatchUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+    return true;
+  }
+
   /**
    * Returns the opposite of the current filter expression.
    *
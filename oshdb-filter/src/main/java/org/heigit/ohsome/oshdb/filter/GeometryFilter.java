@@ -13,6 +13,8 @@ import org.locationtech.jts.geom.Geometry;
  */
 public abstract class GeometryFilter extends NegatableFilter {
   static class ValueRange implements Serializable {
+    private static final double UPPER_BOUND_TOLERANCE = 1E-9;
+
     private final double fromValue;
     private final double toValue;
 
@@ -25,6 +27,15 @@ public abstract class GeometryFilter extends NegatableFilter {
       return value >= fromValue && value <= toValue;
     }
 
+    /**
+     * Checks if any value smaller than or equal to the given value can be in this range.
+     *
+     * <p>A small relative tolerance is used to account for rounding errors.</p>
+     */
+    private boolean testUpperBound(double maxValue) {
+      return maxValue * (1 + UPPER_BOUND_TOLERANCE) >= fromValue;
+    }
+
     public String toString() {
       return (fromValue == Double.NEGATIVE_INFINITY ? "" : fromValue)
           + ".."
@@ -82,6 +93,12 @@ public abstract class GeometryFilter extends NegatableFilter {
         return valueRange.test(metricEvaluator.applyAsDouble(geometrySupplier.get()));
       }
 
+      @Override
+      public boolean mayMatchUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+        // clipping a geometry never increases its area or length
+        return valueRange.testUpperBound(metricEvaluator.applyAsDouble(unclippedGeometry));
+      }
+
       @Override
       public String toString() {
         return metricEvaluator.toString() + ":" + valueRange.toString();
@@ -12,6 +12,7 @@ import org.heigit.ohsome.oshdb.osm.OSMMember;
 import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.osm.OSMWay;
 import org.heigit.ohsome.oshdb.util.OSHDBTag;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.heigit.ohsome.oshdb.util.tagtranslator.OSMTag;
 import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
 import org.jetbrains.annotations.Contract;
@@ -155,6 +156,18 @@ public class GeometryTypeFilter implements Filter {
         && checkGeometryType(geometrySupplier.get());
   }
 
+  @Override
+  public boolean mayMatchGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+    final OSMType osmType = entity.getType();
+    if (!checkOSMType(osmType)) {
+      return false;
+    }
+    // ways which aren't interpreted as areas always get a linestring (or point) geometry, which
+    // stays non-polygonal when clipped
+    return geometryType != GeometryType.POLYGON || osmType != OSMType.WAY
+        || tagInterpreter.isArea(entity);
+  }
+
   @Override
   public FilterExpression negate() {
     EnumSet<GeometryType> otherTypes = EnumSet.allOf(GeometryType.class);
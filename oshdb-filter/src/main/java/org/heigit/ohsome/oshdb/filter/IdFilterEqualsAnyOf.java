@@ -1,10 +1,12 @@
 package org.heigit.ohsome.oshdb.filter;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import org.jetbrains.annotations.Contract;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
 
@@ -12,6 +14,8 @@ import org.heigit.ohsome.oshdb.osm.OSMEntity;
  * A tag filter which executes a "id [not] in (id1, id2, …)" check.
  */
 public class IdFilterEqualsAnyOf extends NegatableFilter {
+  private final Set<Long> ids;
+
   IdFilterEqualsAnyOf(@Nonnull Collection<Long> idList) {
     super(new FilterInternal() {
       private final Set<Long> ids = new HashSet<>(idList);
@@ -35,5 +39,16 @@ public class IdFilterEqualsAnyOf extends NegatableFilter {
     if (idList.isEmpty()) {
       throw new IllegalStateException("list of ids must not be empty in a id in (list) filter");
     }
+    this.ids = Collections.unmodifiableSet(new HashSet<>(idList));
+  }
+
+  /**
+   * Returns the ids of this filter.
+   *
+   * @return the (unmodifiable) set of OSM ids of this filter.
+   */
+  @Contract(pure = true)
+  public Set<Long> getIds() {
+    return this.ids;
   }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package org.heigit.ohsome.oshdb.filter;
 
 import java.io.Serializable;
 import javax.annotation.Nonnull;
+import org.jetbrains.annotations.Contract;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
 
@@ -34,6 +35,8 @@ public class IdFilterRange extends NegatableFilter {
     }
   }
 
+  private final IdRange range;
+
   IdFilterRange(@Nonnull IdRange range) {
     super(new FilterInternal() {
       @Override
@@ -51,5 +54,26 @@ public class IdFilterRange extends NegatableFilter {
         return "id:in-range" + range.toString();
       }
     });
+    this.range = range;
+  }
+
+  /**
+   * Returns the lower bound of the id range of this filter.
+   *
+   * @return the smallest OSM id matched by this filter.
+   */
+  @Contract(pure = true)
+  public long getFromId() {
+    return this.range.fromId;
+  }
+
+  /**
+   * Returns the upper bound of the id range of this filter.
+   *
+   * @return the largest OSM id matched by this filter.
+   */
+  @Contract(pure = true)
+  public long getToId() {
+    return this.range.toId;
   }
 }
\ No newline at end of file
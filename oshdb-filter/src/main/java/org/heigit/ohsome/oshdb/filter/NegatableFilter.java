@@ -4,6 +4,7 @@ import java.util.function.Supplier;
 import javax.annotation.Nonnull;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.locationtech.jts.geom.Geometry;
 
 /**
@@ -44,6 +45,17 @@ class NegatableFilter implements Filter {
     return this.filter.applyOSMGeometry(entity, geometrySupplier) ^ this.negated;
   }
 
+  @Override
+  public boolean mayMatchGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+    // no conclusions can be drawn for negated filters
+    return this.negated || this.filter.mayMatchGeometryType(entity, tagInterpreter);
+  }
+
+  @Override
+  public boolean mayMatchUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+    return this.negated || this.filter.mayMatchUnclippedGeometry(entity, unclippedGeometry);
+  }
+
   @Override
   public NegatableFilter negate() {
     return new NegatableFilter(this.filter, !this.negated);
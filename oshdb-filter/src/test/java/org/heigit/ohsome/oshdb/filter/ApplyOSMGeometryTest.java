@@ -6,8 +6,11 @@ import static org.junit.Assert.assertTrue;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 import org.heigit.ohsome.oshdb.util.geometry.OSHDBGeometryBuilder;
+import org.heigit.ohsome.oshdb.util.taginterpreter.DefaultTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.junit.Test;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
 /**
@@ -141,4 +144,51 @@ public class ApplyOSMGeometryTest extends FilterTest {
         })
     ));
   }
+
+  @Test
+  public void testMayMatchGeometryType() throws Exception {
+    TagInterpreter tagInterpreter = new DefaultTagInterpreter(tagTranslator);
+    OSMEntity area = createTestOSMEntityWay(new long[] {1, 2, 3, 4, 1}, "building", "yes");
+    OSMEntity line = createTestOSMEntityWay(new long[] {1, 2, 3, 4, 1}, "highway", "track");
+    FilterExpression expression = parser.parse("geometry:polygon");
+    assertTrue(expression.mayMatchGeometryType(area, tagInterpreter));
+    assertFalse(expression.mayMatchGeometryType(line, tagInterpreter));
+    assertFalse(expression.mayMatchGeometryType(createTestOSMEntityNode(), tagInterpreter));
+    // clipped geometries of areas can also be lines or geometry collections
+    assertTrue(parser.parse("geometry:line").mayMatchGeometryType(area, tagInterpreter));
+    assertTrue(parser.parse("geometry:other").mayMatchGeometryType(area, tagInterpreter));
+    // boolean operators
+    expression = parser.parse("geometry:polygon or highway=*");
+    assertTrue(expression.mayMatchGeometryType(line, tagInterpreter));
+    expression = parser.parse("geometry:polygon and highway=*");
+    assertFalse(expression.mayMatchGeometryType(line, tagInterpreter));
+    expression = parser.parse("geometry:polygon or geometry:point");
+    assertFalse(expression.mayMatchGeometryType(line, tagInterpreter));
+    expression = parser.parse("not geometry:polygon");
+    assertTrue(expression.mayMatchGeometryType(line, tagInterpreter));
+  }
+
+  @Test
+  public void testMayMatchUnclippedGeometry() {
+    OSMEntity entity = createTestOSMEntityWay(new long[] {1, 2, 3, 4, 1});
+    // approx 1.2m²
+    Geometry geometry = OSHDBGeometryBuilder.getGeometry(new OSHDBBoundingBox(0, 0, 1E-5, 1E-5));
+    // a clipped part of the geometry can be smaller, but not larger
+    assertTrue(parser.parse("area:(1..2)").mayMatchUnclippedGeometry(entity, geometry));
+    assertTrue(parser.parse("area:(0.1..0.2)").mayMatchUnclippedGeometry(entity, geometry));
+    assertFalse(parser.parse("area:(2..3)").mayMatchUnclippedGeometry(entity, geometry));
+    assertTrue(parser.parse("area:(1..2) or area:(2..3)")
+        .mayMatchUnclippedGeometry(entity, geometry));
+    assertFalse(parser.parse("area:(1..2) and area:(2..3)")
+        .mayMatchUnclippedGeometry(entity, geometry));
+    // approx 1.1m
+    geometry = gf.createLineString(new Coordinate[] {
+        new Coordinate(0, 0),
+        new Coordinate(1E-5, 0)
+    });
+    assertTrue(parser.parse("length:(1..2)").mayMatchUnclippedGeometry(entity, geometry));
+    assertFalse(parser.parse("length:(2..3)").mayMatchUnclippedGeometry(entity, geometry));
+    // negated filters can't be decided on the unclipped geometry
+    assertTrue(parser.parse("not length:(1..2)").mayMatchUnclippedGeometry(entity, geometry));
+  }
 }
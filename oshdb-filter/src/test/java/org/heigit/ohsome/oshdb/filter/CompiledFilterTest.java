@@ -0,0 +1,128 @@
+package org.heigit.ohsome.oshdb.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.junit.Test;
+
+/**
+ * Tests that compiled filters produce the same results as the original filter expressions.
+ */
+public class CompiledFilterTest extends FilterTest {
+  private static final String[] FILTERS = new String[] {
+      "highway=residential",
+      "highway=*",
+      "highway!=residential",
+      "highway!=*",
+      "highway in (residential, track)",
+      "not highway in (residential, track)",
+      "highway=residential and name=*",
+      "highway=residential or name=*",
+      "(highway=residential or highway=track) and building!=*",
+      "building=yes or (highway=* and not (name=* or highway=primary))",
+      "type:node and (highway in (primary, track) or building=*) and id:(1..3)",
+      "highway=residential and highway=track",
+      "id:1 or name!=FIXME",
+      "geometry:point and (highway=* or building=*)",
+      ""
+  };
+
+  private List<OSMNode> createTestEntities() {
+    List<OSMNode> entities = new ArrayList<>();
+    entities.add(createTestOSMEntityNode());
+    entities.add(createTestOSMEntityNode("highway", "residential"));
+    entities.add(createTestOSMEntityNode("highway", "track"));
+    entities.add(createTestOSMEntityNode("highway", "primary"));
+    entities.add(createTestOSMEntityNode("building", "yes"));
+    entities.add(createTestOSMEntityNode("name", "FIXME"));
+    entities.add(createTestOSMEntityNode("highway", "residential", "name", "FIXME"));
+    entities.add(createTestOSMEntityNode("highway", "track", "building", "yes"));
+    entities.add(createTestOSMEntityNode("building", "yes", "highway", "primary", "name", "FIXME"));
+    return entities;
+  }
+
+  @Test
+  public void testApplyOSM() {
+    for (String filter : FILTERS) {
+      FilterExpression expression = parser.parse(filter);
+      FilterExpression compiled = CompiledFilter.compile(expression);
+      assertEquals(expression instanceof BinaryOperator, compiled instanceof CompiledFilter);
+      for (OSMEntity entity : createTestEntities()) {
+        assertEquals(filter + " on " + entity,
+            expression.applyOSM(entity), compiled.applyOSM(entity));
+      }
+    }
+  }
+
+  @Test
+  public void testApplyOSH() throws IOException {
+    List<OSMNode> entities = createTestEntities();
+    List<OSHEntity> oshEntities = new ArrayList<>();
+    for (OSMNode entity : entities) {
+      oshEntities.add(createTestOSHEntityNode(entity));
+    }
+    for (int i = 0; i < entities.size(); i++) {
+      for (int j = i + 1; j < entities.size(); j++) {
+        oshEntities.add(createTestOSHEntityNode(entities.get(i), entities.get(j)));
+      }
+    }
+    for (String filter : FILTERS) {
+      FilterExpression expression = parser.parse(filter);
+      FilterExpression compiled = CompiledFilter.compile(expression);
+      for (OSHEntity entity : oshEntities) {
+        assertEquals(filter + " on " + entity,
+            expression.applyOSH(entity), compiled.applyOSH(entity));
+      }
+    }
+  }
+
+  @Test
+  public void testTagFiltersAreMerged() {
+    FilterExpression compiled = CompiledFilter.compile(parser.parse(
+        "type:node and (highway in (primary, track) or building=*) and name!=FIXME"));
+    assertEquals(3, ((CompiledFilter) compiled).getNumberOfTagFilters());
+  }
+
+  @Test
+  public void testDisjunctiveNormalForm() {
+    FilterExpression compiled = CompiledFilter.compile(parser.parse(
+        "(highway=residential or highway=track) and (name=* or building=*) and type:way"));
+    assertEquals(4, ((CompiledFilter) compiled).getNumberOfClauses());
+    // clauses exceeding the maximum number of clauses are not compiled
+    StringBuilder filter = new StringBuilder("(highway=residential or highway=track)");
+    for (int i = 0; i < 8; i++) {
+      filter.append(" and (name=* or building=*)");
+    }
+    FilterExpression expression = parser.parse(filter.toString());
+    assertSame(expression, CompiledFilter.compile(expression));
+  }
+
+  @Test
+  public void testNormalizeAndNegate() {
+    FilterExpression expression = parser.parse("highway=residential or name=*");
+    FilterExpression compiled = CompiledFilter.compile(expression);
+    assertEquals(expression.toString(), compiled.toString());
+    assertEquals(expression.normalize().size(), compiled.normalize().size());
+    assertSame(compiled, CompiledFilter.compile(compiled));
+    FilterExpression negated = compiled.negate();
+    for (OSMEntity entity : createTestEntities()) {
+      assertEquals(!expression.applyOSM(entity), negated.applyOSM(entity));
+    }
+  }
+
+  @Test
+  public void testTooManyFilters() {
+    StringBuilder filter = new StringBuilder("highway=residential");
+    for (int i = 0; i < CompiledFilter.MAX_FILTERS; i++) {
+      filter.append(" or highway=track");
+    }
+    FilterExpression expression = parser.parse(filter.toString());
+    assertSame(expression, CompiledFilter.compile(expression));
+  }
+}
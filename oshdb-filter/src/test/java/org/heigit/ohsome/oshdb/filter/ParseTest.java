@@ -6,6 +6,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Set;
 import org.heigit.ohsome.oshdb.filter.GeometryTypeFilter.GeometryType;
 import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.util.OSHDBTag;
@@ -146,6 +147,7 @@ public class ParseTest extends FilterTest {
     FilterExpression expression = parser.parse("id:(1,2,3)");
     assertTrue(expression instanceof IdFilterEqualsAnyOf);
     assertEquals("id:in1,2,3", expression.toString());
+    assertEquals(Set.of(1L, 2L, 3L), ((IdFilterEqualsAnyOf) expression).getIds());
   }
 
   @Test
@@ -180,6 +182,8 @@ public class ParseTest extends FilterTest {
     expression = parser.parse("id:(3..1)");
     assertTrue(expression instanceof IdFilterRange);
     assertEquals("id:in-range1..3", expression.toString());
+    assertEquals(1, ((IdFilterRange) expression).getFromId());
+    assertEquals(3, ((IdFilterRange) expression).getToId());
   }
 
   @Test
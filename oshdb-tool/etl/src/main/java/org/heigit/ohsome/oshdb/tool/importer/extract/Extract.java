@@ -8,6 +8,7 @@ import com.google.common.collect.Streams;
 import com.google.common.io.CountingOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
 import java.io.BufferedOutputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -102,6 +103,61 @@ public class Extract {
     }
   }
 
+  /**
+   * Tag and role frequencies of one rail of the parallel extraction, counted by a single thread at
+   * a time and written to temp files when the memory of the rail is exhausted.
+   */
+  private class FrequencyCounter {
+    private final KVFCollector kvFrequency = new KVFCollector();
+    private final RoleCollector roleFrequency = new RoleCollector();
+    private final long maxMemory;
+    private final Set<TagText> uniqueTags = new HashSet<>();
+    private final Set<String> uniqueRoles = new HashSet<>();
+
+    private FrequencyCounter(int workerId, int workerTotal, boolean keepTemp, long maxMemory) {
+      this.maxMemory = maxMemory;
+      final File tempDir = (workerTotal > 1) ? workDirectory.toFile() : tempDirectory.toFile();
+      kvFrequency.setWorkerId(workerId);
+      kvFrequency.setTempDir(tempDir);
+      kvFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
+      roleFrequency.setWorkerId(workerId);
+      roleFrequency.setTempDir(tempDir);
+      roleFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
+    }
+
+    private FrequencyCounter add(List<Osh> oshs) throws IOException {
+      for (Osh osh : oshs) {
+        if (kvFrequency.getEstimatedSize() + roleFrequency.getEstimatedSize() > maxMemory) {
+          kvFrequency.writeTemp();
+          roleFrequency.writeTemp();
+        }
+
+        uniqueTags.clear();
+        osh.getVersions().forEach(version -> {
+          for (Tag tag : version.getTags()) {
+            uniqueTags.add((TagText) tag);
+          }
+        });
+        kvFrequency.addAll(uniqueTags);
+
+        if (osh.getType() != OSMType.RELATION)
+          continue;
+        uniqueRoles.clear();
+        osh.getVersions().forEach(version -> {
+          Relation r = (Relation) version;
+          for (RelationMember member : r.members) {
+            uniqueRoles.add(member.role);
+          }
+        });
+        roleFrequency.addAll(uniqueRoles);
+      }
+      return this;
+    }
+  }
+
+  // number of entity histories passed to the counting rails at once
+  private static final int COUNT_BATCH_SIZE = 1024;
+
   private final long maxMemory;
   private Path workDirectory = Paths.get(".");
   private Path tempDirectory = Paths.get(".");
@@ -132,16 +188,6 @@ public class Extract {
     final Path pbf = config.pbf;
     final StatsCollector stats = new StatsCollector(pbf);
     
-    final KVFCollector kvFrequency = new KVFCollector();
-    kvFrequency.setWorkerId(workerId);
-    kvFrequency.setTempDir((workerTotal > 1) ? workDirectory.toFile() : tempDirectory.toFile());
-    kvFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
-
-    final RoleCollector roleFrequency = new RoleCollector();
-    roleFrequency.setWorkerId(workerId);
-    roleFrequency.setTempDir((workerTotal > 1) ? workDirectory.toFile() : tempDirectory.toFile());
-    roleFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
-
     final long fileLength = pbf.toFile().length();
     final long workSize = (long) Math.ceil(fileLength / (double) workerTotal);
     final long start = workSize * workerId;
@@ -153,40 +199,41 @@ public class Extract {
       stats.add(osh);
     });
 
-    oshFlow = oshFlow.doOnNext(osh -> {
-      if (kvFrequency.getEstimatedSize() + roleFrequency.getEstimatedSize() > maxMemory) {
-        kvFrequency.writeTemp();
-        roleFrequency.writeTemp();
-      }
+    // the frequencies are counted per rail in collectors of their own, and merged at the end
+    final int threads = Math.max(1, config.threads);
+    final long railMemory = maxMemory / threads;
+    final List<FrequencyCounter> counters = oshFlow.buffer(COUNT_BATCH_SIZE)
+        .parallel(threads)
+        .runOn(Schedulers.computation())
+        .reduce(() -> new FrequencyCounter(workerId, workerTotal, keepTemp, railMemory),
+            FrequencyCounter::add)
+        .sequential()
+        .toList()
+        .blockingGet();
 
-      final Set<TagText> uniqueTags = new HashSet<>();
-      osh.getVersions().forEach(version -> {
-        for (Tag tag : version.getTags()) {
-          uniqueTags.add((TagText) tag);
-        }
-      });
-      kvFrequency.addAll(uniqueTags);
-    });
+    final KVFCollector kvFrequency = new KVFCollector();
+    kvFrequency.setWorkerId(workerId);
+    kvFrequency.setTempDir((workerTotal > 1) ? workDirectory.toFile() : tempDirectory.toFile());
+    kvFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
 
-    oshFlow = oshFlow.doOnNext(osh -> {
-      if (kvFrequency.getEstimatedSize() + roleFrequency.getEstimatedSize() > maxMemory) {
-        kvFrequency.writeTemp();
-        roleFrequency.writeTemp();
-      }
-      if (osh.getType() != OSMType.RELATION)
-        return;
-      final Set<String> uniqueRoles = new HashSet<>();
-
-      osh.getVersions().forEach(version -> {
-        Relation r = (Relation) version;
-        for (RelationMember member : r.members) {
-          uniqueRoles.add(member.role);
-        }
-      });
-      roleFrequency.addAll(uniqueRoles);
-    });
+    final RoleCollector roleFrequency = new RoleCollector();
+    roleFrequency.setWorkerId(workerId);
+    roleFrequency.setTempDir((workerTotal > 1) ? workDirectory.toFile() : tempDirectory.toFile());
+    roleFrequency.setTempDeleteOneExit(workerTotal > 1 || keepTemp);
 
-    oshFlow.count().blockingGet();
+    for (FrequencyCounter counter : counters) {
+      if (kvFrequency.getEstimatedSize() + roleFrequency.getEstimatedSize()
+          + counter.kvFrequency.getEstimatedSize() + counter.roleFrequency.getEstimatedSize() > maxMemory) {
+        try {
+          kvFrequency.writeTemp();
+          roleFrequency.writeTemp();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+      kvFrequency.merge(counter.kvFrequency);
+      roleFrequency.merge(counter.roleFrequency);
+    }
     
     try(FileOutputStream fos = new FileOutputStream(workDirectory.resolve("extract_meta").toFile());
         PrintStream out = new PrintStream(fos)){
@@ -1,8 +1,6 @@
 package org.heigit.ohsome.oshdb.tool.importer.extract;
 
 import com.google.protobuf.InvalidProtocolBufferException;
-import crosby.binary.Osmformat;
-import crosby.binary.Osmformat.PrimitiveBlock;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.FileInputStream;
@@ -10,9 +8,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.Iterator;
 import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.tool.importer.extract.data.OsmPbfMeta;
+import org.heigit.ohsome.oshpbf.parser.pbf.OsmPrimitiveBlockDecoder;
 import org.heigit.ohsome.oshpbf.parser.pbf.PbfBlob;
 import org.heigit.ohsome.oshpbf.parser.rx.RxOshPbfReader;
 
@@ -187,15 +187,12 @@ public class TypeStartFinder {
   }
 
   public static OSMType getType(PbfBlob blob) throws InvalidProtocolBufferException {
-    PrimitiveBlock block = blob.getPrimitivBlock();
-    if(block != null) {
-      Osmformat.PrimitiveGroup group = block.getPrimitivegroup(0);
-      if (group.hasDense() || group.getNodesCount() > 0)
-        return OSMType.NODE;
-      if (group.getWaysCount() > 0)
-        return OSMType.WAY;
-      if (group.getRelationsCount() > 0)
-        return OSMType.RELATION;
+    if (blob.isData()) {
+      // only decodes the block up to its first entity
+      OsmPrimitiveBlockDecoder decoder = new OsmPrimitiveBlockDecoder(blob.pos, blob.getDataBytes(),
+          EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION));
+      if (decoder.hasNext())
+        return decoder.next().getType();
       throw new IllegalArgumentException("unkown type for Pbf PrimitiveGroup!");
     }
     throw new IllegalArgumentException("block is null, could be a header pbf block instead of a data block!");
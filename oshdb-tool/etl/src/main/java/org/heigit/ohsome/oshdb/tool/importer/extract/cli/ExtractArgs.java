@@ -2,6 +2,7 @@ package org.heigit.ohsome.oshdb.tool.importer.extract.cli;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParametersDelegate;
+import com.beust.jcommander.validators.PositiveInteger;
 import java.nio.file.Path;
 import org.heigit.ohsome.oshdb.tool.importer.cli.CommonArgs;
 import org.heigit.ohsome.oshdb.tool.importer.cli.DistributableArgs;
@@ -34,6 +35,9 @@ public class ExtractArgs {
   @Parameter(names = {"--timevalidity_to"}, description="latest valid timestamp in isodate format", validateWith=TimeValidity.class)
   public String timeValidityTo = null; //
 
+  @Parameter(names = {"--threads"}, description = "number of threads counting tag and role frequencies", validateWith = PositiveInteger.class)
+  public int threads = Runtime.getRuntime().availableProcessors();
+
   @Parameter(names = { "--overwrite" }, description = "overwrite existing files", order = 1)
   public boolean overwrite = false;
 }
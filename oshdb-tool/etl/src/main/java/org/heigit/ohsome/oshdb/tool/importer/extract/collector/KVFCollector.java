@@ -1,14 +1,10 @@
 package org.heigit.ohsome.oshdb.tool.importer.extract.collector;
 
-import static org.heigit.ohsome.oshdb.tool.importer.util.lambda.ConsumerUtil.throwingConsumer;
-
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Streams;
-import it.unimi.dsi.fastutil.objects.Object2IntAVLTreeMap;
-import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
-import it.unimi.dsi.fastutil.objects.Object2ObjectAVLTreeMap;
-import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
@@ -22,12 +18,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
 import java.util.function.Function;
@@ -39,13 +35,26 @@ import org.heigit.ohsome.oshdb.tool.importer.util.MergeIterator;
 import org.heigit.ohsome.oshdb.tool.importer.util.SizeEstimator;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.TagText;
 
+/**
+ * Counts the frequencies of keys and of the values per key.
+ *
+ * <p>Tags are counted in open addressing hash maps, which the decoder feeds with the same string
+ * instances for all occurrences within a block, so their hash codes are computed only once. The
+ * keys and values are only sorted when a run is written to a temp file or iterated, and the runs
+ * are merged at the end. A collector is not thread-safe: count with one collector per thread and
+ * {@link #merge(KVFCollector) merge} them afterwards.</p>
+ */
 public class KVFCollector implements Iterable<KVF> {
 
+  private static class Values {
+    private int freq = 0;
+    private final Object2IntOpenHashMap<String> value2Frequency = new Object2IntOpenHashMap<>();
+  }
+
   private Function<OutputStream, OutputStream> outputStreamFunction = (out) -> out;
   private Function<InputStream, InputStream> inputStreamFunction = (in) -> in;
 
-  private final Object2IntAVLTreeMap<String> key2Frequency = new Object2IntAVLTreeMap<>();
-  private final Object2ObjectAVLTreeMap<String, Object2IntAVLTreeMap<String>> key2Values = new Object2ObjectAVLTreeMap<>();
+  private final Object2ObjectOpenHashMap<String, Values> key2Values = new Object2ObjectOpenHashMap<>();
 
   private long estimatedSize = 0;
   private final List<File> splits;
@@ -78,23 +87,52 @@ public class KVFCollector implements Iterable<KVF> {
   }
 
   public void addAll(Collection<TagText> item) {
-    item.forEach(t -> {
-      final String key = t.key;
-      final String value = t.value;
+    item.forEach(t -> add(t.key, 1, t.value, 1));
+  }
 
-      if (key2Frequency.addTo(key, 1) == 0) {
-        estimatedSize += SizeEstimator.estimatedSizeOfAVLEntryKey(key);
-      }
+  private void add(String key, int keyFreq, String value, int valueFreq) {
+    Values values = key2Values.get(key);
+    if (values == null) {
+      values = new Values();
+      key2Values.put(key, values);
+      estimatedSize += SizeEstimator.estimatedSizeOfHashEntryKey(key);
+    }
+    values.freq += keyFreq;
+    if (values.value2Frequency.addTo(value, valueFreq) == 0) {
+      estimatedSize += SizeEstimator.estimatedSizeOfHashEntryValue(value);
+    }
+  }
 
-      Object2IntAVLTreeMap<String> value2Frequency = key2Values.get(key);
-      if (value2Frequency == null) {
-        value2Frequency = new Object2IntAVLTreeMap<>();
-        key2Values.put(key, value2Frequency);
-      }
-      if (value2Frequency.addTo(value, 1) == 0) {
-        estimatedSize += SizeEstimator.estimatedSizeOfAVLEntryValue(value);
+  /**
+   * Moves the counts and temp files of another collector (e.g. of another thread) to this one.
+   */
+  public void merge(KVFCollector other) {
+    other.key2Values.forEach((key, values) -> {
+      Values merged = key2Values.get(key);
+      if (merged == null) {
+        key2Values.put(key, values);
+        estimatedSize += SizeEstimator.estimatedSizeOfHashEntryKey(key);
+        values.value2Frequency.keySet().forEach(value ->
+            estimatedSize += SizeEstimator.estimatedSizeOfHashEntryValue(value));
+        return;
       }
+      merged.freq += values.freq;
+      values.value2Frequency.object2IntEntrySet().forEach(entry -> {
+        if (merged.value2Frequency.addTo(entry.getKey(), entry.getIntValue()) == 0) {
+          estimatedSize += SizeEstimator.estimatedSizeOfHashEntryValue(entry.getKey());
+        }
+      });
     });
+    splits.addAll(other.splits);
+    other.key2Values.clear();
+    other.splits.clear();
+    other.estimatedSize = 0;
+  }
+
+  private static String[] sorted(Collection<String> strings) {
+    final String[] array = strings.toArray(new String[0]);
+    Arrays.sort(array);
+    return array;
   }
 
   public void inputOutputStream(Function<InputStream, InputStream> input, Function<OutputStream, OutputStream> output) {
@@ -103,7 +141,7 @@ public class KVFCollector implements Iterable<KVF> {
   }
 
   public void writeTemp() throws IOException {
-    if (key2Frequency.isEmpty())
+    if (key2Values.isEmpty())
       return;
     File newTempFile;
     newTempFile = File.createTempFile(tempPrefix, tempSuffix, tempDir);
@@ -118,27 +156,25 @@ public class KVFCollector implements Iterable<KVF> {
   public void writeTemp(OutputStream outStream) throws FileNotFoundException, IOException {
     try (OutputStream outStream2 = outputStreamFunction.apply(outStream);
         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outStream2))) {
-      out.writeInt(key2Frequency.size());
-      key2Frequency.object2IntEntrySet().forEach(throwingConsumer(keyFrequency -> {
-        final String key = keyFrequency.getKey();
-        final int keyFreq = keyFrequency.getIntValue();
-        writeKVFrequency(out, key, keyFreq, key2Values.get(key));
-      }));
-      key2Frequency.clear();
+      out.writeInt(key2Values.size());
+      for (String key : sorted(key2Values.keySet())) {
+        final Values values = key2Values.get(key);
+        writeKVFrequency(out, key, values.freq, values.value2Frequency);
+      }
       key2Values.clear();
       estimatedSize = 0;
     }
   }
 
   private static void writeKVFrequency(DataOutputStream out, String key, int keyFreq,
-      Object2IntAVLTreeMap<String> value) throws IOException {
+      Object2IntOpenHashMap<String> value) throws IOException {
     out.writeUTF(key);
     out.writeInt(keyFreq);
     out.writeInt(value.size());
-    value.object2IntEntrySet().forEach(throwingConsumer(valueFrequency -> {
-      out.writeUTF(valueFrequency.getKey());
-      out.writeInt(valueFrequency.getIntValue());
-    }));
+    for (String v : sorted(value.keySet())) {
+      out.writeUTF(v);
+      out.writeInt(value.getInt(v));
+    }
   }
 
   public long getEstimatedSize() {
@@ -151,7 +187,7 @@ public class KVFCollector implements Iterable<KVF> {
 
   @Override
   public Iterator<KVF> iterator() {
-    List<Iterator<KVF>> iters = new ArrayList<>(splits.size() + key2Frequency.size());
+    List<Iterator<KVF>> iters = new ArrayList<>(splits.size() + 1);
     splits.stream().map(file -> {
       DataInputStream dataInput = null;
       try {
@@ -170,8 +206,8 @@ public class KVFCollector implements Iterable<KVF> {
         throw new RuntimeException(e.getMessage());
       }
     }).forEach(iters::add);
-    if (key2Frequency.size() > 0) {
-      iters.add(KVFMapReader.of(key2Frequency, key2Values, true));
+    if (key2Values.size() > 0) {
+      iters.add(KVFMapReader.of(key2Values, true));
     }
 
     return MergeIterator.of(iters, (a, b) -> a.key.compareTo(b.key), list -> {
@@ -251,27 +287,26 @@ public class KVFCollector implements Iterable<KVF> {
 
   public static class KVFMapReader implements Iterator<KVF> {
 
-    private final ObjectBidirectionalIterator<Entry<String>> keyIterator;
-    private final Object2ObjectAVLTreeMap<String, Object2IntAVLTreeMap<String>> key2Values;
+    private final String[] keys;
+    private final Object2ObjectOpenHashMap<String, Values> key2Values;
     private final boolean remove;
-    private Map<String, Integer> lastValues = Collections.emptyMap();
+    private int index = 0;
 
-    public static KVFMapReader of(Object2IntAVLTreeMap<String> key2Frequency,
-        Object2ObjectAVLTreeMap<String, Object2IntAVLTreeMap<String>> key2Values, boolean remove) {
-      final ObjectBidirectionalIterator<Entry<String>> keyIterator = key2Frequency.object2IntEntrySet().iterator();
-      return new KVFMapReader(keyIterator, key2Values, remove);
+    private static KVFMapReader of(Object2ObjectOpenHashMap<String, Values> key2Values,
+        boolean remove) {
+      return new KVFMapReader(sorted(key2Values.keySet()), key2Values, remove);
     }
 
-    private KVFMapReader(ObjectBidirectionalIterator<Entry<String>> keyIterator,
-        Object2ObjectAVLTreeMap<String, Object2IntAVLTreeMap<String>> key2Values, boolean remove) {
-      this.keyIterator = keyIterator;
+    private KVFMapReader(String[] keys, Object2ObjectOpenHashMap<String, Values> key2Values,
+        boolean remove) {
+      this.keys = keys;
       this.key2Values = key2Values;
       this.remove = remove;
     }
 
     @Override
     public boolean hasNext() {
-      return keyIterator.hasNext();
+      return index < keys.length;
     }
 
     @Override
@@ -279,51 +314,40 @@ public class KVFCollector implements Iterable<KVF> {
       if (!hasNext())
         throw new NoSuchElementException();
 
-      final Entry<String> entry = keyIterator.next();
-      final String key = entry.getKey();
-      final int freq = entry.getIntValue();
-
-      Object2IntAVLTreeMap<String> values = key2Values.get(key);
-      if (remove) {
-        lastValues.clear();
-        keyIterator.remove();
-        key2Values.remove(key);
-        lastValues = values;
-      }
-
-      return new KVF(key, freq, VFMapReader.of(values, remove));
+      final String key = keys[index];
+      keys[index++] = null;
+      final Values values = remove ? key2Values.remove(key) : key2Values.get(key);
+      return new KVF(key, values.freq, VFMapReader.of(values.value2Frequency));
     }
 
   }
 
   public static class VFMapReader implements Iterator<VF> {
-    final ObjectBidirectionalIterator<Entry<String>> valueIterator;
-    final boolean remove;
+    private final String[] values;
+    private final Object2IntOpenHashMap<String> value2Frequency;
+    private int index = 0;
 
-    public static VFMapReader of(Object2IntAVLTreeMap<String> values, boolean remove) {
-      ObjectBidirectionalIterator<Entry<String>> valueIterator = values.object2IntEntrySet().iterator();
-      return new VFMapReader(valueIterator, remove);
+    public static VFMapReader of(Object2IntOpenHashMap<String> value2Frequency) {
+      return new VFMapReader(sorted(value2Frequency.keySet()), value2Frequency);
     }
 
-    private VFMapReader(ObjectBidirectionalIterator<Entry<String>> valueIterator, boolean remove) {
-      this.valueIterator = valueIterator;
-      this.remove = remove;
+    private VFMapReader(String[] values, Object2IntOpenHashMap<String> value2Frequency) {
+      this.values = values;
+      this.value2Frequency = value2Frequency;
     }
 
     @Override
     public boolean hasNext() {
-      return valueIterator.hasNext();
+      return index < values.length;
     }
 
     @Override
     public VF next() {
-      final Entry<String> entry = valueIterator.next();
-      final String value = entry.getKey();
-      final int freq = entry.getIntValue();
-      if (remove) {
-        valueIterator.remove();
-      }
-      return new VF(value, freq);
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      final String value = values[index++];
+      return new VF(value, value2Frequency.getInt(value));
     }
 
   }
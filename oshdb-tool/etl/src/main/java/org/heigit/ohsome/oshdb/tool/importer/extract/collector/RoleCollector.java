@@ -1,10 +1,6 @@
 package org.heigit.ohsome.oshdb.tool.importer.extract.collector;
 
-import static org.heigit.ohsome.oshdb.tool.importer.util.lambda.ConsumerUtil.throwingConsumer;
-
-import it.unimi.dsi.fastutil.objects.Object2IntAVLTreeMap;
-import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
-import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
@@ -17,6 +13,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -26,13 +23,17 @@ import org.heigit.ohsome.oshdb.tool.importer.extract.data.Role;
 import org.heigit.ohsome.oshdb.tool.importer.util.MergeIterator;
 import org.heigit.ohsome.oshdb.tool.importer.util.SizeEstimator;
 
+/**
+ * Counts the frequencies of relation member roles, like the {@link KVFCollector} in an open
+ * addressing hash map which is only sorted when written or iterated.
+ */
 public class RoleCollector implements Iterable<Role> {
 
   private final List<File> tmpFiles;
   private Function<OutputStream, OutputStream> outputStreamFunction = (out) -> out;
   private Function<InputStream, InputStream> inputStreamFunction = (in) -> in;
 
-  private final Object2IntAVLTreeMap<String> role2Frequency = new Object2IntAVLTreeMap<>();
+  private final Object2IntOpenHashMap<String> role2Frequency = new Object2IntOpenHashMap<>();
 
   private int countRoles = 0;
   private long estimatedSize = 0;
@@ -77,19 +78,42 @@ public class RoleCollector implements Iterable<Role> {
     roles.forEach(role -> {
       if (role2Frequency.addTo(role, 1) == 0) {
         countRoles++;
-        estimatedSize += SizeEstimator.estimatedSizeOfAVLEntryValue(role);
+        estimatedSize += SizeEstimator.estimatedSizeOfHashEntryValue(role);
+      }
+    });
+  }
+
+  /**
+   * Moves the counts and temp files of another collector (e.g. of another thread) to this one.
+   */
+  public void merge(RoleCollector other) {
+    other.role2Frequency.object2IntEntrySet().forEach(entry -> {
+      if (role2Frequency.addTo(entry.getKey(), entry.getIntValue()) == 0) {
+        countRoles++;
+        estimatedSize += SizeEstimator.estimatedSizeOfHashEntryValue(entry.getKey());
       }
     });
+    tmpFiles.addAll(other.tmpFiles);
+    other.role2Frequency.clear();
+    other.tmpFiles.clear();
+    other.countRoles = 0;
+    other.estimatedSize = 0;
+  }
+
+  private static String[] sortedRoles(Object2IntOpenHashMap<String> role2Frequency) {
+    final String[] roles = role2Frequency.keySet().toArray(new String[0]);
+    Arrays.sort(roles);
+    return roles;
   }
 
   public void writeTemp(OutputStream outStream) throws FileNotFoundException, IOException {
     try (OutputStream outStream2 = outputStreamFunction.apply(outStream);
         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outStream2))) {
       out.writeInt(role2Frequency.size());
-      role2Frequency.object2IntEntrySet().forEach(throwingConsumer(roleFrequency -> {
-        out.writeUTF(roleFrequency.getKey());
-        out.writeInt(roleFrequency.getIntValue());
-      }));
+      for (String role : sortedRoles(role2Frequency)) {
+        out.writeUTF(role);
+        out.writeInt(role2Frequency.getInt(role));
+      }
 
       role2Frequency.clear();
       estimatedSize = 0;
@@ -151,20 +175,25 @@ public class RoleCollector implements Iterable<Role> {
 
   public static class RoleMapReader implements Iterator<Role> {
 
-    private final ObjectBidirectionalIterator<Entry<String>> roleIterator;
+    private final String[] roles;
+    private final Object2IntOpenHashMap<String> role2Frequency;
+    private final boolean remove;
+    private int index = 0;
 
-    public static RoleMapReader of(Object2IntAVLTreeMap<String> role2Frequency, boolean remove) {
-      final ObjectBidirectionalIterator<Entry<String>> roleIterator = role2Frequency.object2IntEntrySet().iterator();
-      return new RoleMapReader(roleIterator, remove);
+    public static RoleMapReader of(Object2IntOpenHashMap<String> role2Frequency, boolean remove) {
+      return new RoleMapReader(sortedRoles(role2Frequency), role2Frequency, remove);
     }
 
-    private RoleMapReader(ObjectBidirectionalIterator<Entry<String>> roleIterator, boolean remove) {
-      this.roleIterator = roleIterator;
+    private RoleMapReader(String[] roles, Object2IntOpenHashMap<String> role2Frequency,
+        boolean remove) {
+      this.roles = roles;
+      this.role2Frequency = role2Frequency;
+      this.remove = remove;
     }
 
     @Override
     public boolean hasNext() {
-      return roleIterator.hasNext();
+      return index < roles.length;
     }
 
     @Override
@@ -172,16 +201,15 @@ public class RoleCollector implements Iterable<Role> {
       if (!hasNext())
         throw new NoSuchElementException();
 
-      final Entry<String> entry = roleIterator.next();
-      final String role = entry.getKey();
-      final int freq = entry.getIntValue();
+      final String role = roles[index++];
+      final int freq = remove ? role2Frequency.removeInt(role) : role2Frequency.getInt(role);
 
       return new Role(role, freq);
     }
   }
 
   public Iterator<Role> iterator() {
-    List<Iterator<Role>> iters = new ArrayList<>(tmpFiles.size() + role2Frequency.size());
+    List<Iterator<Role>> iters = new ArrayList<>(tmpFiles.size() + 1);
     tmpFiles.stream().map(file -> {
       DataInputStream dataInput = null;
       try {
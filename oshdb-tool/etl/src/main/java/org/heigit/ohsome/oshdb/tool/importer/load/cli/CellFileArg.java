@@ -0,0 +1,40 @@
+package org.heigit.ohsome.oshdb.tool.importer.load.cli;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParametersDelegate;
+import com.beust.jcommander.validators.PositiveInteger;
+import java.nio.file.Path;
+import org.heigit.ohsome.oshdb.tool.importer.cli.CommonArgs;
+import org.heigit.ohsome.oshdb.tool.importer.cli.validator.DirExistValidator;
+
+public class CellFileArg {
+  @ParametersDelegate
+  public CommonArgs common = new CommonArgs();
+
+  @Parameter(names = {"-mn","--min-nodes"}, description = "minimum of nodes per grid cell", validateWith = PositiveInteger.class)
+  public int minNodesPerGrid = 1000;
+
+  @Parameter(names = {"-mw","--min-ways"}, description = "minimum of ways per grid cell", validateWith = PositiveInteger.class)
+  public int minWaysPerGrid = 100;
+
+  @Parameter(names = {"-mr","--min-relations"}, description = "minimum of relations per grid cell", validateWith = PositiveInteger.class)
+  public int minRelationPerGrid = 10;
+
+  @Parameter(names={"--nodesWithTagsOnly"}, description ="only nodes with tags in the nodes grid")
+  public boolean onlyNodesWithTags = true;
+
+  @Parameter(names={"--keytables"}, description ="path of an h2 database to load the keytables into (optional)")
+  public Path keytables;
+
+  @Parameter(names = {"--threads"}, description = "number of threads serializing grid cells", validateWith = PositiveInteger.class)
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--progressInterval"}, description = "seconds between progress reports", validateWith = PositiveInteger.class)
+  public int progressInterval = 60;
+
+  @Parameter(names={"--out"}, description="output directory of the cell files", validateWith = DirExistValidator.class, required = true)
+  public Path out;
+
+  @Parameter(names = {"-z", "--maxZoom" }, description = "maximal zoom level", validateWith = PositiveInteger.class,  order = 2)
+  public int maxZoom = 15;
+}
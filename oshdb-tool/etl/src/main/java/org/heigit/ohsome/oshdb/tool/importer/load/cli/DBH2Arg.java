@@ -25,6 +25,24 @@ public class DBH2Arg {
   @Parameter(names={"--withOutKeyTables"}, description ="load also keytables in to h2 db")
   public boolean withOutKeyTables;
   
+  @Parameter(names={"--tagIndex"}, description ="build an inverted index of the grid cells containing each tag")
+  public boolean withTagIndex;
+  
+  @Parameter(names={"--idIndex"}, description ="build an index of the grid cell containing each osm entity")
+  public boolean withIdIndex;
+  
+  @Parameter(names = {"--threads"}, description = "number of threads serializing grid cells", validateWith = PositiveInteger.class)
+  public int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = {"--batchSize"}, description = "maximum number of rows per insert batch (and transaction)", validateWith = PositiveInteger.class)
+  public int batchSize = 1000;
+
+  @Parameter(names = {"--batchMegabytes"}, description = "maximum size of the grid cells in an insert batch (and transaction)", validateWith = PositiveInteger.class)
+  public int batchMegabytes = 64;
+
+  @Parameter(names = {"--progressInterval"}, description = "seconds between progress reports", validateWith = PositiveInteger.class)
+  public int progressInterval = 60;
+
   @Parameter(names={"--out"}, description="output path", required = true)
   public Path h2db;
   
@@ -0,0 +1,235 @@
+package org.heigit.ohsome.oshdb.tool.importer.load.handle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inserts rows into a single table on its own connection and thread, using JDBC batches which are
+ * committed as one transaction each.
+ *
+ * <p>Rows are handed over through a bounded queue, which blocks the producers if the database
+ * can't keep up. A batch is executed as soon as it holds {@code batchSize} rows or
+ * {@code batchBytes} bytes of binary data. The binary data held by a writer (queued or in the
+ * current batch) is limited to about twice {@code batchBytes}, so producers also block if large
+ * rows pile up.</p>
+ */
+public class BatchedTableWriter implements AutoCloseable {
+  private static final Rows END = new Rows(Collections.emptyList(), 0);
+
+  private static class Rows {
+    final List<Object[]> rows;
+    // the permits of the byte budget acquired for the rows
+    final int permits;
+
+    Rows(List<Object[]> rows, int permits) {
+      this.rows = rows;
+      this.permits = permits;
+    }
+  }
+
+  private final String name;
+  private final Connection conn;
+  private final PreparedStatement insert;
+  private final int batchSize;
+  private final long batchBytes;
+  private final BlockingQueue<Rows> queue;
+  // byte budget of the queued and not yet executed rows
+  private final int maxPermits;
+  private final Semaphore budget;
+  private final Thread thread;
+
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private volatile Exception failure = null;
+
+  /**
+   * Creates a writer and starts its thread.
+   *
+   * @param name the name used in progress reports and thread names
+   * @param conn the connection to use exclusively for this writer, closed by {@link #close()}
+   * @param insertSql the insert statement, whose parameters are set from each row's values
+   * @param batchSize the maximum number of rows per batch
+   * @param batchBytes the maximum size of the binary values of a batch
+   */
+  public BatchedTableWriter(String name, Connection conn, String insertSql, int batchSize,
+      long batchBytes) throws SQLException {
+    this.name = name;
+    this.conn = conn;
+    this.conn.setAutoCommit(false);
+    this.insert = conn.prepareStatement(insertSql);
+    this.batchSize = batchSize;
+    this.batchBytes = batchBytes;
+    this.queue = new ArrayBlockingQueue<>(Math.max(16, batchSize));
+    this.maxPermits = (int) Math.max(1, Math.min(batchBytes, Integer.MAX_VALUE / 2));
+    this.budget = new Semaphore(2 * maxPermits);
+    this.thread = new Thread(this::run, "load-" + name);
+    this.thread.start();
+  }
+
+  /**
+   * Queues a row for insertion, blocking while the queue is full.
+   */
+  public void add(Object... row) {
+    addAll(Collections.singletonList(row));
+  }
+
+  /**
+   * Queues rows for insertion, blocking while the queue or the byte budget is full.
+   */
+  public void addAll(List<Object[]> rows) {
+    checkFailure();
+    if (rows.isEmpty()) {
+      return;
+    }
+    long binary = 0;
+    for (Object[] row : rows) {
+      for (Object value : row) {
+        if (value instanceof byte[]) {
+          binary += ((byte[]) value).length;
+        }
+      }
+    }
+    // (rows larger than a batch only need a batch's share of the budget)
+    final int permits = (int) Math.min(binary, maxPermits);
+    try {
+      budget.acquire(permits);
+      try {
+        queue.put(new Rows(rows, permits));
+      } catch (InterruptedException e) {
+        budget.release(permits);
+        throw e;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void run() {
+    int batchRows = 0;
+    long batchBinary = 0;
+    int batchPermits = 0;
+    try {
+      while (true) {
+        Rows next = queue.take();
+        if (next == END) {
+          break;
+        }
+        if (failure != null) {
+          // keep draining the queue, such that producers don't block forever
+          budget.release(next.permits);
+          continue;
+        }
+        batchPermits += next.permits;
+        try {
+          for (Object[] row : next.rows) {
+            for (int i = 0; i < row.length; i++) {
+              if (row[i] == null) {
+                insert.setNull(i + 1, Types.NULL);
+              } else if (row[i] instanceof byte[]) {
+                insert.setBytes(i + 1, (byte[]) row[i]);
+                batchBinary += ((byte[]) row[i]).length;
+              } else {
+                insert.setObject(i + 1, row[i]);
+              }
+            }
+            insert.addBatch();
+            batchRows++;
+            if (batchRows >= batchSize || batchBinary >= batchBytes) {
+              flush(batchRows, batchBinary);
+              budget.release(batchPermits);
+              batchRows = 0;
+              batchBinary = 0;
+              batchPermits = 0;
+            }
+          }
+        } catch (SQLException e) {
+          failure = e;
+          budget.release(batchPermits);
+          batchPermits = 0;
+        }
+      }
+      if (failure == null && batchRows > 0) {
+        flush(batchRows, batchBinary);
+      }
+      budget.release(batchPermits);
+    } catch (InterruptedException e) {
+      failure = e;
+      Thread.currentThread().interrupt();
+    } catch (SQLException e) {
+      failure = e;
+    }
+  }
+
+  private void flush(int batchRows, long batchBinary) throws SQLException {
+    insert.executeBatch();
+    conn.commit();
+    rows.addAndGet(batchRows);
+    bytes.addAndGet(batchBinary);
+  }
+
+  private void checkFailure() {
+    if (failure != null) {
+      throw new RuntimeException("loading " + name + " failed", failure);
+    }
+  }
+
+  /**
+   * Returns the number of rows which have been written so far.
+   */
+  public long getRows() {
+    return rows.get();
+  }
+
+  /**
+   * Returns the size of the binary values which are queued or not yet executed, as accounted
+   * against the byte budget of this writer.
+   */
+  public long getPendingBytes() {
+    return 2L * maxPermits - budget.availablePermits();
+  }
+
+  /**
+   * Returns the maximal size of the binary values which are queued or not yet executed.
+   */
+  public long getMaxPendingBytes() {
+    return 2L * maxPermits;
+  }
+
+  /**
+   * Returns the size of the binary values which have been written so far.
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %,d rows (%,.1f MB)", name, getRows(), getBytes() / 1_048_576.0);
+  }
+
+  /**
+   * Writes all remaining rows, then closes the connection.
+   *
+   * @throws RuntimeException if any of the rows couldn't be written
+   */
+  @Override
+  public void close() throws SQLException, InterruptedException {
+    try {
+      queue.put(END);
+      thread.join();
+    } finally {
+      insert.close();
+      conn.close();
+    }
+    checkFailure();
+  }
+}
@@ -0,0 +1,90 @@
+package org.heigit.ohsome.oshdb.tool.importer.load.handle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+
+/**
+ * Serializes grid cells on a pool of worker threads and passes the serialized cells on to a sink.
+ *
+ * <p>Blocks the submitting thread while too many cells are waiting for serialization, which
+ * bounds the memory used by cells which have been built but not yet written.</p>
+ */
+class GridSerializer implements AutoCloseable {
+
+  /**
+   * Receives serialized grid cells, called concurrently by the worker threads.
+   */
+  interface Sink {
+    void accept(GridOSHEntity grid, byte[] data) throws Exception;
+  }
+
+  private final ExecutorService workers;
+  private final Semaphore pending;
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+  private boolean closed = false;
+
+  GridSerializer(int threads) {
+    this.workers = Executors.newFixedThreadPool(threads);
+    this.pending = new Semaphore(threads * 4);
+  }
+
+  /**
+   * Serializes a grid cell on a worker thread and passes it on to the sink.
+   *
+   * @throws RuntimeException if serializing or writing a previous cell has failed
+   */
+  void submit(GridOSHEntity grid, Sink sink) {
+    checkFailure();
+    try {
+      pending.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    workers.execute(() -> {
+      try {
+        sink.accept(grid, serialize(grid));
+      } catch (Exception e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        pending.release();
+      }
+    });
+  }
+
+  static byte[] serialize(GridOSHEntity grid) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(grid);
+    }
+    return out.toByteArray();
+  }
+
+  private void checkFailure() {
+    if (failure.get() != null) {
+      throw new RuntimeException("serializing grid cells failed", failure.get());
+    }
+  }
+
+  /**
+   * Waits until all submitted cells have been passed on to their sinks.
+   *
+   * @throws RuntimeException if serializing or writing any cell has failed
+   */
+  @Override
+  public void close() throws InterruptedException {
+    if (!closed) {
+      closed = true;
+      workers.shutdown();
+      workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+    checkFailure();
+  }
+}
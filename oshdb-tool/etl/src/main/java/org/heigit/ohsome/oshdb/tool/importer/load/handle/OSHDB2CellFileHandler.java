@@ -0,0 +1,269 @@
+package org.heigit.ohsome.oshdb.tool.importer.load.handle;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Stopwatch;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity.ModificationTimestamps;
+import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
+import org.heigit.ohsome.oshdb.grid.GridOSHRelations;
+import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.tool.importer.load.LoaderKeyTables;
+import org.heigit.ohsome.oshdb.tool.importer.load.LoaderNode;
+import org.heigit.ohsome.oshdb.tool.importer.load.LoaderRelation;
+import org.heigit.ohsome.oshdb.tool.importer.load.LoaderWay;
+import org.heigit.ohsome.oshdb.tool.importer.load.cli.CellFileArg;
+import org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileWriter;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * Loads the grid cells into {@link CellFileWriter cell files} (one per grid table) instead of a
+ * database.
+ *
+ * <p>The keytables are optionally loaded into an H2 database, the metadata is written to a
+ * {@code metadata} file of {@code key=value} lines next to the cell files.</p>
+ */
+public class OSHDB2CellFileHandler extends OSHDBHandler implements AutoCloseable {
+
+  private final PreparedStatement insertKey;
+  private final PreparedStatement insertValue;
+  private final PreparedStatement insertRole;
+  private final CellFileWriter nodeWriter;
+  private final CellFileWriter wayWriter;
+  private final CellFileWriter relationWriter;
+  private final GridSerializer serializer;
+  private boolean closed = false;
+
+  /**
+   * Creates a handler which serializes grid cells on {@code threads} worker threads and appends
+   * them to the given cell files. The keytables are only loaded if the respective statements are
+   * not null.
+   */
+  public OSHDB2CellFileHandler(Roaring64NavigableMap bitmapNodes,
+      Roaring64NavigableMap bitmapWays, PreparedStatement insertKey,
+      PreparedStatement insertValue, PreparedStatement insertRole, CellFileWriter nodeWriter,
+      CellFileWriter wayWriter, CellFileWriter relationWriter, int threads) {
+    super(bitmapNodes, bitmapWays);
+    this.insertKey = insertKey;
+    this.insertValue = insertValue;
+    this.insertRole = insertRole;
+    this.nodeWriter = nodeWriter;
+    this.wayWriter = wayWriter;
+    this.relationWriter = relationWriter;
+    this.serializer = new GridSerializer(threads);
+  }
+
+  @Override
+  public void loadKeyValues(int keyId, String key, List<String> values) {
+    if (insertKey == null) {
+      return;
+    }
+    try {
+      insertKey.setInt(1, keyId);
+      insertKey.setString(2, key);
+      insertKey.executeUpdate();
+      for (int valueId = 0; valueId < values.size(); valueId++) {
+        insertValue.setInt(1, keyId);
+        insertValue.setInt(2, valueId);
+        insertValue.setString(3, values.get(valueId));
+        insertValue.addBatch();
+      }
+      insertValue.executeBatch();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void loadRole(int id, String role) {
+    if (insertRole == null) {
+      return;
+    }
+    try {
+      insertRole.setInt(1, id);
+      insertRole.setString(2, role);
+      insertRole.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void handleNodeGrid(GridOSHNodes grid) {
+    serializer.submit(grid, (cell, data) -> append(nodeWriter, cell, data));
+  }
+
+  @Override
+  public void handleWayGrid(GridOSHWays grid) {
+    serializer.submit(grid, (cell, data) -> append(wayWriter, cell, data));
+  }
+
+  @Override
+  public void handleRelationsGrid(GridOSHRelations grid) {
+    serializer.submit(grid, (cell, data) -> append(relationWriter, cell, data));
+  }
+
+  private static void append(CellFileWriter writer, GridOSHEntity grid, byte[] data)
+      throws IOException {
+    ModificationTimestamps modificationTimestamps = grid.getModificationTimestamps();
+    writer.append(grid.getLevel(), grid.getId(), data,
+        modificationTimestamps == null
+            ? CellFileWriter.NO_TIMESTAMP : modificationTimestamps.getFirst(),
+        modificationTimestamps == null
+            ? CellFileWriter.NO_TIMESTAMP : modificationTimestamps.getLast());
+  }
+
+  /**
+   * Returns a summary of the cells written so far.
+   */
+  public String progress() {
+    return nodeWriter + ", " + wayWriter + ", " + relationWriter;
+  }
+
+  /**
+   * Waits until all grid cells have been serialized and written, then closes the cell files.
+   */
+  @Override
+  public void close() throws IOException, InterruptedException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      serializer.close();
+    } finally {
+      nodeWriter.close();
+      wayWriter.close();
+      relationWriter.close();
+    }
+  }
+
+  public static void load(CellFileArg config) throws ClassNotFoundException {
+    final Path workDirectory = config.common.workDir;
+    final Path out = config.out;
+    final int maxZoomLevel = config.maxZoom;
+
+    Connection conn = null;
+    try {
+      List<String> metadata = new ArrayList<>();
+      for (String line : Files.readAllLines(workDirectory.resolve("extract_meta"))) {
+        if (!line.trim().isEmpty()) {
+          metadata.add(line);
+        }
+      }
+      metadata.add("oshdb.maxzoom=" + maxZoomLevel);
+      Files.write(out.resolve(TableNames.T_METADATA.toString()), metadata);
+
+      PreparedStatement insertKey = null;
+      PreparedStatement insertValue = null;
+      PreparedStatement insertRole = null;
+      if (config.keytables != null) {
+        Class.forName("org.h2.Driver");
+        conn = DriverManager.getConnection("jdbc:h2:" + config.keytables, "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+          stmt.executeUpdate("drop table if exists " + TableNames.E_KEY + "; create table if not exists "
+              + TableNames.E_KEY + "(id int primary key, txt varchar)");
+          stmt.executeUpdate("drop table if exists " + TableNames.E_KEYVALUE + "; create table if not exists "
+              + TableNames.E_KEYVALUE + "(keyId int, valueId int, txt varchar, primary key (keyId,valueId))");
+          stmt.executeUpdate("drop table if exists " + TableNames.E_ROLE + "; create table if not exists "
+              + TableNames.E_ROLE + "(id int primary key, txt varchar)");
+        }
+        insertKey = conn.prepareStatement("insert into " + TableNames.E_KEY + " (id,txt) values (?,?)");
+        insertValue = conn.prepareStatement("insert into " + TableNames.E_KEYVALUE + " (keyId,valueId,txt) values(?,?,?)");
+        insertRole = conn.prepareStatement("insert into " + TableNames.E_ROLE + " (id,txt) values(?,?)");
+      }
+
+      Roaring64NavigableMap bitmapWays = new Roaring64NavigableMap();
+      try (FileInputStream fileIn = new FileInputStream(workDirectory.resolve("transform_wayWithRelation.bitmap").toFile());
+          ObjectInputStream in = new ObjectInputStream(fileIn)) {
+        bitmapWays.readExternal(in);
+      }
+
+      Stopwatch loadingWatch = Stopwatch.createUnstarted();
+      ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-progress");
+        thread.setDaemon(true);
+        return thread;
+      });
+      try (OSHDB2CellFileHandler handler = new OSHDB2CellFileHandler(Roaring64NavigableMap.bitmapOf(), bitmapWays,
+          insertKey, insertValue, insertRole,
+          new CellFileWriter(out, TableNames.T_NODES.toString()),
+          new CellFileWriter(out, TableNames.T_WAYS.toString()),
+          new CellFileWriter(out, TableNames.T_RELATIONS.toString()), config.threads)) {
+        if (conn != null) {
+          LoaderKeyTables keyTables = new LoaderKeyTables(workDirectory, handler);
+          System.out.print("loading tags ... ");
+          loadingWatch.reset().start();
+          keyTables.loadTags();
+          System.out.println(" done! " + loadingWatch);
+          System.out.print("loading roles ...");
+          loadingWatch.reset().start();
+          keyTables.loadRoles();
+          System.out.println(" done! " + loadingWatch);
+        }
+
+        try (LoaderNode node = new LoaderNode(workDirectory, handler, config.minNodesPerGrid, config.onlyNodesWithTags, maxZoomLevel);
+            LoaderWay way = new LoaderWay(workDirectory, handler, config.minWaysPerGrid, node, maxZoomLevel);
+            LoaderRelation rel = new LoaderRelation(workDirectory, handler, config.minRelationPerGrid, node, way, maxZoomLevel)) {
+          System.out.println("loading to cell files ...");
+          loadingWatch.reset().start();
+          progress.scheduleAtFixedRate(() -> System.out.println(loadingWatch + " " + handler.progress()),
+              config.progressInterval, config.progressInterval, TimeUnit.SECONDS);
+          rel.load();
+        }
+        handler.close();
+        progress.shutdownNow();
+        System.out.println("loading to cell files done! " + loadingWatch + " " + handler.progress());
+      }
+    } catch (IOException | SQLException | InterruptedException e) {
+      e.printStackTrace();
+    } finally {
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (SQLException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws ClassNotFoundException {
+    CellFileArg config = new CellFileArg();
+    JCommander jcom = JCommander.newBuilder().addObject(config).build();
+
+    try {
+      jcom.parse(args);
+    } catch (ParameterException e) {
+      System.out.println("");
+      System.out.println(e.getLocalizedMessage());
+      System.out.println("");
+      jcom.usage();
+      return;
+    }
+    if (config.common.help) {
+      jcom.usage();
+      return;
+    }
+
+    final Stopwatch stopWatch = Stopwatch.createStarted();
+    load(config);
+    System.out.println("loading done in " + stopWatch);
+  }
+}
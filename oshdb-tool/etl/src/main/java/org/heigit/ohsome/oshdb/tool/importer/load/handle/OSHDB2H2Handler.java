@@ -3,24 +3,37 @@ package org.heigit.ohsome.oshdb.tool.importer.load.handle;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 import com.google.common.base.Stopwatch;
-import it.unimi.dsi.fastutil.io.FastByteArrayInputStream;
-import it.unimi.dsi.fastutil.io.FastByteArrayOutputStream;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity.ModificationTimestamps;
 import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
 import org.heigit.ohsome.oshdb.grid.GridOSHRelations;
 import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.tool.importer.load.LoaderKeyTables;
 import org.heigit.ohsome.oshdb.tool.importer.load.LoaderNode;
 import org.heigit.ohsome.oshdb.tool.importer.load.LoaderRelation;
@@ -29,26 +42,40 @@ import org.heigit.ohsome.oshdb.tool.importer.load.cli.DBH2Arg;
 import org.heigit.ohsome.oshdb.util.TableNames;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
-public class OSHDB2H2Handler extends OSHDBHandler {
+public class OSHDB2H2Handler extends OSHDBHandler implements AutoCloseable {
 
   private PreparedStatement insertKey;
   private PreparedStatement insertValue;
   private PreparedStatement insertRole;
-  private PreparedStatement insertNode;
-  private PreparedStatement insertWay;
-  private PreparedStatement insertRelation;
-
+  private final BatchedTableWriter nodeWriter;
+  private final BatchedTableWriter wayWriter;
+  private final BatchedTableWriter relationWriter;
+  private final BatchedTableWriter tagIndexWriter;
+  private final BatchedTableWriter idIndexWriter;
+
+  private final GridSerializer serializer;
+  private boolean closed = false;
+
+  /**
+   * Creates a handler which serializes grid cells on {@code threads} worker threads and hands them
+   * to the given writers. The inverted tag index and the id index are only filled if the
+   * respective writers are not null.
+   */
   public OSHDB2H2Handler(Roaring64NavigableMap bitmapNodes, Roaring64NavigableMap bitmapWays,
       PreparedStatement insertKey, PreparedStatement insertValue, PreparedStatement insertRole,
-      PreparedStatement insertNode, PreparedStatement insertWay, PreparedStatement insertRelation) {
+      BatchedTableWriter nodeWriter, BatchedTableWriter wayWriter,
+      BatchedTableWriter relationWriter, BatchedTableWriter tagIndexWriter,
+      BatchedTableWriter idIndexWriter, int threads) {
     super(bitmapNodes, bitmapWays);
     this.insertKey = insertKey;
     this.insertValue = insertValue;
     this.insertRole = insertRole;
-    this.insertNode = insertNode;
-    this.insertWay = insertWay;
-    this.insertRelation = insertRelation;
-
+    this.nodeWriter = nodeWriter;
+    this.wayWriter = wayWriter;
+    this.relationWriter = relationWriter;
+    this.tagIndexWriter = tagIndexWriter;
+    this.idIndexWriter = idIndexWriter;
+    this.serializer = new GridSerializer(threads);
   }
 
   @Override
@@ -90,74 +117,125 @@ public class OSHDB2H2Handler extends OSHDBHandler {
     }
   }
 
-  FastByteArrayOutputStream out = new FastByteArrayOutputStream(1024);
-
   @Override
   public void handleNodeGrid(GridOSHNodes grid) {
-    // System.out.println("nod "+grid.getLevel()+":"+grid.getId());
-    try {
-      out.reset();
-      try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
-        oos.writeObject(grid);
-        oos.flush();
-      }
-      FastByteArrayInputStream in = new FastByteArrayInputStream(out.array, 0, out.length);
-      System.out.print("insert "+grid.getLevel()+":"+grid.getId());
-      insertNode.setInt(1, grid.getLevel());
-      insertNode.setLong(2, grid.getId());
-      insertNode.setBinaryStream(3, in);
-      insertNode.executeUpdate();
-      System.out.println(" done!");
-      
-    } catch (IOException | SQLException e) {
-      throw new RuntimeException(e);
-    }
+    submit(OSMType.NODE, grid, nodeWriter);
   }
 
   @Override
   public void handleWayGrid(GridOSHWays grid) {
-    // System.out.println("way "+grid.getLevel()+":"+grid.getId());
-    try {
-      out.reset();
-      try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
-        oos.writeObject(grid);
-        oos.flush();
+    submit(OSMType.WAY, grid, wayWriter);
+  }
+
+  @Override
+  public void handleRelationsGrid(GridOSHRelations grid) {
+    submit(OSMType.RELATION, grid, relationWriter);
+  }
+
+  /**
+   * Serializes a grid cell (and its index rows) on a worker thread and queues the rows at the
+   * writers.
+   */
+  private void submit(OSMType type, GridOSHEntity grid, BatchedTableWriter writer) {
+    serializer.submit(grid, (cell, data) -> {
+      ModificationTimestamps modificationTimestamps = cell.getModificationTimestamps();
+      writer.add(cell.getLevel(), cell.getId(), data, tagKeysArray(cell),
+          modificationTimestamps == null ? null : modificationTimestamps.getFirst(),
+          modificationTimestamps == null ? null : modificationTimestamps.getLast());
+      if (tagIndexWriter != null) {
+        tagIndexWriter.addAll(tagIndexRows(type, cell));
+      }
+      if (idIndexWriter != null) {
+        idIndexWriter.addAll(idIndexRows(type, cell));
       }
-      FastByteArrayInputStream in = new FastByteArrayInputStream(out.array, 0, out.length);
+    });
+  }
 
-      insertWay.setInt(1, grid.getLevel());
-      insertWay.setLong(2, grid.getId());
-      insertWay.setBinaryStream(3, in);
-      insertWay.executeUpdate();
+  /**
+   * Returns the tag keys of a grid cell as an sql array, or null if the cell has no such summary.
+   */
+  public static Integer[] tagKeysArray(GridOSHEntity grid) {
+    int[] tagKeys = grid.getTagKeys();
+    if (tagKeys == null) {
+      return null;
+    }
+    return Arrays.stream(tagKeys).boxed().toArray(Integer[]::new);
+  }
 
-    } catch (IOException | SQLException e) {
-      throw new RuntimeException(e);
+  /**
+   * Returns the rows of the inverted tag index for a grid cell: one row for each tag key and each
+   * tag which occurs in any version of the cell's entities. Tag keys are stored with a value of -1.
+   */
+  public static List<Object[]> tagIndexRows(OSMType type, GridOSHEntity grid) {
+    IntSortedSet keys = new IntAVLTreeSet();
+    LongSortedSet tags = new LongAVLTreeSet();
+    for (OSHEntity osh : grid.getEntities()) {
+      for (OSMEntity osm : osh.getVersions()) {
+        int[] rawTags = osm.getRawTags();
+        for (int i = 0; i < rawTags.length; i += 2) {
+          keys.add(rawTags[i]);
+          tags.add((long) rawTags[i] << 32 | rawTags[i + 1]);
+        }
+      }
+    }
+    List<Object[]> rows = new ArrayList<>(keys.size() + tags.size());
+    for (IntIterator it = keys.iterator(); it.hasNext();) {
+      rows.add(new Object[] {type.intValue(), it.nextInt(), -1, grid.getLevel(), grid.getId()});
+    }
+    for (LongIterator it = tags.iterator(); it.hasNext();) {
+      long tag = it.nextLong();
+      rows.add(new Object[] {
+          type.intValue(), (int) (tag >>> 32), (int) tag, grid.getLevel(), grid.getId()});
     }
+    return rows;
+  }
 
+  /**
+   * Returns the rows of the id index for a grid cell: one row for each of its entities.
+   */
+  public static List<Object[]> idIndexRows(OSMType type, GridOSHEntity grid) {
+    List<Object[]> rows = new ArrayList<>();
+    for (OSHEntity osh : grid.getEntities()) {
+      rows.add(new Object[] {type.intValue(), osh.getId(), grid.getLevel(), grid.getId()});
+    }
+    return rows;
   }
 
+  /**
+   * Returns a summary of the rows written so far.
+   */
+  public String progress() {
+    StringBuilder progress = new StringBuilder();
+    for (BatchedTableWriter writer : new BatchedTableWriter[] {
+        nodeWriter, wayWriter, relationWriter, tagIndexWriter, idIndexWriter}) {
+      if (writer != null) {
+        progress.append(progress.length() == 0 ? "" : ", ").append(writer);
+      }
+    }
+    return progress.toString();
+  }
+
+  /**
+   * Waits until all grid cells have been serialized and written, then closes the writers.
+   */
   @Override
-  public void handleRelationsGrid(GridOSHRelations grid) {
-    // System.out.println("rel "+ grid.getLevel()+":"+grid.getId());
+  public void close() throws SQLException, InterruptedException {
+    if (closed) {
+      return;
+    }
+    closed = true;
     try {
-      out.reset();
-      try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
-        oos.writeObject(grid);
-        oos.flush();
+      serializer.close();
+    } finally {
+      for (BatchedTableWriter writer : new BatchedTableWriter[] {
+          nodeWriter, wayWriter, relationWriter, tagIndexWriter, idIndexWriter}) {
+        if (writer != null) {
+          writer.close();
+        }
       }
-      FastByteArrayInputStream in = new FastByteArrayInputStream(out.array, 0, out.length);
-
-      insertRelation.setInt(1, grid.getLevel());
-      insertRelation.setLong(2, grid.getId());
-      insertRelation.setBinaryStream(3, in);
-      insertRelation.executeUpdate();
-
-    } catch (IOException | SQLException e) {
-      throw new RuntimeException(e);
     }
-
   }
-  
+
   public static void load(DBH2Arg config) throws ClassNotFoundException {
     final Path workDirectory = config.common.workDir;
     Path oshdb = config.h2db;
@@ -173,7 +251,10 @@ public class OSHDB2H2Handler extends OSHDBHandler {
 
     
     Class.forName("org.h2.Driver");
-    try (Connection conn = DriverManager.getConnection("jdbc:h2:" + oshdb.toString()+"", "sa", "")) {
+    final String url = "jdbc:h2:" + oshdb.toString();
+    final int batchSize = config.batchSize;
+    final long batchBytes = config.batchMegabytes * 1024L * 1024L;
+    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
       try (Statement stmt = conn.createStatement()) {
         
         
@@ -235,19 +316,45 @@ public class OSHDB2H2Handler extends OSHDBHandler {
         }
         
         stmt.executeUpdate("drop table if exists " + TableNames.T_NODES.toString() + "; create table if not exists "
-            + TableNames.T_NODES.toString() + "(level int, id bigint, data blob,  primary key(level,id))");
-        PreparedStatement insertNode = conn
-            .prepareStatement("insert into " + TableNames.T_NODES.toString() + " (level,id,data) values(?,?,?)");
+            + TableNames.T_NODES.toString() + "(level int, id bigint, data blob, keys array, "
+            + "first_modification bigint, last_modification bigint, primary key(level,id))");
 
         stmt.executeUpdate("drop table if exists " + TableNames.T_WAYS.toString() + "; create table if not exists "
-            + TableNames.T_WAYS.toString() + "(level int, id bigint, data blob,  primary key(level,id))");
-        PreparedStatement insertWay = conn
-            .prepareStatement("insert into " + TableNames.T_WAYS.toString() + " (level,id,data) values(?,?,?)");
+            + TableNames.T_WAYS.toString() + "(level int, id bigint, data blob, keys array, "
+            + "first_modification bigint, last_modification bigint, primary key(level,id))");
 
         stmt.executeUpdate("drop table if exists " + TableNames.T_RELATIONS.toString() + "; create table if not exists "
-            + TableNames.T_RELATIONS.toString() + "(level int, id bigint, data blob,  primary key(level,id))");
-        PreparedStatement insertRelation = conn
-            .prepareStatement("insert into " + TableNames.T_RELATIONS.toString() + " (level,id,data) values(?,?,?)");
+            + TableNames.T_RELATIONS.toString() + "(level int, id bigint, data blob, keys array, "
+            + "first_modification bigint, last_modification bigint, primary key(level,id))");
+
+        if (config.withTagIndex) {
+          stmt.executeUpdate("drop table if exists " + TableNames.T_TAG_INDEX.toString() + "; create table if not exists "
+              + TableNames.T_TAG_INDEX.toString() + "(type int, key int, value int, level int, id bigint, primary key(type,key,value,level,id))");
+        }
+
+        if (config.withIdIndex) {
+          stmt.executeUpdate("drop table if exists " + TableNames.T_ID_INDEX.toString() + "; create table if not exists "
+              + TableNames.T_ID_INDEX.toString() + "(type int, osmid bigint, level int, id bigint, primary key(type,osmid,level,id))");
+        }
+
+        // each table is written concurrently on its own connection
+        String insertGrid = " (level,id,data,keys,first_modification,last_modification) values(?,?,?,?,?,?)";
+        BatchedTableWriter nodeWriter = new BatchedTableWriter("nodes", DriverManager.getConnection(url, "sa", ""),
+            "insert into " + TableNames.T_NODES.toString() + insertGrid, batchSize, batchBytes);
+        BatchedTableWriter wayWriter = new BatchedTableWriter("ways", DriverManager.getConnection(url, "sa", ""),
+            "insert into " + TableNames.T_WAYS.toString() + insertGrid, batchSize, batchBytes);
+        BatchedTableWriter relationWriter = new BatchedTableWriter("relations", DriverManager.getConnection(url, "sa", ""),
+            "insert into " + TableNames.T_RELATIONS.toString() + insertGrid, batchSize, batchBytes);
+        BatchedTableWriter tagIndexWriter = null;
+        if (config.withTagIndex) {
+          tagIndexWriter = new BatchedTableWriter("tag index", DriverManager.getConnection(url, "sa", ""),
+              "insert into " + TableNames.T_TAG_INDEX.toString() + " (type,key,value,level,id) values(?,?,?,?,?)", batchSize, batchBytes);
+        }
+        BatchedTableWriter idIndexWriter = null;
+        if (config.withIdIndex) {
+          idIndexWriter = new BatchedTableWriter("id index", DriverManager.getConnection(url, "sa", ""),
+              "insert into " + TableNames.T_ID_INDEX.toString() + " (type,osmid,level,id) values(?,?,?,?)", batchSize, batchBytes);
+        }
 
         Roaring64NavigableMap bitmapWays = new Roaring64NavigableMap();
         try (FileInputStream fileIn = new FileInputStream(workDirectory.resolve("transform_wayWithRelation.bitmap").toFile());
@@ -255,34 +362,42 @@ public class OSHDB2H2Handler extends OSHDBHandler {
           bitmapWays.readExternal(in);
         }
 
-        LoaderHandler handler = new OSHDB2H2Handler(Roaring64NavigableMap.bitmapOf(), bitmapWays, insertKey,
-            insertValue, insertRole, insertNode, insertWay, insertRelation);
-           
         Stopwatch loadingWatch = Stopwatch.createUnstarted();
-        if (!withOutKeyTables) {
-          LoaderKeyTables keyTables = new LoaderKeyTables(workDirectory, handler);
-          System.out.print("loading tags ... ");
-          loadingWatch.reset().start();
-          keyTables.loadTags();
-          System.out.println(" done! "+loadingWatch);
-          System.out.print("loading roles ...");
-          loadingWatch.reset().start();
-          keyTables.loadRoles();
-          System.out.println(" done! "+loadingWatch);
-        }
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "load-progress");
+          thread.setDaemon(true);
+          return thread;
+        });
+        try (OSHDB2H2Handler handler = new OSHDB2H2Handler(Roaring64NavigableMap.bitmapOf(), bitmapWays, insertKey,
+            insertValue, insertRole, nodeWriter, wayWriter, relationWriter, tagIndexWriter,
+            idIndexWriter, config.threads)) {
+          if (!withOutKeyTables) {
+            LoaderKeyTables keyTables = new LoaderKeyTables(workDirectory, handler);
+            System.out.print("loading tags ... ");
+            loadingWatch.reset().start();
+            keyTables.loadTags();
+            System.out.println(" done! "+loadingWatch);
+            System.out.print("loading roles ...");
+            loadingWatch.reset().start();
+            keyTables.loadRoles();
+            System.out.println(" done! "+loadingWatch);
+          }
 
-        
-        
-        try(LoaderNode node = new LoaderNode(workDirectory, handler, minNodesPerGrid, onlyNodesWithTags, maxZoomLevel);
-            LoaderWay way= new LoaderWay(workDirectory, handler, minWaysPerGrid, node, maxZoomLevel);
-            LoaderRelation rel = new LoaderRelation(workDirectory, handler, minRelationPerGrid, node, way, maxZoomLevel);){
-          System.out.print("loading to grid ...");
-          loadingWatch.reset().start();
-          rel.load();
+          try(LoaderNode node = new LoaderNode(workDirectory, handler, minNodesPerGrid, onlyNodesWithTags, maxZoomLevel);
+              LoaderWay way= new LoaderWay(workDirectory, handler, minWaysPerGrid, node, maxZoomLevel);
+              LoaderRelation rel = new LoaderRelation(workDirectory, handler, minRelationPerGrid, node, way, maxZoomLevel);){
+            System.out.println("loading to grid ...");
+            loadingWatch.reset().start();
+            progress.scheduleAtFixedRate(() -> System.out.println(loadingWatch + " " + handler.progress()),
+                config.progressInterval, config.progressInterval, TimeUnit.SECONDS);
+            rel.load();
+          }
+          handler.close();
+          progress.shutdownNow();
+          System.out.println("loading to grid done! " + loadingWatch + " " + handler.progress());
         }
-        System.out.println(" done! "+loadingWatch);
       } 
-    }catch (IOException | SQLException e) {
+    }catch (IOException | SQLException | InterruptedException e) {
       e.printStackTrace();
     }
 
@@ -0,0 +1,302 @@
+package org.heigit.ohsome.oshdb.tool.importer.transform;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.heigit.ohsome.oshdb.tool.importer.util.ZGrid;
+
+/**
+ * Append-only off-heap collector for the records of the transform step, grouped by grid cell.
+ *
+ * <p>The records are copied (prefixed with their length) into direct memory chunks, and for every
+ * record a pair of its cell's {@link ZGrid#dfsTopDownKey(long) sort key} and its offset is appended
+ * to an off-heap index. Before writing, the index is radix sorted, which keeps the order in which
+ * the records of a cell were added. Apart from the last id per cell (for the delta encoding of
+ * the records) nothing is kept on the heap, so the memory budget is spent on the data itself
+ * instead of on object headers and tree entries.</p>
+ *
+ * <p>The written format is the one read by {@link TransformReader}: per cell in
+ * {@link ZGrid#ORDER_DFS_TOP_DOWN} order a header of cell id, number of records and number of
+ * bytes, followed by the records as length and bytes.</p>
+ */
+public class CellArena {
+  private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+  private static final int MIN_CHUNK_SIZE = 64 * 1024;
+  private static final int MIN_INDEX_CAPACITY = 1 << 8;
+  // 1GB per index buffer
+  private static final int MAX_INDEX_CAPACITY = 1 << 27;
+  // key and offset, and the same again for the scratch buffers of the sort
+  private static final long INDEX_ENTRY_BYTES = 4 * 8;
+  // rough size of an entry of the last id map (including its free slots)
+  private static final long CELL_BYTES = 32;
+  private static final int RADIX_BITS = 16;
+  private static final int RADIX_PASSES = 4;
+
+  private final long maxMemory;
+  private final int chunkSize;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private ByteBuffer chunk;
+  private int chunkIndex = -1;
+  private long recordBytes = 0;
+
+  private LongBuffer keys;
+  private LongBuffer offsets;
+  private LongBuffer scratchKeys;
+  private LongBuffer scratchOffsets;
+  private int size = 0;
+
+  private final Long2LongOpenHashMap lastIds = new Long2LongOpenHashMap();
+  private int[][] counts;
+
+  /**
+   * Creates an empty arena.
+   *
+   * @param maxMemory budget for the records, the index and the last ids per cell
+   */
+  public CellArena(long maxMemory) {
+    this.maxMemory = maxMemory;
+    this.chunkSize = (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, maxMemory / 16));
+    lastIds.defaultReturnValue(0);
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Estimated memory usage of the collected records, the index and the last ids.
+   */
+  public long memoryUsage() {
+    return recordBytes + capacity() * INDEX_ENTRY_BYTES + lastIds.size() * CELL_BYTES;
+  }
+
+  private int capacity() {
+    return keys == null ? 0 : keys.capacity();
+  }
+
+  /**
+   * Id of the last record added for a cell, or 0 if there is none.
+   */
+  public long lastId(long cellId) {
+    return lastIds.get(cellId);
+  }
+
+  /**
+   * Checks whether a record of the given length can still be added without exceeding the budget.
+   * An empty arena accepts any record.
+   */
+  public boolean fits(long cellId, int length) {
+    if (size == 0) {
+      return true;
+    }
+    if (size == MAX_INDEX_CAPACITY) {
+      return false;
+    }
+    long required = 4 + length;
+    if (size == capacity()) {
+      required += (Math.min(2L * size, MAX_INDEX_CAPACITY) - size) * INDEX_ENTRY_BYTES;
+    }
+    if (!lastIds.containsKey(cellId)) {
+      required += CELL_BYTES;
+    }
+    return memoryUsage() + required <= maxMemory;
+  }
+
+  /**
+   * Appends a record for a cell.
+   *
+   * @param cellId cell of the record
+   * @param id osm id of the record, returned by {@link #lastId(long)} from now on
+   * @param record the serialized record
+   */
+  public void add(long cellId, long id, byte[] record) {
+    final int length = 4 + record.length;
+    if (chunk == null || chunk.remaining() < length) {
+      nextChunk(length);
+    }
+    final long offset = (long) chunkIndex << 32 | chunk.position();
+    chunk.putInt(record.length);
+    chunk.put(record);
+    recordBytes += length;
+
+    if (size == capacity()) {
+      growIndex();
+    }
+    keys.put(size, ZGrid.dfsTopDownKey(cellId));
+    offsets.put(size, offset);
+    size++;
+    lastIds.put(cellId, id);
+  }
+
+  private void nextChunk(int length) {
+    if (length > chunkSize) {
+      // oversized records get a chunk of their own, which is dropped again by clear()
+      chunks.add(chunkIndex + 1, ByteBuffer.allocateDirect(length));
+    } else if (chunkIndex + 1 == chunks.size()) {
+      chunks.add(ByteBuffer.allocateDirect(chunkSize));
+    }
+    chunkIndex++;
+    chunk = chunks.get(chunkIndex);
+    chunk.clear();
+  }
+
+  private void growIndex() {
+    final int capacity =
+        (int) Math.min(Math.max(2L * size, MIN_INDEX_CAPACITY), MAX_INDEX_CAPACITY);
+    final LongBuffer newKeys = allocateLongs(capacity);
+    final LongBuffer newOffsets = allocateLongs(capacity);
+    if (size > 0) {
+      keys.clear().limit(size);
+      offsets.clear().limit(size);
+      newKeys.put(keys).clear();
+      newOffsets.put(offsets).clear();
+    }
+    keys = newKeys;
+    offsets = newOffsets;
+    scratchKeys = null;
+    scratchOffsets = null;
+  }
+
+  private static LongBuffer allocateLongs(int capacity) {
+    return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+  }
+
+  /**
+   * Sorts the index by cell with a stable LSD radix sort over the sort keys.
+   */
+  private void sort() {
+    if (counts == null) {
+      counts = new int[RADIX_PASSES][1 << RADIX_BITS];
+    }
+    final int mask = (1 << RADIX_BITS) - 1;
+    for (int[] count : counts) {
+      Arrays.fill(count, 0);
+    }
+    for (int i = 0; i < size; i++) {
+      final long key = keys.get(i);
+      for (int pass = 0; pass < RADIX_PASSES; pass++) {
+        counts[pass][(int) (key >>> pass * RADIX_BITS) & mask]++;
+      }
+    }
+    for (int pass = 0; pass < RADIX_PASSES; pass++) {
+      final int[] count = counts[pass];
+      final int shift = pass * RADIX_BITS;
+      if (count[(int) (keys.get(0) >>> shift) & mask] == size) {
+        // all keys share this digit
+        continue;
+      }
+      if (scratchKeys == null) {
+        scratchKeys = allocateLongs(keys.capacity());
+        scratchOffsets = allocateLongs(keys.capacity());
+      }
+      int start = 0;
+      for (int digit = 0; digit < count.length; digit++) {
+        final int c = count[digit];
+        count[digit] = start;
+        start += c;
+      }
+      for (int i = 0; i < size; i++) {
+        final long key = keys.get(i);
+        final int to = count[(int) (key >>> shift) & mask]++;
+        scratchKeys.put(to, key);
+        scratchOffsets.put(to, offsets.get(i));
+      }
+      LongBuffer swap = keys;
+      keys = scratchKeys;
+      scratchKeys = swap;
+      swap = offsets;
+      offsets = scratchOffsets;
+      scratchOffsets = swap;
+    }
+  }
+
+  /**
+   * Sorts the collected records by cell and writes them to the channel.
+   *
+   * @return number of bytes written
+   */
+  public long writeTo(WritableByteChannel channel) throws IOException {
+    if (size == 0) {
+      return 0;
+    }
+    sort();
+    final ByteBuffer out = ByteBuffer.allocateDirect(1024 * 1024);
+    final ByteBuffer[] views = new ByteBuffer[chunkIndex + 1];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = chunks.get(i).duplicate();
+    }
+    long bytesWritten = 0;
+    int from = 0;
+    while (from < size) {
+      final long key = keys.get(from);
+      int to = from;
+      long rawSize = 0;
+      while (to < size && keys.get(to) == key) {
+        final long offset = offsets.get(to);
+        rawSize += 4 + chunks.get((int) (offset >>> 32)).getInt((int) offset);
+        to++;
+      }
+      if (out.remaining() < 16) {
+        bytesWritten += flush(out, channel);
+      }
+      out.putLong(ZGrid.fromDfsTopDownKey(key));
+      out.putInt(to - from);
+      out.putInt((int) rawSize);
+      for (int i = from; i < to; i++) {
+        final long offset = offsets.get(i);
+        final ByteBuffer view = views[(int) (offset >>> 32)];
+        final int position = (int) offset;
+        view.clear().limit(position + 4 + view.getInt(position)).position(position);
+        if (out.remaining() < view.remaining()) {
+          bytesWritten += flush(out, channel);
+          if (out.remaining() < view.remaining()) {
+            bytesWritten += write(view, channel);
+            continue;
+          }
+        }
+        out.put(view);
+      }
+      from = to;
+    }
+    bytesWritten += flush(out, channel);
+    return bytesWritten;
+  }
+
+  private static long flush(ByteBuffer out, WritableByteChannel channel) throws IOException {
+    out.flip();
+    final long bytes = write(out, channel);
+    out.clear();
+    return bytes;
+  }
+
+  private static long write(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+    long bytes = 0;
+    while (buffer.hasRemaining()) {
+      bytes += channel.write(buffer);
+    }
+    return bytes;
+  }
+
+  /**
+   * Removes all records and last ids, keeping the allocated chunks and index for reuse.
+   */
+  public void clear() {
+    chunks.removeIf(c -> c.capacity() != chunkSize);
+    chunk = null;
+    chunkIndex = -1;
+    recordBytes = 0;
+    size = 0;
+    lastIds.clear();
+  }
+}
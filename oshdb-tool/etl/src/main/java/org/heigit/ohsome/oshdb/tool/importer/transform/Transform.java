@@ -13,12 +13,15 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.tool.importer.extract.Extract;
 import org.heigit.ohsome.oshdb.tool.importer.extract.data.OsmPbfMeta;
 import org.heigit.ohsome.oshdb.tool.importer.transform.cli.TransformArgs;
 import org.heigit.ohsome.oshdb.tool.importer.util.RoleToIdMapper;
 import org.heigit.ohsome.oshdb.tool.importer.util.SizeEstimator;
 import org.heigit.ohsome.oshdb.tool.importer.util.TagToIdMapper;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.LongToLongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.MappedLong2LongMap;
 import org.heigit.ohsome.oshdb.tool.importer.util.long2long.SortedLong2LongMap;
 import org.heigit.ohsome.oshdb.tool.importer.util.reactive.MyLambdaSubscriber;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
@@ -61,7 +64,7 @@ public class Transform {
 
  
 
-  public void transformWays(OsmPbfMeta pbfMeta,int maxZoom, TagToIdMapper tag2Id,SortedLong2LongMap node2cell, int workerId, int workerTotal) throws IOException {
+  public void transformWays(OsmPbfMeta pbfMeta,int maxZoom, TagToIdMapper tag2Id,LongToLongMap node2cell, int workerId, int workerTotal) throws IOException {
     final Transformer transformer = new TransformerWay(maxMemory,maxZoom, workDirectory, tag2Id, node2cell,workerId);
     Flowable<List<Entity>> flow = RxOshPbfReader //
         .readOsh(pbfMeta.pbf, pbfMeta.wayStart, pbfMeta.wayEnd, pbfMeta.wayEnd) //
@@ -70,7 +73,7 @@ public class Transform {
 
   }
 
-  public void transformRelations(OsmPbfMeta pbfMeta,int maxZoom, TagToIdMapper tag2Id, RoleToIdMapper role2Id,SortedLong2LongMap node2cell, SortedLong2LongMap way2cell, int workerId, int workerTotal) throws IOException {
+  public void transformRelations(OsmPbfMeta pbfMeta,int maxZoom, TagToIdMapper tag2Id, RoleToIdMapper role2Id,LongToLongMap node2cell, LongToLongMap way2cell, int workerId, int workerTotal) throws IOException {
     final Transformer transformer = new TransformerRelation(maxMemory,maxZoom, workDirectory, tag2Id,role2Id, node2cell,way2cell,workerId);
     Flowable<List<Entity>> flow = RxOshPbfReader //
         .readOsh(pbfMeta.pbf, pbfMeta.relationStart, pbfMeta.relationEnd, pbfMeta.relationEnd) //
@@ -79,6 +82,19 @@ public class Transform {
 
   }
   
+  /**
+   * Opens the id to cell map of nodes or ways written by the previous transform step.
+   *
+   * @param mapped memory-maps a dense array instead of caching decoded pages within the heap
+   * @param maxMemory heap memory for the cache of decoded pages
+   */
+  private static LongToLongMap idToCell(Path workDir, OSMType type, boolean mapped, long maxMemory) throws IOException {
+    final Path path = workDir.resolve("transform_idToCell_" + type.toString().toLowerCase());
+    if (mapped)
+      return new MappedLong2LongMap(path);
+    return new SortedLong2LongMap(path, maxMemory);
+  }
+
   private static <T> void subscribe(Publisher<? extends T> o, final Consumer<? super T> onNext,
       final Consumer<? super Throwable> onError, final Action onComplete) {
     ObjectHelper.requireNonNull(onNext, "onNext is null");
@@ -98,6 +114,8 @@ public class Transform {
 
     final String step = config.step;
     final int maxZoom = config.maxZoom;
+    // the mapped id to cell maps live in the page cache of the os, not in the heap
+    final boolean mapped = config.idToCell.trim().toLowerCase().startsWith("m");
 
     int worker = config.distribute.worker;
     int workerTotal = config.distribute.totalWorkers;
@@ -130,8 +148,8 @@ public class Transform {
     }
 
     if (step.startsWith("a")||step.startsWith("w")) {
-      final long mapMemory = availableMemory/2L;
-      try(final SortedLong2LongMap node2Cell = new SortedLong2LongMap(workDir.resolve("transform_idToCell_" + "node"), mapMemory);){
+      final long mapMemory = mapped ? 0L : availableMemory/2L;
+      try(final LongToLongMap node2Cell = idToCell(workDir, OSMType.NODE, mapped, mapMemory);){
         long maxMemory = availableMemory - tag2Id.estimatedSize() - mapMemory;
         if(maxMemory < 100*MB)
           System.out.println("warning: only 100MB memory left for transformation! Increase heapsize -Xmx if possible");
@@ -147,10 +165,10 @@ public class Transform {
 
     if (step.startsWith("a")||step.startsWith("r")) {
       final RoleToIdMapper role2Id = Transform.getRoleToIdMapper(workDir);
-      final long mapMemory = availableMemory/2L;
+      final long mapMemory = mapped ? 0L : availableMemory/2L;
       final long mapMemoryNode = mapMemory/3L;
-      try(final SortedLong2LongMap node2Cell = new SortedLong2LongMap(workDir.resolve("transform_idToCell_" + "node"), mapMemoryNode);
-          final SortedLong2LongMap way2Cell = new SortedLong2LongMap(workDir.resolve("transform_idToCell_" + "way"), mapMemory - mapMemoryNode);){
+      try(final LongToLongMap node2Cell = idToCell(workDir, OSMType.NODE, mapped, mapMemoryNode);
+          final LongToLongMap way2Cell = idToCell(workDir, OSMType.WAY, mapped, mapMemory - mapMemoryNode);){
         long maxMemory = availableMemory - tag2Id.estimatedSize() - role2Id.estimatedSize() - mapMemory;
         if(maxMemory < 100*MB)
           System.out.println("warning: only 100MB memory left for transformation! Increase heapsize -Xmx if possible");
@@ -1,19 +1,14 @@
 package org.heigit.ohsome.oshdb.tool.importer.transform;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
 import it.unimi.dsi.fastutil.longs.LongSet;
-import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -21,7 +16,6 @@ import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.tool.importer.util.RoleToIdMapper;
-import org.heigit.ohsome.oshdb.tool.importer.util.SizeEstimator;
 import org.heigit.ohsome.oshdb.tool.importer.util.TagId;
 import org.heigit.ohsome.oshdb.tool.importer.util.TagToIdMapper;
 import org.heigit.ohsome.oshdb.tool.importer.util.ZGrid;
@@ -32,34 +26,16 @@ import org.heigit.ohsome.oshpbf.parser.osm.v0_6.TagText;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 public abstract class Transformer {
-  private static class OSHDataContainer {
-    private long sizeInBytesOfData = 0;
-    private long estimatedMemoryUsage = SizeEstimator.objOverhead() + 2 * SizeEstimator.intField()+ SizeEstimator.linkedList();
-    
-    
-    private long lastId = 0;
-    private List<byte[]> list = new LinkedList<>();
-
-    public OSHDataContainer add(byte[] data) {
-      sizeInBytesOfData += data.length + 4; // count of bytes + 4 bytes for the length of this array
-      estimatedMemoryUsage += SizeEstimator.estimatedSizeOf(data) + SizeEstimator.linkedListEntry();
-      list.add(data);
-      return this;
-    }
-  }
-
   private static final int PAGE_POWER = 17; // ~1MB per page
 
   private final TagToIdMapper tagToIdMapper;
   private final RoleToIdMapper roleToIdMapper;
-  private final Long2ObjectAVLTreeMap<OSHDataContainer> collector;
+  private final CellArena collector;
   private final SortedLong2LongMap.Sink idToCellSink;
   private final SortedLong2LongMap idToCell;
 
   private final Map<OSMType, Long2ObjectMap<Roaring64NavigableMap>> typeRefsMaps = new HashMap<>(
       OSMType.values().length);
-  private long estimatedMemoryUsage;
-  private final long maxMemoryUsage;
 
   protected final Path workDirectory ;
   private final int workerId;
@@ -72,12 +48,11 @@ public abstract class Transformer {
   }
   
   public Transformer(long maxMemoryUsage,int maxZoom, Path workDirectory, TagToIdMapper tagToIdMapper, RoleToIdMapper roleToIdMapper, int workerId) throws IOException {
-    this.maxMemoryUsage = maxMemoryUsage;
     this.workDirectory = workDirectory;
     this.tagToIdMapper = tagToIdMapper;
     this.roleToIdMapper = roleToIdMapper;
     this.workerId = workerId;
-    this.collector = new Long2ObjectAVLTreeMap<>(ZGrid.ORDER_DFS_TOP_DOWN);
+    this.collector = new CellArena(maxMemoryUsage);
     this.grid = new ZGrid(maxZoom);
 
     this.idToCellSink = new SortedLong2LongMap.Sink(workDirectory.resolve("transform_idToCell_" + type().toString().toLowerCase()), PAGE_POWER);
@@ -187,47 +162,7 @@ public abstract class Transformer {
     long bytesWritten = 0;
     try (RandomAccessFile out = new RandomAccessFile(filePath.toFile(), "rw"); 
         FileChannel channel = out.getChannel()) {
-      final ByteBuffer header = ByteBuffer.allocateDirect(8 + 4 + 4);
-      ByteBuffer byteBuffer = ByteBuffer.allocateDirect(0);
-
-      ObjectIterator<Entry<OSHDataContainer>> iter = collector.long2ObjectEntrySet().iterator();
-      long counter = 0;
-      long lastCellId = -1;
-      while (iter.hasNext()) {
-        Entry<OSHDataContainer> entry = iter.next();
-
-        final long cellId = entry.getLongKey();
-        final OSHDataContainer container = entry.getValue();
-        final int rawSize = (int) container.sizeInBytesOfData;
-
-        if (byteBuffer.capacity() < rawSize)
-          byteBuffer = ByteBuffer.allocate(rawSize);
-        else
-          byteBuffer.clear();
-
-        for (byte[] data : container.list) {
-          byteBuffer.putInt(data.length);
-          byteBuffer.put(data);
-        }
-        byteBuffer.flip();
-
-        header.clear();
-        header.putLong(cellId);
-        header.putInt(container.list.size());
-        if(rawSize < 0)
-          System.err.println("saveToDisk rawSize negative "+cellId+" "+container.list.size());
-        header.putInt(rawSize);
-        header.flip();
-
-        bytesWritten += header.remaining();
-        channel.write(header);
-        bytesWritten += byteBuffer.remaining();
-        channel.write(byteBuffer);
-        
-       
-        counter++;
-        lastCellId = cellId;
-      }
+      bytesWritten = collector.writeTo(channel);
       System.out.println("done! "+bytesWritten+" bytes");
     } catch (FileNotFoundException e) {
       e.printStackTrace();
@@ -238,24 +173,16 @@ public abstract class Transformer {
     fileNumber++;
     collector.clear();
     typeRefsMaps.clear();
-    estimatedMemoryUsage = 0L;
   }
 
   protected void store(long cellId,long id,LongFunction<byte[]> data) {
-    if (estimatedMemoryUsage > maxMemoryUsage)
+    byte[] record = data.apply(collector.lastId(cellId));
+    if (!collector.fits(cellId, record.length)) {
       saveToDisk();
-
-    OSHDataContainer dataContainer = collector.get(cellId);
-    if (dataContainer == null) {
-      dataContainer = new OSHDataContainer();
-      collector.put(cellId, dataContainer);
-      estimatedMemoryUsage += SizeEstimator.avlTreeEntry();
+      // the first record of a cell in a new file is not delta encoded
+      record = data.apply(0);
     }
-    estimatedMemoryUsage -= dataContainer.estimatedMemoryUsage;
-    
-    dataContainer.add(data.apply(dataContainer.lastId));
-    dataContainer.lastId = id;
-    estimatedMemoryUsage += dataContainer.estimatedMemoryUsage;
+    collector.add(cellId, id, record);
   }
 
   protected void store(long cellId, long id, LongFunction<byte[]> data, LongSet nodes) {
@@ -16,7 +16,7 @@ import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.tool.importer.transform.oshdb.TransfomRelation;
 import org.heigit.ohsome.oshdb.tool.importer.util.RoleToIdMapper;
 import org.heigit.ohsome.oshdb.tool.importer.util.TagToIdMapper;
-import org.heigit.ohsome.oshdb.tool.importer.util.long2long.SortedLong2LongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.LongToLongMap;
 import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 import org.heigit.ohsome.oshdb.util.bytearray.ByteArrayOutputWrapper;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
@@ -29,11 +29,11 @@ public class TransformerRelation extends Transformer {
   private final ByteArrayOutputWrapper wrapperRecord = new ByteArrayOutputWrapper(1024);
   private final ByteArrayOutputWrapper wrapperNodeData = new ByteArrayOutputWrapper(1024);
  
-  final SortedLong2LongMap nodeToCell;
-  final SortedLong2LongMap wayToCell;
+  final LongToLongMap nodeToCell;
+  final LongToLongMap wayToCell;
 
   public TransformerRelation(long maxMemory,int maxZoom, Path workDirectory, TagToIdMapper tagToIdMapper, RoleToIdMapper role2Id,
-      SortedLong2LongMap nodeToCell, SortedLong2LongMap wayToCell, int workerId) throws IOException {
+      LongToLongMap nodeToCell, LongToLongMap wayToCell, int workerId) throws IOException {
     super(maxMemory,maxZoom, workDirectory, tagToIdMapper,role2Id,workerId);
     this.nodeToCell = nodeToCell;
     this.wayToCell = wayToCell;
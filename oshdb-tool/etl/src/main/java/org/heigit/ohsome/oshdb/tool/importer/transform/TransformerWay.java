@@ -13,7 +13,7 @@ import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshdb.osm.OSMWay;
 import org.heigit.ohsome.oshdb.tool.importer.transform.oshdb.TransformOSHWay;
 import org.heigit.ohsome.oshdb.tool.importer.util.TagToIdMapper;
-import org.heigit.ohsome.oshdb.tool.importer.util.long2long.SortedLong2LongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.LongToLongMap;
 import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 import org.heigit.ohsome.oshdb.util.bytearray.ByteArrayOutputWrapper;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
@@ -24,10 +24,10 @@ public class TransformerWay extends Transformer {
   private final ByteArrayOutputWrapper baRecord = new ByteArrayOutputWrapper(1024);
   private final ByteArrayOutputWrapper wrapperNodeData = new ByteArrayOutputWrapper(1024);
   
-  final SortedLong2LongMap nodeToCell;
+  final LongToLongMap nodeToCell;
 
   
-  public TransformerWay(long maxMemory,int maxZoom,Path workDirectory,TagToIdMapper tagToIdMapper,SortedLong2LongMap nodeToCell, int workerId) throws IOException {
+  public TransformerWay(long maxMemory,int maxZoom,Path workDirectory,TagToIdMapper tagToIdMapper,LongToLongMap nodeToCell, int workerId) throws IOException {
     super(maxMemory,maxZoom, workDirectory,tagToIdMapper,workerId);
     this.nodeToCell = nodeToCell;
   }
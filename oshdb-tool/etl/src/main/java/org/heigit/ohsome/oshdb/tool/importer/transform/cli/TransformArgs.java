@@ -7,6 +7,7 @@ import java.nio.file.Path;
 import org.heigit.ohsome.oshdb.tool.importer.cli.CommonArgs;
 import org.heigit.ohsome.oshdb.tool.importer.cli.DistributableArgs;
 import org.heigit.ohsome.oshdb.tool.importer.cli.validator.FileExistValidator;
+import org.heigit.ohsome.oshdb.tool.importer.transform.cli.validator.IdToCellValidator;
 import org.heigit.ohsome.oshdb.tool.importer.transform.cli.validator.TransformStepValidator;
 
 public class TransformArgs {
@@ -27,4 +28,7 @@ public class TransformArgs {
   
   @Parameter(names = { "--overwrite" }, description = "overwrite existing files", order = 3)
   public boolean overwrite = false;
+
+  @Parameter(names = {"--idToCell" }, description = "lookup of the cells of nodes and ways in the way and relation steps (paged|mapped). paged: cache of decoded pages within the heap, mapped: memory-mapped dense array, needs 8 bytes disk space per id up to the largest id", validateWith = IdToCellValidator.class, order = 4)
+  public String idToCell = "paged";
 }
@@ -0,0 +1,23 @@
+package org.heigit.ohsome.oshdb.tool.importer.transform.cli.validator;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.ParameterException;
+import com.google.common.collect.Sets;
+import java.util.Set;
+
+public class IdToCellValidator implements IParameterValidator{
+  private static final Set<String> mapSet;
+  
+  static {
+    mapSet = Sets.newHashSet("p","paged","m","mapped");
+  }
+
+  @Override
+  public void validate(String name, String value) throws ParameterException {
+    final String map = value.trim().toLowerCase();
+
+    if(!mapSet.contains(map))
+      throw new ParameterException(value+" for parameter " + name + " is not a valid value. Allowed values are (p,paged,m,mapped)");
+  }
+
+}
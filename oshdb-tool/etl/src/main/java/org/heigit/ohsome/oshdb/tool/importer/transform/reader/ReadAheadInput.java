@@ -0,0 +1,131 @@
+package org.heigit.ohsome.oshdb.tool.importer.transform.reader;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Sequential input of a file with asynchronous read-ahead.
+ *
+ * <p>Two large direct buffers are used alternately: while one is consumed, the next part of the
+ * file is read into the other by an {@link AsynchronousFileChannel}, so the consuming thread
+ * rarely waits for the disk.</p>
+ */
+class ReadAheadInput implements Closeable {
+  static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final AsynchronousFileChannel channel;
+  private final long end;
+  private ByteBuffer current;
+  private ByteBuffer next;
+  private Future<Integer> pending;
+  private long readPosition = 0;
+  private long position = 0;
+
+  ReadAheadInput(Path path) throws IOException {
+    this(path, BUFFER_SIZE);
+  }
+
+  ReadAheadInput(Path path, int bufferSize) throws IOException {
+    this.channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+    this.end = channel.size();
+    this.current = ByteBuffer.allocateDirect(bufferSize);
+    this.current.limit(0);
+    this.next = ByteBuffer.allocateDirect(bufferSize);
+    readAhead();
+  }
+
+  private void readAhead() {
+    if (readPosition < end) {
+      next.clear();
+      pending = channel.read(next, readPosition);
+    } else {
+      pending = null;
+    }
+  }
+
+  /**
+   * Makes the read-ahead buffer the current one, and starts reading into the other.
+   */
+  private void swap() throws IOException {
+    if (pending == null) {
+      throw new EOFException();
+    }
+    final int bytes;
+    try {
+      bytes = pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    if (bytes < 0) {
+      throw new EOFException();
+    }
+    readPosition += bytes;
+    next.flip();
+    final ByteBuffer swap = current;
+    current = next;
+    next = swap;
+    readAhead();
+  }
+
+  /**
+   * Size of the file.
+   */
+  long size() {
+    return end;
+  }
+
+  /**
+   * Number of bytes consumed so far.
+   */
+  long position() {
+    return position;
+  }
+
+  void readFully(byte[] dst) throws IOException {
+    readFully(dst, 0, dst.length);
+  }
+
+  void readFully(byte[] dst, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (!current.hasRemaining()) {
+        swap();
+      }
+      final int n = Math.min(length, current.remaining());
+      current.get(dst, offset, n);
+      offset += n;
+      length -= n;
+      position += n;
+    }
+  }
+
+  void skip(long length) throws IOException {
+    while (length > 0) {
+      if (!current.hasRemaining()) {
+        swap();
+      }
+      final int n = (int) Math.min(length, current.remaining());
+      current.position(current.position() + n);
+      length -= n;
+      position += n;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pending != null) {
+      pending.cancel(false);
+    }
+    channel.close();
+  }
+}
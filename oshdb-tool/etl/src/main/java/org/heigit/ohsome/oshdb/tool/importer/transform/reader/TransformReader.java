@@ -2,10 +2,9 @@ package org.heigit.ohsome.oshdb.tool.importer.transform.reader;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 import org.heigit.ohsome.oshdb.tool.importer.transform.oshdb.OSHEntity2;
@@ -14,62 +13,66 @@ import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 
 
 public abstract class TransformReader<T extends OSHEntity2> implements Closeable {
-  
+
   public final Path path;
-  private final RandomAccessFile raf;
+  private final ReadAheadInput input;
   private final long end;
-  protected final FileChannel channel;
-  
-  private final ByteBuffer header = ByteBuffer.allocateDirect(8 + 4 + 4);
-  
+
+  private final byte[] header = new byte[8 + 4 + 4];
+  private final ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+
   protected long pos = 0;
-  
+
   public long cellId = Long.MIN_VALUE;
   private int size = 0;
   private int bytes = 0;
-  
+  // whether the data of the current cell was already read from the input
+  private boolean consumed = true;
+
   public TransformReader(Path path) throws IOException {
     this.path = path;
-    this.raf = new RandomAccessFile(path.toFile(), "r");
-    this.end = raf.length();
-    this.channel = raf.getChannel();
+    this.input = new ReadAheadInput(path);
+    this.end = input.size();
   }
-  
+
   @Override
   public void close() throws IOException {
-    raf.close();
+    input.close();
   }
-  
+
   public long getCellId(){
     return cellId;
   }
-  
+
   public int getSize(){
     return size;
   }
-  
+
   public Path getPath(){
     return path;
   }
-  
+
   protected void readHeader() throws IOException{
+    if (!consumed) {
+      input.skip(bytes);
+    }
     pos += bytes;
-    header.clear();
-    channel.read(header,pos);
-    pos += header.capacity();  
-  
-    header.flip();
-    this.cellId = header.getLong();
-    this.size = header.getInt();
-    this.bytes = header.getInt();
+    input.readFully(header);
+    pos += header.length;
+
+    headerBuffer.clear();
+    this.cellId = headerBuffer.getLong();
+    this.size = headerBuffer.getInt();
+    this.bytes = headerBuffer.getInt();
+    this.consumed = false;
     if(bytes < 0)
       System.out.println("bytes is negative");
   }
-  
+
   public boolean hasNext(){
     return pos+bytes < end;
   }
-  
+
   @SuppressWarnings("rawtypes")
   public TransformReader next() {
     try {
@@ -77,31 +80,39 @@ public abstract class TransformReader<T extends OSHEntity2> implements Closeable
       return this;
     } catch (IOException e) {
       try {
-         raf.close();
+         input.close();
       } catch (Exception e2) {
         // Exceptions should be ignored
       }
       throw new RuntimeException(e);
     }
-   
+
   }
 
+  /**
+   * Reads and decodes the entities of the current cell, can be called once per cell.
+   */
   public Set<T> entities() {
+    if (consumed) {
+      throw new IllegalStateException("entities of cell " + cellId + " already read");
+    }
     try {
-      final ByteBuffer data = ByteBuffer.allocateDirect(bytes);
-      channel.read(data, pos);
-      data.flip();
+      final byte[] data = new byte[bytes];
+      input.readFully(data);
+      consumed = true;
 
       final OSHDBBoundingBox bbox = ZGrid.getBoundingBox(cellId);
       final long baseLongitude = bbox.getMinLonLong();
       final long baseLatitude = bbox.getMinLatLong();
 
       final Set<T> ret = new TreeSet<>((a,b) -> Long.compare(a.getId(), b.getId()));
+      final ByteBuffer buffer = ByteBuffer.wrap(data);
       long id = 0;
-      while (data.hasRemaining()) {
-        int length = data.getInt();
-        byte[] content = new byte[length];
-        data.get(content);
+      while (buffer.hasRemaining()) {
+        final int length = buffer.getInt();
+        final int offset = buffer.position();
+        byte[] content = Arrays.copyOfRange(data, offset, offset + length);
+        buffer.position(offset + length);
         T node = getInstance(content, 0, length,id,0,baseLongitude,baseLatitude);
         id = node.getId();
         ret.add(node);
@@ -111,9 +122,7 @@ public abstract class TransformReader<T extends OSHEntity2> implements Closeable
       throw new RuntimeException(e);
     }
   }
-  
+
   protected abstract T getInstance(byte[] data, int offset, int length, long baseId,
       long baseTimestamp, long baseLongitude, long baseLatitude) throws IOException;
 }
-
-
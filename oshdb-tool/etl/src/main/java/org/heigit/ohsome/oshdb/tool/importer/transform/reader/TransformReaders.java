@@ -0,0 +1,165 @@
+package org.heigit.ohsome.oshdb.tool.importer.transform.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.heigit.ohsome.oshdb.tool.importer.transform.oshdb.OSHEntity2;
+import org.heigit.ohsome.oshdb.tool.importer.util.LoserTree;
+import org.heigit.ohsome.oshdb.tool.importer.util.ZGrid;
+
+/**
+ * Merges the cells of several {@code transform_*} files in {@link ZGrid#ORDER_DFS_TOP_DOWN} order.
+ *
+ * <p>Every file is read with asynchronous read-ahead, and the files are merged with a
+ * {@link LoserTree} on a background thread, which also decodes the entities of the next
+ * {@value #PREFETCH_CELLS} cells while the caller is still processing the current one.</p>
+ */
+public abstract class TransformReaders<T extends OSHEntity2> implements Closeable {
+  static final int PREFETCH_CELLS = 2;
+  private static final long EXHAUSTED = Long.MAX_VALUE;
+
+  protected interface ReaderFactory<T extends OSHEntity2> {
+    TransformReader<T> open(Path path) throws IOException;
+  }
+
+  private static class Cell<T> {
+    final long cellId;
+    final Set<T> entities;
+    final Throwable error;
+
+    Cell(long cellId, Set<T> entities, Throwable error) {
+      this.cellId = cellId;
+      this.entities = entities;
+      this.error = error;
+    }
+  }
+
+  private final List<TransformReader<T>> readers;
+  // sort keys of the current cells of the readers
+  private final long[] keys;
+  private final LoserTree tree;
+  private final BlockingQueue<Cell<T>> cells = new ArrayBlockingQueue<>(PREFETCH_CELLS);
+  private final Thread merger;
+  private volatile boolean closed = false;
+  private Cell<T> head;
+
+  protected TransformReaders(Path[] path, ReaderFactory<T> factory) throws IOException {
+    readers = new ArrayList<>(path.length);
+    keys = new long[Math.max(1, path.length)];
+    keys[0] = EXHAUSTED;
+    try {
+      for (Path p : path) {
+        TransformReader<T> reader = factory.open(p);
+        readers.add(reader);
+        if (reader.hasNext()) {
+          reader.next();
+          keys[readers.size() - 1] = ZGrid.dfsTopDownKey(reader.getCellId());
+        } else {
+          keys[readers.size() - 1] = EXHAUSTED;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      closeReaders();
+      throw e;
+    }
+    tree = new LoserTree(keys.length, (a, b) -> Long.compare(keys[a], keys[b]));
+    merger = new Thread(this::merge, getClass().getSimpleName());
+    merger.setDaemon(true);
+    merger.start();
+  }
+
+  private void merge() {
+    Cell<T> last;
+    try {
+      while (!closed && keys[tree.winner()] != EXHAUSTED) {
+        int winner = tree.winner();
+        final long key = keys[winner];
+        final long cellId = readers.get(winner).getCellId();
+        final Set<T> entities = new TreeSet<>((a, b) -> Long.compare(a.getId(), b.getId()));
+        do {
+          final TransformReader<T> reader = readers.get(winner);
+          entities.addAll(reader.entities());
+          if (reader.hasNext()) {
+            reader.next();
+            keys[winner] = ZGrid.dfsTopDownKey(reader.getCellId());
+          } else {
+            keys[winner] = EXHAUSTED;
+          }
+          tree.replay();
+          winner = tree.winner();
+        } while (keys[winner] == key);
+        cells.put(new Cell<>(cellId, entities, null));
+      }
+      last = new Cell<>(Long.MIN_VALUE, null, null);
+    } catch (InterruptedException e) {
+      return;
+    } catch (Throwable e) {
+      // also errors (e.g. OutOfMemoryError), the consumer must not wait forever
+      last = new Cell<>(Long.MIN_VALUE, null, e);
+    }
+    try {
+      cells.put(last);
+    } catch (InterruptedException e) {
+      // closed
+    }
+  }
+
+  private Cell<T> head() {
+    if (head == null) {
+      try {
+        head = cells.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+    }
+    if (head.error instanceof Error) {
+      throw (Error) head.error;
+    } else if (head.error != null) {
+      throw new RuntimeException(head.error);
+    }
+    return head;
+  }
+
+  public boolean hasNext() {
+    return head().entities != null;
+  }
+
+  public long getCellId() {
+    return head().cellId;
+  }
+
+  public Set<T> next() {
+    final Set<T> entities = head().entities;
+    head = null;
+    return entities;
+  }
+
+  private void closeReaders() {
+    readers.forEach(reader -> {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Exceptions should be ignored
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    merger.interrupt();
+    try {
+      merger.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    closeReaders();
+  }
+}
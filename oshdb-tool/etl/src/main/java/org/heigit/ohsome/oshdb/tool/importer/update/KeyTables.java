@@ -0,0 +1,189 @@
+package org.heigit.ohsome.oshdb.tool.importer.update;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.heigit.ohsome.oshdb.util.TableNames;
+
+/**
+ * Translates the tag keys, tag values and roles of change files to the ids of the keytables,
+ * adding new strings to the keytables.
+ *
+ * <p>New keys get the next free key id, new values the next free value id of their key and new
+ * roles the next free role id. The keytables are modified on the given connection, i.e. in the
+ * same transaction as the grid cells.</p>
+ */
+class KeyTables {
+  private final Connection conn;
+  private final PreparedStatement selectKey;
+  private final PreparedStatement selectValue;
+  private final PreparedStatement selectRole;
+  private final PreparedStatement insertKey;
+  private final PreparedStatement insertValue;
+  private final PreparedStatement insertRole;
+
+  private final Object2IntOpenHashMap<String> keys = new Object2IntOpenHashMap<>();
+  private final Map<String, Object2IntOpenHashMap<String>> values = new HashMap<>();
+  private final Int2IntOpenHashMap nextValueIds = new Int2IntOpenHashMap();
+  private final Object2IntOpenHashMap<String> roles = new Object2IntOpenHashMap<>();
+  private int nextKeyId = -1;
+  private int nextRoleId = -1;
+
+  KeyTables(Connection conn) throws SQLException {
+    this.conn = conn;
+    try (Statement stmt = conn.createStatement()) {
+      // the keytables are only queried by id by the oshdb
+      stmt.executeUpdate("create index if not exists " + TableNames.E_KEY + "_txt on "
+          + TableNames.E_KEY + "(txt)");
+      stmt.executeUpdate("create index if not exists " + TableNames.E_KEYVALUE + "_txt on "
+          + TableNames.E_KEYVALUE + "(keyId,txt)");
+      stmt.executeUpdate("create index if not exists " + TableNames.E_ROLE + "_txt on "
+          + TableNames.E_ROLE + "(txt)");
+    }
+    selectKey = conn.prepareStatement("select id from " + TableNames.E_KEY + " where txt = ?");
+    selectValue = conn.prepareStatement(
+        "select valueId from " + TableNames.E_KEYVALUE + " where keyId = ? and txt = ?");
+    selectRole = conn.prepareStatement("select id from " + TableNames.E_ROLE + " where txt = ?");
+    insertKey = conn.prepareStatement(
+        "insert into " + TableNames.E_KEY + " (id,txt) values (?,?)");
+    insertValue = conn.prepareStatement(
+        "insert into " + TableNames.E_KEYVALUE + " (keyId,valueId,txt) values (?,?,?)");
+    insertRole = conn.prepareStatement(
+        "insert into " + TableNames.E_ROLE + " (id,txt) values (?,?)");
+    keys.defaultReturnValue(-1);
+    roles.defaultReturnValue(-1);
+    nextValueIds.defaultReturnValue(-1);
+  }
+
+  /**
+   * Returns the tags of a change file version ({@code [key, value, key, value, ...]}) as an array
+   * of key and value ids sorted by key id.
+   */
+  int[] getTags(List<String> tags) throws SQLException {
+    long[] sorted = new long[tags.size() / 2];
+    for (int i = 0; i < sorted.length; i++) {
+      String key = tags.get(2 * i);
+      int keyId = getKey(key);
+      int valueId = getValue(keyId, key, tags.get(2 * i + 1));
+      sorted[i] = (long) keyId << 32 | valueId;
+    }
+    Arrays.sort(sorted);
+    int[] result = new int[sorted.length * 2];
+    for (int i = 0; i < sorted.length; i++) {
+      result[2 * i] = (int) (sorted[i] >>> 32);
+      result[2 * i + 1] = (int) sorted[i];
+    }
+    return result;
+  }
+
+  private int getKey(String key) throws SQLException {
+    int keyId = keys.getInt(key);
+    if (keyId >= 0) {
+      return keyId;
+    }
+    selectKey.setString(1, key);
+    keyId = selectInt(selectKey);
+    if (keyId < 0) {
+      if (nextKeyId < 0) {
+        nextKeyId = selectMax("select max(id) from " + TableNames.E_KEY) + 1;
+      }
+      keyId = nextKeyId++;
+      insertKey.setInt(1, keyId);
+      insertKey.setString(2, key);
+      insertKey.executeUpdate();
+    }
+    keys.put(key, keyId);
+    return keyId;
+  }
+
+  private int getValue(int keyId, String key, String value) throws SQLException {
+    Object2IntOpenHashMap<String> keyValues = values.computeIfAbsent(key, k -> {
+      Object2IntOpenHashMap<String> map = new Object2IntOpenHashMap<>();
+      map.defaultReturnValue(-1);
+      return map;
+    });
+    int valueId = keyValues.getInt(value);
+    if (valueId >= 0) {
+      return valueId;
+    }
+    selectValue.setInt(1, keyId);
+    selectValue.setString(2, value);
+    valueId = selectInt(selectValue);
+    if (valueId < 0) {
+      valueId = nextValueIds.get(keyId);
+      if (valueId < 0) {
+        valueId = selectMax("select max(valueId) from " + TableNames.E_KEYVALUE
+            + " where keyId = " + keyId) + 1;
+      }
+      nextValueIds.put(keyId, valueId + 1);
+      insertValue.setInt(1, keyId);
+      insertValue.setInt(2, valueId);
+      insertValue.setString(3, value);
+      insertValue.executeUpdate();
+    }
+    keyValues.put(value, valueId);
+    return valueId;
+  }
+
+  /**
+   * Returns the id of a role.
+   */
+  int getRole(String role) throws SQLException {
+    int roleId = roles.getInt(role);
+    if (roleId >= 0) {
+      return roleId;
+    }
+    selectRole.setString(1, role);
+    roleId = selectInt(selectRole);
+    if (roleId < 0) {
+      if (nextRoleId < 0) {
+        nextRoleId = selectMax("select max(id) from " + TableNames.E_ROLE) + 1;
+      }
+      roleId = nextRoleId++;
+      insertRole.setInt(1, roleId);
+      insertRole.setString(2, role);
+      insertRole.executeUpdate();
+    }
+    roles.put(role, roleId);
+    return roleId;
+  }
+
+  private static int selectInt(PreparedStatement select) throws SQLException {
+    try (ResultSet rst = select.executeQuery()) {
+      return rst.next() ? rst.getInt(1) : -1;
+    }
+  }
+
+  /**
+   * Returns the result of a {@code max()} query, or -1 if the table is empty.
+   */
+  private int selectMax(String sql) throws SQLException {
+    try (Statement stmt = conn.createStatement(); ResultSet rst = stmt.executeQuery(sql)) {
+      if (rst.next()) {
+        int max = rst.getInt(1);
+        return rst.wasNull() ? -1 : max;
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Forgets the ids cached in memory, e.g. after the transaction has been rolled back.
+   */
+  void reset() {
+    keys.clear();
+    values.clear();
+    nextValueIds.clear();
+    roles.clear();
+    nextKeyId = -1;
+    nextRoleId = -1;
+  }
+}
@@ -0,0 +1,1008 @@
+package org.heigit.ohsome.oshdb.tool.importer.update;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Stopwatch;
+import it.unimi.dsi.fastutil.longs.Long2BooleanOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectSortedMap;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity.ModificationTimestamps;
+import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
+import org.heigit.ohsome.oshdb.grid.GridOSHRelations;
+import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.impl.osh.OSHNodeImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHRelationImpl;
+import org.heigit.ohsome.oshdb.impl.osh.OSHWayImpl;
+import org.heigit.ohsome.oshdb.index.XYGrid;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osh.OSHRelation;
+import org.heigit.ohsome.oshdb.osh.OSHWay;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMMember;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.tool.importer.load.handle.OSHDB2H2Handler;
+import org.heigit.ohsome.oshdb.tool.importer.update.OscReader.Member;
+import org.heigit.ohsome.oshdb.tool.importer.update.OscReader.Version;
+import org.heigit.ohsome.oshdb.tool.importer.update.cli.UpdateArgs;
+import org.heigit.ohsome.oshdb.util.CellId;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies osmChange files (e.g. OSM replication diffs) to an existing H2 oshdb, without a new
+ * extract, transform and load of a full history file.
+ *
+ * <p>The new versions of a change file are appended to the histories of their entities. Ways and
+ * relations whose members have changed are rebuilt with the updated member histories. Entities
+ * stay in their grid cells as long as their bounding boxes fit in; otherwise they are moved to
+ * the finest (preferably already existing) coarser cell which contains their bounding box. New
+ * entities are put into the finest existing cell (or the cell at the maximal zoom level) which
+ * contains their bounding box. New tag keys, tag values and roles are added to the keytables.</p>
+ *
+ * <p>Finding the cells of entities requires the id index, finding the ways and relations which
+ * contain a changed entity requires an index of the members of all ways and relations. Both are
+ * built on the first update if they don't exist yet (which needs one pass over all grid cells).
+ * The tag index is kept up to date if it exists, as are the tag keys and modification timestamps
+ * of the cells if the grid tables have columns for them.</p>
+ *
+ * <p>Each change file is applied in a single transaction, so queries on other connections see
+ * the oshdb either before or after a change file. The applied files are recorded (by their
+ * checksum) in the update log, and applying a file a second time has no effect.</p>
+ */
+public class OSHDBUpdater {
+  private static final Logger LOG = LoggerFactory.getLogger(OSHDBUpdater.class);
+  // number of index rows per batch (and transaction) when building the indexes
+  private static final int INDEX_BATCH_SIZE = 10_000;
+
+  private final Connection conn;
+  private final boolean onlyNodesWithTags;
+  private final boolean withTagIndex;
+  private final int maxZoom;
+  private final KeyTables keyTables;
+  // the columns of the grid tables, which only have level, id and data in older oshdbs
+  private final Map<OSMType, Set<String>> gridColumns = new EnumMap<>(OSMType.class);
+
+  /**
+   * Prepares an oshdb for updates, building the id index and the member index if necessary.
+   *
+   * @param conn the connection to the oshdb, which is used in manual commit mode from now on
+   * @param onlyNodesWithTags whether the nodes grid only holds nodes with tags (see the loader's
+   *        {@code --nodesWithTagsOnly})
+   */
+  public OSHDBUpdater(Connection conn, boolean onlyNodesWithTags)
+      throws SQLException, IOException {
+    this.conn = conn;
+    this.onlyNodesWithTags = onlyNodesWithTags;
+    conn.setAutoCommit(false);
+    this.keyTables = new KeyTables(conn);
+    this.withTagIndex = hasTable(TableNames.T_TAG_INDEX);
+    this.maxZoom = readMaxZoom();
+    for (OSMType type : OSMType.values()) {
+      gridColumns.put(type, columns(gridTable(type)));
+    }
+    prepareIndexes();
+    conn.commit();
+  }
+
+  private boolean hasTable(TableNames table) throws SQLException {
+    try (ResultSet rs = conn.getMetaData().getTables(null, null, "%", new String[] {"TABLE"})) {
+      while (rs.next()) {
+        if (rs.getString("TABLE_NAME").equalsIgnoreCase(table.toString())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Set<String> columns(String table) throws SQLException {
+    Set<String> columns = new HashSet<>();
+    try (ResultSet rs = conn.getMetaData().getColumns(null, null, "%", "%")) {
+      while (rs.next()) {
+        if (rs.getString("TABLE_NAME").equalsIgnoreCase(table)) {
+          columns.add(rs.getString("COLUMN_NAME").toLowerCase());
+        }
+      }
+    }
+    return columns;
+  }
+
+  private int readMaxZoom() throws SQLException {
+    String maxZoomMetadata = getMetadata("oshdb.maxzoom");
+    if (maxZoomMetadata != null) {
+      return Integer.parseInt(maxZoomMetadata);
+    }
+    int zoom = 0;
+    try (Statement stmt = conn.createStatement()) {
+      for (OSMType type : OSMType.values()) {
+        try (ResultSet rst = stmt.executeQuery("select max(level) from " + gridTable(type))) {
+          if (rst.next()) {
+            zoom = Math.max(zoom, rst.getInt(1));
+          }
+        }
+      }
+    }
+    return zoom;
+  }
+
+  private String getMetadata(String key) throws SQLException {
+    try (PreparedStatement select = conn.prepareStatement(
+        "select value from " + TableNames.T_METADATA + " where key = ?")) {
+      select.setString(1, key);
+      try (ResultSet rst = select.executeQuery()) {
+        return rst.next() ? rst.getString(1) : null;
+      }
+    }
+  }
+
+  private static String gridTable(OSMType type) {
+    return TableNames.forOSMType(type).get().toString();
+  }
+
+  private void prepareIndexes() throws SQLException, IOException {
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("create table if not exists " + TableNames.T_UPDATE_LOG
+          + "(seq int auto_increment primary key, file varchar, sha256 varchar unique,"
+          + " applied timestamp, data_timestamp timestamp, nodes bigint, ways bigint,"
+          + " relations bigint)");
+    }
+    boolean buildIdIndex = !hasTable(TableNames.T_ID_INDEX);
+    boolean buildMemberIndex = !hasTable(TableNames.T_MEMBER_INDEX);
+    if (!buildIdIndex && !buildMemberIndex) {
+      return;
+    }
+    // the indexes are built (and committed in chunks) under temporary names, and only renamed
+    // when complete, such that an interrupted build is started over on the next update
+    final String idIndex = TableNames.T_ID_INDEX + "_build";
+    final String memberIndex = TableNames.T_MEMBER_INDEX + "_build";
+    try (Statement stmt = conn.createStatement()) {
+      if (buildIdIndex) {
+        stmt.executeUpdate("drop table if exists " + idIndex);
+        stmt.executeUpdate("create table " + idIndex
+            + "(type int, osmid bigint, level int, id bigint, primary key(type,osmid,level,id))");
+      }
+      if (buildMemberIndex) {
+        stmt.executeUpdate("drop table if exists " + memberIndex);
+        stmt.executeUpdate("create table " + memberIndex
+            + "(type int, osmid bigint, member_type int, member_id bigint,"
+            + " primary key(member_type,member_id,type,osmid))");
+      }
+    }
+    conn.commit();
+    LOG.info("building the {} of all grid cells ...", buildIdIndex && buildMemberIndex
+        ? "id and member indexes" : buildIdIndex ? "id index" : "member index");
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try (Statement stmt = conn.createStatement();
+        PreparedStatement insertId = insertIdIndex(idIndex);
+        PreparedStatement insertMember = insertMemberIndex(memberIndex)) {
+      int batchRows = 0;
+      for (OSMType type : OSMType.values()) {
+        if (!buildIdIndex && type == OSMType.NODE) {
+          continue;
+        }
+        try (ResultSet rst = stmt.executeQuery("select data from " + gridTable(type))) {
+          while (rst.next()) {
+            GridOSHEntity grid = deserialize(rst.getBytes(1));
+            if (buildIdIndex) {
+              batchRows += addBatch(insertId, OSHDB2H2Handler.idIndexRows(type, grid));
+            }
+            if (buildMemberIndex) {
+              for (OSHEntity osh : grid.getEntities()) {
+                batchRows += addBatch(insertMember,
+                    memberIndexRows(type, osh.getId(), osh.getVersions()));
+              }
+            }
+            if (batchRows >= INDEX_BATCH_SIZE) {
+              insertId.executeBatch();
+              insertMember.executeBatch();
+              conn.commit();
+              batchRows = 0;
+            }
+          }
+        }
+      }
+      insertId.executeBatch();
+      insertMember.executeBatch();
+      if (buildIdIndex) {
+        stmt.executeUpdate("alter table " + idIndex + " rename to " + TableNames.T_ID_INDEX);
+      }
+      if (buildMemberIndex) {
+        stmt.executeUpdate(
+            "alter table " + memberIndex + " rename to " + TableNames.T_MEMBER_INDEX);
+      }
+    }
+    LOG.info("building the indexes done in {}", stopwatch);
+  }
+
+  private PreparedStatement insertIdIndex(String table) throws SQLException {
+    return conn.prepareStatement("merge into " + table
+        + " (type,osmid,level,id) key(type,osmid,level,id) values (?,?,?,?)");
+  }
+
+  private PreparedStatement insertMemberIndex(String table) throws SQLException {
+    return conn.prepareStatement("merge into " + table
+        + " (type,osmid,member_type,member_id) key(type,osmid,member_type,member_id)"
+        + " values (?,?,?,?)");
+  }
+
+  /**
+   * Adds rows to a batch, returns the number of rows added.
+   */
+  private static int addBatch(PreparedStatement stmt, List<Object[]> rows) throws SQLException {
+    for (Object[] row : rows) {
+      for (int i = 0; i < row.length; i++) {
+        stmt.setObject(i + 1, row[i]);
+      }
+      stmt.addBatch();
+    }
+    return rows.size();
+  }
+
+  /**
+   * Returns the rows of the member index for the versions of a way or relation: one row for each
+   * distinct member of any version.
+   */
+  private static List<Object[]> memberIndexRows(OSMType type, long id,
+      Iterable<? extends OSMEntity> versions) {
+    List<Object[]> rows = new ArrayList<>();
+    if (type == OSMType.NODE) {
+      return rows;
+    }
+    LongOpenHashSet[] members = {new LongOpenHashSet(), new LongOpenHashSet(),
+        new LongOpenHashSet()};
+    for (OSMEntity osm : versions) {
+      OSMMember[] refs = type == OSMType.WAY
+          ? ((OSMWay) osm).getRefs() : ((OSMRelation) osm).getMembers();
+      for (OSMMember member : refs) {
+        if (members[member.getType().intValue()].add(member.getId())) {
+          rows.add(new Object[] {type.intValue(), id, member.getType().intValue(),
+              member.getId()});
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static GridOSHEntity deserialize(byte[] data) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return (GridOSHEntity) in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static byte[] serialize(GridOSHEntity grid) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(grid);
+    }
+    return out.toByteArray();
+  }
+
+  private static String sha256(Path file) throws IOException {
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file),
+        MessageDigest.getInstance("SHA-256"))) {
+      byte[] buffer = new byte[1 << 16];
+      while (in.read(buffer) >= 0) {
+        // digest the whole file
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : ((DigestInputStream) in).getMessageDigest().digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Applies a change file in a single transaction.
+   *
+   * @return false if the change file has already been applied before
+   * @throws IOException if the change file cannot be read or a grid cell cannot be built
+   * @throws SQLException if the oshdb cannot be read or written, in which case nothing of the
+   *         change file has been applied
+   */
+  public boolean apply(Path file) throws IOException, SQLException {
+    final String checksum = sha256(file);
+    try (PreparedStatement select = conn.prepareStatement(
+        "select seq from " + TableNames.T_UPDATE_LOG + " where sha256 = ?")) {
+      select.setString(1, checksum);
+      try (ResultSet rst = select.executeQuery()) {
+        if (rst.next()) {
+          LOG.info("{} has already been applied (update {})", file, rst.getInt(1));
+          return false;
+        }
+      }
+    }
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<Version> versions = OscReader.read(file);
+    try {
+      Update update = new Update();
+      update.apply(versions);
+      update.log(file, checksum);
+      conn.commit();
+      LOG.info("applied {} in {}: {} nodes, {} ways, {} relations ({} moved to other cells, "
+          + "{} without location skipped, {} unknown members)", file, stopwatch,
+          update.updated.get(OSMType.NODE), update.updated.get(OSMType.WAY),
+          update.updated.get(OSMType.RELATION), update.moved, update.unplaced,
+          update.unknownMembers);
+    } catch (IOException | SQLException | RuntimeException e) {
+      conn.rollback();
+      keyTables.reset();
+      throw e;
+    }
+    return true;
+  }
+
+  /**
+   * A grid cell touched by an update.
+   */
+  private static class Cell {
+    final OSMType type;
+    final CellId cellId;
+    final boolean existed;
+    final Long2ObjectSortedMap<OSHEntity> entities = new Long2ObjectAVLTreeMap<>();
+    boolean modified = false;
+
+    Cell(OSMType type, CellId cellId, GridOSHEntity grid) {
+      this.type = type;
+      this.cellId = cellId;
+      this.existed = grid != null;
+      if (grid != null) {
+        for (OSHEntity osh : grid.getEntities()) {
+          entities.put(osh.getId(), osh);
+        }
+      }
+    }
+  }
+
+  /**
+   * The state of the application of a single change file.
+   */
+  private class Update {
+    // the (complete) histories of all entities involved in the update
+    final Long2ObjectMap<List<OSMNode>> nodes = new Long2ObjectOpenHashMap<>();
+    final Long2ObjectMap<List<OSMWay>> ways = new Long2ObjectOpenHashMap<>();
+    final Long2ObjectMap<List<OSMRelation>> relations = new Long2ObjectOpenHashMap<>();
+    final Long2ObjectMap<OSHNode> nodeOsh = new Long2ObjectOpenHashMap<>();
+    final Long2ObjectMap<OSHWay> wayOsh = new Long2ObjectOpenHashMap<>();
+
+    final Map<OSMType, Long2LongOpenHashMap> locations = new EnumMap<>(OSMType.class);
+    final Map<OSMType, Long2ObjectMap<Cell>> cells = new EnumMap<>(OSMType.class);
+    final Map<OSMType, Long2BooleanOpenHashMap> cellExists = new EnumMap<>(OSMType.class);
+    final Map<OSMType, Long> updated = new EnumMap<>(OSMType.class);
+    long moved = 0;
+    long unplaced = 0;
+    long unknownMembers = 0;
+    long lastTimestamp = Long.MIN_VALUE;
+
+    Update() {
+      for (OSMType type : OSMType.values()) {
+        locations.put(type, new Long2LongOpenHashMap());
+        cells.put(type, new Long2ObjectOpenHashMap<>());
+        cellExists.put(type, new Long2BooleanOpenHashMap());
+        updated.put(type, 0L);
+      }
+    }
+
+    void apply(List<Version> versions) throws IOException, SQLException {
+      Map<OSMType, Long2ObjectSortedMap<List<Version>>> changes = new EnumMap<>(OSMType.class);
+      for (OSMType type : OSMType.values()) {
+        changes.put(type, new Long2ObjectAVLTreeMap<>());
+      }
+      for (Version version : versions) {
+        changes.get(version.type).computeIfAbsent(version.id, id -> new ArrayList<>())
+            .add(version);
+        lastTimestamp = Math.max(lastTimestamp, version.timestamp);
+      }
+
+      // the current histories of the changed entities and of all ways and relations which
+      // contain a changed entity (and therefore embed its history)
+      LongSortedSet nodeIds = changes.get(OSMType.NODE).keySet();
+      for (long id : nodeIds) {
+        load(OSMType.NODE, id);
+      }
+      LongSortedSet wayIds = new LongAVLTreeSet(changes.get(OSMType.WAY).keySet());
+      for (long id : nodeIds) {
+        wayIds.addAll(parents(OSMType.NODE, id, OSMType.WAY));
+      }
+      for (long id : wayIds) {
+        load(OSMType.WAY, id);
+      }
+      LongSortedSet relationIds = new LongAVLTreeSet(changes.get(OSMType.RELATION).keySet());
+      for (long id : nodeIds) {
+        relationIds.addAll(parents(OSMType.NODE, id, OSMType.RELATION));
+      }
+      for (long id : wayIds) {
+        relationIds.addAll(parents(OSMType.WAY, id, OSMType.RELATION));
+      }
+      for (long id : relationIds) {
+        load(OSMType.RELATION, id);
+      }
+
+      // append the new versions
+      for (Long2ObjectMap.Entry<List<Version>> entry : changes.get(OSMType.NODE)
+          .long2ObjectEntrySet()) {
+        List<OSMNode> history = nodes.computeIfAbsent(entry.getLongKey(), id -> new ArrayList<>());
+        for (Version version : entry.getValue()) {
+          append(history, new OSMNode(version.id, version.visible ? version.version
+              : -version.version, new OSHDBTimestamp(version.timestamp), version.changeset,
+              version.userId, keyTables.getTags(version.tags), version.longitude,
+              version.latitude));
+        }
+      }
+      for (Long2ObjectMap.Entry<List<Version>> entry : changes.get(OSMType.WAY)
+          .long2ObjectEntrySet()) {
+        List<OSMWay> history = ways.computeIfAbsent(entry.getLongKey(), id -> new ArrayList<>());
+        for (Version version : entry.getValue()) {
+          OSMMember[] refs = new OSMMember[version.refs.size()];
+          for (int i = 0; i < refs.length; i++) {
+            refs[i] = new OSMMember(version.refs.getLong(i), OSMType.NODE, -1);
+            resolve(OSMType.NODE, refs[i].getId());
+          }
+          append(history, new OSMWay(version.id, version.visible ? version.version
+              : -version.version, new OSHDBTimestamp(version.timestamp), version.changeset,
+              version.userId, keyTables.getTags(version.tags), refs));
+        }
+      }
+      for (Long2ObjectMap.Entry<List<Version>> entry : changes.get(OSMType.RELATION)
+          .long2ObjectEntrySet()) {
+        List<OSMRelation> history =
+            relations.computeIfAbsent(entry.getLongKey(), id -> new ArrayList<>());
+        for (Version version : entry.getValue()) {
+          OSMMember[] members = new OSMMember[version.members.size()];
+          for (int i = 0; i < members.length; i++) {
+            Member member = version.members.get(i);
+            members[i] = new OSMMember(member.id, member.type, keyTables.getRole(member.role));
+            if (member.type != OSMType.RELATION) {
+              resolve(member.type, member.id);
+            }
+          }
+          append(history, new OSMRelation(version.id, version.visible ? version.version
+              : -version.version, new OSHDBTimestamp(version.timestamp), version.changeset,
+              version.userId, keyTables.getTags(version.tags), members));
+        }
+      }
+
+      // rebuild the entities and put them into their (new) cells
+      for (long id : nodeIds) {
+        List<OSMNode> history = nodes.get(id);
+        if (location(OSMType.NODE, id) >= 0 || !onlyNodesWithTags
+            || history.stream().anyMatch(osm -> osm.getRawTags().length > 0)) {
+          place(OSMType.NODE, nodeOsh(id));
+        }
+      }
+      for (long id : wayIds) {
+        if (ways.containsKey(id)) {
+          place(OSMType.WAY, wayOsh(id));
+        }
+      }
+      for (long id : relationIds) {
+        if (relations.containsKey(id)) {
+          place(OSMType.RELATION, relationOsh(id));
+        }
+      }
+
+      try (PreparedStatement delete = conn.prepareStatement("delete from "
+          + TableNames.T_MEMBER_INDEX + " where type = ? and osmid = ?");
+          PreparedStatement insert = insertMemberIndex(TableNames.T_MEMBER_INDEX.toString())) {
+        for (OSMType type : new OSMType[] {OSMType.WAY, OSMType.RELATION}) {
+          for (long id : changes.get(type).keySet()) {
+            delete.setInt(1, type.intValue());
+            delete.setLong(2, id);
+            delete.executeUpdate();
+            addBatch(insert, memberIndexRows(type, id,
+                type == OSMType.WAY ? ways.get(id) : relations.get(id)));
+          }
+        }
+        insert.executeBatch();
+      }
+      writeCells();
+    }
+
+    /**
+     * Appends a new version to a history, unless the history already contains it.
+     */
+    private <T extends OSMEntity> void append(List<T> history, T version) {
+      for (T osm : history) {
+        if (osm.getVersion() >= version.getVersion()) {
+          return;
+        }
+      }
+      history.add(version);
+    }
+
+    /**
+     * Returns the cell (as level id) an entity is stored in, or -1 if it is not in the grid.
+     */
+    long location(OSMType type, long id) throws SQLException {
+      Long2LongOpenHashMap typeLocations = locations.get(type);
+      if (typeLocations.containsKey(id)) {
+        return typeLocations.get(id);
+      }
+      long location = -1;
+      try (PreparedStatement select = conn.prepareStatement("select level, id from "
+          + TableNames.T_ID_INDEX + " where type = ? and osmid = ?")) {
+        select.setInt(1, type.intValue());
+        select.setLong(2, id);
+        try (ResultSet rst = select.executeQuery()) {
+          if (rst.next()) {
+            location = CellId.getLevelId(rst.getInt(1), rst.getLong(2));
+          }
+        }
+      }
+      typeLocations.put(id, location);
+      return location;
+    }
+
+    LongArrayList parents(OSMType memberType, long memberId, OSMType type) throws SQLException {
+      LongArrayList parents = new LongArrayList();
+      try (PreparedStatement select = conn.prepareStatement("select osmid from "
+          + TableNames.T_MEMBER_INDEX + " where member_type = ? and member_id = ? and type = ?")) {
+        select.setInt(1, memberType.intValue());
+        select.setLong(2, memberId);
+        select.setInt(3, type.intValue());
+        try (ResultSet rst = select.executeQuery()) {
+          while (rst.next()) {
+            parents.add(rst.getLong(1));
+          }
+        }
+      }
+      return parents;
+    }
+
+    Cell cell(OSMType type, long levelId) throws SQLException, IOException {
+      Cell cell = cells.get(type).get(levelId);
+      if (cell == null) {
+        CellId cellId = CellId.fromLevelId(levelId);
+        GridOSHEntity grid = null;
+        try (PreparedStatement select = conn.prepareStatement("select data from "
+            + gridTable(type) + " where level = ? and id = ?")) {
+          select.setInt(1, cellId.getZoomLevel());
+          select.setLong(2, cellId.getId());
+          try (ResultSet rst = select.executeQuery()) {
+            if (rst.next()) {
+              grid = deserialize(rst.getBytes(1));
+            }
+          }
+        }
+        cell = new Cell(type, cellId, grid);
+        cells.get(type).put(levelId, cell);
+      }
+      return cell;
+    }
+
+    boolean exists(OSMType type, long levelId) throws SQLException {
+      Cell cell = cells.get(type).get(levelId);
+      if (cell != null) {
+        return cell.existed || !cell.entities.isEmpty();
+      }
+      Long2BooleanOpenHashMap typeExists = cellExists.get(type);
+      if (!typeExists.containsKey(levelId)) {
+        CellId cellId = CellId.fromLevelId(levelId);
+        try (PreparedStatement select = conn.prepareStatement("select count(*) from "
+            + gridTable(type) + " where level = ? and id = ?")) {
+          select.setInt(1, cellId.getZoomLevel());
+          select.setLong(2, cellId.getId());
+          try (ResultSet rst = select.executeQuery()) {
+            typeExists.put(levelId, rst.next() && rst.getLong(1) > 0);
+          }
+        }
+      }
+      return typeExists.get(levelId);
+    }
+
+    /**
+     * Loads the history of an entity (and the embedded histories of its members) from its cell.
+     *
+     * @return false if the entity is not in the grid
+     */
+    boolean load(OSMType type, long id) throws SQLException, IOException {
+      long location = location(type, id);
+      if (location < 0) {
+        return false;
+      }
+      OSHEntity osh = cell(type, location).entities.get(id);
+      if (osh == null) {
+        return false;
+      }
+      collect(osh);
+      return true;
+    }
+
+    private void collect(OSHEntity osh) throws IOException {
+      switch (osh.getType()) {
+        case NODE:
+          nodes.putIfAbsent(osh.getId(), OSHEntities.toList(((OSHNode) osh).getVersions()));
+          break;
+        case WAY:
+          ways.putIfAbsent(osh.getId(), OSHEntities.toList(((OSHWay) osh).getVersions()));
+          for (OSHNode node : osh.getNodes()) {
+            collect(node);
+          }
+          break;
+        case RELATION:
+          relations.putIfAbsent(osh.getId(),
+              OSHEntities.toList(((OSHRelation) osh).getVersions()));
+          for (OSHNode node : osh.getNodes()) {
+            collect(node);
+          }
+          for (OSHWay way : osh.getWays()) {
+            collect(way);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    /**
+     * Makes sure the history of a member of a new version is known: from its own cell or as
+     * embedded in a way or relation which contains it.
+     */
+    private void resolve(OSMType type, long id) throws SQLException, IOException {
+      if (known(type, id) || load(type, id)) {
+        return;
+      }
+      for (OSMType parentType : new OSMType[] {OSMType.WAY, OSMType.RELATION}) {
+        for (long parent : parents(type, id, parentType)) {
+          load(parentType, parent);
+          if (known(type, id)) {
+            return;
+          }
+        }
+      }
+    }
+
+    private boolean known(OSMType type, long id) {
+      return type == OSMType.NODE ? nodes.containsKey(id) : ways.containsKey(id);
+    }
+
+    OSHNode nodeOsh(long id) throws IOException {
+      OSHNode osh = nodeOsh.get(id);
+      if (osh == null) {
+        osh = OSHNodeImpl.build(new ArrayList<>(nodes.get(id)));
+        nodeOsh.put(id, osh);
+      }
+      return osh;
+    }
+
+    OSHWay wayOsh(long id) throws IOException {
+      OSHWay osh = wayOsh.get(id);
+      if (osh == null) {
+        List<OSMWay> versions = ways.get(id);
+        LongSortedSet nodeIds = new LongAVLTreeSet();
+        for (OSMWay osm : versions) {
+          for (OSMMember ref : osm.getRefs()) {
+            nodeIds.add(ref.getId());
+          }
+        }
+        osh = OSHWayImpl.build(new ArrayList<>(versions), members(nodeIds));
+        wayOsh.put(id, osh);
+      }
+      return osh;
+    }
+
+    OSHRelation relationOsh(long id) throws IOException {
+      List<OSMRelation> versions = relations.get(id);
+      LongSortedSet nodeIds = new LongAVLTreeSet();
+      LongSortedSet wayIds = new LongAVLTreeSet();
+      for (OSMRelation osm : versions) {
+        for (OSMMember member : osm.getMembers()) {
+          if (member.getType() == OSMType.NODE) {
+            nodeIds.add(member.getId());
+          } else if (member.getType() == OSMType.WAY) {
+            wayIds.add(member.getId());
+          }
+        }
+      }
+      List<OSHWay> memberWays = new ArrayList<>(wayIds.size());
+      for (long wayId : wayIds) {
+        if (ways.containsKey(wayId)) {
+          memberWays.add(wayOsh(wayId));
+        } else {
+          unknownMembers++;
+        }
+      }
+      return OSHRelationImpl.build(new ArrayList<>(versions), members(nodeIds), memberWays);
+    }
+
+    private List<OSHNode> members(LongSortedSet nodeIds) throws IOException {
+      List<OSHNode> members = new ArrayList<>(nodeIds.size());
+      for (long nodeId : nodeIds) {
+        if (nodes.containsKey(nodeId)) {
+          members.add(nodeOsh(nodeId));
+        } else {
+          unknownMembers++;
+        }
+      }
+      return members;
+    }
+
+    /**
+     * Puts a rebuilt entity into the cell which fits its (new) bounding box.
+     */
+    void place(OSMType type, OSHEntity osh) throws SQLException, IOException {
+      final long id = osh.getId();
+      final long current = location(type, id);
+      OSHDBBoundingBox bbox = osh.getBoundingBox();
+      final long target;
+      if (bbox == null || bbox.getMinLonLong() > bbox.getMaxLonLong()
+          || bbox.getMinLatLong() > bbox.getMaxLatLong()) {
+        if (current < 0) {
+          unplaced++;
+          return;
+        }
+        target = current;
+      } else if (current >= 0 && fits(current, bbox)) {
+        target = current;
+      } else {
+        target = findCell(type, bbox,
+            current >= 0 ? CellId.fromLevelId(current).getZoomLevel() : maxZoom);
+      }
+
+      if (current >= 0 && current != target) {
+        Cell old = cell(type, current);
+        old.entities.remove(id);
+        old.modified = true;
+        CellId oldCellId = CellId.fromLevelId(current);
+        try (PreparedStatement delete = conn.prepareStatement("delete from "
+            + TableNames.T_ID_INDEX + " where type = ? and osmid = ? and level = ? and id = ?")) {
+          delete.setInt(1, type.intValue());
+          delete.setLong(2, id);
+          delete.setInt(3, oldCellId.getZoomLevel());
+          delete.setLong(4, oldCellId.getId());
+          delete.executeUpdate();
+        }
+        moved++;
+      }
+      Cell cell = cell(type, target);
+      cell.entities.put(id, osh);
+      cell.modified = true;
+      if (current != target) {
+        CellId cellId = CellId.fromLevelId(target);
+        try (PreparedStatement insert = insertIdIndex(TableNames.T_ID_INDEX.toString())) {
+          insert.setInt(1, type.intValue());
+          insert.setLong(2, id);
+          insert.setInt(3, cellId.getZoomLevel());
+          insert.setLong(4, cellId.getId());
+          insert.executeUpdate();
+        }
+        locations.get(type).put(id, target);
+      }
+      updated.merge(type, 1L, Long::sum);
+    }
+
+    private boolean fits(long levelId, OSHDBBoundingBox bbox) {
+      CellId cellId = CellId.fromLevelId(levelId);
+      XYGrid grid = new XYGrid(cellId.getZoomLevel());
+      return grid.getId(bbox.getMinLonLong(), bbox.getMinLatLong()) == cellId.getId()
+          && grid.getId(bbox.getMaxLonLong(), bbox.getMaxLatLong()) == cellId.getId();
+    }
+
+    /**
+     * Returns the finest existing cell up to a zoom level which contains a bounding box, or the
+     * finest such cell if none of them exists yet.
+     */
+    private long findCell(OSMType type, OSHDBBoundingBox bbox, int fromZoom)
+        throws SQLException {
+      long finest = -1;
+      for (int zoom = fromZoom; zoom >= 0; zoom--) {
+        XYGrid grid = new XYGrid(zoom);
+        long id = grid.getId(bbox.getMinLonLong(), bbox.getMinLatLong());
+        if (id < 0 || id != grid.getId(bbox.getMaxLonLong(), bbox.getMaxLatLong())) {
+          continue;
+        }
+        long levelId = CellId.getLevelId(zoom, id);
+        if (finest < 0) {
+          finest = levelId;
+        }
+        if (exists(type, levelId)) {
+          return levelId;
+        }
+      }
+      return finest >= 0 ? finest : CellId.getLevelId(0, 0);
+    }
+
+    private void writeCells() throws SQLException, IOException {
+      for (OSMType type : OSMType.values()) {
+        final String table = gridTable(type);
+        final boolean withKeys = gridColumns.get(type).contains("keys");
+        final boolean withModifications = gridColumns.get(type).contains("first_modification")
+            && gridColumns.get(type).contains("last_modification");
+        try (PreparedStatement merge = conn.prepareStatement("merge into " + table
+            + " (level,id,data" + (withKeys ? ",keys" : "")
+            + (withModifications ? ",first_modification,last_modification" : "")
+            + ") key(level,id) values (?,?,?" + (withKeys ? ",?" : "")
+            + (withModifications ? ",?,?" : "") + ")");
+            PreparedStatement delete = conn.prepareStatement(
+                "delete from " + table + " where level = ? and id = ?");
+            PreparedStatement deleteTags = withTagIndex ? conn.prepareStatement("delete from "
+                + TableNames.T_TAG_INDEX + " where type = ? and level = ? and id = ?") : null;
+            PreparedStatement insertTags = withTagIndex ? conn.prepareStatement("insert into "
+                + TableNames.T_TAG_INDEX + " (type,key,value,level,id) values (?,?,?,?,?)")
+                : null) {
+          for (Cell cell : cells.get(type).values()) {
+            if (!cell.modified) {
+              continue;
+            }
+            final int level = cell.cellId.getZoomLevel();
+            final long id = cell.cellId.getId();
+            if (withTagIndex) {
+              deleteTags.setInt(1, type.intValue());
+              deleteTags.setInt(2, level);
+              deleteTags.setLong(3, id);
+              deleteTags.executeUpdate();
+            }
+            if (cell.entities.isEmpty()) {
+              delete.setInt(1, level);
+              delete.setLong(2, id);
+              delete.executeUpdate();
+              continue;
+            }
+            GridOSHEntity grid = build(cell);
+            int parameter = 1;
+            merge.setInt(parameter++, level);
+            merge.setLong(parameter++, id);
+            merge.setBytes(parameter++, serialize(grid));
+            if (withKeys) {
+              merge.setObject(parameter++, OSHDB2H2Handler.tagKeysArray(grid));
+            }
+            if (withModifications) {
+              ModificationTimestamps modificationTimestamps = grid.getModificationTimestamps();
+              merge.setObject(parameter++, modificationTimestamps == null
+                  ? null : modificationTimestamps.getFirst());
+              merge.setObject(parameter, modificationTimestamps == null
+                  ? null : modificationTimestamps.getLast());
+            }
+            merge.executeUpdate();
+            if (withTagIndex) {
+              addBatch(insertTags, OSHDB2H2Handler.tagIndexRows(type, grid));
+              insertTags.executeBatch();
+            }
+          }
+        }
+      }
+    }
+
+    private GridOSHEntity build(Cell cell) throws IOException {
+      final int level = cell.cellId.getZoomLevel();
+      final long id = cell.cellId.getId();
+      OSHDBBoundingBox bbox = new XYGrid(level).getCellDimensions(id);
+      long longitude = bbox.getMinLonLong() + (bbox.getMaxLonLong() - bbox.getMinLonLong()) / 2;
+      long latitude = bbox.getMinLatLong() + (bbox.getMaxLatLong() - bbox.getMinLatLong()) / 2;
+      long baseId = cell.entities.firstLongKey();
+      switch (cell.type) {
+        case NODE:
+          return GridOSHNodes.rebase(id, level, baseId, 0, longitude, latitude,
+              cell.entities.values().stream().map(OSHNode.class::cast)
+                  .collect(Collectors.toList()));
+        case WAY:
+          return GridOSHWays.compact(id, level, baseId, 0, longitude, latitude,
+              cell.entities.values().stream().map(OSHWay.class::cast)
+                  .collect(Collectors.toList()));
+        case RELATION:
+          return GridOSHRelations.compact(id, level, baseId, 0, longitude, latitude,
+              cell.entities.values().stream().map(OSHRelation.class::cast)
+                  .collect(Collectors.toList()));
+        default:
+          throw new IllegalArgumentException("unknown type " + cell.type);
+      }
+    }
+
+    /**
+     * Records the change file in the update log and extends the time range of the metadata.
+     */
+    void log(Path file, String checksum) throws SQLException {
+      try (PreparedStatement insert = conn.prepareStatement("insert into "
+          + TableNames.T_UPDATE_LOG + " (file,sha256,applied,data_timestamp,nodes,ways,relations)"
+          + " values (?,?,?,?,?,?,?)")) {
+        insert.setString(1, file.toString());
+        insert.setString(2, checksum);
+        insert.setTimestamp(3, Timestamp.from(Instant.now()));
+        insert.setTimestamp(4, lastTimestamp == Long.MIN_VALUE
+            ? null : Timestamp.from(Instant.ofEpochSecond(lastTimestamp)));
+        insert.setLong(5, updated.get(OSMType.NODE));
+        insert.setLong(6, updated.get(OSMType.WAY));
+        insert.setLong(7, updated.get(OSMType.RELATION));
+        insert.executeUpdate();
+      }
+
+      String timerange = getMetadata("data.timerange");
+      if (timerange != null && lastTimestamp != Long.MIN_VALUE) {
+        String[] split = timerange.split(",", 2);
+        LocalDateTime end = LocalDateTime.ofEpochSecond(lastTimestamp, 0, ZoneOffset.UTC);
+        if (split.length == 2 && LocalDateTime.parse(split[1]).isBefore(end)) {
+          try (PreparedStatement update = conn.prepareStatement("update "
+              + TableNames.T_METADATA + " set value = ? where key = ?")) {
+            update.setString(1, split[0] + "," + end.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            update.setString(2, "data.timerange");
+            update.executeUpdate();
+          }
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException, SQLException {
+    UpdateArgs config = new UpdateArgs();
+    JCommander jcom = JCommander.newBuilder().addObject(config).build();
+
+    try {
+      jcom.parse(args);
+    } catch (ParameterException e) {
+      System.out.println("");
+      System.out.println(e.getLocalizedMessage());
+      System.out.println("");
+      jcom.usage();
+      return;
+    }
+    if (config.help) {
+      jcom.usage();
+      return;
+    }
+    for (Path change : config.changes) {
+      if (!Files.isRegularFile(change)) {
+        System.out.println("change file " + change + " does not exist!");
+        return;
+      }
+    }
+
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    try (Connection conn = DriverManager.getConnection("jdbc:h2:" + config.h2db, "sa", "")) {
+      OSHDBUpdater updater = new OSHDBUpdater(conn, config.onlyNodesWithTags);
+      for (Path change : config.changes) {
+        updater.apply(change);
+      }
+    }
+    System.out.println("update done in " + stopwatch);
+  }
+}
@@ -0,0 +1,178 @@
+package org.heigit.ohsome.oshdb.tool.importer.update;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.heigit.ohsome.oshdb.OSHDB;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+
+/**
+ * Reads the entity versions of an <a href="https://wiki.openstreetmap.org/wiki/OsmChange">osmChange</a>
+ * file ({@code .osc}, optionally gzip compressed).
+ *
+ * <p>Tags and roles are kept as strings, they are translated to the ids of the keytables by
+ * {@link KeyTables}.</p>
+ */
+class OscReader {
+
+  /**
+   * A member of a relation version.
+   */
+  static class Member {
+    final OSMType type;
+    final long id;
+    final String role;
+
+    Member(OSMType type, long id, String role) {
+      this.type = type;
+      this.id = id;
+      this.role = role;
+    }
+  }
+
+  /**
+   * An entity version of a change file. Deleted versions are not visible.
+   */
+  static class Version {
+    final OSMType type;
+    final long id;
+    final int version;
+    final boolean visible;
+    final long timestamp;
+    final long changeset;
+    final int userId;
+    long longitude;
+    long latitude;
+    final List<String> tags = new ArrayList<>();
+    final LongArrayList refs = new LongArrayList();
+    final List<Member> members = new ArrayList<>();
+
+    Version(OSMType type, long id, int version, boolean visible, long timestamp, long changeset,
+        int userId) {
+      this.type = type;
+      this.id = id;
+      this.version = version;
+      this.visible = visible;
+      this.timestamp = timestamp;
+      this.changeset = changeset;
+      this.userId = userId;
+    }
+  }
+
+  private OscReader() {}
+
+  /**
+   * Reads all entity versions of a change file in the order of the file.
+   */
+  static List<Version> read(Path file) throws IOException {
+    try (InputStream in = open(file)) {
+      return read(in);
+    }
+  }
+
+  private static InputStream open(Path file) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+    if (file.getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in, 1 << 16);
+    }
+    return in;
+  }
+
+  static List<Version> read(InputStream in) throws IOException {
+    List<Version> versions = new ArrayList<>();
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader xml = factory.createXMLStreamReader(in);
+      boolean delete = false;
+      Version current = null;
+      while (xml.hasNext()) {
+        int event = xml.next();
+        if (event == XMLStreamConstants.END_ELEMENT) {
+          if ("delete".equals(xml.getLocalName())) {
+            delete = false;
+          }
+          continue;
+        }
+        if (event != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        switch (xml.getLocalName()) {
+          case "delete":
+            delete = true;
+            break;
+          case "node":
+            current = version(xml, OSMType.NODE, delete);
+            current.longitude = coordinate(xml.getAttributeValue(null, "lon"));
+            current.latitude = coordinate(xml.getAttributeValue(null, "lat"));
+            versions.add(current);
+            break;
+          case "way":
+            current = version(xml, OSMType.WAY, delete);
+            versions.add(current);
+            break;
+          case "relation":
+            current = version(xml, OSMType.RELATION, delete);
+            versions.add(current);
+            break;
+          case "tag":
+            if (current != null) {
+              current.tags.add(xml.getAttributeValue(null, "k"));
+              current.tags.add(xml.getAttributeValue(null, "v"));
+            }
+            break;
+          case "nd":
+            if (current != null) {
+              current.refs.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+            }
+            break;
+          case "member":
+            if (current != null) {
+              current.members.add(new Member(
+                  OSMType.valueOf(xml.getAttributeValue(null, "type").toUpperCase()),
+                  Long.parseLong(xml.getAttributeValue(null, "ref")),
+                  xml.getAttributeValue(null, "role")));
+            }
+            break;
+          default:
+            break;
+        }
+      }
+      xml.close();
+    } catch (XMLStreamException | IllegalArgumentException | NullPointerException e) {
+      throw new IOException("invalid osmChange file", e);
+    }
+    return versions;
+  }
+
+  private static Version version(XMLStreamReader xml, OSMType type, boolean delete) {
+    String uid = xml.getAttributeValue(null, "uid");
+    String changeset = xml.getAttributeValue(null, "changeset");
+    return new Version(type,
+        Long.parseLong(xml.getAttributeValue(null, "id")),
+        Integer.parseInt(xml.getAttributeValue(null, "version")),
+        !delete && !"false".equals(xml.getAttributeValue(null, "visible")),
+        Instant.parse(xml.getAttributeValue(null, "timestamp")).getEpochSecond(),
+        changeset == null ? 0 : Long.parseLong(changeset),
+        uid == null ? 0 : Integer.parseInt(uid));
+  }
+
+  private static long coordinate(String value) {
+    if (value == null) {
+      // deleted nodes don't need to have a location
+      return 0;
+    }
+    return Math.round(Double.parseDouble(value) * OSHDB.GEOM_PRECISION_TO_LONG);
+  }
+}
@@ -0,0 +1,20 @@
+package org.heigit.ohsome.oshdb.tool.importer.update.cli;
+
+import com.beust.jcommander.Parameter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UpdateArgs {
+  @Parameter(names = {"--oshdb"}, description = "path of the h2 oshdb to update (without .mv.db)", required = true, order = 1)
+  public Path h2db;
+
+  @Parameter(names = {"--nodesWithTagsOnly"}, description = "only nodes with tags in the nodes grid (as when loading the oshdb)")
+  public boolean onlyNodesWithTags = true;
+
+  @Parameter(description = "osmChange files (.osc or .osc.gz), applied in the given order", required = true)
+  public List<Path> changes = new ArrayList<>();
+
+  @Parameter(names = {"-help", "--help", "-h", "--h"}, description = "prints this help", help = true, order = 99)
+  public boolean help = false;
+}
@@ -0,0 +1,68 @@
+package org.heigit.ohsome.oshdb.tool.importer.util;
+
+import it.unimi.dsi.fastutil.ints.IntComparator;
+
+/**
+ * Tournament tree of losers for k-way merges.
+ *
+ * <p>The tree holds the indexes of the {@code size} sources to merge, and the comparator compares
+ * the current heads of two sources by their index (exhausted sources must compare greater than all
+ * others). After the head of the {@link #winner()} changed, {@link #replay()} finds the new winner
+ * with a single comparison per level, i.e. {@code log2(size)} comparisons instead of the about
+ * twice as many of a binary heap.</p>
+ */
+public class LoserTree {
+  private final int size;
+  private final IntComparator comparator;
+  // tree[0] is the winner, tree[1..size-1] the losers of the inner nodes; the leaves of the
+  // sources would be at size..2*size-1
+  private final int[] tree;
+
+  public LoserTree(int size, IntComparator comparator) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be >= 1 but is " + size);
+    }
+    this.size = size;
+    this.comparator = comparator;
+    this.tree = new int[size];
+
+    final int[] winners = new int[2 * size];
+    for (int i = 0; i < size; i++) {
+      winners[size + i] = i;
+    }
+    for (int node = size - 1; node > 0; node--) {
+      final int a = winners[2 * node];
+      final int b = winners[2 * node + 1];
+      if (comparator.compare(a, b) <= 0) {
+        winners[node] = a;
+        tree[node] = b;
+      } else {
+        winners[node] = b;
+        tree[node] = a;
+      }
+    }
+    tree[0] = size == 1 ? 0 : winners[1];
+  }
+
+  /**
+   * Index of the source with the smallest head.
+   */
+  public int winner() {
+    return tree[0];
+  }
+
+  /**
+   * Restores the tree after the head of the current winner changed (or it was exhausted).
+   */
+  public void replay() {
+    int winner = tree[0];
+    for (int node = (winner + size) >>> 1; node > 0; node >>>= 1) {
+      final int loser = tree[node];
+      if (comparator.compare(loser, winner) < 0) {
+        tree[node] = winner;
+        winner = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+}
@@ -3,6 +3,7 @@ package org.heigit.ohsome.oshdb.tool.importer.util;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
@@ -11,6 +12,14 @@ import java.util.PriorityQueue;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Merges sorted iterators, combining equal items with a merge function.
+ *
+ * <p>The iterators an item was taken from are only advanced again on the following call, so an
+ * item may still read lazily from its source (e.g. the values of a key in a temp file) until
+ * then. For this reason a {@link LoserTree}, which needs the next head of the winner right away,
+ * is not used here.</p>
+ */
 public class MergeIterator<T> implements Iterator<T> {
   private final PriorityQueue<PeekingIterator<T>> queue;
   private final List<PeekingIterator<T>> peekingIters;
@@ -18,8 +27,10 @@ public class MergeIterator<T> implements Iterator<T> {
   private final Function<List<T>, T> merge;
 
   public static <T> Iterator<T> of(List<Iterator<T>> iters, Comparator<T> comparator, Function<List<T>, T> merge) {
-    List<PeekingIterator<T>> peekingIters = iters.stream().map(itr -> Iterators.peekingIterator(itr))
-        .collect(Collectors.toList());
+    List<PeekingIterator<T>> peekingIters = iters.stream().filter(Iterator::hasNext)
+        .map(itr -> Iterators.peekingIterator(itr)).collect(Collectors.toList());
+    if (peekingIters.isEmpty())
+      return Collections.emptyIterator();
     return new MergeIterator<>(peekingIters, comparator, merge);
   }
 
@@ -3,15 +3,28 @@ package org.heigit.ohsome.oshdb.tool.importer.util;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
+import com.beust.jcommander.validators.PositiveInteger;
+import com.google.common.base.Stopwatch;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.ignite.Ignite;
 import org.apache.ignite.IgniteCache;
 import org.apache.ignite.IgniteCheckedException;
@@ -21,125 +34,318 @@ import org.apache.ignite.cache.CacheMode;
 import org.apache.ignite.configuration.CacheConfiguration;
 import org.apache.ignite.configuration.IgniteConfiguration;
 import org.apache.ignite.internal.IgnitionEx;
-import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
-import org.heigit.ohsome.oshdb.grid.GridOSHRelations;
-import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.tool.importer.cli.validator.DirExistValidator;
+import org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileReader;
 import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.TableNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Loads the grid cells of an OSHDB H2 database or of a directory of cell files (see
+ * {@link org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileWriter}) into Ignite caches.
+ *
+ * <p>Each grid table is split into partitions of about equal numbers of cells (by id ranges per
+ * zoom level for H2, by position for cell files), which are read and deserialized in parallel and
+ * passed on to a single shared {@link IgniteDataStreamer}.</p>
+ */
 public class OSHDB2Ignite {
 
   private static final Logger LOG = LoggerFactory.getLogger(OSHDB2Ignite.class);
 
+  private static final TableNames[] GRID_TABLES =
+      {TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS};
+
+  /**
+   * Receives the serialized cells of a partition.
+   */
+  private interface CellConsumer {
+    void accept(long levelId, byte[] data) throws IOException, ClassNotFoundException;
+  }
+
+  /**
+   * A part of a grid table which is read by a single worker thread.
+   */
+  private interface Partition {
+    void read(CellConsumer consumer) throws Exception;
+  }
+
   /**
    * Load your extracted and transformed OSH-Data into Ignite Caches.
    *
-   * @param igniteXML Path to the Ignite-XML
+   * <p>Starts an Ignite client node with the configuration {@link Config#ignitexml}.</p>
+   *
+   * @param config the source of the grid cells and the loader settings
+   * @throws IgniteCheckedException if the Ignite configuration cannot be loaded
+   * @throws IOException if reading the grid cells or streaming them into Ignite fails
+   */
+  public static void load(Config config) throws IgniteCheckedException, IOException {
+    try (Ignite ignite = startClient(config.ignitexml)) {
+      load(ignite, config);
+    }
+  }
+
+  /**
+   * Load your extracted and transformed OSH-Data into Ignite Caches.
+   *
+   * <p>The grid tables are read with new connections to the database of the given connection,
+   * using the default loader settings of {@link Config}.</p>
+   *
+   * @param igniteXML Path to ignite-config.xml
    * @param oshdb Connection to the OSHDB
-   * @param prefix
-   * @throws org.apache.ignite.IgniteCheckedException
+   * @param prefix cache table prefix
+   * @throws IgniteCheckedException if the Ignite configuration cannot be loaded or the import
+   *         fails
+   * @deprecated use {@link #load(Config)} instead
    */
-  public static void load(File igniteXML, Connection oshdb, String prefix) throws IgniteCheckedException {
+  @Deprecated
+  public static void load(File igniteXML, Connection oshdb, String prefix)
+      throws IgniteCheckedException {
+    Config config = new Config();
+    config.ignitexml = igniteXML;
+    config.prefix = prefix;
+    try (Ignite ignite = startClient(igniteXML)) {
+      load(ignite, config, oshdb.getMetaData().getURL());
+    } catch (SQLException | IOException e) {
+      throw new IgniteCheckedException("Could not load the OSHDB into Ignite", e);
+    }
+  }
+
+  private static Ignite startClient(File igniteXML) throws IgniteCheckedException {
     Ignition.setClientMode(true);
     IgniteConfiguration cfg = IgnitionEx.loadConfiguration(igniteXML.toString()).get1();
     cfg.setIgniteInstanceName("IgniteImportClientInstance");
-    try (Ignite ignite = Ignition.start(cfg)) {
-      ignite.cluster().active(true);
+    return Ignition.start(cfg);
+  }
 
-      try (Statement stmt = oshdb.createStatement()) {
+  /**
+   * Load your extracted and transformed OSH-Data into Ignite Caches, using an already started
+   * Ignite node.
+   *
+   * @param ignite the Ignite node to load the data with
+   * @param config the source of the grid cells and the loader settings
+   * @throws IOException if reading the grid cells or streaming them into Ignite fails
+   */
+  public static void load(Ignite ignite, Config config) throws IOException {
+    load(ignite, config, config.oshdb == null ? null : "jdbc:h2:" + config.oshdb);
+  }
 
-        OSHDB2Ignite.<GridOSHNodes>doGridImport(ignite, stmt, TableNames.T_NODES, prefix);
-        OSHDB2Ignite.<GridOSHWays>doGridImport(ignite, stmt, TableNames.T_WAYS, prefix);
-        OSHDB2Ignite.<GridOSHRelations>doGridImport(ignite, stmt, TableNames.T_RELATIONS, prefix);
+  private static void load(Ignite ignite, Config config, String url) throws IOException {
+    if ((url == null) == (config.cells == null)) {
+      throw new IllegalArgumentException("exactly one of -db and --cells is required");
+    }
+    ignite.cluster().active(true);
 
-      } catch (SQLException ex) {
-        LOG.error("", ex);
+    boolean persistent = false;
+    for (TableNames table : GRID_TABLES) {
+      List<Partition> partitions;
+      CellFileReader reader = null;
+      try {
+        if (url != null) {
+          partitions = h2Partitions(url, table, config.threads * 4);
+        } else {
+          reader = new CellFileReader(config.cells, table.toString());
+          partitions = cellFilePartitions(reader, config.threads * 4);
+        }
+        persistent |= doGridImport(ignite, table, partitions, config);
+      } catch (SQLException e) {
+        throw new IOException("Could not read grid table " + table, e);
+      } finally {
+        if (reader != null) {
+          reader.close();
+        }
       }
+    }
 
+    if (persistent) {
       //deactive  cluster after import, so that all caches get persist
       ignite.cluster().active(false);
       ignite.cluster().active(true);
     }
   }
 
-  private static <T> void doGridImport(Ignite ignite, Statement stmt, TableNames cacheName, String prefix) {
-    final String cacheWithPrefix = cacheName.toString(prefix);
+  /**
+   * Splits the id range of every zoom level of a grid table into partitions of about
+   * {@code total / count} cells.
+   */
+  private static List<Partition> h2Partitions(String url, TableNames table, int count)
+      throws SQLException {
+    final String tableName = table.toString();
+    List<long[]> levels = new ArrayList<>();
+    long total = 0;
+    try (Connection conn = DriverManager.getConnection(url, "sa", "");
+        Statement stmt = conn.createStatement();
+        ResultSet rst = stmt.executeQuery(
+            "select level, min(id), max(id), count(*) from " + tableName + " group by level")) {
+      while (rst.next()) {
+        levels.add(new long[] {rst.getInt(1), rst.getLong(2), rst.getLong(3), rst.getLong(4)});
+        total += rst.getLong(4);
+      }
+    }
+
+    final long target = Math.max(1, (total + count - 1) / count);
+    List<Partition> partitions = new ArrayList<>();
+    for (long[] level : levels) {
+      final int zoom = (int) level[0];
+      final long minId = level[1];
+      final long maxId = level[2];
+      final long chunks = Math.max(1, (level[3] + target - 1) / target);
+      final long width = (maxId - minId) / chunks + 1;
+      for (long from = minId; from <= maxId; from += width) {
+        final long lower = from;
+        final long upper = Math.min(maxId, from + width - 1);
+        partitions.add(consumer -> {
+          try (Connection conn = DriverManager.getConnection(url, "sa", "");
+              PreparedStatement pstmt = conn.prepareStatement("select id, data from " + tableName
+                  + " where level = ? and id between ? and ?")) {
+            pstmt.setInt(1, zoom);
+            pstmt.setLong(2, lower);
+            pstmt.setLong(3, upper);
+            try (ResultSet rst = pstmt.executeQuery()) {
+              while (rst.next()) {
+                consumer.accept(CellId.getLevelId(zoom, rst.getLong(1)), rst.getBytes(2));
+              }
+            }
+          }
+        });
+      }
+    }
+    return partitions;
+  }
+
+  /**
+   * Splits a cell file into {@code count} ranges of consecutive cells.
+   */
+  private static List<Partition> cellFilePartitions(CellFileReader reader, int count) {
+    final int size = reader.size();
+    final int width = Math.max(1, (size + count - 1) / count);
+    List<Partition> partitions = new ArrayList<>();
+    for (int from = 0; from < size; from += width) {
+      final int lower = from;
+      final int upper = Math.min(size, from + width);
+      partitions.add(consumer -> {
+        for (int i = lower; i < upper; i++) {
+          consumer.accept(reader.getLevelId(i), reader.getData(i));
+        }
+      });
+    }
+    return partitions;
+  }
+
+  /**
+   * Streams the cells of all partitions into a newly created cache.
+   *
+   * @return whether the cache is persistent (i.e. its write-ahead log had to be disabled)
+   */
+  private static boolean doGridImport(Ignite ignite, TableNames cacheName,
+      List<Partition> partitions, Config config) throws IOException {
+    final String cacheWithPrefix = cacheName.toString(config.prefix);
 
     ignite.destroyCache(cacheWithPrefix);
 
-    CacheConfiguration<Long, T> cacheCfg = new CacheConfiguration<>(cacheWithPrefix);
+    CacheConfiguration<Long, GridOSHEntity> cacheCfg = new CacheConfiguration<>(cacheWithPrefix);
     cacheCfg.setBackups(0);
     cacheCfg.setCacheMode(CacheMode.PARTITIONED);
 
-    IgniteCache<Long, T> cache = ignite.getOrCreateCache(cacheCfg);
+    IgniteCache<Long, GridOSHEntity> cache = ignite.getOrCreateCache(cacheCfg);
     boolean pers = false;
     if (ignite.cluster().isWalEnabled(cacheWithPrefix)) {
       ignite.cluster().disableWal(cacheWithPrefix);
       pers = true;
     }
 
-    try (IgniteDataStreamer<Long, T> streamer = ignite.dataStreamer(cache.getName())) {
+    final LongAdder cells = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    final Runnable progress = () -> {
+      double seconds = Math.max(stopwatch.elapsed(TimeUnit.MILLISECONDS), 1) / 1000.0;
+      LOG.info("{}: {} cells in {} ({} cells/s, {} MB/s)", cache.getName(), cells.sum(),
+          stopwatch, String.format("%,.0f", cells.sum() / seconds),
+          String.format("%,.1f", bytes.sum() / 1_048_576.0 / seconds));
+    };
+    ExecutorService workers = Executors.newFixedThreadPool(config.threads);
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ignite-load-progress");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (IgniteDataStreamer<Long, GridOSHEntity> streamer = ignite.dataStreamer(cache.getName())) {
       streamer.allowOverwrite(true);
-      final String tableName;
-      switch (cacheName) {
-        case T_NODES:
-          tableName = TableNames.T_NODES.toString();
-          break;
-        case T_WAYS:
-          tableName = TableNames.T_WAYS.toString();
-          break;
-        case T_RELATIONS:
-          tableName = TableNames.T_RELATIONS.toString();
-          break;
-        default:
-          throw new IllegalArgumentException("unknown cacheName " + cacheName);
+      streamer.perNodeBufferSize(config.perNodeBufferSize);
+      if (config.perNodeParallelOperations > 0) {
+        streamer.perNodeParallelOperations(config.perNodeParallelOperations);
       }
-      try (final ResultSet rst = stmt.executeQuery("select level, id, data from " + tableName)) {
-        int cnt = 0;
-        System.out.println(LocalDateTime.now() + " START loading " + tableName + " into " + cache.getName() + " on Ignite");
-        while (rst.next()) {
-          final int level = rst.getInt(1);
-          final long id = rst.getLong(2);
-          final long levelId = CellId.getLevelId(level, id);
-
-          final ObjectInputStream ois = new ObjectInputStream(rst.getBinaryStream(3));
-//          System.out.printf("level:%d, id:%d -> LevelId:%16s%n", level, id, Long.toHexString(levelId));
-          @SuppressWarnings("unchecked")
-          final T grid = (T) ois.readObject();
-          streamer.addData(levelId, grid);
-          if (++cnt % 10 == 0) {
-            streamer.flush();
-          }
-        }
-        System.out.println(LocalDateTime.now() + " FINISHED loading " + tableName + " into " + cache.getName() + " on Ignite");
-      } catch (IOException | ClassNotFoundException | SQLException e) {
-        LOG.error("Could not import Grid!", e);
+      LOG.info("START loading {} partitions of {} into {} on Ignite", partitions.size(),
+          cacheName, cache.getName());
+      reporter.scheduleAtFixedRate(progress, config.progressInterval, config.progressInterval,
+          TimeUnit.SECONDS);
+
+      // the streamer is thread safe and batches the cells per node on its own
+      List<Future<?>> futures = new ArrayList<>(partitions.size());
+      for (Partition partition : partitions) {
+        futures.add(workers.submit(() -> {
+          partition.read((levelId, data) -> {
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+              streamer.addData(levelId, (GridOSHEntity) ois.readObject());
+            }
+            cells.increment();
+            bytes.add(data.length);
+          });
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
       }
+    } catch (ExecutionException e) {
+      throw new IOException("Could not import Grid!", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Could not import Grid!", e);
     } finally {
+      workers.shutdownNow();
+      reporter.shutdownNow();
       if (pers) {
         ignite.cluster().enableWal(cacheWithPrefix);
       }
     }
+    progress.run();
+    LOG.info("FINISHED loading {} into {} on Ignite", cacheName, cache.getName());
+    return pers;
   }
 
-  private static class Config {
+  public static class Config {
     @Parameter(names = {"-ignite", "-igniteConfig", "-icfg"}, description = "Path ot ignite-config.xml", required = true, order = 1)
     public File ignitexml;
 
     @Parameter(names = {"--prefix"}, description = "cache table prefix", required = false)
     public String prefix;
 
-    @Parameter(names = {"-db", "-oshdb", "-outputDb"}, description = "Path to output H2", required = true, order = 2)
+    @Parameter(names = {"-db", "-oshdb", "-outputDb"}, description = "Path to output H2 (or use --cells)", order = 2)
     public File oshdb;
 
+    @Parameter(names = {"--cells"}, description = "directory of cell files to load instead of an H2 database", validateWith = DirExistValidator.class, order = 3)
+    public Path cells;
+
+    @Parameter(names = {"--threads"}, description = "number of threads reading and deserializing grid cells", validateWith = PositiveInteger.class)
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(names = {"--perNodeBufferSize"}, description = "number of cells the streamer buffers per node before sending them", validateWith = PositiveInteger.class)
+    public int perNodeBufferSize = IgniteDataStreamer.DFLT_PER_NODE_BUFFER_SIZE;
+
+    @Parameter(names = {"--perNodeParallelOperations"}, description = "maximal number of concurrent batches per node (0: ignite's default)", validateWith = PositiveInteger.class)
+    public int perNodeParallelOperations = 0;
+
+    @Parameter(names = {"--progressInterval"}, description = "seconds between progress reports", validateWith = PositiveInteger.class)
+    public int progressInterval = 60;
+
     @Parameter(names = {"-help", "--help", "-h", "--h"}, help = true, order = 0)
     public boolean help = false;
 
   }
 
-  public static void main(String[] args) throws SQLException, IgniteCheckedException {
+  public static void main(String[] args) throws IgniteCheckedException, IOException {
     Config largs = new Config();
     JCommander jcom = JCommander.newBuilder().addObject(largs).build();
     try {
@@ -157,8 +363,11 @@ public class OSHDB2Ignite {
       jcom.usage();
       return;
     }
-    try (Connection con = DriverManager.getConnection("jdbc:h2:" + largs.oshdb, "sa", "")) {
-      OSHDB2Ignite.load(largs.ignitexml, con, largs.prefix);
+    if ((largs.oshdb == null) == (largs.cells == null)) {
+      LOG.error("exactly one of -db and --cells is required");
+      jcom.usage();
+      return;
     }
+    OSHDB2Ignite.load(largs);
   }
 }
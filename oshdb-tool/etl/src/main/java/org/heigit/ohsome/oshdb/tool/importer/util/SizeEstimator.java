@@ -12,6 +12,9 @@ public class SizeEstimator {
 
   private static final long AVL_ENTRY_SIZE = 96;
   private static final long AVL_MAP_SIZE = 128;
+  // key reference and int value of an open addressing map at its maximal load factor of 0.75
+  private static final long HASH_ENTRY_SIZE = 16;
+  private static final long HASH_MAP_SIZE = 96;
   
   static {
     // By default we assume 64 bit JVM
@@ -79,6 +82,14 @@ public class SizeEstimator {
     return estimatedSizeOf(value) + AVL_ENTRY_SIZE;
   }
 
+  public static long estimatedSizeOfHashEntryKey(String key) {
+    return estimatedSizeOf(key) + HASH_ENTRY_SIZE + HASH_MAP_SIZE;
+  }
+
+  public static long estimatedSizeOfHashEntryValue(String value) {
+    return estimatedSizeOf(value) + HASH_ENTRY_SIZE;
+  }
+
   public static long estimateAvailableMemory() {
     System.gc();
     // http://stackoverflow.com/questions/12807797/java-get-available-memory
@@ -194,6 +194,31 @@ public class ZGrid {
     return true;
   }
 
+  /**
+   * Maps a zId to a non negative key whose natural order is {@link #ORDER_DFS_TOP_DOWN}, e.g. for
+   * radix sorting cell ids: the id is moved to the finest zoom level (28) and the zoom is appended
+   * as tie breaker, so that a cell comes right before its children. The invalid cell -1 gets the
+   * key 0.
+   */
+  public static long dfsTopDownKey(long zId) {
+    if (zId == -1) {
+      return 0;
+    }
+    final int zoom = getZoom(zId);
+    return ((getIdWithoutZoom(zId) << DIMENSION * (28 - zoom)) << 5 | zoom) + 1;
+  }
+
+  /**
+   * Inverse of {@link #dfsTopDownKey(long)}.
+   */
+  public static long fromDfsTopDownKey(long key) {
+    if (key == 0) {
+      return -1;
+    }
+    final int zoom = (int) ((key - 1) & 0x1F);
+    return addZoomToId((key - 1) >>> 5 >>> DIMENSION * (28 - zoom), zoom);
+  }
+
   public static final Comparator<Long> ORDER_DFS_TOP_DOWN = (a, b) -> {
     if(a == -1)
       return (b == -1)?0:-1;
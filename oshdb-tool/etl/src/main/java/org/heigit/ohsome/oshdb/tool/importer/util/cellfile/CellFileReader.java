@@ -0,0 +1,134 @@
+package org.heigit.ohsome.oshdb.tool.importer.util.cellfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+
+/**
+ * Reads a cell file written by {@link CellFileWriter}.
+ *
+ * <p>The directory is held in memory, the cells are read from the data file with positional
+ * reads. All methods can be called concurrently.</p>
+ */
+public class CellFileReader implements AutoCloseable {
+  private final FileChannel data;
+  private final long[] levelIds;
+  private final long[] offsets;
+  private final int[] lengths;
+  private final long[] firstModifications;
+  private final long[] lastModifications;
+
+  /**
+   * Opens a cell file.
+   *
+   * @param directory the directory of the cell file
+   * @param name the name of the cell file
+   * @throws IOException if the files cannot be read or are not a cell file
+   */
+  public CellFileReader(Path directory, String name) throws IOException {
+    try (FileChannel dir = FileChannel.open(CellFileWriter.directoryFile(directory, name),
+        StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = dir.map(MapMode.READ_ONLY, 0, dir.size());
+      if (dir.size() < CellFileWriter.HEADER_SIZE || buffer.getInt() != CellFileWriter.MAGIC) {
+        throw new IOException("not a cell file directory: " + name);
+      }
+      int version = buffer.getInt();
+      if (version != CellFileWriter.VERSION) {
+        throw new IOException("unsupported cell file version " + version + ": " + name);
+      }
+      int size = Math.toIntExact(buffer.getLong());
+      if (buffer.remaining() != (long) size * CellFileWriter.ENTRY_SIZE) {
+        throw new IOException("truncated cell file directory: " + name);
+      }
+      levelIds = new long[size];
+      offsets = new long[size];
+      lengths = new int[size];
+      firstModifications = new long[size];
+      lastModifications = new long[size];
+      for (int i = 0; i < size; i++) {
+        levelIds[i] = buffer.getLong();
+        offsets[i] = buffer.getLong();
+        lengths[i] = buffer.getInt();
+        firstModifications[i] = buffer.getLong();
+        lastModifications[i] = buffer.getLong();
+      }
+    }
+    data = FileChannel.open(CellFileWriter.dataFile(directory, name), StandardOpenOption.READ);
+  }
+
+  /**
+   * Returns the number of cells.
+   */
+  public int size() {
+    return levelIds.length;
+  }
+
+  /**
+   * Returns the level id (see {@link org.heigit.ohsome.oshdb.util.CellId#getLevelId()}) of the
+   * cell at the given position. Cells are sorted by their level ids.
+   */
+  public long getLevelId(int index) {
+    return levelIds[index];
+  }
+
+  /**
+   * Returns the position of the cell with the given level id, or a negative value if there is no
+   * such cell (like {@link Arrays#binarySearch(long[], long)}).
+   */
+  public int indexOf(long levelId) {
+    return Arrays.binarySearch(levelIds, levelId);
+  }
+
+  /**
+   * Returns the first modification timestamp of the cell at the given position, or
+   * {@link CellFileWriter#NO_TIMESTAMP}.
+   */
+  public long getFirstModification(int index) {
+    return firstModifications[index];
+  }
+
+  /**
+   * Returns the last modification timestamp of the cell at the given position, or
+   * {@link CellFileWriter#NO_TIMESTAMP}.
+   */
+  public long getLastModification(int index) {
+    return lastModifications[index];
+  }
+
+  /**
+   * Returns the serialized data of the cell at the given position.
+   */
+  public byte[] getData(int index) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(lengths[index]);
+    long position = offsets[index];
+    while (buffer.hasRemaining()) {
+      int read = data.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("truncated cell file data");
+      }
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Returns the deserialized cell at the given position.
+   */
+  public GridOSHEntity getCell(int index) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(getData(index)))) {
+      return (GridOSHEntity) in.readObject();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    data.close();
+  }
+}
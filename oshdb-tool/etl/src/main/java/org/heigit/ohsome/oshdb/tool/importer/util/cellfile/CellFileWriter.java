@@ -0,0 +1,139 @@
+package org.heigit.ohsome.oshdb.tool.importer.util.cellfile;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.heigit.ohsome.oshdb.util.CellId;
+
+/**
+ * Writes serialized grid cells of one type into an append-only data file and a directory file
+ * sorted by the cells' level ids.
+ *
+ * <p>A cell file consists of two files:</p>
+ * <ul>
+ * <li>{@code <name>.data}: the serialized cells (in the same format as in the H2 grid tables),
+ * concatenated in the order in which they have been appended</li>
+ * <li>{@code <name>.dir}: a header ({@link #MAGIC}, {@link #VERSION} and the number of cells)
+ * followed by one fixed-size entry per cell, sorted by level id: the cell's level id, the offset
+ * and length of its data, and its first and last modification timestamps (or
+ * {@link #NO_TIMESTAMP})</li>
+ * </ul>
+ *
+ * <p>The directory is kept in memory and written when the writer is closed.</p>
+ */
+public class CellFileWriter implements AutoCloseable {
+  public static final int MAGIC = 0x4f534843;
+  public static final int VERSION = 1;
+  public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+  static final int HEADER_SIZE = 16;
+  static final int ENTRY_SIZE = 36;
+
+  private final Path directory;
+  private final String name;
+  private final OutputStream data;
+
+  private final LongArrayList levelIds = new LongArrayList();
+  private final LongArrayList offsets = new LongArrayList();
+  private final IntArrayList lengths = new IntArrayList();
+  private final LongArrayList firstModifications = new LongArrayList();
+  private final LongArrayList lastModifications = new LongArrayList();
+  private long offset = 0;
+
+  /**
+   * Creates a new cell file, replacing any existing one.
+   *
+   * @param directory the directory of the cell file
+   * @param name the name of the cell file, e.g. the name of the corresponding grid table
+   */
+  public CellFileWriter(Path directory, String name) throws IOException {
+    this.directory = directory;
+    this.name = name;
+    this.data = new BufferedOutputStream(Files.newOutputStream(dataFile(directory, name)),
+        1 << 20);
+  }
+
+  static Path dataFile(Path directory, String name) {
+    return directory.resolve(name + ".data");
+  }
+
+  static Path directoryFile(Path directory, String name) {
+    return directory.resolve(name + ".dir");
+  }
+
+  /**
+   * Appends a serialized grid cell.
+   *
+   * @param firstModification the first modification timestamp of the cell or
+   *        {@link #NO_TIMESTAMP}
+   * @param lastModification the last modification timestamp of the cell or {@link #NO_TIMESTAMP}
+   */
+  public synchronized void append(int level, long id, byte[] cell, long firstModification,
+      long lastModification) throws IOException {
+    data.write(cell);
+    levelIds.add(CellId.getLevelId(level, id));
+    offsets.add(offset);
+    lengths.add(cell.length);
+    firstModifications.add(firstModification);
+    lastModifications.add(lastModification);
+    offset += cell.length;
+  }
+
+  /**
+   * Returns the number of cells which have been appended so far.
+   */
+  public synchronized int getCells() {
+    return levelIds.size();
+  }
+
+  /**
+   * Returns the size of the data file so far.
+   */
+  public synchronized long getBytes() {
+    return offset;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: %,d cells (%,.1f MB)", name, getCells(), getBytes() / 1_048_576.0);
+  }
+
+  /**
+   * Closes the data file and writes the sorted directory.
+   *
+   * @throws IOException if writing fails or a cell has been appended more than once
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    data.close();
+    int[] order = new int[levelIds.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    IntArrays.quickSort(order, (a, b) -> Long.compare(levelIds.getLong(a), levelIds.getLong(b)));
+    try (DataOutputStream dir = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(directoryFile(directory, name)), 1 << 20))) {
+      dir.writeInt(MAGIC);
+      dir.writeInt(VERSION);
+      dir.writeLong(order.length);
+      for (int i = 0; i < order.length; i++) {
+        int pos = order[i];
+        if (i > 0 && levelIds.getLong(order[i - 1]) == levelIds.getLong(pos)) {
+          throw new IOException("duplicate cell " + CellId.fromLevelId(levelIds.getLong(pos))
+              + " in " + name);
+        }
+        dir.writeLong(levelIds.getLong(pos));
+        dir.writeLong(offsets.getLong(pos));
+        dir.writeInt(lengths.getInt(pos));
+        dir.writeLong(firstModifications.getLong(pos));
+        dir.writeLong(lastModifications.getLong(pos));
+      }
+    }
+  }
+}
@@ -1,7 +1,19 @@
 package org.heigit.ohsome.oshdb.tool.importer.util.long2long;
 
-public interface LongToLongMap {
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.io.Closeable;
+
+/**
+ * A read only mapping of (osm) ids to values, e.g. to the cell ids of the entities. Missing ids
+ * are mapped to -1.
+ */
+public interface LongToLongMap extends Closeable {
   
   public long get(long id);
 
+  /**
+   * Returns the distinct values (except -1) of the given ids.
+   */
+  public LongSortedSet get(LongSortedSet ids);
+
 }
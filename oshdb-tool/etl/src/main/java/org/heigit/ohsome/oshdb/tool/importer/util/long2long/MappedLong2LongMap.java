@@ -0,0 +1,141 @@
+package org.heigit.ohsome.oshdb.tool.importer.util.long2long;
+
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.page.Page;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.page.PageLoader;
+
+/**
+ * A {@link LongToLongMap} backed by a memory-mapped dense array of values indexed by id.
+ *
+ * <p>The array is built once from the pages written by a {@link SortedLong2LongMap.Sink} into the
+ * file {@code <path>.dense} next to them. It is mapped read only, so lookups don't need a cache or
+ * locks: any number of threads can read concurrently, and the operating system keeps the
+ * frequently used parts in its page cache instead of the heap. The file takes 8 bytes per id up to
+ * the largest id (missing pages are left as holes of a sparse file), e.g. about 90GB for the
+ * nodes of a full history planet file.</p>
+ */
+public class MappedLong2LongMap implements LongToLongMap {
+  // 2^27 values, i.e. 1GB per mapped segment
+  private static final int SEGMENT_POWER = 27;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_POWER) - 1;
+
+  private final MappedByteBuffer[] segments;
+  private final long size;
+
+  public MappedLong2LongMap(Path pathWithoutSuffix) throws IOException {
+    this(pathWithoutSuffix, (in, size) -> in);
+  }
+
+  public MappedLong2LongMap(Path pathWithoutSuffix,
+      BiFunction<byte[], Integer, byte[]> decompression) throws IOException {
+    final Path pages = Paths.get(pathWithoutSuffix.toString() + ".map");
+    final Path dense = Paths.get(pathWithoutSuffix.toString() + ".dense");
+    if (!Files.exists(dense)
+        || Files.getLastModifiedTime(dense).compareTo(Files.getLastModifiedTime(pages)) < 0) {
+      build(pathWithoutSuffix, decompression, dense);
+    }
+
+    try (FileChannel channel = FileChannel.open(dense, StandardOpenOption.READ)) {
+      final long bytes = channel.size();
+      this.size = bytes / 8;
+      this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_POWER)];
+      for (int i = 0; i < segments.length; i++) {
+        final long position = (long) i << (SEGMENT_POWER + 3);
+        final long length = Math.min(bytes - position, 1L << (SEGMENT_POWER + 3));
+        segments[i] = channel.map(MapMode.READ_ONLY, position, length);
+        segments[i].order(ByteOrder.nativeOrder());
+      }
+    }
+  }
+
+  /**
+   * Writes the values of all pages to a dense array, stored as {@code value + 1} so that the
+   * (zero) holes of the file are missing ids.
+   */
+  private static void build(Path pathWithoutSuffix,
+      BiFunction<byte[], Integer, byte[]> decompression, Path dense) throws IOException {
+    final Path tmp = Paths.get(dense.toString() + ".tmp");
+    try (RandomAccessFile rafPages = new RandomAccessFile(pathWithoutSuffix.toString() + ".map", "r");
+        FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      final PageLoader pageLoader =
+          new PageLoader(pathWithoutSuffix.toString() + ".idx", rafPages, decompression);
+      final int pageSize = 1 << pageLoader.getPageSizePower();
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(pageSize * 8).order(ByteOrder.nativeOrder());
+      for (int pageNumber : pageLoader.getPageNumbers()) {
+        final Page page = load(pageLoader, pageNumber);
+        buffer.clear();
+        for (int offset = 0; offset < pageSize; offset++) {
+          buffer.putLong(page.get(offset) + 1);
+        }
+        buffer.flip();
+        long position = (long) pageNumber * pageSize * 8;
+        while (buffer.hasRemaining()) {
+          position += out.write(buffer, position);
+        }
+      }
+    }
+    Files.move(tmp, dense, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static Page load(PageLoader pageLoader, int pageNumber) throws IOException {
+    try {
+      return pageLoader.load(pageNumber);
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public long get(long id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("id must greater than 0 but is " + id);
+    }
+    if (id >= size) {
+      return -1;
+    }
+    return segments[(int) (id >>> SEGMENT_POWER)].getLong((int) (id & SEGMENT_MASK) << 3) - 1;
+  }
+
+  @Override
+  public LongSortedSet get(LongSortedSet ids) {
+    if (ids.isEmpty()) {
+      return ids;
+    }
+    final LongSortedSet result = new LongAVLTreeSet();
+    final LongIterator itr = ids.iterator();
+    while (itr.hasNext()) {
+      final long cellId = get(itr.nextLong());
+      if (cellId >= 0) {
+        result.add(cellId);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Drops the references to the mappings, they are unmapped by the garbage collector.
+   */
+  @Override
+  public void close() {
+    Arrays.fill(segments, null);
+  }
+}
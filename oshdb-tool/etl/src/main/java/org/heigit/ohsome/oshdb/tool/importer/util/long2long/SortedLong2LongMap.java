@@ -61,7 +61,7 @@ public class SortedLong2LongMap implements Closeable, LongToLongMap {
         throw new IllegalArgumentException(
             "id must in strict acsending order lastId was " + lastId + " new id is " + id);
 
-      final int pageNumber = (int) (id / pageOffsetMask);
+      final int pageNumber = (int) (id >>> pageSizePower);
       final int pageOffset = (int) (id & pageOffsetMask);
 
       if (pageNumber != lastPageNumber) {
@@ -158,7 +158,7 @@ public class SortedLong2LongMap implements Closeable, LongToLongMap {
       LongIterator itr = ids.iterator();
       while (itr.hasNext()) {
         long id = itr.nextLong();
-        int pageNumber = (int) (id / pageOffsetMask);
+        int pageNumber = (int) (id >>> pageSizePower);
         int pageOffset = (int) (id & pageOffsetMask);
         if (currentPageNumber != pageNumber) {
           page = cache.get(pageNumber);
@@ -183,7 +183,7 @@ public class SortedLong2LongMap implements Closeable, LongToLongMap {
     if (id < 0)
       throw new IllegalArgumentException("id must greater than 0 but is " + id);
 
-    final int pageNumber = (int) (id / pageOffsetMask);
+    final int pageNumber = (int) (id >>> pageSizePower);
     final int pageOffset = (int) (id & pageOffsetMask);
 
     try {
@@ -55,6 +55,15 @@ public class PageLoader extends CacheLoader<Integer, Page> {
     return pageSizePower;
   }
 
+  /**
+   * Returns the numbers of all non empty pages in ascending order.
+   */
+  public int[] getPageNumbers() {
+    int[] pageNumbers = pageIndex.keySet().stream().mapToInt(Integer::intValue).toArray();
+    Arrays.sort(pageNumbers);
+    return pageNumbers;
+  }
+
   @Override
   public Page load(Integer key) throws Exception {
   //  System.out.println("Load Page "+key);
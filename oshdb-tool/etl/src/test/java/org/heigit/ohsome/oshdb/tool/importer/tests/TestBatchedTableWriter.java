@@ -0,0 +1,104 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.heigit.ohsome.oshdb.tool.importer.load.handle.BatchedTableWriter;
+import org.junit.Test;
+
+public class TestBatchedTableWriter {
+
+  @Test
+  public void testConcurrentProducers() throws Exception {
+    String url = "jdbc:h2:mem:batched-writer;DB_CLOSE_DELAY=-1";
+    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("create table cells (id bigint primary key, data blob, keys array)");
+      }
+      BatchedTableWriter writer = new BatchedTableWriter("cells",
+          DriverManager.getConnection(url, "sa", ""),
+          "insert into cells (id, data, keys) values (?, ?, ?)", 7, 1024);
+      // several threads add single rows and lists of rows
+      IntStream.range(0, 10).parallel().forEach(thread -> {
+        for (int i = 0; i < 100; i += 2) {
+          long id = thread * 100L + i;
+          writer.add(id, new byte[] {(byte) i, 1, 2}, null);
+          List<Object[]> rows = new ArrayList<>();
+          rows.add(new Object[] {id + 1, new byte[100], new Integer[] {1, 2}});
+          writer.addAll(rows);
+        }
+      });
+      writer.close();
+      assertEquals(1000, writer.getRows());
+      assertEquals(500 * 3 + 500 * 100, writer.getBytes());
+
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select count(*), sum(id) from cells")) {
+        rs.next();
+        assertEquals(1000, rs.getLong(1));
+        assertEquals(999 * 1000 / 2, rs.getLong(2));
+      }
+      try (Statement stmt = conn.createStatement();
+          ResultSet rs = stmt.executeQuery("select data, keys from cells where id = 102")) {
+        rs.next();
+        assertArrayEquals(new byte[] {2, 1, 2}, rs.getBytes(1));
+        assertEquals(null, rs.getObject(2));
+      }
+    }
+  }
+
+  @Test
+  public void testLargeRows() throws Exception {
+    String url = "jdbc:h2:mem:batched-writer-large;DB_CLOSE_DELAY=-1";
+    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("create table cells (id bigint primary key, data blob)");
+      }
+      final int batchBytes = 1024 * 1024;
+      BatchedTableWriter writer = new BatchedTableWriter("cells",
+          DriverManager.getConnection(url, "sa", ""),
+          "insert into cells (id, data) values (?, ?)", 1000, batchBytes);
+      // the byte budget, not the number of queued rows, limits the data held by the writer
+      AtomicLong maxPending = new AtomicLong();
+      IntStream.range(0, 4).parallel().forEach(thread -> {
+        for (int i = 0; i < 20; i++) {
+          writer.add(thread * 100L + i, new byte[256 * 1024]);
+          maxPending.accumulateAndGet(writer.getPendingBytes(), Math::max);
+        }
+        // a single row larger than a batch
+        writer.add(thread * 100L + 99, new byte[3 * batchBytes]);
+      });
+      writer.close();
+      assertTrue(maxPending.get() <= writer.getMaxPendingBytes());
+      assertTrue(writer.getMaxPendingBytes() <= 2L * batchBytes);
+      assertEquals(0, writer.getPendingBytes());
+      assertEquals(84, writer.getRows());
+      assertEquals(4 * 20 * 256 * 1024 + 4 * 3L * batchBytes, writer.getBytes());
+    }
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testFailure() throws Exception {
+    String url = "jdbc:h2:mem:batched-writer-failure;DB_CLOSE_DELAY=-1";
+    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("create table cells (id bigint primary key)");
+      }
+      BatchedTableWriter writer = new BatchedTableWriter("cells",
+          DriverManager.getConnection(url, "sa", ""), "insert into cells (id) values (?)", 10, 1024);
+      // duplicate primary key
+      writer.add(1L);
+      writer.add(1L);
+      writer.close();
+    }
+  }
+}
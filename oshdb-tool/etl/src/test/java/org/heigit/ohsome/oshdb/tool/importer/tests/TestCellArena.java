@@ -0,0 +1,119 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.heigit.ohsome.oshdb.tool.importer.transform.CellArena;
+import org.heigit.ohsome.oshdb.tool.importer.util.ZGrid;
+import org.junit.Test;
+
+public class TestCellArena {
+
+  private static long randomCell(Random random) {
+    if (random.nextInt(50) == 0) {
+      return -1;
+    }
+    final int zoom = random.nextInt(16);
+    // few distinct cells per zoom, so that parents and children are mixed
+    return ZGrid.addZoomToId(random.nextInt(1 << Math.min(2 * zoom, 6)), zoom);
+  }
+
+  @Test
+  public void testDfsTopDownKey() {
+    Random random = new Random(42);
+    List<Long> cells = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      cells.add(randomCell(random));
+    }
+    cells.add(ZGrid.addZoomToId((1L << 56) - 1, 28));
+    for (long a : cells) {
+      assertEquals(a, ZGrid.fromDfsTopDownKey(ZGrid.dfsTopDownKey(a)));
+      for (int i = 0; i < 20; i++) {
+        long b = cells.get(random.nextInt(cells.size()));
+        assertEquals(a + " " + b, Integer.signum(ZGrid.ORDER_DFS_TOP_DOWN.compare(a, b)),
+            Long.signum(Long.compare(ZGrid.dfsTopDownKey(a), ZGrid.dfsTopDownKey(b))));
+      }
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    Random random = new Random(42);
+    Map<Long, List<byte[]>> expected = new TreeMap<>(ZGrid.ORDER_DFS_TOP_DOWN);
+    Map<Long, Long> lastIds = new HashMap<>();
+    CellArena arena = new CellArena(64L * 1024 * 1024);
+    for (int id = 1; id <= 20_000; id++) {
+      long cellId = randomCell(random);
+      // some records are larger than a chunk
+      byte[] record = new byte[random.nextInt(1000) == 0 ? 100_000 : random.nextInt(100)];
+      random.nextBytes(record);
+      assertEquals(lastIds.getOrDefault(cellId, 0L).longValue(), arena.lastId(cellId));
+      assertTrue(arena.fits(cellId, record.length));
+      arena.add(cellId, id, record);
+      expected.computeIfAbsent(cellId, k -> new ArrayList<>()).add(record);
+      lastIds.put(cellId, (long) id);
+    }
+    assertEquals(20_000, arena.size());
+    assertRecords(expected, write(arena));
+
+    arena.clear();
+    assertTrue(arena.isEmpty());
+    assertEquals(0, arena.lastId(expected.keySet().iterator().next()));
+    Map<Long, List<byte[]>> reused = new LinkedHashMap<>();
+    reused.put(ZGrid.addZoomToId(0, 0), new ArrayList<>());
+    arena.add(ZGrid.addZoomToId(0, 0), 1, new byte[] {1, 2, 3});
+    reused.get(ZGrid.addZoomToId(0, 0)).add(new byte[] {1, 2, 3});
+    assertRecords(reused, write(arena));
+  }
+
+  @Test
+  public void testBudget() {
+    CellArena arena = new CellArena(64 * 1024);
+    byte[] record = new byte[100];
+    // an empty arena accepts even records larger than its budget
+    assertTrue(arena.fits(1, 1_000_000));
+    int count = 0;
+    while (arena.fits(1, record.length)) {
+      arena.add(1, count++, record);
+    }
+    assertTrue(count > 10);
+    assertTrue(arena.memoryUsage() <= 64 * 1024);
+    assertFalse(arena.fits(1, record.length));
+  }
+
+  private static ByteBuffer write(CellArena arena) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long bytes = arena.writeTo(Channels.newChannel(out));
+    assertEquals(out.size(), bytes);
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  private static void assertRecords(Map<Long, List<byte[]>> expected, ByteBuffer data) {
+    for (Map.Entry<Long, List<byte[]>> entry : expected.entrySet()) {
+      assertEquals(entry.getKey().longValue(), data.getLong());
+      List<byte[]> records = entry.getValue();
+      assertEquals(records.size(), data.getInt());
+      int bytes = data.getInt();
+      int start = data.position();
+      for (byte[] record : records) {
+        byte[] actual = new byte[data.getInt()];
+        data.get(actual);
+        assertArrayEquals(record, actual);
+      }
+      assertEquals(bytes, data.position() - start);
+    }
+    assertFalse(data.hasRemaining());
+  }
+}
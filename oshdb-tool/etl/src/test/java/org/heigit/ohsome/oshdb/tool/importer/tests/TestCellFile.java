@@ -0,0 +1,94 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Iterables;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
+import org.heigit.ohsome.oshdb.impl.osh.OSHNodeImpl;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileReader;
+import org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileWriter;
+import org.heigit.ohsome.oshdb.util.CellId;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCellFile {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static GridOSHNodes cell(int level, long id) throws IOException {
+    List<OSHNode> nodes = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      List<OSMNode> versions = new ArrayList<>();
+      versions.add(new OSMNode(123L + 10 * i, 1, new OSHDBTimestamp(123001L + 10 * i), 0L, 123,
+          new int[] {}, 86809727L - 1000000 * i, 494094984L - 1000000 * i));
+      nodes.add(OSHNodeImpl.build(versions));
+    }
+    return GridOSHNodes.rebase(id, level, 100, 100000L, 86000000, 490000000, nodes);
+  }
+
+  private static byte[] serialize(GridOSHNodes cell) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(cell);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    try (CellFileWriter writer = new CellFileWriter(directory, "grid_node")) {
+      // appended out of order: the directory is sorted
+      writer.append(12, 5, serialize(cell(12, 5)), 123001L, 123021L);
+      writer.append(2, 3, serialize(cell(2, 3)), CellFileWriter.NO_TIMESTAMP,
+          CellFileWriter.NO_TIMESTAMP);
+      writer.append(12, 1, new byte[] {1, 2, 3}, 1L, 2L);
+      assertEquals(3, writer.getCells());
+    }
+
+    try (CellFileReader reader = new CellFileReader(directory, "grid_node")) {
+      assertEquals(3, reader.size());
+      assertTrue(reader.getLevelId(0) < reader.getLevelId(1));
+      assertTrue(reader.getLevelId(1) < reader.getLevelId(2));
+
+      int index = reader.indexOf(CellId.getLevelId(12, 5));
+      assertTrue(index >= 0);
+      GridOSHNodes cell = (GridOSHNodes) reader.getCell(index);
+      assertEquals(12, cell.getLevel());
+      assertEquals(5, cell.getId());
+      assertEquals(3, Iterables.size(cell.getEntities()));
+      assertEquals(123001L, reader.getFirstModification(index));
+      assertEquals(123021L, reader.getLastModification(index));
+
+      index = reader.indexOf(CellId.getLevelId(12, 1));
+      assertArrayEquals(new byte[] {1, 2, 3}, reader.getData(index));
+
+      index = reader.indexOf(CellId.getLevelId(2, 3));
+      assertEquals(CellFileWriter.NO_TIMESTAMP, reader.getFirstModification(index));
+      assertEquals(3, reader.getCell(index).getId());
+
+      assertTrue(reader.indexOf(CellId.getLevelId(12, 2)) < 0);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testDuplicateCell() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    try (CellFileWriter writer = new CellFileWriter(directory, "grid_node")) {
+      writer.append(12, 5, new byte[] {1}, 1L, 2L);
+      writer.append(12, 5, new byte[] {2}, 1L, 2L);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.heigit.ohsome.oshdb.tool.importer.extract.collector.KVFCollector;
+import org.heigit.ohsome.oshdb.tool.importer.extract.collector.RoleCollector;
+import org.heigit.ohsome.oshdb.tool.importer.extract.data.KVF;
+import org.heigit.ohsome.oshdb.tool.importer.extract.data.Role;
+import org.heigit.ohsome.oshdb.tool.importer.extract.data.VF;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.TagText;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestFrequencyCollectors {
+  private static final String[] STRINGS = {"highway", "name", "building", "yes", "residential",
+      "Straße", "Ätna", "東京", "a", "b", "", "name:de", "name:en", "Zürich"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static String random(Random random) {
+    return STRINGS[random.nextInt(STRINGS.length)] + random.nextInt(5);
+  }
+
+  @Test
+  public void testKeyValueFrequencies() throws Exception {
+    Random random = new Random(42);
+    File tempDir = folder.newFolder();
+    Map<String, Integer> keys = new TreeMap<>();
+    Map<String, Map<String, Integer>> values = new TreeMap<>();
+    List<KVFCollector> collectors = new ArrayList<>();
+    for (int c = 0; c < 4; c++) {
+      KVFCollector collector = new KVFCollector();
+      collector.setTempDir(tempDir);
+      for (int i = 0; i < 2000; i++) {
+        Set<TagText> tags = new HashSet<>();
+        for (int t = random.nextInt(4); t > 0; t--) {
+          tags.add(new TagText(random(random), random(random)));
+        }
+        for (TagText tag : tags) {
+          keys.merge(tag.key, 1, Integer::sum);
+          values.computeIfAbsent(tag.key, k -> new TreeMap<>()).merge(tag.value, 1, Integer::sum);
+        }
+        collector.addAll(tags);
+        if (random.nextInt(700) == 0) {
+          collector.writeTemp();
+        }
+      }
+      assertTrue(collector.getEstimatedSize() > 0);
+      collectors.add(collector);
+    }
+    KVFCollector merged = collectors.get(0);
+    for (KVFCollector collector : collectors.subList(1, collectors.size())) {
+      merged.merge(collector);
+      assertEquals(0, collector.getEstimatedSize());
+      assertTrue(collector.getSplits().isEmpty());
+    }
+    assertTrue(merged.getSplits().size() > 1);
+
+    Map<String, Integer> actualKeys = new TreeMap<>();
+    Map<String, Map<String, Integer>> actualValues = new TreeMap<>();
+    List<String> keyOrder = new ArrayList<>();
+    for (KVF kvf : merged) {
+      keyOrder.add(kvf.key);
+      actualKeys.put(kvf.key, kvf.freq);
+      List<String> valueOrder = new ArrayList<>();
+      Map<String, Integer> kvfValues = new TreeMap<>();
+      kvf.vfIterator.forEachRemaining((VF vf) -> {
+        valueOrder.add(vf.value);
+        kvfValues.put(vf.value, vf.freq);
+      });
+      assertSorted(valueOrder);
+      actualValues.put(kvf.key, kvfValues);
+    }
+    assertSorted(keyOrder);
+    assertEquals(keys, actualKeys);
+    assertEquals(values, actualValues);
+  }
+
+  @Test
+  public void testRoleFrequencies() throws Exception {
+    Random random = new Random(42);
+    File tempDir = folder.newFolder();
+    Map<String, Integer> expected = new TreeMap<>();
+    RoleCollector merged = new RoleCollector();
+    merged.setTempDir(tempDir);
+    for (int c = 0; c < 3; c++) {
+      RoleCollector collector = new RoleCollector();
+      collector.setTempDir(tempDir);
+      for (int i = 0; i < 500; i++) {
+        Set<String> roles = new HashSet<>();
+        for (int r = random.nextInt(3); r > 0; r--) {
+          roles.add(random(random));
+        }
+        roles.forEach(role -> expected.merge(role, 1, Integer::sum));
+        collector.addAll(roles);
+        if (i == 250) {
+          collector.writeTemp();
+        }
+      }
+      merged.merge(collector);
+    }
+
+    Map<String, Integer> actual = new TreeMap<>();
+    List<String> order = new ArrayList<>();
+    for (Role role : merged) {
+      order.add(role.role);
+      actual.put(role.role, role.freq);
+    }
+    assertSorted(order);
+    assertEquals(expected, actual);
+  }
+
+  private static void assertSorted(List<String> strings) {
+    List<String> sorted = new ArrayList<>(strings);
+    Collections.sort(sorted);
+    assertEquals(sorted, strings);
+    assertEquals(new HashSet<>(strings).size(), strings.size());
+  }
+}
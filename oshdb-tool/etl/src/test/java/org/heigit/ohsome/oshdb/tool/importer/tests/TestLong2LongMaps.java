@@ -0,0 +1,78 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import it.unimi.dsi.fastutil.longs.Long2LongAVLTreeMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongSortedMap;
+import it.unimi.dsi.fastutil.longs.LongAVLTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.nio.file.Path;
+import java.util.Random;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.LongToLongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.MappedLong2LongMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.long2long.SortedLong2LongMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestLong2LongMaps {
+  private static final int PAGE_POWER = 4;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path path;
+  private final Long2LongSortedMap expected = new Long2LongAVLTreeMap();
+
+  @Before
+  public void writeMap() throws Exception {
+    path = folder.getRoot().toPath().resolve("idToCell");
+    Random random = new Random(42);
+    long id = 0;
+    // dense and sparse regions, with gaps of whole pages
+    for (int i = 0; i < 1000; i++) {
+      id += i % 100 < 50 ? 1 : 1 + random.nextInt(40);
+      expected.put(id, random.nextInt(1 << 20));
+    }
+    try (SortedLong2LongMap.Sink sink = new SortedLong2LongMap.Sink(path, PAGE_POWER)) {
+      for (Long2LongMap.Entry entry : expected.long2LongEntrySet()) {
+        sink.put(entry.getLongKey(), entry.getLongValue());
+      }
+    }
+  }
+
+  private void assertMap(LongToLongMap map) {
+    for (long id = 0; id <= expected.lastLongKey() + 100; id++) {
+      assertEquals("id " + id, expected.containsKey(id) ? expected.get(id) : -1, map.get(id));
+    }
+    LongSortedSet ids = new LongAVLTreeSet(new long[] {1, 2, 3, 999_999});
+    ids.addAll(expected.keySet().subSet(500, 700));
+    LongSortedSet cells = new LongAVLTreeSet();
+    for (long id : ids) {
+      if (expected.containsKey(id)) {
+        cells.add(expected.get(id));
+      }
+    }
+    assertEquals(cells, map.get(ids));
+  }
+
+  @Test
+  public void testPaged() throws Exception {
+    try (SortedLong2LongMap map = new SortedLong2LongMap(path, 1024 * 1024)) {
+      assertMap(map);
+    }
+  }
+
+  @Test
+  public void testMapped() throws Exception {
+    try (MappedLong2LongMap map = new MappedLong2LongMap(path)) {
+      assertMap(map);
+    }
+    // the dense file is reused
+    try (MappedLong2LongMap map = new MappedLong2LongMap(path)) {
+      assertMap(map);
+    }
+  }
+}
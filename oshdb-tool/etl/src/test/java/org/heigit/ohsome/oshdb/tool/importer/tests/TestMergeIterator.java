@@ -0,0 +1,120 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.heigit.ohsome.oshdb.tool.importer.util.LoserTree;
+import org.heigit.ohsome.oshdb.tool.importer.util.MergeIterator;
+import org.junit.Test;
+
+public class TestMergeIterator {
+
+  @Test
+  public void testLoserTree() {
+    Random random = new Random(42);
+    for (int size = 1; size <= 9; size++) {
+      final long[] heads = new long[size];
+      final List<Iterator<Long>> sources = new ArrayList<>();
+      final List<Long> expected = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        final List<Long> source = new ArrayList<>();
+        for (int j = random.nextInt(20); j > 0; j--) {
+          source.add((long) random.nextInt(50));
+        }
+        Collections.sort(source);
+        expected.addAll(source);
+        sources.add(source.iterator());
+        heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : Long.MAX_VALUE;
+      }
+      Collections.sort(expected);
+
+      LoserTree tree = new LoserTree(size, (a, b) -> Long.compare(heads[a], heads[b]));
+      List<Long> actual = new ArrayList<>();
+      while (heads[tree.winner()] != Long.MAX_VALUE) {
+        final int winner = tree.winner();
+        actual.add(heads[winner]);
+        heads[winner] = sources.get(winner).hasNext() ? sources.get(winner).next() : Long.MAX_VALUE;
+        tree.replay();
+      }
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    Random random = new Random(42);
+    List<Iterator<Map.Entry<Integer, Integer>>> iters = new ArrayList<>();
+    Map<Integer, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 7; i++) {
+      Map<Integer, Integer> source = new TreeMap<>();
+      for (int j = random.nextInt(100); j > 0; j--) {
+        source.put(random.nextInt(200), 1);
+      }
+      source.keySet().forEach(key -> expected.merge(key, 1, Integer::sum));
+      iters.add(source.entrySet().iterator());
+    }
+    iters.add(Collections.emptyIterator());
+
+    Iterator<Map.Entry<Integer, Integer>> merged = MergeIterator.of(iters,
+        Comparator.comparing(Map.Entry::getKey),
+        list -> Map.entry(list.get(0).getKey(),
+            list.stream().mapToInt(Map.Entry::getValue).sum()));
+    Map<Integer, Integer> actual = new TreeMap<>();
+    int last = -1;
+    while (merged.hasNext()) {
+      Map.Entry<Integer, Integer> entry = merged.next();
+      assertFalse(entry.getKey() <= last);
+      last = entry.getKey();
+      actual.put(entry.getKey(), entry.getValue());
+    }
+    assertEquals(expected, actual);
+    assertFalse(MergeIterator.of(new ArrayList<Iterator<Integer>>(), Integer::compare, list -> 0)
+        .hasNext());
+  }
+
+  @Test
+  public void testSourcesAdvancedLazily() {
+    // items are {key, source, position}, e.g. a key whose values are still read from its source
+    final int[] advanced = new int[3];
+    List<Iterator<int[]>> iters = new ArrayList<>();
+    for (int i = 0; i < advanced.length; i++) {
+      final int source = i;
+      iters.add(new Iterator<int[]>() {
+        @Override
+        public boolean hasNext() {
+          return advanced[source] < 10;
+        }
+
+        @Override
+        public int[] next() {
+          final int position = advanced[source]++;
+          return new int[] {position * (source + 1), source, position};
+        }
+      });
+    }
+    final List<int[]> current = new ArrayList<>();
+    Iterator<int[]> merged = MergeIterator.of(iters, Comparator.comparingInt(item -> item[0]),
+        list -> {
+          current.addAll(list);
+          return list.get(0);
+        });
+    while (merged.hasNext()) {
+      current.clear();
+      int[] item = merged.next();
+      if (current.isEmpty()) {
+        current.add(item);
+      }
+      for (int[] i : current) {
+        assertEquals(i[2] + 1, advanced[i[1]]);
+      }
+    }
+  }
+}
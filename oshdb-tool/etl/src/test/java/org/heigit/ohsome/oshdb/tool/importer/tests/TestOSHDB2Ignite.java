@@ -0,0 +1,151 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.collect.Iterables;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.ignite.Ignite;
+import org.apache.ignite.IgniteCache;
+import org.apache.ignite.Ignition;
+import org.apache.ignite.configuration.IgniteConfiguration;
+import org.apache.ignite.spi.discovery.tcp.TcpDiscoverySpi;
+import org.apache.ignite.spi.discovery.tcp.ipfinder.vm.TcpDiscoveryVmIpFinder;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
+import org.heigit.ohsome.oshdb.impl.osh.OSHNodeImpl;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.tool.importer.util.OSHDB2Ignite;
+import org.heigit.ohsome.oshdb.tool.importer.util.cellfile.CellFileWriter;
+import org.heigit.ohsome.oshdb.util.CellId;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestOSHDB2Ignite {
+  private static final int[][] CELLS = {{2, 0}, {2, 1}, {2, 3}, {12, 5}, {12, 100}, {12, 4000}};
+
+  private static Ignite ignite;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void startIgnite() {
+    int rndPort = 47577 + (int) (Math.random() * 1000);
+    IgniteConfiguration cfg = new IgniteConfiguration();
+    cfg.setIgniteInstanceName("OSHDB2Ignite-Unit-Tests_" + rndPort);
+    cfg.setWorkDirectory("/tmp");
+    cfg.setDiscoverySpi((new TcpDiscoverySpi())
+        .setLocalPort(rndPort)
+        .setLocalPortRange(0)
+        .setIpFinder((new TcpDiscoveryVmIpFinder()).setAddresses(List.of("127.0.0.1:" + rndPort)))
+    );
+    ignite = Ignition.start(cfg);
+  }
+
+  @AfterClass
+  public static void stopIgnite() {
+    ignite.close();
+  }
+
+  private static byte[] cell(int level, long id) throws IOException {
+    List<OSHNode> nodes = new ArrayList<>();
+    List<OSMNode> versions = new ArrayList<>();
+    versions.add(new OSMNode(123L + id, 1, new OSHDBTimestamp(123001L), 0L, 123,
+        new int[] {}, 86809727L, 494094984L));
+    nodes.add(OSHNodeImpl.build(versions));
+    GridOSHNodes grid = GridOSHNodes.rebase(id, level, 100, 100000L, 86000000, 490000000, nodes);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(grid);
+    }
+    return out.toByteArray();
+  }
+
+  private static OSHDB2Ignite.Config config() {
+    OSHDB2Ignite.Config config = new OSHDB2Ignite.Config();
+    config.prefix = "tests";
+    // more partitions than cells per level
+    config.threads = 3;
+    config.perNodeBufferSize = 2;
+    return config;
+  }
+
+  private static void assertLoaded() {
+    IgniteCache<Long, GridOSHEntity> nodes = ignite.cache(TableNames.T_NODES.toString("tests"));
+    assertEquals(CELLS.length, nodes.size());
+    for (int[] cell : CELLS) {
+      GridOSHEntity grid = nodes.get(CellId.getLevelId(cell[0], cell[1]));
+      assertEquals(cell[0], grid.getLevel());
+      assertEquals(cell[1], grid.getId());
+      assertEquals(1, Iterables.size(grid.getEntities()));
+    }
+    assertEquals(0, ignite.cache(TableNames.T_WAYS.toString("tests")).size());
+    assertEquals(0, ignite.cache(TableNames.T_RELATIONS.toString("tests")).size());
+  }
+
+  @Test
+  public void testLoadH2() throws Exception {
+    Path db = folder.getRoot().toPath().resolve("oshdb");
+    try (Connection conn = DriverManager.getConnection("jdbc:h2:" + db, "sa", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        for (TableNames table : new TableNames[] {
+            TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+          stmt.executeUpdate("create table " + table
+              + "(level int, id bigint, data blob, primary key(level,id))");
+        }
+      }
+      try (PreparedStatement insert = conn.prepareStatement(
+          "insert into " + TableNames.T_NODES + " (level,id,data) values (?,?,?)")) {
+        for (int[] cell : CELLS) {
+          insert.setInt(1, cell[0]);
+          insert.setLong(2, cell[1]);
+          insert.setBytes(3, cell(cell[0], cell[1]));
+          insert.executeUpdate();
+        }
+      }
+    }
+
+    OSHDB2Ignite.Config config = config();
+    config.oshdb = db.toFile();
+    OSHDB2Ignite.load(ignite, config);
+    assertLoaded();
+  }
+
+  @Test
+  public void testLoadCellFiles() throws Exception {
+    Path cells = folder.getRoot().toPath();
+    try (CellFileWriter nodes = new CellFileWriter(cells, TableNames.T_NODES.toString());
+        CellFileWriter ways = new CellFileWriter(cells, TableNames.T_WAYS.toString());
+        CellFileWriter relations = new CellFileWriter(cells, TableNames.T_RELATIONS.toString())) {
+      for (int[] cell : CELLS) {
+        nodes.append(cell[0], cell[1], cell(cell[0], cell[1]), CellFileWriter.NO_TIMESTAMP,
+            CellFileWriter.NO_TIMESTAMP);
+      }
+    }
+
+    OSHDB2Ignite.Config config = config();
+    config.cells = cells;
+    OSHDB2Ignite.load(ignite, config);
+    assertLoaded();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingSource() throws Exception {
+    OSHDB2Ignite.load(ignite, config());
+  }
+}
@@ -0,0 +1,273 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osh.OSHNode;
+import org.heigit.ohsome.oshdb.osh.OSHWay;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.tool.importer.update.OSHDBUpdater;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestOSHDBUpdater {
+  private static final String CREATE = "<?xml version='1.0' encoding='UTF-8'?>\n"
+      + "<osmChange version=\"0.6\">\n"
+      + "<create>\n"
+      + "  <node id=\"1\" version=\"1\" timestamp=\"2020-01-01T00:00:00Z\" uid=\"1\""
+      + " changeset=\"1\" lat=\"49.41\" lon=\"8.67\">\n"
+      + "    <tag k=\"amenity\" v=\"bench\"/>\n"
+      + "  </node>\n"
+      + "  <node id=\"2\" version=\"1\" timestamp=\"2020-01-01T00:00:00Z\" uid=\"1\""
+      + " changeset=\"1\" lat=\"49.4101\" lon=\"8.6701\"/>\n"
+      + "  <node id=\"3\" version=\"1\" timestamp=\"2020-01-01T00:00:00Z\" uid=\"1\""
+      + " changeset=\"1\" lat=\"49.4102\" lon=\"8.6702\"/>\n"
+      + "  <way id=\"10\" version=\"1\" timestamp=\"2020-01-01T00:00:00Z\" uid=\"1\""
+      + " changeset=\"1\">\n"
+      + "    <nd ref=\"2\"/><nd ref=\"3\"/>\n"
+      + "    <tag k=\"highway\" v=\"residential\"/>\n"
+      + "  </way>\n"
+      + "  <relation id=\"100\" version=\"1\" timestamp=\"2020-01-01T00:00:00Z\" uid=\"1\""
+      + " changeset=\"1\">\n"
+      + "    <member type=\"way\" ref=\"10\" role=\"outer\"/>\n"
+      + "    <member type=\"node\" ref=\"1\" role=\"\"/>\n"
+      + "    <tag k=\"type\" v=\"multipolygon\"/>\n"
+      + "  </relation>\n"
+      + "</create>\n"
+      + "</osmChange>\n";
+
+  private static final String MODIFY = "<?xml version='1.0' encoding='UTF-8'?>\n"
+      + "<osmChange version=\"0.6\">\n"
+      + "<modify>\n"
+      + "  <node id=\"1\" version=\"2\" timestamp=\"2020-02-01T00:00:00Z\" uid=\"2\""
+      + " changeset=\"2\" lat=\"49.41\" lon=\"8.67\">\n"
+      + "    <tag k=\"amenity\" v=\"cafe\"/>\n"
+      + "    <tag k=\"name\" v=\"Cafe\"/>\n"
+      + "  </node>\n"
+      + "  <node id=\"2\" version=\"2\" timestamp=\"2020-02-01T00:00:00Z\" uid=\"2\""
+      + " changeset=\"2\" lat=\"49.4101\" lon=\"8.8\"/>\n"
+      + "</modify>\n"
+      + "<delete>\n"
+      + "  <node id=\"3\" version=\"2\" timestamp=\"2020-02-01T00:00:00Z\" uid=\"2\""
+      + " changeset=\"2\"/>\n"
+      + "</delete>\n"
+      + "</osmChange>\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Connection conn;
+
+  @Before
+  public void createOshdb() throws Exception {
+    conn = DriverManager.getConnection(
+        "jdbc:h2:" + folder.getRoot().toPath().resolve("oshdb"), "sa", "");
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("create table " + TableNames.T_METADATA
+          + "(key varchar primary key, value varchar)");
+      stmt.executeUpdate("insert into " + TableNames.T_METADATA + " values "
+          + "('oshdb.maxzoom','12'), ('data.timerange','2007-10-07T00:00:00,2019-12-31T00:00:00')");
+      stmt.executeUpdate("create table " + TableNames.E_KEY + "(id int primary key, txt varchar)");
+      stmt.executeUpdate("create table " + TableNames.E_KEYVALUE
+          + "(keyId int, valueId int, txt varchar, primary key (keyId,valueId))");
+      stmt.executeUpdate("create table " + TableNames.E_ROLE + "(id int primary key, txt varchar)");
+      stmt.executeUpdate("insert into " + TableNames.E_KEY + " values (0,'highway'),(1,'amenity')");
+      stmt.executeUpdate("insert into " + TableNames.E_KEYVALUE
+          + " values (0,0,'primary'),(0,1,'residential'),(1,0,'bench')");
+      stmt.executeUpdate("insert into " + TableNames.E_ROLE + " values (0,'outer')");
+      for (TableNames table : new TableNames[] {
+          TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+        stmt.executeUpdate("create table " + table + "(level int, id bigint, data blob,"
+            + " keys array, first_modification bigint, last_modification bigint,"
+            + " primary key(level,id))");
+      }
+      stmt.executeUpdate("create table " + TableNames.T_TAG_INDEX + "(type int, key int,"
+          + " value int, level int, id bigint, primary key(type,key,value,level,id))");
+    }
+  }
+
+  @After
+  public void close() throws Exception {
+    conn.close();
+  }
+
+  private Path osc(String name, String content) throws Exception {
+    Path file = folder.getRoot().toPath().resolve(name);
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private Map<Long, GridOSHEntity> entities(TableNames table) throws Exception {
+    Map<Long, GridOSHEntity> cells = new HashMap<>();
+    try (Statement stmt = conn.createStatement();
+        ResultSet rst = stmt.executeQuery("select data from " + table)) {
+      while (rst.next()) {
+        try (ObjectInputStream in =
+            new ObjectInputStream(new ByteArrayInputStream(rst.getBytes(1)))) {
+          GridOSHEntity grid = (GridOSHEntity) in.readObject();
+          for (OSHEntity osh : grid.getEntities()) {
+            cells.put(osh.getId(), grid);
+          }
+        }
+      }
+    }
+    return cells;
+  }
+
+  private static OSHEntity entity(GridOSHEntity grid, long id) {
+    for (OSHEntity osh : grid.getEntities()) {
+      if (osh.getId() == id) {
+        return osh;
+      }
+    }
+    return null;
+  }
+
+  private int count(String sql) throws Exception {
+    try (Statement stmt = conn.createStatement(); ResultSet rst = stmt.executeQuery(sql)) {
+      rst.next();
+      return rst.getInt(1);
+    }
+  }
+
+  @Test
+  public void testCreateAndModify() throws Exception {
+    OSHDBUpdater updater = new OSHDBUpdater(conn, true);
+    assertTrue(updater.apply(osc("create.osc", CREATE)));
+
+    // only the tagged node is in the nodes grid, all entities in cells of the maximal zoom level
+    Map<Long, GridOSHEntity> nodes = entities(TableNames.T_NODES);
+    assertEquals(1, nodes.size());
+    assertEquals(12, nodes.get(1L).getLevel());
+    Map<Long, GridOSHEntity> ways = entities(TableNames.T_WAYS);
+    assertEquals(12, ways.get(10L).getLevel());
+    OSHWay way = (OSHWay) entity(ways.get(10L), 10);
+    assertEquals(2, way.getNodes().size());
+    assertEquals(1, count("select count(*) from " + TableNames.T_MEMBER_INDEX
+        + " where member_type = 0 and member_id = 2 and type = 1 and osmid = 10"));
+    assertEquals(3, count("select count(*) from " + TableNames.T_ID_INDEX));
+    // the new tag value and the new role were added to the keytables
+    assertEquals(1, count("select count(*) from " + TableNames.E_KEY + " where txt = 'type'"));
+    assertEquals(1, count("select count(*) from " + TableNames.E_ROLE + " where txt = ''"));
+
+    assertTrue(updater.apply(osc("modify.osc", MODIFY)));
+    assertFalse(updater.apply(osc("modify-again.osc", MODIFY)));
+
+    // the way embeds the new versions of its nodes, its bounding box has grown: it has been
+    // moved into a coarser cell
+    ways = entities(TableNames.T_WAYS);
+    assertEquals(1, ways.size());
+    GridOSHEntity wayCell = ways.get(10L);
+    assertTrue(wayCell.getLevel() < 12);
+    way = (OSHWay) entity(wayCell, 10);
+    assertEquals(1, OSHEntities.toList(way.getVersions()).size());
+    for (OSHNode node : way.getNodes()) {
+      List<OSMNode> versions = OSHEntities.toList(node.getVersions());
+      assertEquals(2, versions.size());
+    }
+    assertEquals(88000000L, way.getBoundingBox().getMaxLonLong());
+    try (PreparedStatement select = conn.prepareStatement("select level from "
+        + TableNames.T_ID_INDEX + " where type = ? and osmid = ?")) {
+      select.setInt(1, OSMType.WAY.intValue());
+      select.setLong(2, 10);
+      try (ResultSet rst = select.executeQuery()) {
+        assertTrue(rst.next());
+        assertEquals(wayCell.getLevel(), rst.getInt(1));
+        assertFalse(rst.next());
+      }
+    }
+
+    // the relation embeds the updated way
+    GridOSHEntity relationCell = entities(TableNames.T_RELATIONS).get(100L);
+    assertNotNull(relationCell);
+    OSHWay member = entity(relationCell, 100).getWays().get(0);
+    assertEquals(2, OSHEntities.toList(member.getNodes().get(0).getVersions()).size());
+
+    // the node has a second version with a new tag key and value
+    OSHEntity node = entity(entities(TableNames.T_NODES).get(1L), 1);
+    assertEquals(2, OSHEntities.toList(node.getVersions()).size());
+    assertEquals(1, count("select count(*) from " + TableNames.E_KEY + " where txt = 'name'"));
+    assertEquals(1, count("select count(*) from " + TableNames.E_KEYVALUE
+        + " where keyId = 1 and valueId = 1 and txt = 'cafe'"));
+    assertEquals(1, count("select count(*) from " + TableNames.T_TAG_INDEX
+        + " where type = 0 and key = 1 and value = 1"));
+
+    assertEquals(2, count("select count(*) from " + TableNames.T_UPDATE_LOG));
+    try (Statement stmt = conn.createStatement(); ResultSet rst = stmt.executeQuery(
+        "select value from " + TableNames.T_METADATA + " where key = 'data.timerange'")) {
+      rst.next();
+      assertEquals("2007-10-07T00:00:00,2020-02-01T00:00:00", rst.getString(1));
+    }
+  }
+
+  @Test
+  public void testLegacySchema() throws Exception {
+    // grid tables of older oshdbs only have level, id and data, and there is no tag index
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("drop table " + TableNames.T_TAG_INDEX);
+      for (TableNames table : new TableNames[] {
+          TableNames.T_NODES, TableNames.T_WAYS, TableNames.T_RELATIONS}) {
+        stmt.executeUpdate("drop table " + table);
+        stmt.executeUpdate("create table " + table + "(level int, id bigint, data blob,"
+            + " primary key(level,id))");
+      }
+    }
+    OSHDBUpdater updater = new OSHDBUpdater(conn, true);
+    assertTrue(updater.apply(osc("create.osc", CREATE)));
+    assertTrue(updater.apply(osc("modify.osc", MODIFY)));
+    assertEquals(2, OSHEntities.toList(
+        entity(entities(TableNames.T_NODES).get(1L), 1).getVersions()).size());
+    assertNotNull(entities(TableNames.T_RELATIONS).get(100L));
+
+    // the indexes are built from the existing cells
+    try (Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("drop table " + TableNames.T_ID_INDEX);
+      stmt.executeUpdate("drop table " + TableNames.T_MEMBER_INDEX);
+    }
+    conn.commit();
+    new OSHDBUpdater(conn, true);
+    assertEquals(3, count("select count(*) from " + TableNames.T_ID_INDEX));
+    assertEquals(1, count("select count(*) from " + TableNames.T_MEMBER_INDEX
+        + " where member_type = 0 and member_id = 2 and type = 1 and osmid = 10"));
+  }
+
+  @Test
+  public void testInvalidChangeFile() throws Exception {
+    OSHDBUpdater updater = new OSHDBUpdater(conn, true);
+    try {
+      updater.apply(osc("invalid.osc", CREATE.replace("</osmChange>", "")));
+      fail("an incomplete change file must not be applied");
+    } catch (IOException e) {
+      // expected
+    }
+    assertNull(entities(TableNames.T_NODES).get(1L));
+    assertEquals(0, count("select count(*) from " + TableNames.T_UPDATE_LOG));
+    assertEquals(0, count("select count(*) from " + TableNames.E_KEY + " where txt = 'type'"));
+  }
+}
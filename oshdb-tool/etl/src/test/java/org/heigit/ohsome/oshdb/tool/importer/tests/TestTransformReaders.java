@@ -0,0 +1,171 @@
+package org.heigit.ohsome.oshdb.tool.importer.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.tool.importer.transform.CellArena;
+import org.heigit.ohsome.oshdb.tool.importer.transform.oshdb.TransformOSHNode;
+import org.heigit.ohsome.oshdb.tool.importer.transform.reader.TransformReader;
+import org.heigit.ohsome.oshdb.tool.importer.transform.reader.TransformReaders;
+import org.heigit.ohsome.oshdb.tool.importer.transform.reader.TransfromNodeReaders;
+import org.heigit.ohsome.oshdb.tool.importer.util.ZGrid;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.bytearray.ByteArrayOutputWrapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTransformReaders {
+  private static final int FILES = 2;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static long randomCell(Random random) {
+    if (random.nextInt(100) == 0) {
+      return -1;
+    }
+    final int zoom = random.nextInt(12);
+    return ZGrid.addZoomToId(random.nextInt(1 << Math.min(2 * zoom, 8)), zoom);
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    Random random = new Random(42);
+    Map<Long, Set<Long>> expected = new TreeMap<>(ZGrid.ORDER_DFS_TOP_DOWN);
+    List<CellArena> arenas = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      arenas.add(new CellArena(64L * 1024 * 1024));
+    }
+    ByteArrayOutputWrapper data = new ByteArrayOutputWrapper();
+    ByteArrayOutputWrapper record = new ByteArrayOutputWrapper();
+    ByteArrayOutputWrapper aux = new ByteArrayOutputWrapper();
+    // enough data for several read-ahead buffers per file
+    for (long id = 1; id <= 100_000; id++) {
+      final long cellId = randomCell(random);
+      final CellArena arena = arenas.get(random.nextInt(FILES));
+      final OSHDBBoundingBox bbox = ZGrid.getBoundingBox(cellId);
+      List<OSMNode> versions = new ArrayList<>();
+      for (int v = 1; v <= 3; v++) {
+        versions.add(new OSMNode(id, v, new OSHDBTimestamp(1000L * v + id), id, 1,
+            new int[] {1, v}, bbox.getMinLonLong() + random.nextInt(1000),
+            bbox.getMinLatLong() + random.nextInt(1000)));
+      }
+      TransformOSHNode.build(data, record, aux, versions, arena.lastId(cellId), 0L,
+          bbox.getMinLonLong(), bbox.getMinLatLong());
+      byte[] bytes = new byte[record.length()];
+      System.arraycopy(record.array(), 0, bytes, 0, bytes.length);
+      arena.add(cellId, id, bytes);
+      expected.computeIfAbsent(cellId, k -> new TreeSet<>()).add(id);
+    }
+    List<Path> files = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      Path file = folder.getRoot().toPath().resolve("transform_node_00_0" + i);
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE)) {
+        arenas.get(i).writeTo(channel);
+      }
+      // larger than the read-ahead buffers
+      assertTrue(Files.size(file) > 1024 * 1024);
+      files.add(file);
+    }
+    // an empty file
+    files.add(folder.newFile("transform_node_00_09").toPath());
+
+    Map<Long, Set<Long>> actual = new TreeMap<>(ZGrid.ORDER_DFS_TOP_DOWN);
+    try (TransfromNodeReaders reader = new TransfromNodeReaders(files.toArray(new Path[0]))) {
+      Long last = null;
+      while (reader.hasNext()) {
+        final long cellId = reader.getCellId();
+        if (last != null) {
+          assertTrue(ZGrid.ORDER_DFS_TOP_DOWN.compare(last, cellId) < 0);
+        }
+        last = cellId;
+        Set<TransformOSHNode> nodes = reader.next();
+        for (TransformOSHNode node : nodes) {
+          assertEquals(3, node.stream().count());
+        }
+        actual.put(cellId,
+            nodes.stream().map(TransformOSHNode::getId).collect(Collectors.toSet()));
+      }
+      assertEquals(Long.MIN_VALUE, reader.getCellId());
+      assertFalse(reader.hasNext());
+    }
+    assertEquals(expected, actual);
+  }
+
+  // writes 100 cells with a single node each
+  private static void writeCells(Path file) throws Exception {
+    CellArena arena = new CellArena(1024 * 1024);
+    ByteArrayOutputWrapper record = new ByteArrayOutputWrapper();
+    List<OSMNode> versions = new ArrayList<>();
+    for (long cellId = 0; cellId < 100; cellId++) {
+      final long zId = ZGrid.addZoomToId(cellId, 4);
+      final OSHDBBoundingBox bbox = ZGrid.getBoundingBox(zId);
+      versions.clear();
+      versions.add(new OSMNode(cellId + 1, 1, new OSHDBTimestamp(1L), 1L, 1, new int[0],
+          bbox.getMinLonLong(), bbox.getMinLatLong()));
+      TransformOSHNode.build(new ByteArrayOutputWrapper(), record, new ByteArrayOutputWrapper(),
+          versions, 0, 0L, bbox.getMinLonLong(), bbox.getMinLatLong());
+      byte[] bytes = new byte[record.length()];
+      System.arraycopy(record.array(), 0, bytes, 0, bytes.length);
+      arena.add(zId, cellId + 1, bytes);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      arena.writeTo(channel);
+    }
+  }
+
+  @Test
+  public void testCloseEarly() throws Exception {
+    Path file = folder.newFile("transform_node_00_00").toPath();
+    writeCells(file);
+    // the background merge is blocked on the full prefetch queue
+    try (TransfromNodeReaders reader = new TransfromNodeReaders(file)) {
+      assertTrue(reader.hasNext());
+      assertEquals(ZGrid.addZoomToId(0, 4), reader.getCellId());
+    }
+  }
+
+  private static class FailingReaders extends TransformReaders<TransformOSHNode> {
+    FailingReaders(Path path) throws IOException {
+      super(new Path[] {path}, p -> new TransformReader<TransformOSHNode>(p) {
+        @Override
+        protected TransformOSHNode getInstance(byte[] data, int offset, int length, long baseId,
+            long baseTimestamp, long baseLongitude, long baseLatitude) {
+          throw new OutOfMemoryError("decoding failed");
+        }
+      });
+    }
+  }
+
+  @Test(timeout = 60_000)
+  public void testError() throws Exception {
+    Path file = folder.newFile("transform_node_00_00").toPath();
+    writeCells(file);
+    // errors of the background merge are passed to the consumer instead of blocking it
+    try (FailingReaders reader = new FailingReaders(file)) {
+      reader.hasNext();
+      fail("the error must be rethrown");
+    } catch (OutOfMemoryError e) {
+      assertEquals("decoding failed", e.getMessage());
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package org.heigit.ohsome.oshpbf.parser.pbf;
 
-import crosby.binary.Osmformat;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -13,15 +11,14 @@ import org.heigit.ohsome.oshpbf.parser.rx.Osh;
 public class BlobToOSHIterator implements Iterator<Osh> {
 
   private final PbfBlob blob;
-  private final OsmPrimitveBlockIterator primitiveIterator;
+  private final Iterator<Entity> primitiveIterator;
 
   private Entity nextEntity = null;
   private Osh next = null;;
 
-  public BlobToOSHIterator(PbfBlob blob, Osmformat.PrimitiveBlock block, boolean skipFirst) {
+  public BlobToOSHIterator(PbfBlob blob, Iterator<Entity> entities, boolean skipFirst) {
     this.blob = blob;
-    this.primitiveIterator = new OsmPrimitveBlockIterator(blob.pos, block,
-        EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION));
+    this.primitiveIterator = entities;
     if (!primitiveIterator.hasNext())
       return;
 
@@ -77,7 +74,7 @@ public class BlobToOSHIterator implements Iterator<Osh> {
       final OSMType type = e.getType();
       if (lastType != type) {
         System.err.printf("diffrent types in one blob (id:%d/%d)(type:%s/%s) at blob:%d%n", lastId, id, lastType,
-            type, primitiveIterator.getBlockStartPosition());
+            type, blob.pos);
         break;
       }
       if (id != lastId) {
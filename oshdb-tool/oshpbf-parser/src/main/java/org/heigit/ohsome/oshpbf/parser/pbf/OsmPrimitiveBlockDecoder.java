@@ -0,0 +1,695 @@
+package org.heigit.ohsome.oshpbf.parser.pbf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.CommonEntityData;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Node;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Relation;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.RelationMember;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.TagText;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Way;
+
+/**
+ * Decodes the entities of a serialized <a href=
+ * "https://wiki.openstreetmap.org/wiki/PBF_Format#Encoding_OSM_entities_into_fileblocks">
+ * PrimitiveBlock</a> directly with a {@link CodedInputStream}.
+ *
+ * <p>Produces the same entities as {@link OsmPrimitveBlockIterator}, but without parsing the block
+ * into the generated {@code Osmformat} object tree first: the string table is only indexed and its
+ * strings are decoded on first use, the primitive groups are read one entity at a time (dense
+ * nodes one group at a time) into primitive buffers. The buffers are kept when the decoder is
+ * {@link #reset(long, byte[], int, Set) reset} to the next block, so a decoder should be reused
+ * for all blocks read by a thread. Instances are not thread safe.</p>
+ */
+public class OsmPrimitiveBlockDecoder implements Iterator<Entity> {
+  private static final Set<OSMType> ALL_TYPES =
+      EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
+  private static final TagText[] NO_TAGS = new TagText[0];
+  private static final RelationMember[] NO_MEMBERS = new RelationMember[0];
+
+  // PrimitiveBlock
+  private static final int BLOCK_STRINGTABLE = 1;
+  private static final int BLOCK_PRIMITIVEGROUP = 2;
+  private static final int BLOCK_GRANULARITY = 17;
+  private static final int BLOCK_DATE_GRANULARITY = 18;
+  private static final int BLOCK_LAT_OFFSET = 19;
+  private static final int BLOCK_LON_OFFSET = 20;
+  // PrimitiveGroup
+  private static final int GROUP_NODES = 1;
+  private static final int GROUP_DENSE = 2;
+  private static final int GROUP_WAYS = 3;
+  private static final int GROUP_RELATIONS = 4;
+  // Node, Way, Relation
+  private static final int ENTITY_ID = 1;
+  private static final int ENTITY_KEYS = 2;
+  private static final int ENTITY_VALS = 3;
+  private static final int ENTITY_INFO = 4;
+  private static final int NODE_LAT = 8;
+  private static final int NODE_LON = 9;
+  private static final int WAY_REFS = 8;
+  private static final int RELATION_ROLES_SID = 8;
+  private static final int RELATION_MEMIDS = 9;
+  private static final int RELATION_TYPES = 10;
+  // DenseNodes
+  private static final int DENSE_ID = 1;
+  private static final int DENSE_DENSEINFO = 5;
+  private static final int DENSE_LAT = 8;
+  private static final int DENSE_LON = 9;
+  private static final int DENSE_KEYS_VALS = 10;
+  // Info, DenseInfo
+  private static final int INFO_VERSION = 1;
+  private static final int INFO_TIMESTAMP = 2;
+  private static final int INFO_CHANGESET = 3;
+  private static final int INFO_UID = 4;
+  private static final int INFO_USER_SID = 5;
+  private static final int INFO_VISIBLE = 6;
+
+  private long blockStartPosition;
+  private Set<OSMType> types = ALL_TYPES;
+  private byte[] data;
+
+  private int granularityLocation;
+  private int granularityDate;
+  private long offsetLongitude;
+  private long offsetLatitude;
+
+  // string table: offsets and lengths of the strings within data
+  private final IntBuffer stringOffsets = new IntBuffer();
+  private final IntBuffer stringLengths = new IntBuffer();
+  private String[] strings = new String[0];
+
+  // offsets and lengths of the primitive groups within data
+  private final IntBuffer groupOffsets = new IntBuffer();
+  private final IntBuffer groupLengths = new IntBuffer();
+  private int groupCursor;
+  private CodedInputStream group;
+
+  // dense nodes of the current group
+  private final LongBuffer denseIds = new LongBuffer();
+  private final LongBuffer denseLats = new LongBuffer();
+  private final LongBuffer denseLons = new LongBuffer();
+  private final IntBuffer denseKeysVals = new IntBuffer();
+  private final IntBuffer denseVersions = new IntBuffer();
+  private final LongBuffer denseTimestamps = new LongBuffer();
+  private final LongBuffer denseChangesets = new LongBuffer();
+  private final IntBuffer denseUids = new IntBuffer();
+  private final IntBuffer denseUserSids = new IntBuffer();
+  private final IntBuffer denseVisibles = new IntBuffer();
+  private boolean hasDenseInfo;
+  private int denseCursor;
+  private int denseKeyVal;
+  private long denseId;
+  private int denseVersion;
+  private long denseTimestamp;
+  private long denseChangeset;
+  private int denseUid;
+  private int denseUserSid;
+  private boolean denseVisible;
+  private long denseLon;
+  private long denseLat;
+
+  // the current node, way or relation message
+  private long id;
+  private final IntBuffer keys = new IntBuffer();
+  private final IntBuffer vals = new IntBuffer();
+  private int version;
+  private long timestamp;
+  private long changeset;
+  private int uid;
+  private int userSid;
+  private boolean visible;
+  private long lon;
+  private long lat;
+  private final LongBuffer refs = new LongBuffer();
+  private final IntBuffer roles = new IntBuffer();
+  private final LongBuffer memIds = new LongBuffer();
+  private final IntBuffer memTypes = new IntBuffer();
+
+  private Entity next;
+
+  /**
+   * Creates a decoder without a block, it has to be {@link #reset(long, byte[], int, Set) reset}
+   * to a block before use.
+   */
+  public OsmPrimitiveBlockDecoder() {
+    this.data = new byte[0];
+  }
+
+  public OsmPrimitiveBlockDecoder(long blockStartPosition, byte[] data, Set<OSMType> types)
+      throws InvalidProtocolBufferException {
+    reset(blockStartPosition, data, data.length, types);
+  }
+
+  /**
+   * Starts decoding the next block.
+   *
+   * @param blockStartPosition position of the block in the pbf file, for error messages
+   * @param data the uncompressed PrimitiveBlock
+   * @param length the length of the PrimitiveBlock within {@code data}
+   * @param types the types of entities to decode, groups of other types are skipped
+   */
+  public OsmPrimitiveBlockDecoder reset(long blockStartPosition, byte[] data, int length,
+      Set<OSMType> types) throws InvalidProtocolBufferException {
+    this.blockStartPosition = blockStartPosition;
+    this.data = data;
+    this.types = types;
+    granularityLocation = 100;
+    granularityDate = 1000;
+    offsetLongitude = 0;
+    offsetLatitude = 0;
+    stringOffsets.clear();
+    stringLengths.clear();
+    groupOffsets.clear();
+    groupLengths.clear();
+    groupCursor = 0;
+    group = null;
+    denseIds.clear();
+    denseCursor = 0;
+    next = null;
+    try {
+      readBlock(CodedInputStream.newInstance(data, 0, length));
+    } catch (InvalidProtocolBufferException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidProtocolBufferException(e.getMessage());
+    }
+    if (strings.length < stringOffsets.size) {
+      strings = new String[stringOffsets.size];
+    } else {
+      Arrays.fill(strings, 0, stringOffsets.size, null);
+    }
+    return this;
+  }
+
+  public long getBlockStartPosition() {
+    return blockStartPosition;
+  }
+
+  public Set<OSMType> getTypes() {
+    return types;
+  }
+
+  public int getGranularityLocation() {
+    return granularityLocation;
+  }
+
+  public int getGranularityDate() {
+    return granularityDate;
+  }
+
+  public long getOffsetLongitude() {
+    return offsetLongitude;
+  }
+
+  public long getOffsetLatitude() {
+    return offsetLatitude;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = decodeNext();
+      } catch (IOException e) {
+        throw new IllegalStateException(
+            "invalid primitive block at position " + blockStartPosition, e);
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public Entity next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Entity result = next;
+    next = null;
+    return result;
+  }
+
+  private void readBlock(CodedInputStream in) throws IOException {
+    in.setSizeLimit(Integer.MAX_VALUE);
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case BLOCK_STRINGTABLE:
+          readStringTable(in);
+          break;
+        case BLOCK_PRIMITIVEGROUP: {
+          int length = in.readRawVarint32();
+          groupOffsets.add(in.getTotalBytesRead());
+          groupLengths.add(length);
+          in.skipRawBytes(length);
+          break;
+        }
+        case BLOCK_GRANULARITY:
+          granularityLocation = in.readInt32();
+          break;
+        case BLOCK_DATE_GRANULARITY:
+          granularityDate = in.readInt32();
+          break;
+        case BLOCK_LAT_OFFSET:
+          offsetLatitude = in.readInt64();
+          break;
+        case BLOCK_LON_OFFSET:
+          offsetLongitude = in.readInt64();
+          break;
+        default:
+          in.skipField(tag);
+      }
+    }
+  }
+
+  private void readStringTable(CodedInputStream in) throws IOException {
+    int limit = in.pushLimit(in.readRawVarint32());
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      if (WireFormat.getTagFieldNumber(tag) == 1) {
+        int length = in.readRawVarint32();
+        stringOffsets.add(in.getTotalBytesRead());
+        stringLengths.add(length);
+        in.skipRawBytes(length);
+      } else {
+        in.skipField(tag);
+      }
+    }
+    in.popLimit(limit);
+  }
+
+  private Entity decodeNext() throws IOException {
+    while (true) {
+      if (denseCursor < denseIds.size) {
+        return nextDense();
+      }
+      if (group == null || group.isAtEnd()) {
+        if (groupCursor == groupOffsets.size) {
+          return null;
+        }
+        group = CodedInputStream.newInstance(data, groupOffsets.get(groupCursor),
+            groupLengths.get(groupCursor));
+        group.setSizeLimit(Integer.MAX_VALUE);
+        groupCursor++;
+        continue;
+      }
+      int tag = group.readTag();
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case GROUP_NODES:
+          if (types.contains(OSMType.NODE)) {
+            return readNode(group);
+          }
+          break;
+        case GROUP_DENSE:
+          if (types.contains(OSMType.NODE)) {
+            readDense(group);
+            continue;
+          }
+          break;
+        case GROUP_WAYS:
+          if (types.contains(OSMType.WAY)) {
+            return readWay(group);
+          }
+          break;
+        case GROUP_RELATIONS:
+          if (types.contains(OSMType.RELATION)) {
+            return readRelation(group);
+          }
+          break;
+        default:
+          break;
+      }
+      group.skipField(tag);
+    }
+  }
+
+  private Entity readNode(CodedInputStream in) throws IOException {
+    int limit = startEntity(in);
+    lon = 0;
+    lat = 0;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ENTITY_ID:
+          id = in.readSInt64();
+          break;
+        case NODE_LAT:
+          lat = in.readSInt64();
+          break;
+        case NODE_LON:
+          lon = in.readSInt64();
+          break;
+        default:
+          readCommon(in, tag);
+      }
+    }
+    in.popLimit(limit);
+    return new Node(commonEntityData(), lon, lat);
+  }
+
+  private Entity readWay(CodedInputStream in) throws IOException {
+    int limit = startEntity(in);
+    refs.clear();
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ENTITY_ID:
+          id = in.readInt64();
+          break;
+        case WAY_REFS:
+          readSInt64s(in, tag, refs);
+          break;
+        default:
+          readCommon(in, tag);
+      }
+    }
+    in.popLimit(limit);
+    final long[] wayRefs = new long[refs.size];
+    long ref = 0;
+    for (int i = 0; i < wayRefs.length; i++) {
+      ref += refs.get(i);
+      wayRefs[i] = ref;
+    }
+    return new Way(commonEntityData(), wayRefs);
+  }
+
+  private Entity readRelation(CodedInputStream in) throws IOException {
+    int limit = startEntity(in);
+    roles.clear();
+    memIds.clear();
+    memTypes.clear();
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case ENTITY_ID:
+          id = in.readInt64();
+          break;
+        case RELATION_ROLES_SID:
+          readInt32s(in, tag, roles);
+          break;
+        case RELATION_MEMIDS:
+          readSInt64s(in, tag, memIds);
+          break;
+        case RELATION_TYPES:
+          readInt32s(in, tag, memTypes);
+          break;
+        default:
+          readCommon(in, tag);
+      }
+    }
+    in.popLimit(limit);
+    final RelationMember[] members =
+        memIds.size == 0 ? NO_MEMBERS : new RelationMember[memIds.size];
+    long memId = 0;
+    for (int i = 0; i < members.length; i++) {
+      memId += memIds.get(i);
+      members[i] = new RelationMember(memId, getString(roles.get(i)), memTypes.get(i));
+    }
+    return new Relation(commonEntityData(), members);
+  }
+
+  /**
+   * Enters the next node, way or relation message of a group and resets the common fields to the
+   * defaults of an entity without info.
+   */
+  private int startEntity(CodedInputStream in) throws IOException {
+    int limit = in.pushLimit(in.readRawVarint32());
+    id = 0;
+    keys.clear();
+    vals.clear();
+    version = -1;
+    timestamp = -1;
+    changeset = -1;
+    uid = -1;
+    userSid = -1;
+    visible = false;
+    return limit;
+  }
+
+  private void readCommon(CodedInputStream in, int tag) throws IOException {
+    switch (WireFormat.getTagFieldNumber(tag)) {
+      case ENTITY_KEYS:
+        readInt32s(in, tag, keys);
+        break;
+      case ENTITY_VALS:
+        readInt32s(in, tag, vals);
+        break;
+      case ENTITY_INFO:
+        readInfo(in);
+        break;
+      default:
+        in.skipField(tag);
+    }
+  }
+
+  private void readInfo(CodedInputStream in) throws IOException {
+    int limit = in.pushLimit(in.readRawVarint32());
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case INFO_VERSION:
+          version = in.readInt32();
+          break;
+        case INFO_TIMESTAMP:
+          timestamp = in.readInt64();
+          break;
+        case INFO_CHANGESET:
+          changeset = in.readInt64();
+          break;
+        case INFO_UID:
+          uid = in.readInt32();
+          break;
+        case INFO_USER_SID:
+          userSid = in.readUInt32();
+          break;
+        case INFO_VISIBLE:
+          visible = in.readBool();
+          break;
+        default:
+          in.skipField(tag);
+      }
+    }
+    in.popLimit(limit);
+  }
+
+  private CommonEntityData commonEntityData() {
+    final TagText[] tags = keys.size == 0 ? NO_TAGS : new TagText[keys.size];
+    for (int i = 0; i < tags.length; i++) {
+      tags[i] = new TagText(getString(keys.get(i)), getString(vals.get(i)));
+    }
+    final String user = userSid < 0 ? "" : getString(userSid);
+    return new CommonEntityData(id, version, changeset, timestamp, visible, uid, user, tags);
+  }
+
+  private void readDense(CodedInputStream in) throws IOException {
+    int limit = in.pushLimit(in.readRawVarint32());
+    denseIds.clear();
+    denseLats.clear();
+    denseLons.clear();
+    denseKeysVals.clear();
+    denseVersions.clear();
+    denseTimestamps.clear();
+    denseChangesets.clear();
+    denseUids.clear();
+    denseUserSids.clear();
+    denseVisibles.clear();
+    hasDenseInfo = false;
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case DENSE_ID:
+          readSInt64s(in, tag, denseIds);
+          break;
+        case DENSE_DENSEINFO:
+          hasDenseInfo = true;
+          readDenseInfo(in);
+          break;
+        case DENSE_LAT:
+          readSInt64s(in, tag, denseLats);
+          break;
+        case DENSE_LON:
+          readSInt64s(in, tag, denseLons);
+          break;
+        case DENSE_KEYS_VALS:
+          readInt32s(in, tag, denseKeysVals);
+          break;
+        default:
+          in.skipField(tag);
+      }
+    }
+    in.popLimit(limit);
+    denseCursor = 0;
+    denseKeyVal = 0;
+    denseId = 0;
+    denseVersion = 0;
+    denseTimestamp = 0;
+    denseChangeset = 0;
+    denseUid = 0;
+    denseUserSid = 0;
+    denseVisible = false;
+    denseLon = 0;
+    denseLat = 0;
+  }
+
+  private void readDenseInfo(CodedInputStream in) throws IOException {
+    int limit = in.pushLimit(in.readRawVarint32());
+    for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case INFO_VERSION:
+          readInt32s(in, tag, denseVersions);
+          break;
+        case INFO_TIMESTAMP:
+          readSInt64s(in, tag, denseTimestamps);
+          break;
+        case INFO_CHANGESET:
+          readSInt64s(in, tag, denseChangesets);
+          break;
+        case INFO_UID:
+          readSInt32s(in, tag, denseUids);
+          break;
+        case INFO_USER_SID:
+          readSInt32s(in, tag, denseUserSids);
+          break;
+        case INFO_VISIBLE:
+          readInt32s(in, tag, denseVisibles);
+          break;
+        default:
+          in.skipField(tag);
+      }
+    }
+    in.popLimit(limit);
+  }
+
+  private Entity nextDense() {
+    final int index = denseCursor++;
+    denseId += denseIds.get(index);
+    if (hasDenseInfo) {
+      denseVersion = denseVersions.get(index);
+      denseTimestamp += denseTimestamps.get(index);
+      denseChangeset += denseChangesets.get(index);
+      denseUid += denseUids.get(index);
+      denseUserSid += denseUserSids.get(index);
+      denseVisible = denseVisibles.size == 0 || denseVisibles.get(index) != 0;
+    }
+
+    // keys_vals: (key, value)* 0 for every node, or empty if no node has tags
+    TagText[] tags = NO_TAGS;
+    if (denseKeyVal < denseKeysVals.size) {
+      int end = denseKeyVal;
+      while (end < denseKeysVals.size && denseKeysVals.get(end) != 0) {
+        end += 2;
+      }
+      if (end > denseKeyVal) {
+        tags = new TagText[(end - denseKeyVal) / 2];
+        for (int i = 0; i < tags.length; i++) {
+          tags[i] = new TagText(getString(denseKeysVals.get(denseKeyVal++)),
+              getString(denseKeysVals.get(denseKeyVal++)));
+        }
+      }
+      denseKeyVal = end + 1;
+    }
+
+    final CommonEntityData ced = new CommonEntityData(denseId, denseVersion, denseChangeset,
+        denseTimestamp, denseVisible, denseUid, getString(denseUserSid), tags);
+
+    denseLon += denseLons.get(index);
+    denseLat += denseLats.get(index);
+    return new Node(ced, denseLon, denseLat);
+  }
+
+  /**
+   * Resolves a string of the string table from its sid.
+   */
+  private String getString(int sid) {
+    String s = strings[sid];
+    if (s == null) {
+      s = new String(data, stringOffsets.get(sid), stringLengths.get(sid),
+          StandardCharsets.UTF_8);
+      strings[sid] = s;
+    }
+    return s;
+  }
+
+  // repeated fields are read packed or unpacked, as the protobuf parser does
+
+  private static void readInt32s(CodedInputStream in, int tag, IntBuffer buffer)
+      throws IOException {
+    if ((tag & 7) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = in.pushLimit(in.readRawVarint32());
+      while (in.getBytesUntilLimit() > 0) {
+        buffer.add(in.readInt32());
+      }
+      in.popLimit(limit);
+    } else {
+      buffer.add(in.readInt32());
+    }
+  }
+
+  private static void readSInt32s(CodedInputStream in, int tag, IntBuffer buffer)
+      throws IOException {
+    if ((tag & 7) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = in.pushLimit(in.readRawVarint32());
+      while (in.getBytesUntilLimit() > 0) {
+        buffer.add(in.readSInt32());
+      }
+      in.popLimit(limit);
+    } else {
+      buffer.add(in.readSInt32());
+    }
+  }
+
+  private static void readSInt64s(CodedInputStream in, int tag, LongBuffer buffer)
+      throws IOException {
+    if ((tag & 7) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = in.pushLimit(in.readRawVarint32());
+      while (in.getBytesUntilLimit() > 0) {
+        buffer.add(in.readSInt64());
+      }
+      in.popLimit(limit);
+    } else {
+      buffer.add(in.readSInt64());
+    }
+  }
+
+  private static class IntBuffer {
+    private int[] values = new int[64];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+
+  private static class LongBuffer {
+    private long[] values = new long[64];
+    private int size;
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    long get(int index) {
+      return values[index];
+    }
+
+    void clear() {
+      size = 0;
+    }
+  }
+}
@@ -16,7 +16,7 @@ import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Tag;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.TagText;
 import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Way;
 
-public class OsmPrimitveBlockIterator implements Iterator<Object> {
+public class OsmPrimitveBlockIterator implements Iterator<Entity> {
 
 	private final long blockStartPostion;
 	private final Set<OSMType> types;
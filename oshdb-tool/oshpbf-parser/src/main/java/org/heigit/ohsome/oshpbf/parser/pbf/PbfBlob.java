@@ -4,6 +4,7 @@ import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import crosby.binary.Fileformat;
 import crosby.binary.Osmformat;
+import java.nio.ByteBuffer;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -18,6 +19,14 @@ import java.util.zip.Inflater;
  */
 public class PbfBlob {
 
+  /**
+   * Inflaters are reused by each thread, instead of allocating (and ending) the native zlib
+   * stream of a new inflater for every blob.
+   */
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+  private static final ThreadLocal<ByteBuffer> DATA_BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+
   public final long pos;
   public final Fileformat.BlobHeader header;
   public final Fileformat.Blob content;
@@ -52,8 +61,8 @@ public class PbfBlob {
 
   public Osmformat.HeaderBlock getHeaderBlock() throws InvalidProtocolBufferException {
     if (isHeader()) {
-      final ByteString data = getData();
-      return Osmformat.HeaderBlock.parseFrom(data);
+      final ByteBuffer data = getDataBuffer();
+      return Osmformat.HeaderBlock.PARSER.parseFrom(data.array(), 0, data.limit());
     }
     return null;
   }
@@ -64,9 +73,8 @@ public class PbfBlob {
         return block;
       }
 
-      final ByteString data = getData();
-      //block = Osmformat.PrimitiveBlock.parseFrom(data);
-      return Osmformat.PrimitiveBlock.parseFrom(data);
+      final ByteBuffer data = getDataBuffer();
+      return Osmformat.PrimitiveBlock.PARSER.parseFrom(data.array(), 0, data.limit());
     }
     return null;
   }
@@ -77,23 +85,85 @@ public class PbfBlob {
     if (content.hasRaw()) {
       data = content.getRaw();
     } else if (content.hasZlibData()) {
-      byte[] buf2 = new byte[content.getRawSize()];
-      Inflater decompresser = new Inflater();
-      try {
-        decompresser.setInput(content.getZlibData().toByteArray());
-        decompresser.inflate(buf2);
-        assert (decompresser.finished());
-      } catch (DataFormatException e) {
-        e.printStackTrace();
-        throw new Error(e);
-      } finally {
-        decompresser.end();
-      }
-      data = ByteString.copyFrom(buf2);
+      data = ByteString.copyFrom(inflate());
     }
     return data;
   }
 
+  /**
+   * Returns the uncompressed content of this blob as a plain byte array, e.g. for the
+   * {@link OsmPrimitiveBlockDecoder}. Compressed content is not copied again after inflating it.
+   */
+  public byte[] getDataBytes() {
+    if (content.hasRaw()) {
+      return content.getRaw().toByteArray();
+    } else if (content.hasZlibData()) {
+      return inflate();
+    }
+    return new byte[0];
+  }
+
+  /**
+   * Returns the uncompressed content of this blob in a buffer which is recycled by the calling
+   * thread.
+   *
+   * <p>The returned buffer is backed by an array, its content starts at index 0 of the array and
+   * ends at the limit of the buffer. It is only valid until the next call of this method by the
+   * same thread, i.e. the content has to be decoded completely before the thread inflates the
+   * next blob.</p>
+   */
+  public ByteBuffer getDataBuffer() {
+    final int size;
+    if (content.hasRaw()) {
+      size = content.getRaw().size();
+    } else if (content.hasZlibData()) {
+      size = content.getRawSize();
+    } else {
+      size = 0;
+    }
+    ByteBuffer buffer = DATA_BUFFER.get();
+    if (buffer.capacity() < size) {
+      buffer = ByteBuffer.allocate(size);
+      DATA_BUFFER.set(buffer);
+    }
+    buffer.clear().limit(size);
+    if (content.hasRaw()) {
+      content.getRaw().copyTo(buffer);
+    } else if (content.hasZlibData()) {
+      inflate(buffer);
+    }
+    buffer.rewind();
+    return buffer;
+  }
+
+  private byte[] inflate() {
+    byte[] buf2 = new byte[content.getRawSize()];
+    inflate(ByteBuffer.wrap(buf2));
+    return buf2;
+  }
+
+  /**
+   * Inflates the zlib compressed content into the remaining space of the given buffer.
+   */
+  private void inflate(ByteBuffer output) {
+    final Inflater decompresser = INFLATER.get();
+    try {
+      // the compressed bytes are read in place, without copying them to a new array
+      decompresser.setInput(content.getZlibData().asReadOnlyByteBuffer());
+      while (output.hasRemaining() && !decompresser.finished()) {
+        if (decompresser.inflate(output) == 0 && decompresser.needsInput()) {
+          throw new DataFormatException("truncated zlib data in blob at " + pos);
+        }
+      }
+      assert (decompresser.finished());
+    } catch (DataFormatException e) {
+      e.printStackTrace();
+      throw new Error(e);
+    } finally {
+      decompresser.reset();
+    }
+  }
+
   @Override
   public String toString() {
     return String.format("PbfBlob:%d  isData:%s", pos, isData());
@@ -2,7 +2,6 @@ package org.heigit.ohsome.oshpbf.parser.rx;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import crosby.binary.Fileformat;
-import crosby.binary.Osmformat;
 import crosby.binary.Osmformat.HeaderBlock;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
@@ -17,9 +16,14 @@ import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import org.heigit.ohsome.oshdb.osm.OSMType;
 import org.heigit.ohsome.oshpbf.parser.pbf.BlobToOSHIterator;
+import org.heigit.ohsome.oshpbf.parser.pbf.OsmPrimitiveBlockDecoder;
 import org.heigit.ohsome.oshpbf.parser.pbf.PbfBlob;
 import org.heigit.ohsome.oshpbf.parser.util.ByteBufferBackedInputStream;
 
@@ -30,6 +34,9 @@ public class RxOshPbfReader {
   private static final int BLOBHEADER_SIZE_BYTES = 4;
   private static final int SIGNATURE_SIZE_BYTES = Math.max(SIGNATURE_OSMDATA.length, SIGNATURE_OSMHEADER.length);
 
+  private static final Set<OSMType> OSM_TYPES = EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
+  private static final ThreadLocal<OsmPrimitiveBlockDecoder> DECODER = ThreadLocal.withInitial(OsmPrimitiveBlockDecoder::new);
+
   public static class PbfChannel {
     final RandomAccessFile raf;
     final FileChannel channel;
@@ -98,15 +105,19 @@ public class RxOshPbfReader {
     return oshFlow;
   }
 
+  /**
+   * Decodes all entities of a data blob and groups their versions.
+   *
+   * <p>The whole blob is decoded on the calling thread (the computation threads of
+   * {@link #readOsh}), with the {@link OsmPrimitiveBlockDecoder}, primitive buffers and inflate
+   * buffer of this thread.</p>
+   */
   public static Iterable<Osh> blobToOSHItr(PbfBlob blob, boolean skipFirst) throws InvalidProtocolBufferException {
-    return new Iterable<Osh>() {
-      final Osmformat.PrimitiveBlock block = blob.getPrimitivBlock();
-
-      @Override
-      public Iterator<Osh> iterator() {
-        return new BlobToOSHIterator(blob, block, skipFirst);
-      }
-    };
+    final ByteBuffer data = blob.getDataBuffer();
+    final OsmPrimitiveBlockDecoder decoder = DECODER.get().reset(blob.pos, data.array(), data.limit(), OSM_TYPES);
+    final List<Osh> oshs = new ArrayList<>();
+    new BlobToOSHIterator(blob, decoder, skipFirst).forEachRemaining(oshs::add);
+    return oshs;
   }
 
   private static Callable<PbfChannel> openPbfAndSeekFirstBlockStart(Path pbfPath, long pos, long softLimit,
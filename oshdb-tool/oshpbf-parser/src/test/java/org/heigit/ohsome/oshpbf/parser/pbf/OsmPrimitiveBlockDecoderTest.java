@@ -0,0 +1,141 @@
+package org.heigit.ohsome.oshpbf.parser.pbf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import crosby.binary.Osmformat;
+import crosby.binary.Osmformat.DenseInfo;
+import crosby.binary.Osmformat.DenseNodes;
+import crosby.binary.Osmformat.Info;
+import crosby.binary.Osmformat.PrimitiveBlock;
+import crosby.binary.Osmformat.PrimitiveGroup;
+import crosby.binary.Osmformat.Relation.MemberType;
+import crosby.binary.Osmformat.StringTable;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Entity;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Node;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Relation;
+import org.heigit.ohsome.oshpbf.parser.osm.v0_6.Way;
+import org.junit.Test;
+
+public class OsmPrimitiveBlockDecoderTest {
+  private static final Set<OSMType> ALL =
+      EnumSet.of(OSMType.NODE, OSMType.WAY, OSMType.RELATION);
+
+  private static PrimitiveBlock block() {
+    StringTable.Builder strings = StringTable.newBuilder();
+    for (String s : new String[] {"", "highway", "residential", "user", "outer", "name", "Straße"}) {
+      strings.addS(ByteString.copyFromUtf8(s));
+    }
+    // three versions of node 1 (the second one tagged) and one of node 3
+    DenseNodes dense = DenseNodes.newBuilder()
+        .addId(1).addId(0).addId(0).addId(2)
+        .addLat(494100000).addLat(10).addLat(0).addLat(-20)
+        .addLon(86700000).addLon(-10).addLon(0).addLon(30)
+        .addKeysVals(0).addKeysVals(5).addKeysVals(6).addKeysVals(1).addKeysVals(2).addKeysVals(0)
+        .addKeysVals(0).addKeysVals(0)
+        .setDenseinfo(DenseInfo.newBuilder()
+            .addVersion(1).addVersion(2).addVersion(3).addVersion(1)
+            .addTimestamp(1000).addTimestamp(50).addTimestamp(50).addTimestamp(-70)
+            .addChangeset(10).addChangeset(1).addChangeset(1).addChangeset(-2)
+            .addUid(7).addUid(0).addUid(1).addUid(-1)
+            .addUserSid(3).addUserSid(0).addUserSid(0).addUserSid(0)
+            .addVisible(true).addVisible(true).addVisible(false).addVisible(true))
+        .build();
+    Osmformat.Node node = Osmformat.Node.newBuilder().setId(5).setLat(-123).setLon(456)
+        .addKeys(1).addVals(2)
+        .setInfo(Info.newBuilder().setVersion(4).setTimestamp(99).setChangeset(12).setUid(7)
+            .setUserSid(3).setVisible(true))
+        .build();
+    Osmformat.Way way = Osmformat.Way.newBuilder().setId(10).addRefs(1).addRefs(2).addRefs(-2)
+        .addKeys(1).addVals(2).addKeys(5).addVals(6)
+        .setInfo(Info.newBuilder().setVersion(1).setTimestamp(1200).setChangeset(13)
+            .setUid(7).setUserSid(3))
+        .build();
+    Osmformat.Way wayWithoutInfo = Osmformat.Way.newBuilder().setId(11).build();
+    Osmformat.Relation relation = Osmformat.Relation.newBuilder().setId(100)
+        .addMemids(10).addTypes(MemberType.WAY).addRolesSid(4)
+        .addMemids(-9).addTypes(MemberType.NODE).addRolesSid(0)
+        .addMemids(99).addTypes(MemberType.RELATION).addRolesSid(0)
+        .setInfo(Info.newBuilder().setVersion(2).setTimestamp(1300).setChangeset(14)
+            .setUid(8).setUserSid(3).setVisible(false))
+        .build();
+    return PrimitiveBlock.newBuilder()
+        .setStringtable(strings)
+        .addPrimitivegroup(PrimitiveGroup.newBuilder().setDense(dense))
+        .addPrimitivegroup(PrimitiveGroup.newBuilder().addNodes(node))
+        .addPrimitivegroup(PrimitiveGroup.newBuilder().addWays(way).addWays(wayWithoutInfo))
+        .addPrimitivegroup(PrimitiveGroup.newBuilder().addRelations(relation))
+        .build();
+  }
+
+  private static List<Entity> toList(Iterator<Entity> entities) {
+    List<Entity> list = new ArrayList<>();
+    entities.forEachRemaining(list::add);
+    return list;
+  }
+
+  @Test
+  public void testSameEntitiesAsGeneratedParser() throws Exception {
+    PrimitiveBlock block = block();
+    List<Entity> expected = toList(new OsmPrimitveBlockIterator(0, block, ALL));
+    List<Entity> actual =
+        toList(new OsmPrimitiveBlockDecoder(0, block.toByteArray(), ALL));
+
+    assertEquals(expected.size(), actual.size());
+    assertEquals(8, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Entity e = expected.get(i);
+      Entity a = actual.get(i);
+      assertEquals(e.getType(), a.getType());
+      assertEquals(e.toString(), a.toString());
+      assertEquals(e.getUser(), a.getUser());
+      assertArrayEquals(e.getTags(), a.getTags());
+      if (e instanceof Node) {
+        assertEquals(((Node) e).getLongitude(), ((Node) a).getLongitude());
+        assertEquals(((Node) e).getLatitude(), ((Node) a).getLatitude());
+      } else if (e instanceof Way) {
+        assertArrayEquals(((Way) e).getRefs(), ((Way) a).getRefs());
+      } else {
+        Relation er = (Relation) e;
+        Relation ar = (Relation) a;
+        assertEquals(er.getMembers().length, ar.getMembers().length);
+        for (int m = 0; m < er.getMembers().length; m++) {
+          assertEquals(er.getMembers()[m].memId, ar.getMembers()[m].memId);
+          assertEquals(er.getMembers()[m].type, ar.getMembers()[m].type);
+          assertEquals(er.getMembers()[m].role, ar.getMembers()[m].role);
+        }
+      }
+    }
+    assertEquals("Straße", actual.get(1).getTags()[0].toString().split("=")[1]);
+    assertArrayEquals(new long[] {1, 3, 1}, ((Way) actual.get(5)).getRefs());
+  }
+
+  @Test
+  public void testResetAndTypes() throws Exception {
+    byte[] data = block().toByteArray();
+    // the block at the beginning of a larger buffer
+    byte[] buffer = new byte[data.length + 100];
+    System.arraycopy(data, 0, buffer, 0, data.length);
+
+    OsmPrimitiveBlockDecoder decoder = new OsmPrimitiveBlockDecoder();
+    assertFalse(decoder.hasNext());
+    List<Entity> ways = toList(decoder.reset(1, buffer, data.length, EnumSet.of(OSMType.WAY)));
+    assertEquals(2, ways.size());
+    assertEquals(10, ways.get(0).getId());
+
+    List<Entity> all = toList(decoder.reset(2, data, data.length, ALL));
+    assertEquals(8, all.size());
+    assertTrue(all.get(7) instanceof Relation);
+    assertEquals(2, decoder.getBlockStartPosition());
+    assertEquals(100, decoder.getGranularityLocation());
+  }
+}
@@ -0,0 +1,85 @@
+package org.heigit.ohsome.oshpbf.parser.pbf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.google.protobuf.ByteString;
+import crosby.binary.Fileformat;
+import crosby.binary.Osmformat.PrimitiveBlock;
+import crosby.binary.Osmformat.PrimitiveGroup;
+import crosby.binary.Osmformat.StringTable;
+import crosby.binary.Osmformat.Way;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.junit.Test;
+
+public class PbfBlobTest {
+
+  private static byte[] primitiveBlock(int ways) {
+    PrimitiveGroup.Builder group = PrimitiveGroup.newBuilder();
+    for (int i = 0; i < ways; i++) {
+      group.addWays(Way.newBuilder().setId(i).addRefs(i).addRefs(1).addKeys(1).addVals(2));
+    }
+    return PrimitiveBlock.newBuilder()
+        .setStringtable(StringTable.newBuilder().addS(ByteString.EMPTY)
+            .addS(ByteString.copyFromUtf8("highway"))
+            .addS(ByteString.copyFromUtf8("residential")))
+        .addPrimitivegroup(group)
+        .build().toByteArray();
+  }
+
+  private static PbfBlob zlibBlob(byte[] data) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] compressed = new byte[data.length + 64];
+    int length = deflater.deflate(compressed);
+    deflater.end();
+    return blob(Fileformat.Blob.newBuilder().setRawSize(data.length)
+        .setZlibData(ByteString.copyFrom(compressed, 0, length)).build());
+  }
+
+  private static PbfBlob blob(Fileformat.Blob content) {
+    Fileformat.BlobHeader header = Fileformat.BlobHeader.newBuilder().setType("OSMData")
+        .setDatasize(content.getSerializedSize()).build();
+    return new PbfBlob(0, header, content, true, false);
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    return Arrays.copyOf(buffer.array(), buffer.limit());
+  }
+
+  @Test
+  public void testInflate() throws Exception {
+    byte[] large = primitiveBlock(1000);
+    byte[] small = primitiveBlock(10);
+    PbfBlob largeBlob = zlibBlob(large);
+    PbfBlob smallBlob = zlibBlob(small);
+
+    assertArrayEquals(large, largeBlob.getDataBytes());
+    assertArrayEquals(large, largeBlob.getData().toByteArray());
+    ByteBuffer buffer = largeBlob.getDataBuffer();
+    assertEquals(0, buffer.position());
+    assertArrayEquals(large, toArray(buffer));
+
+    // the buffer (and inflater) of this thread is reused for the next blob
+    ByteBuffer next = smallBlob.getDataBuffer();
+    assertSame(buffer.array(), next.array());
+    assertArrayEquals(small, toArray(next));
+    assertArrayEquals(large, toArray(largeBlob.getDataBuffer()));
+
+    assertEquals(1000, largeBlob.getPrimitivBlock().getPrimitivegroup(0).getWaysCount());
+    assertEquals(10, smallBlob.getPrimitivBlock().getPrimitivegroup(0).getWaysCount());
+  }
+
+  @Test
+  public void testRaw() throws Exception {
+    byte[] data = primitiveBlock(10);
+    PbfBlob blob = blob(Fileformat.Blob.newBuilder().setRaw(ByteString.copyFrom(data)).build());
+    assertArrayEquals(data, blob.getDataBytes());
+    assertArrayEquals(data, toArray(blob.getDataBuffer()));
+    assertEquals(10, blob.getPrimitivBlock().getPrimitivegroup(0).getWaysCount());
+  }
+}
@@ -36,10 +36,35 @@ public enum TableNames {
    * Table that holds Grid-OSH-Relations in the oshdb.
    */
   T_RELATIONS("grid_relation"),
+  /**
+   * Table that holds the (optional) inverted tag index of the oshdb, mapping tags to grid cells.
+   */
+  T_TAG_INDEX("tag_index"),
+  /**
+   * Table that holds the (optional) id index of the oshdb, mapping OSM ids to grid cells.
+   */
+  T_ID_INDEX("id_index"),
+  /**
+   * Table that maps the members of ways and relations to their parent entities, maintained by
+   * incremental updates.
+   */
+  T_MEMBER_INDEX("member_index"),
+  /**
+   * Table that logs the change files which have been applied to the oshdb.
+   */
+  T_UPDATE_LOG("update_log"),
   /**
    * Table that holds metadata in the oshdb.
    */
-  T_METADATA("metadata");
+  T_METADATA("metadata"),
+  /**
+   * Table that holds the definitions of the (optional) pre-aggregated statistics cubes.
+   */
+  T_CUBES("cube"),
+  /**
+   * Table that holds the pre-aggregated values of the statistics cubes' grid cells.
+   */
+  T_CUBE_CELLS("cube_cell");
 
   private final String tablename;
 
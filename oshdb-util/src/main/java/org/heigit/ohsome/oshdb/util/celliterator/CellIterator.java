@@ -27,10 +27,13 @@ import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 import org.heigit.ohsome.oshdb.util.geometry.Geo;
+import org.heigit.ohsome.oshdb.util.geometry.IncrementalWayGeometryBuilder;
+import org.heigit.ohsome.oshdb.util.geometry.MultipolygonAssemblyCache;
 import org.heigit.ohsome.oshdb.util.geometry.OSHDBGeometryBuilder;
 import org.heigit.ohsome.oshdb.util.geometry.fip.FastBboxInPolygon;
 import org.heigit.ohsome.oshdb.util.geometry.fip.FastBboxOutsidePolygon;
 import org.heigit.ohsome.oshdb.util.geometry.fip.FastPolygonOperations;
+import org.heigit.ohsome.oshdb.util.taginterpreter.MemoizingTagInterpreter;
 import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
 import org.heigit.ohsome.oshdb.util.time.OSHDBTimestampInterval;
 import org.locationtech.jts.geom.Coordinate;
@@ -57,9 +60,55 @@ import org.slf4j.LoggerFactory;
 public class CellIterator implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(CellIterator.class);
 
-  public interface OSHEntityFilter extends Predicate<OSHEntity>, Serializable {}
+  /**
+   * A filter on the osh entities of a cell.
+   */
+  public interface OSHEntityFilter extends Predicate<OSHEntity>, Serializable {
+    /**
+     * Checks if a grid cell can contain any osh entity matching this filter at all.
+     *
+     * <p>If this returns false, the whole cell is skipped without looking at its entities.</p>
+     *
+     * @param cell the grid cell to check
+     * @return false if none of the cell's entities can match this filter
+     */
+    default boolean testCell(GridOSHEntity cell) {
+      return true;
+    }
+  }
+
+  /**
+   * A filter on the osm entities of a cell.
+   */
+  public interface OSMEntityFilter extends Predicate<OSMEntity>, Serializable {
+    /**
+     * Checks if a matching osm entity can be part of the output, before its geometry is built.
+     *
+     * <p>Only used when iterating by timestamps. If this returns false, the entity is skipped
+     * without building its geometry.</p>
+     *
+     * @param entity an osm entity which matches this filter
+     * @param tagInterpreter the tag interpreter used to build the entity's geometry
+     * @return false if the entity must not be part of the output
+     */
+    default boolean testGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+      return true;
+    }
 
-  public interface OSMEntityFilter extends Predicate<OSMEntity>, Serializable {}
+    /**
+     * Checks if a matching osm entity can be part of the output, before its geometry is clipped.
+     *
+     * <p>Only used when iterating by timestamps. If this returns false, the entity is skipped
+     * without clipping its geometry to the area of interest.</p>
+     *
+     * @param entity an osm entity which matches this filter
+     * @param unclippedGeometry the full geometry of the entity
+     * @return false if the entity must not be part of the output
+     */
+    default boolean testUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+      return true;
+    }
+  }
 
   private final TreeSet<OSHDBTimestamp> timestamps;
   private final OSHDBBoundingBox boundingBox;
@@ -246,6 +295,18 @@ public class CellIterator implements Serializable {
    *         geometries later on in the code.
    */
   public Stream<IterateByTimestampEntry> iterateByTimestamps(GridOSHEntity cell) {
+    // remembers the last area decision: versions are checked by filters and geometry builders
+    final TagInterpreter cellTagInterpreter = new MemoizingTagInterpreter(tagInterpreter);
+    if (!oshEntityPreFilter.testCell(cell)) {
+      // none of the cell's entities can match the pre-filter
+      return Stream.empty();
+    }
+    if (!timestamps.isEmpty()
+        && !cell.mayBeModifiedBetween(Long.MIN_VALUE, timestamps.last().getRawUnixTimestamp())) {
+      // all of the cell's entities have been created after the requested timestamps
+      return Stream.empty();
+    }
+
     final boolean allFullyInside;
     if (isBoundByPolygon) {
       // if cell is fully inside bounding box/polygon we can skip all entity-based inclusion checks
@@ -262,6 +323,7 @@ public class CellIterator implements Serializable {
     }
 
     Iterable<? extends OSHEntity> cellData = cell.getEntities();
+    MultipolygonAssemblyCache multipolygonCache = new MultipolygonAssemblyCache();
     return Streams.stream(cellData).flatMap(oshEntity -> {
       if (!oshEntityPreFilter.test(oshEntity)
           || !allFullyInside && (
@@ -311,6 +373,11 @@ public class CellIterator implements Serializable {
       SortedMap<OSHDBTimestamp, OSMEntity> osmEntityByTimestamps =
           OSHEntities.getByTimestamps(oshEntity, new ArrayList<>(queryTs.keySet()));
 
+      // consecutive geometries of a way are derived from each other, see
+      // IncrementalWayGeometryBuilder
+      IncrementalWayGeometryBuilder wayGeometryBuilder = oshEntity.getType() == OSMType.WAY
+          ? new IncrementalWayGeometryBuilder() : null;
+
       List<IterateByTimestampEntry> results = new LinkedList<>();
       osmEntityLoop: for (Map.Entry<OSHDBTimestamp, OSMEntity> entity :
           osmEntityByTimestamps.entrySet()) {
@@ -330,12 +397,12 @@ public class CellIterator implements Serializable {
 
         boolean isOldStyleMultipolygon = false;
         if (includeOldStyleMultipolygons && osmEntity instanceof OSMRelation
-            && tagInterpreter.isOldStyleMultipolygon((OSMRelation) osmEntity)) {
+            && cellTagInterpreter.isOldStyleMultipolygon((OSMRelation) osmEntity)) {
           final OSMRelation rel = (OSMRelation) osmEntity;
           for (int i = 0; i < rel.getMembers().length; i++) {
             final OSMMember relMember = rel.getMembers()[i];
             if (relMember.getType() == OSMType.WAY
-                && tagInterpreter.isMultipolygonOuterMember(relMember)) {
+                && cellTagInterpreter.isMultipolygonOuterMember(relMember)) {
               OSMEntity way = OSHEntities.getByTimestamp(relMember.getEntity(), timestamp);
               if (!osmEntityFilter.test(way)) {
                 // skip this old-style-multipolygon because it doesn't match our filter
@@ -354,12 +421,28 @@ public class CellIterator implements Serializable {
             // skip because this entity doesn't match our filter
             continue osmEntityLoop;
           }
+          if (!osmEntityFilter.testGeometryType(osmEntity, cellTagInterpreter)) {
+            // skip because this entity's geometry can't match our filter
+            continue osmEntityLoop;
+          }
         }
 
         try {
+          LazyEvaluatedObject<Geometry> unclippedGeom = new LazyEvaluatedObject<>(() ->
+              wayGeometryBuilder != null
+                  ? wayGeometryBuilder.getGeometry(
+                      (OSMWay) osmEntity, timestamp, cellTagInterpreter)
+                  : OSHDBGeometryBuilder.getGeometry(
+                      osmEntity, timestamp, cellTagInterpreter, multipolygonCache)
+          );
           LazyEvaluatedObject<Geometry> geom;
           if (!isOldStyleMultipolygon) {
-            geom = constructClippedGeometry(osmEntity, timestamp, fullyInside);
+            if (!fullyInside && requiresClipping(unclippedGeom.get())
+                && !osmEntityFilter.testUnclippedGeometry(osmEntity, unclippedGeom.get())) {
+              // skip because the clipped geometry can't match our filter -> don't clip it at all
+              continue osmEntityLoop;
+            }
+            geom = constructClippedGeometry(unclippedGeom, fullyInside);
           } else {
             // old style multipolygons: return only the inner holes of the geometry -> this is then
             // used to "fix" the results obtained from calculating the geometry on the object's
@@ -368,7 +451,7 @@ public class CellIterator implements Serializable {
             GeometryFactory gf = new GeometryFactory();
             geom = new LazyEvaluatedObject<>(() -> {
               Geometry geometry = OSHDBGeometryBuilder
-                  .getGeometry(osmEntity, timestamp, tagInterpreter);
+                  .getGeometry(osmEntity, timestamp, cellTagInterpreter);
 
               Polygon poly = (Polygon) geometry;
               Polygon[] interiorRings = new Polygon[poly.getNumInteriorRing()];
@@ -387,8 +470,7 @@ public class CellIterator implements Serializable {
           }
 
           if (fullyInside || !geom.get().isEmpty()) {
-            LazyEvaluatedObject<Geometry> fullGeom = fullyInside ? geom : new LazyEvaluatedObject<>(
-                () -> OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, tagInterpreter));
+            LazyEvaluatedObject<Geometry> fullGeom = fullyInside ? geom : unclippedGeom;
             results.add(
                 new IterateByTimestampEntry(timestamp, osmEntity, oshEntity, geom, fullGeom)
             );
@@ -416,16 +498,13 @@ public class CellIterator implements Serializable {
   }
 
   private LazyEvaluatedObject<Geometry> constructClippedGeometry(
-      OSMEntity osmEntity,
-      OSHDBTimestamp timestamp,
+      LazyEvaluatedObject<Geometry> unclippedGeometry,
       boolean fullyInside
   ) {
     if (fullyInside) {
-      return new LazyEvaluatedObject<>(() ->
-          OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, tagInterpreter)
-      );
+      return unclippedGeometry;
     }
-    Geometry geometry = OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, tagInterpreter);
+    Geometry geometry = unclippedGeometry.get();
     OSHDBBoundingBox bbox = OSHDBGeometryBuilder.boundingBoxOf(geometry.getEnvelopeInternal());
     if (isBoundByPolygon) {
       if (bboxInPolygon.test(bbox)) {
@@ -446,6 +525,16 @@ public class CellIterator implements Serializable {
     }
   }
 
+  // checks if the given geometry needs to be clipped by constructClippedGeometry
+  private boolean requiresClipping(Geometry geometry) {
+    OSHDBBoundingBox bbox = OSHDBGeometryBuilder.boundingBoxOf(geometry.getEnvelopeInternal());
+    if (isBoundByPolygon) {
+      return !bboxInPolygon.test(bbox) && !bboxOutsidePolygon.test(bbox);
+    } else {
+      return !bbox.isInside(this.boundingBox) && bbox.intersects(this.boundingBox);
+    }
+  }
+
   private Geometry createEmptyGeometryLike(Geometry geometry) {
     GeometryFactory gf = new GeometryFactory();
     if (geometry instanceof Polygonal) {
@@ -527,6 +616,18 @@ public class CellIterator implements Serializable {
    */
   public Stream<IterateAllEntry> iterateByContribution(GridOSHEntity cell) {
     OSHDBTimestampInterval timeInterval = new OSHDBTimestampInterval(timestamps);
+    // remembers the last area decision: versions are checked by filters and geometry builders
+    final TagInterpreter cellTagInterpreter = new MemoizingTagInterpreter(tagInterpreter);
+
+    if (!oshEntityPreFilter.testCell(cell)) {
+      // none of the cell's entities can match the pre-filter
+      return Stream.empty();
+    }
+    if (!cell.mayBeModifiedBetween(
+        timestamps.first().getRawUnixTimestamp(), timestamps.last().getRawUnixTimestamp())) {
+      // none of the cell's entities has been modified in the requested time interval
+      return Stream.empty();
+    }
 
     final boolean allFullyInside;
     if (isBoundByPolygon) {
@@ -548,7 +649,11 @@ public class CellIterator implements Serializable {
       throw new UnsupportedOperationException("this is not yet properly implemented (probably)");
     }
 
-    Iterable<? extends OSHEntity> cellData = cell.getEntities();
+    // entities which haven't been modified since the start of the time interval are skipped
+    // without decoding them
+    Iterable<? extends OSHEntity> cellData =
+        cell.getEntitiesModifiedSince(timestamps.first().getRawUnixTimestamp());
+    MultipolygonAssemblyCache multipolygonCache = new MultipolygonAssemblyCache();
 
     return Streams.stream(cellData).flatMap(oshEntity -> {
       if (!oshEntityPreFilter.test(oshEntity)
@@ -585,6 +690,11 @@ public class CellIterator implements Serializable {
       SortedMap<OSHDBTimestamp, OSMEntity> osmEntityByTimestamps =
           OSHEntities.getByTimestamps(oshEntity, modTs);
 
+      // consecutive geometries of a way are derived from each other, see
+      // IncrementalWayGeometryBuilder
+      IncrementalWayGeometryBuilder wayGeometryBuilder = oshEntity.getType() == OSMType.WAY
+          ? new IncrementalWayGeometryBuilder() : null;
+
       List<IterateAllEntry> results = new LinkedList<>();
 
       IterateAllEntry prev = null;
@@ -645,12 +755,12 @@ public class CellIterator implements Serializable {
         // todo check old style mp code!!1!!!11!
         boolean isOldStyleMultipolygon = false;
         if (includeOldStyleMultipolygons && osmEntity instanceof OSMRelation
-            && tagInterpreter.isOldStyleMultipolygon((OSMRelation) osmEntity)) {
+            && cellTagInterpreter.isOldStyleMultipolygon((OSMRelation) osmEntity)) {
           final OSMRelation rel = (OSMRelation) osmEntity;
           for (int i = 0; i < rel.getMembers().length; i++) {
             final OSMMember relMember = rel.getMembers()[i];
             if (relMember.getType() == OSMType.WAY
-                && tagInterpreter.isMultipolygonOuterMember(relMember)) {
+                && cellTagInterpreter.isMultipolygonOuterMember(relMember)) {
               OSMEntity way = OSHEntities.getByTimestamp(relMember.getEntity(), timestamp);
               if (!osmEntityFilter.test(way)) {
                 // skip this old-style-multipolygon because it doesn't match our filter
@@ -686,9 +796,16 @@ public class CellIterator implements Serializable {
         }
 
         try {
+          LazyEvaluatedObject<Geometry> unclippedGeom = new LazyEvaluatedObject<>(() ->
+              wayGeometryBuilder != null
+                  ? wayGeometryBuilder.getGeometry(
+                      (OSMWay) osmEntity, timestamp, cellTagInterpreter)
+                  : OSHDBGeometryBuilder.getGeometry(
+                      osmEntity, timestamp, cellTagInterpreter, multipolygonCache)
+          );
           LazyEvaluatedObject<Geometry> geom;
           if (!isOldStyleMultipolygon) {
-            geom = constructClippedGeometry(osmEntity, timestamp, fullyInside);
+            geom = constructClippedGeometry(unclippedGeom, fullyInside);
           } else {
             // old style multipolygons: return only the inner holes of the geometry -> this is then
             // used to "fix" the results obtained from calculating the geometry on the object's
@@ -697,7 +814,7 @@ public class CellIterator implements Serializable {
             GeometryFactory gf = new GeometryFactory();
             geom = new LazyEvaluatedObject<>(() -> {
               Geometry geometry =
-                  OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, tagInterpreter);
+                  OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, cellTagInterpreter);
               Polygon poly = (Polygon) geometry;
               Polygon[] interiorRings = new Polygon[poly.getNumInteriorRing()];
               for (int i = 0; i < poly.getNumInteriorRing(); i++) {
@@ -761,9 +878,6 @@ public class CellIterator implements Serializable {
           }
 
           IterateAllEntry result;
-          LazyEvaluatedObject<Geometry> unclippedGeom = new LazyEvaluatedObject<>(() ->
-              OSHDBGeometryBuilder.getGeometry(osmEntity, timestamp, tagInterpreter)
-          );
           if (prev != null) {
             result = new IterateAllEntry(timestamp,
                 osmEntity, prev.osmEntity, oshEntity,
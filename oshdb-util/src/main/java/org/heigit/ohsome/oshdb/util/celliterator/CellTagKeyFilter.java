@@ -0,0 +1,176 @@
+package org.heigit.ohsome.oshdb.util.celliterator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+
+/**
+ * A filter on the tag keys which are used in a grid cell (see {@link GridOSHEntity#getTagKeys()}).
+ *
+ * <p>The filter consists of a list of groups of tag keys, and a list of groups of tag key sets. A
+ * cell can only contain matching entities if it contains at least one of the keys of each key
+ * group, and all keys of at least one of the sets of each key set group (e.g. the keys required
+ * by the clauses of a filter in disjunctive normal form). Cells which don't hold any information
+ * about their tag keys always pass this filter.</p>
+ *
+ * <p>Objects of this class are immutable.</p>
+ */
+public class CellTagKeyFilter implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /** A filter which lets all cells pass. */
+  public static final CellTagKeyFilter NONE = new CellTagKeyFilter(new int[0][], new int[0][][]);
+
+  private final int[][] keyGroups;
+  private final int[][][] keySetGroups;
+
+  private CellTagKeyFilter(int[][] keyGroups, int[][][] keySetGroups) {
+    this.keyGroups = keyGroups;
+    this.keySetGroups = keySetGroups;
+  }
+
+  /**
+   * Returns a new filter which additionally requires at least one of the given tag keys to be
+   * present in a cell.
+   *
+   * @param keys a group of tag keys, of which at least one must be present in a cell. If empty, no
+   *        cell (with known tag keys) will pass the filter.
+   * @return a new filter object
+   */
+  public CellTagKeyFilter and(int... keys) {
+    int[][] result = Arrays.copyOf(keyGroups, keyGroups.length + 1);
+    result[keyGroups.length] = Arrays.stream(keys).distinct().sorted().toArray();
+    return new CellTagKeyFilter(result, keySetGroups);
+  }
+
+  /**
+   * Returns a new filter which additionally requires at least one of the given tag keys to be
+   * present in a cell.
+   *
+   * @param keys a group of tag keys, of which at least one must be present in a cell. If empty, no
+   *        cell (with known tag keys) will pass the filter.
+   * @return a new filter object
+   */
+  public CellTagKeyFilter and(Collection<Integer> keys) {
+    return and(keys.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  /**
+   * Returns a new filter which additionally requires all tag keys of at least one of the given
+   * sets of tag keys to be present in a cell.
+   *
+   * @param keySets a group of sets of tag keys, of which all keys of at least one set must be
+   *        present in a cell. If empty, no cell (with known tag keys) will pass the filter.
+   * @return a new filter object
+   */
+  public CellTagKeyFilter andAnyOf(Collection<int[]> keySets) {
+    int[][][] result = Arrays.copyOf(keySetGroups, keySetGroups.length + 1);
+    result[keySetGroups.length] = keySets.stream()
+        .map(keySet -> Arrays.stream(keySet).distinct().sorted().toArray())
+        .toArray(int[][]::new);
+    return new CellTagKeyFilter(keyGroups, result);
+  }
+
+  /**
+   * Returns true if this filter lets all cells pass.
+   */
+  public boolean isEmpty() {
+    return keyGroups.length == 0 && keySetGroups.length == 0;
+  }
+
+  /**
+   * Returns the groups of tag keys of this filter.
+   *
+   * @return a list of (sorted) groups of tag keys, of which at least one key per group must be
+   *         present in a cell
+   */
+  public List<int[]> getKeyGroups() {
+    List<int[]> result = new ArrayList<>(keyGroups.length);
+    for (int[] keyGroup : keyGroups) {
+      result.add(keyGroup.clone());
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Returns the groups of tag key sets of this filter.
+   *
+   * @return a list of groups of (sorted) sets of tag keys, of which all keys of at least one set
+   *         per group must be present in a cell
+   */
+  public List<List<int[]>> getKeySetGroups() {
+    List<List<int[]>> result = new ArrayList<>(keySetGroups.length);
+    for (int[][] keySetGroup : keySetGroups) {
+      List<int[]> keySets = new ArrayList<>(keySetGroup.length);
+      for (int[] keySet : keySetGroup) {
+        keySets.add(keySet.clone());
+      }
+      result.add(Collections.unmodifiableList(keySets));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Checks if the given cell can contain entities matching this filter.
+   *
+   * @param cell the grid cell to check
+   * @return false if the cell can be skipped
+   */
+  public boolean test(GridOSHEntity cell) {
+    return test(cell.getTagKeys());
+  }
+
+  /**
+   * Checks if a cell with the given tag keys can contain entities matching this filter.
+   *
+   * @param cellTagKeys the sorted tag keys of a cell, or {@code null} if unknown
+   * @return false if the cell can be skipped
+   */
+  public boolean test(int[] cellTagKeys) {
+    if (cellTagKeys == null) {
+      return true;
+    }
+    for (int[] keyGroup : keyGroups) {
+      if (!containsAny(cellTagKeys, keyGroup)) {
+        return false;
+      }
+    }
+    for (int[][] keySetGroup : keySetGroups) {
+      if (!containsAllOfAny(cellTagKeys, keySetGroup)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsAllOfAny(int[] cellTagKeys, int[][] keySets) {
+    for (int[] keySet : keySets) {
+      if (containsAll(cellTagKeys, keySet)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsAll(int[] cellTagKeys, int[] keys) {
+    for (int key : keys) {
+      if (Arrays.binarySearch(cellTagKeys, key) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsAny(int[] cellTagKeys, int[] keys) {
+    for (int key : keys) {
+      if (Arrays.binarySearch(cellTagKeys, key) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -299,8 +299,18 @@ public class Geo {
   // = geometry clipping =
   // =====================
 
+  /**
+   * Clips a geometry to a bounding box.
+   *
+   * <p>Uses the fast {@link RectangleClipper} instead of a full JTS overlay operation where
+   * possible.</p>
+   *
+   * @param obj the geometry to clip
+   * @param bbox the bounding box to clip the geometry to
+   * @return the intersection of the geometry and the bounding box
+   */
   public static Geometry clip(Geometry obj, OSHDBBoundingBox bbox) {
-    return obj.intersection(OSHDBGeometryBuilder.getGeometry(bbox));
+    return RectangleClipper.clip(obj, bbox);
   }
 
   public static <P extends Geometry & Polygonal> Geometry clip(Geometry obj, P poly) {
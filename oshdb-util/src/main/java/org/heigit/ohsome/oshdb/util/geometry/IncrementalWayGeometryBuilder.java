@@ -0,0 +1,264 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMMember;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Builds the geometries of consecutive versions (or minor versions) of a single OSM way.
+ *
+ * <p>Produces the same geometries as {@link OSHDBGeometryBuilder#getGeometry(OSMEntity,
+ * OSHDBTimestamp, TagInterpreter)}, but keeps the state of the previously built geometry: The
+ * history of each node of the way is decoded only once, and when the next geometry is requested
+ * for a later timestamp and the way still references the same list of nodes, only the positions of
+ * those nodes which have been modified in the meantime are patched into a copy of the previous
+ * coordinate array. If neither the node list nor any node position has changed (e.g. for a
+ * modification of the way's tags), the previous geometry is returned unchanged. Whenever the node
+ * list changes or the geometry is requested for an earlier timestamp than before, the geometry is
+ * rebuilt from scratch (still using the already decoded node histories).</p>
+ *
+ * <p>An instance should be used for the versions of one and the same way only, ideally in
+ * chronological order.</p>
+ */
+public class IncrementalWayGeometryBuilder {
+  private final Map<Long, NodeHistory> nodeHistories = new HashMap<>();
+
+  private long[] refIds = null;
+  private NodeHistory[] refHistories;
+  private int[] refVersions;
+  private int[] refCoordinateIndices;
+  private long lastTimestamp;
+  private double[] coords;
+  private CoordinateSequence coordinateSequence;
+  private boolean isArea;
+  private Geometry geometry = null;
+
+  /**
+   * Gets the geometry of a version of the way at a specific timestamp.
+   *
+   * @param way the osm way to generate the geometry of
+   * @param timestamp the timestamp for which to create the way's geometry
+   * @param areaDecider a TagInterpreter object which decides whether to generate a linear or a
+   *                    polygonal geometry for the way (based on its tags)
+   * @return a JTS geometry object (a LineString, Polygon or Point)
+   */
+  public synchronized Geometry getGeometry(
+      OSMWay way, OSHDBTimestamp timestamp, TagInterpreter areaDecider
+  ) {
+    if (!way.isVisible()) {
+      return OSHDBGeometryBuilder.getGeometry(way, timestamp, areaDecider);
+    }
+    long t = timestamp.getRawUnixTimestamp();
+    boolean isArea = areaDecider.isArea(way);
+    OSMMember[] refs = way.getRefs();
+    if (refIds == null || t < lastTimestamp || !hasSameRefs(refs)) {
+      resolve(refs, t);
+      buildCoordinates();
+    } else if (!update(t)) {
+      // nothing has changed, except maybe the way's tags
+      if (geometry == null || isArea != this.isArea) {
+        geometry = OSHDBGeometryBuilder.getWayGeometry(way, coordinateSequence, isArea);
+        this.isArea = isArea;
+      }
+      lastTimestamp = t;
+      return geometry;
+    }
+    lastTimestamp = t;
+    this.isArea = isArea;
+    geometry = OSHDBGeometryBuilder.getWayGeometry(way, coordinateSequence, isArea);
+    return geometry;
+  }
+
+  private boolean hasSameRefs(OSMMember[] refs) {
+    if (refs.length != refIds.length) {
+      return false;
+    }
+    for (int i = 0; i < refs.length; i++) {
+      if (refs[i].getId() != refIds[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Looks up the node versions of all nodes of the given node list from scratch.
+   */
+  private void resolve(OSMMember[] refs, long timestamp) {
+    refIds = new long[refs.length];
+    refHistories = new NodeHistory[refs.length];
+    refVersions = new int[refs.length];
+    for (int i = 0; i < refs.length; i++) {
+      refIds[i] = refs[i].getId();
+      OSHEntity node = refs[i].getEntity();
+      if (node == null) {
+        refVersions[i] = -1;
+        continue;
+      }
+      NodeHistory history = nodeHistories.computeIfAbsent(node.getId(),
+          ignored -> new NodeHistory(node));
+      refHistories[i] = history;
+      refVersions[i] = history.resolve(timestamp);
+    }
+  }
+
+  /**
+   * Writes the coordinates of the currently resolved node versions into a new coordinate array.
+   */
+  private void buildCoordinates() {
+    double[] newCoords = new double[refIds.length * 2];
+    int[] newIndices = new int[refIds.length];
+    int size = 0;
+    for (int i = 0; i < refIds.length; i++) {
+      NodeHistory history = refHistories[i];
+      int version = refVersions[i];
+      if (history == null || !history.isVisible(version)) {
+        newIndices[i] = -1;
+        continue;
+      }
+      newIndices[i] = size;
+      newCoords[size++] = history.longitudes[version];
+      newCoords[size++] = history.latitudes[version];
+    }
+    if (size < newCoords.length) {
+      double[] trimmed = new double[size];
+      System.arraycopy(newCoords, 0, trimmed, 0, size);
+      newCoords = trimmed;
+    }
+    setCoordinates(newCoords);
+    refCoordinateIndices = newIndices;
+  }
+
+  /**
+   * Advances all node versions to the given (later) timestamp and patches the coordinates of
+   * moved nodes.
+   *
+   * @return true if the coordinates of the way have changed
+   */
+  private boolean update(long timestamp) {
+    double[] newCoords = null;
+    boolean visibilityChanged = false;
+    for (int i = 0; i < refIds.length; i++) {
+      NodeHistory history = refHistories[i];
+      if (history == null) {
+        continue;
+      }
+      int oldVersion = refVersions[i];
+      int version = history.resolve(timestamp);
+      if (version == oldVersion) {
+        continue;
+      }
+      refVersions[i] = version;
+      boolean visible = history.isVisible(version);
+      if (visible != history.isVisible(oldVersion)) {
+        visibilityChanged = true;
+      } else if (visible && !visibilityChanged) {
+        int index = refCoordinateIndices[i];
+        double lon = history.longitudes[version];
+        double lat = history.latitudes[version];
+        if (lon != coords[index] || lat != coords[index + 1]) {
+          if (newCoords == null) {
+            newCoords = coords.clone();
+          }
+          newCoords[index] = lon;
+          newCoords[index + 1] = lat;
+        }
+      }
+    }
+    if (visibilityChanged) {
+      // the set of nodes forming the geometry has changed: rebuild coordinate array
+      buildCoordinates();
+      return true;
+    } else if (newCoords != null) {
+      setCoordinates(newCoords);
+      return true;
+    }
+    return false;
+  }
+
+  private void setCoordinates(double[] newCoords) {
+    coords = newCoords;
+    coordinateSequence = new PackedCoordinateSequence.Double(newCoords, 2, 0);
+  }
+
+  /**
+   * The decoded version history of a single node.
+   *
+   * <p>Versions are stored in the order of the node's {@link OSHEntity#getVersions()}, i.e.
+   * usually newest first. A version is valid at a given timestamp if it is the first version with
+   * a timestamp equal or before the given timestamp (this matches the behaviour of
+   * {@link org.heigit.ohsome.oshdb.osh.OSHEntities#getByTimestamp(OSHEntity, OSHDBTimestamp)}).
+   * </p>
+   */
+  private static class NodeHistory {
+    private final long[] timestamps;
+    private final double[] longitudes;
+    private final double[] latitudes;
+    private final boolean[] visible;
+    private final boolean ordered;
+    // index of the currently valid version (for ordered histories)
+    private int cursor;
+    private long cursorTimestamp = Long.MIN_VALUE;
+
+    NodeHistory(OSHEntity node) {
+      List<OSMEntity> versions = new ArrayList<>();
+      node.getVersions().forEach(versions::add);
+      int size = versions.size();
+      timestamps = new long[size];
+      longitudes = new double[size];
+      latitudes = new double[size];
+      visible = new boolean[size];
+      boolean isOrdered = true;
+      for (int i = 0; i < size; i++) {
+        OSMNode version = (OSMNode) versions.get(i);
+        timestamps[i] = version.getTimestamp().getRawUnixTimestamp();
+        visible[i] = version.isVisible();
+        longitudes[i] = version.getLongitude();
+        latitudes[i] = version.getLatitude();
+        if (i > 0 && timestamps[i] > timestamps[i - 1]) {
+          isOrdered = false;
+        }
+      }
+      ordered = isOrdered;
+      cursor = size;
+    }
+
+    /**
+     * Returns the index of the node version which is valid at the given timestamp, or -1 if the
+     * node doesn't exist yet at this time.
+     */
+    int resolve(long timestamp) {
+      if (!ordered) {
+        for (int i = 0; i < timestamps.length; i++) {
+          if (timestamps[i] <= timestamp) {
+            return i;
+          }
+        }
+        return -1;
+      }
+      if (timestamp < cursorTimestamp) {
+        cursor = timestamps.length;
+      }
+      cursorTimestamp = timestamp;
+      while (cursor > 0 && timestamps[cursor - 1] <= timestamp) {
+        cursor--;
+      }
+      return cursor < timestamps.length ? cursor : -1;
+    }
+
+    boolean isVisible(int version) {
+      return version >= 0 && visible[version];
+    }
+  }
+}
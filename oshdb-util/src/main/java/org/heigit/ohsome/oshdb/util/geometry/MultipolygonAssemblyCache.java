@@ -0,0 +1,147 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.heigit.ohsome.oshdb.osm.OSMNode;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Memoizes assembled multipolygon geometries.
+ *
+ * <p>Assembling a multipolygon from its member ways (joining ways to rings, merging touching
+ * rings, matching inner to outer rings) is expensive for large relations. Often, the same
+ * relation is assembled many times with identical member geometries, e.g. for each requested
+ * snapshot timestamp, or for each modification of the relation which doesn't affect its
+ * geometry. This cache stores the assembled geometry under a key made of the states of all
+ * outer and inner member ways, so that unchanged multipolygons are assembled only once.</p>
+ *
+ * <p>The state of a member way consists of its id and version, and the timestamp of the most
+ * recent modification and the number of its (visible) nodes at the requested timestamp. This
+ * identifies the way's geometry exactly: every node modification would change the latest
+ * modification timestamp, and every node deletion would change the number of nodes.</p>
+ *
+ * <p>JTS geometries are mutable: the cache therefore stores and returns copies of the geometries,
+ * so that callers can't modify the geometries returned to others.</p>
+ *
+ * <p>The cache holds a limited number of entries and evicts the least recently used ones. It is
+ * meant to be used for the duration of a single query (or a part of it, e.g. a single grid
+ * cell) only.</p>
+ */
+public class MultipolygonAssemblyCache {
+  /** Default maximum number of cached geometries. */
+  public static final int DEFAULT_MAX_SIZE = 32;
+
+  private final Map<Key, Geometry> cache;
+
+  public MultipolygonAssemblyCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a cache holding at most the given number of geometries.
+   *
+   * @param maxSize maximum number of cached geometries
+   */
+  public MultipolygonAssemblyCache(int maxSize) {
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Geometry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  Geometry get(Key key) {
+    Geometry geometry;
+    synchronized (this) {
+      geometry = cache.get(key);
+    }
+    return geometry == null ? null : geometry.copy();
+  }
+
+  void put(Key key, Geometry geometry) {
+    Geometry copy = geometry.copy();
+    synchronized (this) {
+      cache.put(key, copy);
+    }
+  }
+
+  /**
+   * Returns the number of currently cached geometries.
+   */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  /**
+   * Identifies a multipolygon by the states of its outer and inner member ways.
+   */
+  static final class Key {
+    private static final int VALUES_PER_WAY = 4;
+
+    private final long[] values;
+    private final int hash;
+
+    private Key(long[] values) {
+      this.values = values;
+      this.hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * Creates the key for a multipolygon.
+     *
+     * @param outerWays the (visible) outer member ways
+     * @param outerLines the resolved visible nodes of each outer member way
+     * @param innerWays the (visible) inner member ways
+     * @param innerLines the resolved visible nodes of each inner member way
+     */
+    static Key of(
+        List<OSMWay> outerWays, List<List<OSMNode>> outerLines,
+        List<OSMWay> innerWays, List<List<OSMNode>> innerLines
+    ) {
+      long[] values = new long[1 + VALUES_PER_WAY * (outerWays.size() + innerWays.size())];
+      values[0] = outerWays.size();
+      int pos = 1;
+      pos = addWays(values, pos, outerWays, outerLines);
+      addWays(values, pos, innerWays, innerLines);
+      return new Key(values);
+    }
+
+    private static int addWays(long[] values, int pos, List<OSMWay> ways,
+        List<List<OSMNode>> lines) {
+      for (int i = 0; i < ways.size(); i++) {
+        OSMWay way = ways.get(i);
+        List<OSMNode> line = lines.get(i);
+        long lastModification = way.getTimestamp().getRawUnixTimestamp();
+        for (OSMNode node : line) {
+          lastModification = Math.max(lastModification, node.getTimestamp().getRawUnixTimestamp());
+        }
+        values[pos++] = way.getId();
+        values[pos++] = way.getVersion();
+        values[pos++] = lastModification;
+        values[pos++] = line.size();
+      }
+      return pos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hash == other.hash && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.Polygon;
 import org.locationtech.jts.geom.Polygonal;
 import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.locationtech.jts.geom.prep.PreparedGeometry;
 import org.locationtech.jts.geom.prep.PreparedPolygon;
 import org.locationtech.jts.index.strtree.STRtree;
@@ -44,6 +45,8 @@ import org.slf4j.LoggerFactory;
  */
 public class OSHDBGeometryBuilder {
   private static final Logger LOG = LoggerFactory.getLogger(OSHDBGeometryBuilder.class);
+  /** Geometry factories are thread safe, so a single instance is shared by all calls. */
+  private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
   private OSHDBGeometryBuilder() {
     throw new IllegalStateException("Utility class");
@@ -71,7 +74,29 @@ public class OSHDBGeometryBuilder {
   public static Geometry getGeometry(
       OSMEntity entity, OSHDBTimestamp timestamp, TagInterpreter areaDecider
   ) {
-    GeometryFactory geometryFactory = new GeometryFactory();
+    return getGeometry(entity, timestamp, areaDecider, null);
+  }
+
+  /**
+   * Gets the geometry of an OSM entity at a specific timestamp, reusing already assembled
+   * multipolygon geometries.
+   *
+   * <p>See {@link #getGeometry(OSMEntity, OSHDBTimestamp, TagInterpreter)}.</p>
+   *
+   * @param entity the osm entity to generate the geometry of
+   * @param timestamp the timestamp for which to create the entity's geometry
+   * @param areaDecider a TagInterpreter object which decides whether to generate a linear or a
+   *                    polygonal geometry for the respective entity (based on its tags)
+   * @param multipolygonCache (optional) a cache of previously assembled multipolygon geometries
+   * @return a JTS geometry object (simple features compatible, i.e. a Point, LineString, Polygon
+   *         or MultiPolygon)
+   */
+  @Nonnull
+  public static Geometry getGeometry(
+      OSMEntity entity, OSHDBTimestamp timestamp, TagInterpreter areaDecider,
+      MultipolygonAssemblyCache multipolygonCache
+  ) {
+    GeometryFactory geometryFactory = GEOMETRY_FACTORY;
     if (timestamp.compareTo(entity.getTimestamp()) < 0) {
       throw new AssertionError(
           "cannot produce geometry of entity for timestamp before this entity's version's timestamp"
@@ -91,29 +116,7 @@ public class OSHDBGeometryBuilder {
         return geometryFactory.createLineString((CoordinateSequence) null);
       }
       // todo: handle old-style multipolygons here???
-      Coordinate[] coords =
-          way.getRefEntities(timestamp)
-              .filter(Objects::nonNull)
-              .filter(OSMEntity::isVisible)
-              .map(nd -> new Coordinate(nd.getLongitude(), nd.getLatitude()))
-              .toArray(Coordinate[]::new);
-      if (areaDecider.isArea(entity)) {
-        if (coords.length >= 4 && coords[0].equals2D(coords[coords.length - 1])) {
-          return geometryFactory.createPolygon(coords);
-        } else {
-          LOG.warn("way/{} doesn't form a linear ring - falling back to linestring", way.getId());
-        }
-      }
-      if (coords.length >= 2) {
-        return geometryFactory.createLineString(coords);
-      }
-      if (coords.length == 1) {
-        LOG.info("way/{} is single-noded - falling back to point geometry", way.getId());
-        return geometryFactory.createPoint(coords[0]);
-      } else {
-        LOG.warn("way/{} with no nodes - falling back to empty (point) geometry", way.getId());
-        return geometryFactory.createPoint((Coordinate) null);
-      }
+      return getWayGeometry(way, wayCoordinates(way, timestamp), areaDecider.isArea(entity));
     } else {
       OSMRelation relation = (OSMRelation) entity;
       if (!relation.isVisible()) {
@@ -126,7 +129,7 @@ public class OSHDBGeometryBuilder {
       if (areaDecider.isArea(entity)) {
         try {
           Geometry multipolygon = OSHDBGeometryBuilder.getMultiPolygonGeometry(
-              relation, timestamp, areaDecider, geometryFactory
+              relation, timestamp, areaDecider, geometryFactory, multipolygonCache
           );
           if (!multipolygon.isEmpty()) {
             return multipolygon;
@@ -139,7 +142,8 @@ public class OSHDBGeometryBuilder {
       /* todo:implement multilinestring mode for stuff like route relations
        * if (areaDecider.isLine(entity)) { return getMultiLineStringGeometry(timestamp); }
        */
-      return getGeometryCollectionGeometry(relation, timestamp, areaDecider, geometryFactory);
+      return getGeometryCollectionGeometry(
+          relation, timestamp, areaDecider, geometryFactory, multipolygonCache);
     }
   }
   
@@ -158,7 +162,7 @@ public class OSHDBGeometryBuilder {
   public static Polygon getGeometry(@Nonnull OSHDBBoundingBox bbox) {
     assert bbox != null : "a bounding box is not allowed to be null";
 
-    GeometryFactory gf = new GeometryFactory();
+    GeometryFactory gf = GEOMETRY_FACTORY;
 
     Coordinate sw = new Coordinate(bbox.getMinLon(), bbox.getMinLat());
     Coordinate se = new Coordinate(bbox.getMaxLon(), bbox.getMinLat());
@@ -174,7 +178,8 @@ public class OSHDBGeometryBuilder {
       OSMRelation relation,
       OSHDBTimestamp timestamp,
       TagInterpreter areaDecider,
-      GeometryFactory geometryFactory
+      GeometryFactory geometryFactory,
+      MultipolygonAssemblyCache multipolygonCache
   ) {
     OSMMember[] relationMembers = relation.getMembers();
     Geometry[] geoms = new Geometry[relationMembers.length];
@@ -204,7 +209,8 @@ public class OSHDBGeometryBuilder {
         geoms[i] = OSHDBGeometryBuilder.getGeometry(
             memberEntity,
             timestamp,
-            areaDecider
+            areaDecider,
+            multipolygonCache
         );
       }
     }
@@ -221,23 +227,39 @@ public class OSHDBGeometryBuilder {
       OSMRelation relation,
       OSHDBTimestamp timestamp,
       TagInterpreter areaDecider,
-      GeometryFactory geometryFactory
+      GeometryFactory geometryFactory,
+      MultipolygonAssemblyCache multipolygonCache
   ) {
-    Stream<Stream<OSMNode>> outerLines = waysToLines(
-        relation.getMemberEntities(timestamp, areaDecider::isMultipolygonOuterMember),
-        timestamp
-    );
+    List<OSMWay> outerWays = visibleWays(
+        relation.getMemberEntities(timestamp, areaDecider::isMultipolygonOuterMember));
+    List<OSMWay> innerWays = visibleWays(
+        relation.getMemberEntities(timestamp, areaDecider::isMultipolygonInnerMember));
+    List<List<OSMNode>> outerLines = waysToLines(outerWays, timestamp);
+    List<List<OSMNode>> innerLines = waysToLines(innerWays, timestamp);
 
-    Stream<Stream<OSMNode>> innerLines = waysToLines(
-        relation.getMemberEntities(timestamp, areaDecider::isMultipolygonInnerMember),
-        timestamp
-    );
+    MultipolygonAssemblyCache.Key cacheKey = null;
+    if (multipolygonCache != null) {
+      cacheKey = MultipolygonAssemblyCache.Key.of(outerWays, outerLines, innerWays, innerLines);
+      Geometry cached = multipolygonCache.get(cacheKey);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    Geometry result = assembleMultiPolygon(outerLines, innerLines, geometryFactory);
+    if (multipolygonCache != null) {
+      multipolygonCache.put(cacheKey, result);
+    }
+    return result;
+  }
 
+  private static Geometry assembleMultiPolygon(
+      List<List<OSMNode>> outerLines,
+      List<List<OSMNode>> innerLines,
+      GeometryFactory geometryFactory
+  ) {
     // construct rings from polygons
     List<LinearRing> outerRings = OSHDBGeometryBuilder.buildRings(outerLines).stream()
-        .map(ring -> geometryFactory.createLinearRing(
-            ring.stream().map(node -> new Coordinate(node.getLongitude(), node.getLatitude()))
-                .toArray(Coordinate[]::new)))
+        .map(ring -> geometryFactory.createLinearRing(ringCoordinates(ring)))
         .collect(Collectors.toList());
     List<LinkedList<OSMNode>> innerRingsNodes = OSHDBGeometryBuilder.buildRings(innerLines);
     // check if there are any touching inner/outer rings, merge any
@@ -245,9 +267,7 @@ public class OSHDBGeometryBuilder {
     // create JTS rings for non-degenerate rings only
     List<LinearRing> innerRings = innerRingsNodes.stream()
         .filter(ring -> ring.size() >= LinearRing.MINIMUM_VALID_SIZE)
-        .map(ring -> geometryFactory.createLinearRing(
-            ring.stream().map(node -> new Coordinate(node.getLongitude(), node.getLatitude()))
-                .toArray(Coordinate[]::new)))
+        .map(ring -> geometryFactory.createLinearRing(ringCoordinates(ring)))
         .collect(Collectors.toList());
 
     // construct multipolygon from rings
@@ -292,16 +312,119 @@ public class OSHDBGeometryBuilder {
     return result;
   }
 
-  private static Stream<Stream<OSMNode>> waysToLines(
-      Stream<OSMEntity> members, OSHDBTimestamp timestamp) {
+  /**
+   * Creates the geometry of a (visible) way from the already resolved coordinates of its nodes.
+   *
+   * @param way the way
+   * @param coords the coordinates of the way's visible nodes
+   * @param isArea whether the way should be represented as a polygon, if it forms a valid ring
+   * @return a Polygon, LineString or (possibly empty) Point geometry
+   */
+  static Geometry getWayGeometry(OSMWay way, CoordinateSequence coords, boolean isArea) {
+    int size = coords.size();
+    if (isArea) {
+      if (size >= 4 && coords.getX(0) == coords.getX(size - 1)
+          && coords.getY(0) == coords.getY(size - 1)) {
+        return GEOMETRY_FACTORY.createPolygon(coords);
+      } else {
+        LOG.warn("way/{} doesn't form a linear ring - falling back to linestring", way.getId());
+      }
+    }
+    if (size >= 2) {
+      return GEOMETRY_FACTORY.createLineString(coords);
+    }
+    if (size == 1) {
+      LOG.info("way/{} is single-noded - falling back to point geometry", way.getId());
+      return GEOMETRY_FACTORY.createPoint(coords);
+    } else {
+      LOG.warn("way/{} with no nodes - falling back to empty (point) geometry", way.getId());
+      return GEOMETRY_FACTORY.createPoint((Coordinate) null);
+    }
+  }
+
+  /**
+   * Resolves the coordinates of a way's nodes at the given timestamp.
+   *
+   * <p>The node versions are looked up directly in the node histories embedded in the way's
+   * members and written into a packed coordinate array, avoiding intermediate streams and
+   * {@link Coordinate} objects. The version of a node which is referenced multiple times by the
+   * way (e.g. the first and last node of a closed way) is resolved only once.</p>
+   *
+   * @param way the way
+   * @param timestamp the timestamp at which to resolve the way's nodes
+   * @return the (2D) coordinates of all visible nodes of the way, in order
+   */
+  private static CoordinateSequence wayCoordinates(OSMWay way, OSHDBTimestamp timestamp) {
+    OSMMember[] refs = way.getRefs();
+    double[] coords = new double[refs.length * 2];
+    int size = 0;
+    OSHEntity lastEntity = null;
+    OSMNode lastNode = null;
+    OSHEntity firstEntity = null;
+    OSMNode firstNode = null;
+    for (OSMMember ref : refs) {
+      OSHEntity entity = ref.getEntity();
+      if (entity == null) {
+        continue;
+      }
+      OSMNode node;
+      if (entity == lastEntity) {
+        node = lastNode;
+      } else if (entity == firstEntity) {
+        node = firstNode;
+      } else {
+        node = (OSMNode) OSHEntities.getByTimestamp(entity, timestamp);
+      }
+      if (firstEntity == null) {
+        firstEntity = entity;
+        firstNode = node;
+      }
+      lastEntity = entity;
+      lastNode = node;
+      if (node == null || !node.isVisible()) {
+        continue;
+      }
+      coords[size++] = node.getLongitude();
+      coords[size++] = node.getLatitude();
+    }
+    if (size < coords.length) {
+      coords = Arrays.copyOf(coords, size);
+    }
+    return new PackedCoordinateSequence.Double(coords, 2, 0);
+  }
+
+  /**
+   * Writes the coordinates of a list of nodes into a packed coordinate sequence.
+   */
+  private static CoordinateSequence ringCoordinates(Collection<OSMNode> nodes) {
+    double[] coords = new double[nodes.size() * 2];
+    int i = 0;
+    for (OSMNode node : nodes) {
+      coords[i++] = node.getLongitude();
+      coords[i++] = node.getLatitude();
+    }
+    return new PackedCoordinateSequence.Double(coords, 2, 0);
+  }
+
+  private static List<OSMWay> visibleWays(Stream<OSMEntity> members) {
     return members
         .map(osm -> (OSMWay) osm)
         .filter(Objects::nonNull)
         .filter(OSMEntity::isVisible)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Resolves the visible nodes of the given ways.
+   */
+  private static List<List<OSMNode>> waysToLines(List<OSMWay> ways, OSHDBTimestamp timestamp) {
+    return ways.stream()
         .map(way -> way.getRefEntities(timestamp)
             .filter(Objects::nonNull)
             .filter(OSMEntity::isVisible)
-        );
+            .collect(Collectors.toList())
+        )
+        .collect(Collectors.toList());
   }
 
   /**
@@ -486,10 +609,10 @@ public class OSHDBGeometryBuilder {
   }
 
   // helper that joins adjacent osm ways into linear rings
-  private static List<LinkedList<OSMNode>> buildRings(Stream<Stream<OSMNode>> lines) {
+  private static List<LinkedList<OSMNode>> buildRings(List<List<OSMNode>> lines) {
     // make a (mutable) copy of the lines list
-    List<LinkedList<OSMNode>> ways = lines
-        .map(line -> line.collect(Collectors.toCollection(LinkedList::new)))
+    List<LinkedList<OSMNode>> ways = lines.stream()
+        .map(LinkedList::new)
         .filter(nodesList -> !nodesList.isEmpty())
         .collect(Collectors.toCollection(LinkedList::new));
 
@@ -0,0 +1,481 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Clips geometries to an axis-aligned rectangle.
+ *
+ * <p>This is a fast alternative to a full JTS overlay operation ({@code
+ * geometry.intersection(rectangle)}):</p>
+ * <ul>
+ *   <li>lines are clipped segment by segment using the Liang–Barsky algorithm,</li>
+ *   <li>polygon rings are clipped with the Sutherland–Hodgman algorithm; holes are kept if they
+ *   are fully inside of the rectangle and dropped if they are fully outside of it.</li>
+ * </ul>
+ *
+ * <p>Whenever these algorithms would not produce the same result as JTS, the JTS overlay is used
+ * as a fallback. This is the case for polygons whose rings cross one of the rectangle's edges more
+ * than twice (where Sutherland–Hodgman would produce degenerate connecting edges instead of
+ * multiple parts), holes which intersect the rectangle's boundary, geometries which only touch the
+ * rectangle (where JTS returns lower dimensional results), and geometry types other than
+ * (multi)points, (multi)lines and (multi)polygons.</p>
+ */
+public class RectangleClipper {
+  private static final int LEFT = 0;
+  private static final int RIGHT = 1;
+  private static final int BOTTOM = 2;
+  private static final int TOP = 3;
+
+  private RectangleClipper() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * Clips a geometry to a bounding box.
+   *
+   * @param geometry the geometry to clip
+   * @param bbox the bounding box to clip the geometry to
+   * @return the intersection of the geometry and the bounding box
+   */
+  public static Geometry clip(Geometry geometry, OSHDBBoundingBox bbox) {
+    return clip(geometry, new Envelope(
+        bbox.getMinLon(), bbox.getMaxLon(), bbox.getMinLat(), bbox.getMaxLat()));
+  }
+
+  /**
+   * Clips a geometry to a rectangle.
+   *
+   * @param geometry the geometry to clip
+   * @param rectangle the rectangle to clip the geometry to
+   * @return the intersection of the geometry and the rectangle
+   */
+  public static Geometry clip(Geometry geometry, Envelope rectangle) {
+    if (geometry.isEmpty() || rectangle.contains(geometry.getEnvelopeInternal())) {
+      return geometry;
+    }
+    GeometryFactory gf = geometry.getFactory();
+    Geometry result = null;
+    if (!rectangle.intersects(geometry.getEnvelopeInternal())) {
+      result = createEmpty(geometry, gf);
+    } else if (geometry instanceof Point) {
+      result = rectangle.intersects(geometry.getCoordinate())
+          ? geometry : gf.createPoint((Coordinate) null);
+    } else if (geometry instanceof LineString) {
+      result = clipLines(geometry, rectangle, gf);
+    } else if (geometry instanceof MultiLineString) {
+      result = clipLines(geometry, rectangle, gf);
+    } else if (geometry instanceof Polygon) {
+      result = clipPolygons(geometry, rectangle, gf);
+    } else if (geometry instanceof MultiPolygon) {
+      result = clipPolygons(geometry, rectangle, gf);
+    }
+    if (result == null) {
+      // fall back to JTS overlay
+      return geometry.intersection(gf.toGeometry(rectangle));
+    }
+    return result;
+  }
+
+  private static Geometry createEmpty(Geometry geometry, GeometryFactory gf) {
+    switch (geometry.getDimension()) {
+      case 0:
+        return gf.createPoint((Coordinate) null);
+      case 1:
+        return gf.createLineString((CoordinateSequence) null);
+      default:
+        return gf.createPolygon((LinearRing) null);
+    }
+  }
+
+  // =================
+  // = line clipping =
+  // =================
+
+  /**
+   * Clips all (multi)line parts of a geometry.
+   *
+   * @return the clipped lines, or null if the result would be (partially) degenerate
+   */
+  private static Geometry clipLines(Geometry lines, Envelope rectangle, GeometryFactory gf) {
+    List<LineString> result = new ArrayList<>();
+    for (int i = 0; i < lines.getNumGeometries(); i++) {
+      if (!clipLine((LineString) lines.getGeometryN(i), rectangle, gf, result)) {
+        return null;
+      }
+    }
+    if (result.isEmpty()) {
+      return gf.createLineString((CoordinateSequence) null);
+    } else if (result.size() == 1) {
+      return result.get(0);
+    } else {
+      return gf.createMultiLineString(result.toArray(new LineString[0]));
+    }
+  }
+
+  /**
+   * Clips a line string using the Liang–Barsky algorithm for each of its segments.
+   *
+   * @return false if the line only touches the rectangle in a single point somewhere
+   */
+  private static boolean clipLine(
+      LineString line, Envelope rectangle, GeometryFactory gf, List<LineString> result
+  ) {
+    CoordinateSequence coords = line.getCoordinateSequence();
+    Envelope lineEnvelope = line.getEnvelopeInternal();
+    if (rectangle.contains(lineEnvelope)) {
+      result.add(line);
+      return true;
+    } else if (!rectangle.intersects(lineEnvelope)) {
+      return true;
+    }
+    CoordinateBuffer part = null;
+    double[] t = new double[2];
+    for (int i = 1; i < coords.size(); i++) {
+      double x0 = coords.getX(i - 1);
+      double y0 = coords.getY(i - 1);
+      double x1 = coords.getX(i);
+      double y1 = coords.getY(i);
+      if (!clipSegment(x0, y0, x1, y1, rectangle, t)) {
+        if (part != null) {
+          if (!part.addLineTo(result, gf)) {
+            return false;
+          }
+          part = null;
+        }
+        continue;
+      }
+      if (part != null && t[0] > 0) {
+        // cannot normally happen: the previous segment ended inside of the rectangle
+        if (!part.addLineTo(result, gf)) {
+          return false;
+        }
+        part = null;
+      }
+      if (part == null) {
+        part = new CoordinateBuffer(coords.size() - i + 1);
+        part.add(x0 + t[0] * (x1 - x0), y0 + t[0] * (y1 - y0));
+      }
+      if (t[1] < 1) {
+        part.add(x0 + t[1] * (x1 - x0), y0 + t[1] * (y1 - y0));
+        if (!part.addLineTo(result, gf)) {
+          return false;
+        }
+        part = null;
+      } else {
+        part.add(x1, y1);
+      }
+    }
+    return part == null || part.addLineTo(result, gf);
+  }
+
+  /**
+   * Liang–Barsky line clipping of a single segment.
+   *
+   * @param t output parameter: the start and end parameter of the clipped part of the segment
+   * @return false if the segment lies completely outside of the rectangle
+   */
+  private static boolean clipSegment(
+      double x0, double y0, double x1, double y1, Envelope rectangle, double[] t
+  ) {
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    double[] p = {-dx, dx, -dy, dy};
+    double[] q = {
+        x0 - rectangle.getMinX(),
+        rectangle.getMaxX() - x0,
+        y0 - rectangle.getMinY(),
+        rectangle.getMaxY() - y0
+    };
+    double t0 = 0;
+    double t1 = 1;
+    for (int k = 0; k < 4; k++) {
+      if (p[k] == 0) {
+        if (q[k] < 0) {
+          // parallel and outside
+          return false;
+        }
+      } else {
+        double r = q[k] / p[k];
+        if (p[k] < 0) {
+          if (r > t1) {
+            return false;
+          } else if (r > t0) {
+            t0 = r;
+          }
+        } else {
+          if (r < t0) {
+            return false;
+          } else if (r < t1) {
+            t1 = r;
+          }
+        }
+      }
+    }
+    t[0] = t0;
+    t[1] = t1;
+    return true;
+  }
+
+  // ====================
+  // = polygon clipping =
+  // ====================
+
+  /**
+   * Clips all (multi)polygon parts of a geometry.
+   *
+   * @return the clipped polygons, or null if the rectangle clipper cannot handle this input
+   */
+  private static Geometry clipPolygons(Geometry polygons, Envelope rectangle, GeometryFactory gf) {
+    List<Polygon> result = new ArrayList<>();
+    for (int i = 0; i < polygons.getNumGeometries(); i++) {
+      Polygon polygon = (Polygon) polygons.getGeometryN(i);
+      Envelope polygonEnvelope = polygon.getEnvelopeInternal();
+      if (rectangle.contains(polygonEnvelope)) {
+        result.add(polygon);
+      } else if (rectangle.intersects(polygonEnvelope)) {
+        Polygon clipped = clipPolygon(polygon, rectangle, gf);
+        if (clipped == null) {
+          return null;
+        } else if (!clipped.isEmpty()) {
+          result.add(clipped);
+        }
+      }
+    }
+    if (result.isEmpty()) {
+      return gf.createPolygon((LinearRing) null);
+    } else if (result.size() == 1) {
+      return result.get(0);
+    } else {
+      return gf.createMultiPolygon(result.toArray(new Polygon[0]));
+    }
+  }
+
+  private static Polygon clipPolygon(Polygon polygon, Envelope rectangle, GeometryFactory gf) {
+    List<LinearRing> holes = new ArrayList<>(polygon.getNumInteriorRing());
+    for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+      LinearRing hole = (LinearRing) polygon.getInteriorRingN(i);
+      Envelope holeEnvelope = hole.getEnvelopeInternal();
+      if (holeEnvelope.getMinX() > rectangle.getMinX()
+          && holeEnvelope.getMaxX() < rectangle.getMaxX()
+          && holeEnvelope.getMinY() > rectangle.getMinY()
+          && holeEnvelope.getMaxY() < rectangle.getMaxY()) {
+        // hole fully inside the rectangle (and not touching its boundary)
+        holes.add(hole);
+      } else if (rectangle.intersects(holeEnvelope)) {
+        // hole might touch or cross the boundary of the rectangle
+        return null;
+      }
+    }
+    CoordinateSequence shell = polygon.getExteriorRing().getCoordinateSequence();
+    // the ring without its closing coordinate
+    int size = shell.size() - 1;
+    double[] xs = new double[size];
+    double[] ys = new double[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = shell.getX(i);
+      ys[i] = shell.getY(i);
+    }
+    CoordinateBuffer ring = new CoordinateBuffer(xs, ys, size);
+    for (int edge = LEFT; edge <= TOP; edge++) {
+      ring = clipRing(ring, edge, rectangle);
+      if (ring == null) {
+        return null;
+      }
+      if (ring.size == 0) {
+        return gf.createPolygon((LinearRing) null);
+      }
+    }
+    ring.removeRepeatedPoints();
+    if (ring.size < 3 || ring.signedArea() == 0) {
+      // polygon is only touching the rectangle
+      return null;
+    }
+    return gf.createPolygon(gf.createLinearRing(ring.toClosedSequence()),
+        holes.toArray(new LinearRing[0]));
+  }
+
+  /**
+   * Clips a ring at one of the rectangle's edges, using one step of the Sutherland–Hodgman
+   * algorithm.
+   *
+   * @return the clipped ring (without closing coordinate), or null if the ring crosses the edge
+   *         more than twice
+   */
+  private static CoordinateBuffer clipRing(CoordinateBuffer ring, int edge, Envelope rectangle) {
+    double[] xs = ring.xs;
+    double[] ys = ring.ys;
+    int size = ring.size;
+    int transitions = 0;
+    boolean prevInside = isInside(xs[size - 1], ys[size - 1], edge, rectangle);
+    boolean allInside = prevInside;
+    for (int i = 0; i < size; i++) {
+      boolean inside = isInside(xs[i], ys[i], edge, rectangle);
+      if (inside != prevInside) {
+        transitions++;
+      }
+      allInside &= inside;
+      prevInside = inside;
+    }
+    if (allInside) {
+      return ring;
+    } else if (transitions == 0) {
+      return new CoordinateBuffer(0);
+    } else if (transitions > 2) {
+      return null;
+    }
+    CoordinateBuffer result = new CoordinateBuffer(size + 2);
+    double sx = xs[size - 1];
+    double sy = ys[size - 1];
+    boolean sInside = isInside(sx, sy, edge, rectangle);
+    for (int i = 0; i < size; i++) {
+      double ex = xs[i];
+      double ey = ys[i];
+      boolean eInside = isInside(ex, ey, edge, rectangle);
+      if (eInside) {
+        if (!sInside) {
+          addIntersection(result, sx, sy, ex, ey, edge, rectangle);
+        }
+        result.add(ex, ey);
+      } else if (sInside) {
+        addIntersection(result, sx, sy, ex, ey, edge, rectangle);
+      }
+      sx = ex;
+      sy = ey;
+      sInside = eInside;
+    }
+    return result;
+  }
+
+  private static boolean isInside(double x, double y, int edge, Envelope rectangle) {
+    switch (edge) {
+      case LEFT:
+        return x >= rectangle.getMinX();
+      case RIGHT:
+        return x <= rectangle.getMaxX();
+      case BOTTOM:
+        return y >= rectangle.getMinY();
+      default:
+        return y <= rectangle.getMaxY();
+    }
+  }
+
+  private static void addIntersection(CoordinateBuffer result,
+      double x0, double y0, double x1, double y1, int edge, Envelope rectangle) {
+    double x;
+    double y;
+    switch (edge) {
+      case LEFT:
+        x = rectangle.getMinX();
+        y = y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+        break;
+      case RIGHT:
+        x = rectangle.getMaxX();
+        y = y0 + (x - x0) * (y1 - y0) / (x1 - x0);
+        break;
+      case BOTTOM:
+        y = rectangle.getMinY();
+        x = x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+        break;
+      default:
+        y = rectangle.getMaxY();
+        x = x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+        break;
+    }
+    result.add(x, y);
+  }
+
+  /**
+   * A growable list of 2D coordinates.
+   */
+  private static class CoordinateBuffer {
+    private double[] xs;
+    private double[] ys;
+    private int size;
+
+    CoordinateBuffer(int capacity) {
+      this(new double[Math.max(capacity, 2)], new double[Math.max(capacity, 2)], 0);
+    }
+
+    CoordinateBuffer(double[] xs, double[] ys, int size) {
+      this.xs = xs;
+      this.ys = ys;
+      this.size = size;
+    }
+
+    void add(double x, double y) {
+      if (size > 0 && xs[size - 1] == x && ys[size - 1] == y) {
+        return;
+      }
+      if (size == xs.length) {
+        int capacity = xs.length * 2;
+        double[] newXs = new double[capacity];
+        double[] newYs = new double[capacity];
+        System.arraycopy(xs, 0, newXs, 0, size);
+        System.arraycopy(ys, 0, newYs, 0, size);
+        xs = newXs;
+        ys = newYs;
+      }
+      xs[size] = x;
+      ys[size] = y;
+      size++;
+    }
+
+    void removeRepeatedPoints() {
+      // consecutive duplicates are already skipped by add(): only first/last can be equal
+      while (size > 1 && xs[0] == xs[size - 1] && ys[0] == ys[size - 1]) {
+        size--;
+      }
+    }
+
+    double signedArea() {
+      double area = 0;
+      for (int i = 0, j = size - 1; i < size; j = i++) {
+        area += (xs[j] - xs[i]) * (ys[j] + ys[i]);
+      }
+      return area;
+    }
+
+    CoordinateSequence toClosedSequence() {
+      double[] packed = new double[(size + 1) * 2];
+      for (int i = 0; i < size; i++) {
+        packed[2 * i] = xs[i];
+        packed[2 * i + 1] = ys[i];
+      }
+      packed[2 * size] = xs[0];
+      packed[2 * size + 1] = ys[0];
+      return new PackedCoordinateSequence.Double(packed, 2, 0);
+    }
+
+    /**
+     * Adds the coordinates as a line string to the given list.
+     *
+     * @return false if the buffer holds only a single point
+     */
+    boolean addLineTo(List<LineString> lines, GeometryFactory gf) {
+      if (size < 2) {
+        return false;
+      }
+      double[] packed = new double[size * 2];
+      for (int i = 0; i < size; i++) {
+        packed[2 * i] = xs[i];
+        packed[2 * i + 1] = ys[i];
+      }
+      lines.add(gf.createLineString(new PackedCoordinateSequence.Double(packed, 2, 0)));
+      return true;
+    }
+  }
+}
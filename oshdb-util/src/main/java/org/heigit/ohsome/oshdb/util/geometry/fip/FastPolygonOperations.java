@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import org.heigit.ohsome.oshdb.util.geometry.RectangleClipper;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
@@ -111,28 +112,28 @@ public class FastPolygonOperations implements Serializable {
       traverseQuads(level - 1,
           x * 2, y * 2,
           bottomLeftPart,
-          theGeom.intersection(gf.toGeometry(bottomLeftPart)),
+          RectangleClipper.clip(theGeom, bottomLeftPart),
           gf,
           resultBuffer
       );
       traverseQuads(level - 1,
           x * 2, y * 2 + 1,
           topLeftPart,
-          theGeom.intersection(gf.toGeometry(topLeftPart)),
+          RectangleClipper.clip(theGeom, topLeftPart),
           gf,
           resultBuffer
       );
       traverseQuads(level - 1,
           x * 2 + 1, y * 2,
           bottomRightPart,
-          theGeom.intersection(gf.toGeometry(bottomRightPart)),
+          RectangleClipper.clip(theGeom, bottomRightPart),
           gf,
           resultBuffer
       );
       traverseQuads(level - 1,
           x * 2 + 1, y * 2 + 1,
           topRightPart,
-          theGeom.intersection(gf.toGeometry(topRightPart)),
+          RectangleClipper.clip(theGeom, topRightPart),
           gf,
           resultBuffer
       );
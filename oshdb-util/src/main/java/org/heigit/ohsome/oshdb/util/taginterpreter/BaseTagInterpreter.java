@@ -1,7 +1,5 @@
 package org.heigit.ohsome.oshdb.util.taginterpreter;
 
-import java.util.Map;
-import java.util.Set;
 import org.heigit.ohsome.oshdb.osh.OSHWay;
 import org.heigit.ohsome.oshdb.osm.OSMEntity;
 import org.heigit.ohsome.oshdb.osm.OSMMember;
@@ -17,9 +15,9 @@ import org.heigit.ohsome.oshdb.osm.OSMWay;
 class BaseTagInterpreter implements TagInterpreter {
   int areaNoTagKeyId;
   int areaNoTagValueId;
-  Map<Integer, Set<Integer>> wayAreaTags;
-  Map<Integer, Set<Integer>> relationAreaTags;
-  Set<Integer> uninterestingTagKeys;
+  TagLookup wayAreaTags;
+  TagLookup relationAreaTags;
+  TagLookup uninterestingTagKeys;
   int outerRoleId;
   int innerRoleId;
   int emptyRoleId;
@@ -27,9 +25,9 @@ class BaseTagInterpreter implements TagInterpreter {
   BaseTagInterpreter(
       int areaNoTagKeyId,
       int areaNoTagValueId,
-      Map<Integer, Set<Integer>> wayAreaTags,
-      Map<Integer, Set<Integer>> relationAreaTags,
-      Set<Integer> uninterestingTagKeys,
+      TagLookup wayAreaTags,
+      TagLookup relationAreaTags,
+      TagLookup uninterestingTagKeys,
       int outerRoleId,
       int innerRoleId,
       int emptyRoleId
@@ -50,8 +48,7 @@ class BaseTagInterpreter implements TagInterpreter {
       return false;
     }
     for (int i = 0; i < tags.length; i += 2) {
-      if (wayAreaTags.containsKey(tags[i])
-          && wayAreaTags.get(tags[i]).contains(tags[i + 1])) {
+      if (wayAreaTags.contains(tags[i], tags[i + 1])) {
         return true;
       }
     }
@@ -62,8 +59,7 @@ class BaseTagInterpreter implements TagInterpreter {
     int[] tags = entity.getRawTags();
     // skip area=no check, since that doesn't make much sense for multipolygon relations (does it??)
     for (int i = 0; i < tags.length; i += 2) {
-      if (relationAreaTags.containsKey(tags[i])
-          && relationAreaTags.get(tags[i]).contains(tags[i + 1])) {
+      if (relationAreaTags.contains(tags[i], tags[i + 1])) {
         return true;
       }
     }
@@ -99,7 +95,7 @@ class BaseTagInterpreter implements TagInterpreter {
   public boolean hasInterestingTagKey(OSMEntity osm) {
     int[] tags = osm.getRawTags();
     for (int i = 0; i < tags.length; i += 2) {
-      if (!uninterestingTagKeys.contains(tags[i])) {
+      if (!uninterestingTagKeys.containsKey(tags[i])) {
         return true;
       }
     }
@@ -123,11 +119,10 @@ class BaseTagInterpreter implements TagInterpreter {
     }
     int[] tags = osmRelation.getRawTags();
     for (int i = 0; i < tags.length; i += 2) {
-      if (relationAreaTags.containsKey(tags[i])
-          && relationAreaTags.get(tags[i]).contains(tags[i + 1])) {
+      if (relationAreaTags.contains(tags[i], tags[i + 1])) {
         continue;
       }
-      if (!uninterestingTagKeys.contains(tags[i])) {
+      if (!uninterestingTagKeys.containsKey(tags[i])) {
         return false;
       }
     }
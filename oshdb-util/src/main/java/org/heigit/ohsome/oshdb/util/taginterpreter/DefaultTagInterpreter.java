@@ -143,9 +143,9 @@ public class DefaultTagInterpreter extends BaseTagInterpreter {
       uninterestingTagKeys.add(tagTranslator.getOSHDBTagKeyOf(tagKey).toInt());
     }
 
-    this.wayAreaTags = wayAreaTags;
-    this.relationAreaTags = relAreaTags;
-    this.uninterestingTagKeys = uninterestingTagKeys;
+    this.wayAreaTags = TagLookup.of(wayAreaTags);
+    this.relationAreaTags = TagLookup.of(relAreaTags);
+    this.uninterestingTagKeys = TagLookup.ofKeys(uninterestingTagKeys);
 
     this.areaNoTagKeyId = tagTranslator.getOSHDBTagOf("area", "no").getKey();
     this.areaNoTagValueId = tagTranslator.getOSHDBTagOf("area", "no").getValue();
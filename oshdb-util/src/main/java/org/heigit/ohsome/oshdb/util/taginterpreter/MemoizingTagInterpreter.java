@@ -0,0 +1,71 @@
+package org.heigit.ohsome.oshdb.util.taginterpreter;
+
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMMember;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+
+/**
+ * A {@link TagInterpreter} which remembers the area decision of the last checked entity version.
+ *
+ * <p>The same entity version is often checked repeatedly in a row, e.g. by a geometry type filter
+ * and when building its geometry. The memo holds only the last decision, which is why an instance
+ * should be used by a single thread (e.g. one instance per processed grid cell) to be effective.
+ * Concurrent use is safe, though.</p>
+ */
+public class MemoizingTagInterpreter implements TagInterpreter {
+  private static final long serialVersionUID = 1L;
+
+  private final TagInterpreter tagInterpreter;
+  // the last checked entities which are (or are not) areas: each field only ever references
+  // entities with the respective decision, which keeps the memo consistent without locking
+  private transient OSMEntity lastArea;
+  private transient OSMEntity lastNonArea;
+
+  public MemoizingTagInterpreter(TagInterpreter tagInterpreter) {
+    this.tagInterpreter = tagInterpreter;
+  }
+
+  @Override
+  public boolean isArea(OSMEntity entity) {
+    // entities are immutable, which means that the decision for the same object never changes
+    if (entity != null) {
+      if (entity == lastArea) {
+        return true;
+      } else if (entity == lastNonArea) {
+        return false;
+      }
+    }
+    boolean isArea = tagInterpreter.isArea(entity);
+    if (isArea) {
+      lastArea = entity;
+    } else {
+      lastNonArea = entity;
+    }
+    return isArea;
+  }
+
+  @Override
+  public boolean isLine(OSMEntity entity) {
+    return tagInterpreter.isLine(entity);
+  }
+
+  @Override
+  public boolean hasInterestingTagKey(OSMEntity osm) {
+    return tagInterpreter.hasInterestingTagKey(osm);
+  }
+
+  @Override
+  public boolean isMultipolygonOuterMember(OSMMember osmMember) {
+    return tagInterpreter.isMultipolygonOuterMember(osmMember);
+  }
+
+  @Override
+  public boolean isMultipolygonInnerMember(OSMMember osmMember) {
+    return tagInterpreter.isMultipolygonInnerMember(osmMember);
+  }
+
+  @Override
+  public boolean isOldStyleMultipolygon(OSMRelation osmRelation) {
+    return tagInterpreter.isOldStyleMultipolygon(osmRelation);
+  }
+}
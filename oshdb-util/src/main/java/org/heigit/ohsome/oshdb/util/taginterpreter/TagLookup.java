@@ -0,0 +1,116 @@
+package org.heigit.ohsome.oshdb.util.taginterpreter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of tags (key and value ids) backed by primitive arrays.
+ *
+ * <p>For each tag key, the contained values are stored as a sorted array of value ids, which is
+ * either a whitelist or (corresponding to an {@link InvertedHashSet}) a blacklist. Keys are looked
+ * up directly by their id, only (temporary, negative) key ids which aren't present in the
+ * keytables are stored in a separate sorted array.</p>
+ */
+final class TagLookup implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int[] ALL_VALUES = new int[0];
+
+  // values of the keys with ids 0, 1, …; null if a key isn't contained
+  private final int[][] values;
+  private final boolean[] inverted;
+  // keys with negative ids
+  private final int[] otherKeys;
+  private final int[][] otherValues;
+  private final boolean[] otherInverted;
+
+  private TagLookup(Map<Integer, int[]> tags, Set<Integer> invertedKeys) {
+    int maxKey = tags.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1);
+    this.values = new int[maxKey + 1][];
+    this.inverted = new boolean[maxKey + 1];
+    this.otherKeys = tags.keySet().stream().mapToInt(Integer::intValue).filter(k -> k < 0)
+        .sorted().toArray();
+    this.otherValues = new int[otherKeys.length][];
+    this.otherInverted = new boolean[otherKeys.length];
+    tags.forEach((key, keyValues) -> {
+      int[] sortedValues = keyValues.clone();
+      Arrays.sort(sortedValues);
+      if (key >= 0) {
+        values[key] = sortedValues;
+        inverted[key] = invertedKeys.contains(key);
+      } else {
+        int i = Arrays.binarySearch(otherKeys, key);
+        otherValues[i] = sortedValues;
+        otherInverted[i] = invertedKeys.contains(key);
+      }
+    });
+  }
+
+  /**
+   * Creates a lookup for tags given as sets of value ids per key id.
+   *
+   * @param tags the value ids of each key, sets which are {@link InvertedHashSet}s are stored as
+   *        blacklists of values
+   */
+  static TagLookup of(Map<Integer, Set<Integer>> tags) {
+    Map<Integer, int[]> values = new HashMap<>();
+    Set<Integer> invertedKeys = new HashSet<>();
+    tags.forEach((key, keyValues) -> {
+      if (keyValues instanceof InvertedHashSet) {
+        // iterating over an InvertedHashSet returns the excluded values
+        invertedKeys.add(key);
+      }
+      values.put(key, keyValues.stream().mapToInt(Integer::intValue).toArray());
+    });
+    return new TagLookup(values, invertedKeys);
+  }
+
+  /**
+   * Creates a lookup containing all tags with the given keys.
+   */
+  static TagLookup ofKeys(Set<Integer> keys) {
+    Map<Integer, int[]> values = new HashMap<>();
+    keys.forEach(key -> values.put(key, ALL_VALUES));
+    return new TagLookup(values, keys);
+  }
+
+  /**
+   * Checks if tags with the given key are contained.
+   */
+  boolean containsKey(int key) {
+    if (key >= 0) {
+      return key < values.length && values[key] != null;
+    }
+    return Arrays.binarySearch(otherKeys, key) >= 0;
+  }
+
+  /**
+   * Checks if the tag with the given key and value ids is contained.
+   */
+  boolean contains(int key, int value) {
+    if (key >= 0) {
+      if (key >= values.length || values[key] == null) {
+        return false;
+      }
+      return contains(values[key], value) != inverted[key];
+    }
+    int i = Arrays.binarySearch(otherKeys, key);
+    return i >= 0 && contains(otherValues[i], value) != otherInverted[i];
+  }
+
+  private static boolean contains(int[] sortedValues, int value) {
+    // most value lists are very short: a linear scan is faster than a binary search for these
+    if (sortedValues.length <= 8) {
+      for (int v : sortedValues) {
+        if (v >= value) {
+          return v == value;
+        }
+      }
+      return false;
+    }
+    return Arrays.binarySearch(sortedValues, value) >= 0;
+  }
+}
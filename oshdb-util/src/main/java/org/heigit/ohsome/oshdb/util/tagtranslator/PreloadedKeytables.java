@@ -0,0 +1,265 @@
+package org.heigit.ohsome.oshdb.util.tagtranslator;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import org.heigit.ohsome.oshdb.util.TableNames;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBKeytablesNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The full content of the OSHDB keytables (tag keys, tag values and roles), held in memory.
+ *
+ * <p>Strings are stored in tables indexed by their (integer) ids, the reverse lookup uses
+ * open-addressing hash tables which only store the ids of the strings. The keytables are read
+ * from the database once and are immutable afterwards, which means that they can be shared
+ * between threads (and, being serializable, also between the nodes of a cluster).</p>
+ *
+ * <p>Use {@link TagTranslator#TagTranslator(PreloadedKeytables)} to create a tag translator which
+ * uses these keytables instead of querying the database for each unknown tag or role.</p>
+ */
+public final class PreloadedKeytables implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final Logger LOG = LoggerFactory.getLogger(PreloadedKeytables.class);
+
+  /** Returned by the id lookup methods if a string is not present in the keytables. */
+  public static final int NOT_FOUND = -1;
+
+  private static final int EMPTY = -1;
+  private static final long EMPTY_TAG = -1L;
+
+  private final String[] keys;
+  private final String[][] values;
+  private final String[] roles;
+  // open-addressing hash tables of key ids, tag ids (key id and value id) and role ids
+  private final int[] keyIndex;
+  private final long[] tagIndex;
+  private final int[] roleIndex;
+  private final int numberOfTags;
+
+  private PreloadedKeytables(String[] keys, String[][] values, String[] roles) {
+    this.keys = keys;
+    this.values = values;
+    this.roles = roles;
+    this.keyIndex = buildIndex(keys);
+    this.roleIndex = buildIndex(roles);
+    int tags = 0;
+    for (String[] keyValues : values) {
+      for (String value : keyValues) {
+        if (value != null) {
+          tags++;
+        }
+      }
+    }
+    this.numberOfTags = tags;
+    this.tagIndex = new long[tableSize(tags)];
+    Arrays.fill(this.tagIndex, EMPTY_TAG);
+    int mask = this.tagIndex.length - 1;
+    for (int keyId = 0; keyId < values.length; keyId++) {
+      for (int valueId = 0; valueId < values[keyId].length; valueId++) {
+        if (values[keyId][valueId] != null) {
+          int slot = tagHash(keyId, values[keyId][valueId]) & mask;
+          while (this.tagIndex[slot] != EMPTY_TAG) {
+            slot = (slot + 1) & mask;
+          }
+          this.tagIndex[slot] = (long) keyId << 32 | valueId;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the keytables of the given database into memory.
+   *
+   * @param conn a connection to a database containing oshdb keytables
+   * @return the content of the keytables
+   * @throws OSHDBKeytablesNotFoundException if the database doesn't contain the keytables
+   * @throws IllegalStateException if the keytables are inconsistent, e.g. if a tag value refers to
+   *         a key id which is not in the key table
+   */
+  public static PreloadedKeytables load(Connection conn) throws OSHDBKeytablesNotFoundException {
+    try (Statement stmt = conn.createStatement()) {
+      String[] keys = readStrings(stmt, TableNames.E_KEY);
+      String[] roles = readStrings(stmt, TableNames.E_ROLE);
+      String[][] values = new String[keys.length][0];
+      try (ResultSet rs = stmt.executeQuery("select keyId, max(valueId) from "
+          + TableNames.E_KEYVALUE + " group by keyId")) {
+        while (rs.next()) {
+          int keyId = rs.getInt(1);
+          if (keyId < 0 || keyId >= keys.length) {
+            throw new IllegalStateException("invalid key id " + keyId + " in "
+                + TableNames.E_KEYVALUE + ": not in " + TableNames.E_KEY);
+          }
+          values[keyId] = new String[rs.getInt(2) + 1];
+        }
+      }
+      try (ResultSet rs = stmt.executeQuery("select keyId, valueId, txt from "
+          + TableNames.E_KEYVALUE)) {
+        while (rs.next()) {
+          int valueId = rs.getInt(2);
+          if (valueId < 0) {
+            throw new IllegalStateException("invalid value id " + valueId + " of key id "
+                + rs.getInt(1) + " in " + TableNames.E_KEYVALUE);
+          }
+          values[rs.getInt(1)][valueId] = rs.getString(3);
+        }
+      }
+      PreloadedKeytables result = new PreloadedKeytables(keys, values, roles);
+      LOG.info("Preloaded keytables: {} keys, {} tags, {} roles, approx. {} MB of memory",
+          result.keys.length, result.numberOfTags, result.roles.length,
+          result.getEstimatedMemoryUsage() / 1024 / 1024);
+      return result;
+    } catch (SQLException e) {
+      throw new OSHDBKeytablesNotFoundException();
+    }
+  }
+
+  // reads a keytable with (id, txt) columns into a string array indexed by id
+  private static String[] readStrings(Statement stmt, TableNames table) throws SQLException {
+    int size;
+    try (ResultSet rs = stmt.executeQuery("select max(id) from " + table)) {
+      rs.next();
+      size = rs.getInt(1) + 1;
+    }
+    String[] result = new String[size];
+    try (ResultSet rs = stmt.executeQuery("select id, txt from " + table)) {
+      while (rs.next()) {
+        int id = rs.getInt(1);
+        if (id < 0) {
+          throw new IllegalStateException("invalid id " + id + " in " + table);
+        }
+        result[id] = rs.getString(2);
+      }
+    }
+    return result;
+  }
+
+  private static int tableSize(int entries) {
+    // at most half full
+    return Integer.highestOneBit(Math.max(entries, 1)) << 2;
+  }
+
+  private static int hash(String s) {
+    int h = s.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static int tagHash(int keyId, String value) {
+    return hash(value) + keyId * 0x85EBCA6B;
+  }
+
+  private static int[] buildIndex(String[] strings) {
+    int[] index = new int[tableSize(strings.length)];
+    Arrays.fill(index, EMPTY);
+    int mask = index.length - 1;
+    for (int id = 0; id < strings.length; id++) {
+      if (strings[id] != null) {
+        int slot = hash(strings[id]) & mask;
+        while (index[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        index[slot] = id;
+      }
+    }
+    return index;
+  }
+
+  private static int lookup(int[] index, String[] strings, String s) {
+    int mask = index.length - 1;
+    for (int slot = hash(s) & mask; index[slot] != EMPTY; slot = (slot + 1) & mask) {
+      if (strings[index[slot]].equals(s)) {
+        return index[slot];
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private static String get(String[] strings, int id) {
+    return id >= 0 && id < strings.length ? strings[id] : null;
+  }
+
+  /**
+   * Returns the id of a tag key, or {@link #NOT_FOUND} if the key is not in the keytables.
+   */
+  public int getKeyId(String key) {
+    return lookup(keyIndex, keys, key);
+  }
+
+  /**
+   * Returns the tag key with the given id, or null if there is no such key in the keytables.
+   */
+  public String getKey(int keyId) {
+    return get(keys, keyId);
+  }
+
+  /**
+   * Returns the id of a tag value, or {@link #NOT_FOUND} if the tag is not in the keytables.
+   */
+  public int getValueId(int keyId, String value) {
+    int mask = tagIndex.length - 1;
+    for (int slot = tagHash(keyId, value) & mask; tagIndex[slot] != EMPTY_TAG;
+        slot = (slot + 1) & mask) {
+      long tag = tagIndex[slot];
+      if ((int) (tag >>> 32) == keyId && values[keyId][(int) tag].equals(value)) {
+        return (int) tag;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Returns the tag value with the given ids, or null if there is no such tag in the keytables.
+   */
+  public String getValue(int keyId, int valueId) {
+    return keyId >= 0 && keyId < values.length ? get(values[keyId], valueId) : null;
+  }
+
+  /**
+   * Returns the id of a role, or {@link #NOT_FOUND} if the role is not in the keytables.
+   */
+  public int getRoleId(String role) {
+    return lookup(roleIndex, roles, role);
+  }
+
+  /**
+   * Returns the role with the given id, or null if there is no such role in the keytables.
+   */
+  public String getRole(int roleId) {
+    return get(roles, roleId);
+  }
+
+  /**
+   * Returns an estimate of the memory used by these keytables, in bytes.
+   *
+   * <p>Assumes a 64 bit JVM with compressed object pointers and compact (latin-1) strings.</p>
+   */
+  public long getEstimatedMemoryUsage() {
+    long bytes = stringsMemoryUsage(keys) + stringsMemoryUsage(roles) + arrayMemoryUsage(values);
+    for (String[] keyValues : values) {
+      bytes += stringsMemoryUsage(keyValues);
+    }
+    bytes += 16L + 4L * keyIndex.length;
+    bytes += 16L + 8L * tagIndex.length;
+    bytes += 16L + 4L * roleIndex.length;
+    return bytes;
+  }
+
+  private static long arrayMemoryUsage(Object[] array) {
+    return 16L + 4L * array.length;
+  }
+
+  private static long stringsMemoryUsage(String[] strings) {
+    long bytes = arrayMemoryUsage(strings);
+    for (String s : strings) {
+      if (s != null) {
+        // string object + byte array header + characters
+        bytes += 24L + 16L + s.length();
+      }
+    }
+    return bytes;
+  }
+}
@@ -32,6 +32,9 @@ import org.slf4j.LoggerFactory;
  *     exception is thrown
  *   </li>
  * </ul>
+ *
+ * <p>A tagtranslator either queries the keytables of a database on demand (caching the results),
+ * or uses {@link PreloadedKeytables} which hold the full content of the keytables in memory.</p>
  */
 public class TagTranslator implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(TagTranslator.class);
@@ -52,6 +55,7 @@ public class TagTranslator implements AutoCloseable {
   private final ConcurrentHashMap<OSHDBRole, OSMRole> roleToString;
 
   private final Connection conn;
+  private final PreloadedKeytables preloaded;
 
   /**
    * A TagTranslator for a specific DB-Connection. It has its own internal cache
@@ -63,6 +67,7 @@ public class TagTranslator implements AutoCloseable {
    */
   public TagTranslator(Connection conn) throws OSHDBKeytablesNotFoundException {
     this.conn = conn;
+    this.preloaded = null;
     this.keyToInt = new ConcurrentHashMap<>(0);
     this.keyToString = new ConcurrentHashMap<>(0);
     this.tagToInt = new ConcurrentHashMap<>(0);
@@ -104,8 +109,34 @@ public class TagTranslator implements AutoCloseable {
     }
   }
 
+  /**
+   * A TagTranslator using keytables which have been loaded into memory beforehand. It never
+   * queries the database, and the same keytables can be shared by many TagTranslators.
+   *
+   * @param keytables the preloaded keytables, see {@link PreloadedKeytables#load(Connection)}
+   */
+  public TagTranslator(PreloadedKeytables keytables) {
+    this.conn = null;
+    this.preloaded = keytables;
+    this.keyToInt = new ConcurrentHashMap<>(0);
+    this.keyToString = new ConcurrentHashMap<>(0);
+    this.tagToInt = new ConcurrentHashMap<>(0);
+    this.tagToString = new ConcurrentHashMap<>(0);
+    this.roleToInt = new ConcurrentHashMap<>(0);
+    this.roleToString = new ConcurrentHashMap<>(0);
+    this.keyIdQuery = null;
+    this.keyTxtQuery = null;
+    this.valueIdQuery = null;
+    this.valueTxtQuery = null;
+    this.roleIdQuery = null;
+    this.roleTxtQuery = null;
+  }
+
   @Override
   public void close() throws SQLException {
+    if (preloaded != null) {
+      return;
+    }
     keyIdQuery.close();
     keyTxtQuery.close();
     valueIdQuery.close();
@@ -134,6 +165,16 @@ public class TagTranslator implements AutoCloseable {
     if (this.keyToInt.containsKey(key)) {
       return this.keyToInt.get(key);
     }
+    if (preloaded != null) {
+      int keyId = preloaded.getKeyId(key.toString());
+      if (keyId != PreloadedKeytables.NOT_FOUND) {
+        return new OSHDBTagKey(keyId);
+      }
+      OSHDBTagKey keyInt = new OSHDBTagKey(getFakeId(key.toString()));
+      this.keyToString.put(keyInt, key);
+      this.keyToInt.put(key, keyInt);
+      return keyInt;
+    }
     OSHDBTagKey keyInt;
     try {
       synchronized (keyIdQuery) {
@@ -178,6 +219,15 @@ public class TagTranslator implements AutoCloseable {
     if (this.keyToString.containsKey(key)) {
       return this.keyToString.get(key);
     }
+    if (preloaded != null) {
+      String keyString = preloaded.getKey(key.toInt());
+      if (keyString == null) {
+        throw new OSHDBTagOrRoleNotFoundException(String.format(
+            "Unable to find tag key id %d in keytables.", key.toInt()
+        ));
+      }
+      return new OSMTagKey(keyString);
+    }
     OSMTagKey keyString;
     try {
       synchronized (keyTxtQuery) {
@@ -223,6 +273,20 @@ public class TagTranslator implements AutoCloseable {
     if (this.tagToInt.containsKey(tag)) {
       return this.tagToInt.get(tag);
     }
+    if (preloaded != null) {
+      int keyId = preloaded.getKeyId(tag.getKey());
+      int valueId = keyId == PreloadedKeytables.NOT_FOUND
+          ? PreloadedKeytables.NOT_FOUND
+          : preloaded.getValueId(keyId, tag.getValue());
+      if (valueId != PreloadedKeytables.NOT_FOUND) {
+        return new OSHDBTag(keyId, valueId);
+      }
+      OSHDBTag tagInt = new OSHDBTag(
+          this.getOSHDBTagKeyOf(tag.getKey()).toInt(), getFakeId(tag.getValue()));
+      this.tagToString.put(tagInt, tag);
+      this.tagToInt.put(tag, tagInt);
+      return tagInt;
+    }
     OSHDBTag tagInt;
     // key or value is not in cache so let's go toInt them
     try {
@@ -272,6 +336,16 @@ public class TagTranslator implements AutoCloseable {
     if (this.tagToString.containsKey(tag)) {
       return this.tagToString.get(tag);
     }
+    if (preloaded != null) {
+      String value = preloaded.getValue(tag.getKey(), tag.getValue());
+      if (value == null) {
+        throw new OSHDBTagOrRoleNotFoundException(String.format(
+            "Unable to find tag id %d=%d in keytables.",
+            tag.getKey(), tag.getValue()
+        ));
+      }
+      return new OSMTag(preloaded.getKey(tag.getKey()), value);
+    }
     OSMTag tagString;
 
     // key or value is not in cache so let's go toInt them
@@ -320,6 +394,16 @@ public class TagTranslator implements AutoCloseable {
     if (this.roleToInt.containsKey(role)) {
       return this.roleToInt.get(role);
     }
+    if (preloaded != null) {
+      int roleId = preloaded.getRoleId(role.toString());
+      if (roleId != PreloadedKeytables.NOT_FOUND) {
+        return new OSHDBRole(roleId);
+      }
+      OSHDBRole roleInt = new OSHDBRole(getFakeId(role.toString()));
+      this.roleToString.put(roleInt, role);
+      this.roleToInt.put(role, roleInt);
+      return roleInt;
+    }
     OSHDBRole roleInt;
     try {
       synchronized (roleIdQuery) {
@@ -364,6 +448,15 @@ public class TagTranslator implements AutoCloseable {
     if (this.roleToString.containsKey(role)) {
       return this.roleToString.get(role);
     }
+    if (preloaded != null) {
+      String roleString = preloaded.getRole(role.toInt());
+      if (roleString == null) {
+        throw new OSHDBTagOrRoleNotFoundException(String.format(
+            "Unable to find role id %d in keytables.", role.toInt()
+        ));
+      }
+      return new OSMRole(roleString);
+    }
     OSMRole roleString;
     try {
       synchronized (roleTxtQuery) {
@@ -394,4 +487,12 @@ public class TagTranslator implements AutoCloseable {
   public Connection getConnection() {
     return conn;
   }
+
+  /**
+   * Returns the preloaded keytables used by this tag translator, or null if it queries the
+   * keytables of a database on demand.
+   */
+  public PreloadedKeytables getPreloadedKeytables() {
+    return preloaded;
+  }
 }
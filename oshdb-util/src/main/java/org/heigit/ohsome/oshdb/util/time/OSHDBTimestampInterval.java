@@ -22,6 +22,14 @@ public class OSHDBTimestampInterval implements Serializable, Comparable<OSHDBTim
     this(oshdbTimestamps.first(), oshdbTimestamps.last());
   }
 
+  public OSHDBTimestamp getFromTimestamp() {
+    return this.fromTimestamp;
+  }
+
+  public OSHDBTimestamp getToTimestamp() {
+    return this.toTimestamp;
+  }
+
   public boolean intersects(OSHDBTimestampInterval other) {
     return other.toTimestamp.getRawUnixTimestamp() >= this.fromTimestamp.getRawUnixTimestamp()
         && other.fromTimestamp.getRawUnixTimestamp() <= this.toTimestamp.getRawUnixTimestamp();
@@ -0,0 +1,116 @@
+package org.heigit.ohsome.oshdb.util.celliterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import org.heigit.ohsome.oshdb.grid.GridOSHEntity;
+import org.heigit.ohsome.oshdb.grid.GridOSHNodes;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.OSHEntityFilter;
+import org.heigit.ohsome.oshdb.util.celliterator.helpers.GridOSHFactory;
+import org.heigit.ohsome.oshdb.util.geometry.helpers.OSMXmlReaderTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.heigit.ohsome.oshdb.util.time.OSHDBTimestamps;
+import org.heigit.ohsome.oshdb.util.xmlreader.OSMXmlReader;
+import org.junit.Test;
+
+public class CellTagKeyFilterTest {
+  private final GridOSHNodes oshdbDataGridCell;
+  private final TagInterpreter areaDecider;
+
+  /**
+   * Initialize test framework by loading osm XML file and initializing {@link TagInterpreter} and
+   * {@link GridOSHNodes}.
+   */
+  public CellTagKeyFilterTest() throws IOException {
+    OSMXmlReader osmXmlTestData = new OSMXmlReader();
+    osmXmlTestData.add("./src/test/resources/different-timestamps/node.osm");
+    areaDecider = new OSMXmlReaderTagInterpreter(osmXmlTestData);
+    oshdbDataGridCell = GridOSHFactory.getGridOSHNodes(osmXmlTestData);
+  }
+
+  @Test
+  public void testFilter() {
+    int[] cellTagKeys = new int[] {1, 3, 5};
+    assertTrue(CellTagKeyFilter.NONE.isEmpty());
+    assertTrue(CellTagKeyFilter.NONE.test(cellTagKeys));
+    assertTrue(CellTagKeyFilter.NONE.and(3).test(cellTagKeys));
+    assertFalse(CellTagKeyFilter.NONE.and(2).test(cellTagKeys));
+    assertTrue(CellTagKeyFilter.NONE.and(2, 5).test(cellTagKeys));
+    assertTrue(CellTagKeyFilter.NONE.and(2, 5).and(1).test(cellTagKeys));
+    assertFalse(CellTagKeyFilter.NONE.and(2, 5).and(4).test(cellTagKeys));
+    assertFalse(CellTagKeyFilter.NONE.and(List.of()).test(cellTagKeys));
+    // cells with unknown tag keys always pass
+    assertTrue(CellTagKeyFilter.NONE.and(2).test((int[]) null));
+  }
+
+  @Test
+  public void testKeySets() {
+    int[] cellTagKeys = new int[] {1, 3, 5};
+    // e.g. `(k2=* and k5=*) or (k1=* and k3=*)`
+    CellTagKeyFilter filter = CellTagKeyFilter.NONE.andAnyOf(List.of(new int[] {5, 2},
+        new int[] {1, 3}));
+    assertFalse(filter.isEmpty());
+    assertTrue(filter.test(cellTagKeys));
+    assertFalse(filter.andAnyOf(List.of(new int[] {2}, new int[] {1, 4})).test(cellTagKeys));
+    assertTrue(filter.andAnyOf(List.of(new int[] {2}, new int[] {5})).test(cellTagKeys));
+    assertFalse(filter.and(2).test(cellTagKeys));
+    assertFalse(CellTagKeyFilter.NONE.andAnyOf(List.of()).test(cellTagKeys));
+    assertTrue(CellTagKeyFilter.NONE.andAnyOf(List.of()).test((int[]) null));
+    assertEquals(1, filter.getKeySetGroups().size());
+    assertArrayEquals(new int[] {2, 5}, filter.getKeySetGroups().get(0).get(0));
+    assertArrayEquals(new int[] {1, 3}, filter.getKeySetGroups().get(0).get(1));
+    assertTrue(filter.getKeyGroups().isEmpty());
+  }
+
+  @Test
+  public void testKeyGroups() {
+    CellTagKeyFilter filter = CellTagKeyFilter.NONE.and(List.of(5, 2, 5)).and(1);
+    assertFalse(filter.isEmpty());
+    assertEquals(2, filter.getKeyGroups().size());
+    assertArrayEquals(new int[] {2, 5}, filter.getKeyGroups().get(0));
+    assertArrayEquals(new int[] {1}, filter.getKeyGroups().get(1));
+  }
+
+  private long countEntities(CellTagKeyFilter cellTagKeyFilter) {
+    OSHEntityFilter preFilter = new OSHEntityFilter() {
+      @Override
+      public boolean test(OSHEntity oshEntity) {
+        return true;
+      }
+
+      @Override
+      public boolean testCell(GridOSHEntity cell) {
+        return cellTagKeyFilter.test(cell);
+      }
+    };
+    CellIterator cellIterator = new CellIterator(
+        new OSHDBTimestamps("2000-01-01T00:00:00Z", "2018-01-01T00:00:00Z", "P1Y").get(),
+        new OSHDBBoundingBox(-180, -90, 180, 90),
+        areaDecider,
+        preFilter,
+        osmEntity -> true,
+        false
+    );
+    assertEquals(
+        cellIterator.iterateByTimestamps(oshdbDataGridCell).count() == 0,
+        cellIterator.iterateByContribution(oshdbDataGridCell).count() == 0
+    );
+    return cellIterator.iterateByTimestamps(oshdbDataGridCell).count();
+  }
+
+  @Test
+  public void testCellIterator() {
+    int[] cellTagKeys = oshdbDataGridCell.getTagKeys();
+    assertTrue(cellTagKeys.length > 0);
+    assertTrue(countEntities(CellTagKeyFilter.NONE) > 0);
+    assertTrue(countEntities(CellTagKeyFilter.NONE.and(cellTagKeys[0])) > 0);
+    int missingKey = cellTagKeys[cellTagKeys.length - 1] + 1;
+    assertEquals(0, countEntities(CellTagKeyFilter.NONE.and(missingKey)));
+  }
+}
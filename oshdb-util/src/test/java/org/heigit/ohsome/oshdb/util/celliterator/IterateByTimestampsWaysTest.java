@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
 import org.heigit.ohsome.oshdb.util.celliterator.CellIterator.IterateByTimestampEntry;
 import org.heigit.ohsome.oshdb.util.celliterator.helpers.GridOSHFactory;
@@ -72,6 +73,47 @@ public class IterateByTimestampsWaysTest {
     assertNotEquals(result.get(2).geometry.get(), result.get(1).geometry.get());
   }
 
+  @Test
+  public void testGeometryPreFilter() {
+    // way 100 is only partially inside the bounding box, its geometry must be clipped
+    OSHDBBoundingBox bbox = new OSHDBBoundingBox(1.4, 1.2, 1.5, 1.245);
+    CellIterator.OSMEntityFilter noGeometryType = new CellIterator.OSMEntityFilter() {
+      @Override
+      public boolean test(OSMEntity osmEntity) {
+        return true;
+      }
+
+      @Override
+      public boolean testGeometryType(OSMEntity entity, TagInterpreter tagInterpreter) {
+        return false;
+      }
+    };
+    assertEquals(0, (new CellIterator(
+        new OSHDBTimestamps("2000-01-01T00:00:00Z", "2018-01-01T00:00:00Z", "P1Y").get(),
+        bbox, areaDecider, oshEntity -> oshEntity.getId() == 100, noGeometryType, false
+    )).iterateByTimestamps(oshdbDataGridCell).count());
+
+    // only the first version of the way has 4 nodes
+    CellIterator.OSMEntityFilter fourNodes = new CellIterator.OSMEntityFilter() {
+      @Override
+      public boolean test(OSMEntity osmEntity) {
+        return true;
+      }
+
+      @Override
+      public boolean testUnclippedGeometry(OSMEntity entity, Geometry unclippedGeometry) {
+        return unclippedGeometry.getNumPoints() == 4;
+      }
+    };
+    List<IterateByTimestampEntry> result = (new CellIterator(
+        new OSHDBTimestamps("2000-01-01T00:00:00Z", "2018-01-01T00:00:00Z", "P1Y").get(),
+        bbox, areaDecider, oshEntity -> oshEntity.getId() == 100, fourNodes, false
+    )).iterateByTimestamps(oshdbDataGridCell).collect(Collectors.toList());
+    assertEquals(1, result.size());
+    assertEquals(1, result.get(0).osmEntity.getVersion());
+    assertTrue(result.get(0).geometry.get().getEnvelopeInternal().getMaxY() <= 1.245);
+  }
+
   @Test
   public void testGeometryChangeOfNodeInWay() {
     // way: creation and geometry change of nodes, but no tag changes
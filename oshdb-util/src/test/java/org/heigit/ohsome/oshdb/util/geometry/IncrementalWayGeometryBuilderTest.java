@@ -0,0 +1,86 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.heigit.ohsome.oshdb.grid.GridOSHWays;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.celliterator.helpers.GridOSHFactory;
+import org.heigit.ohsome.oshdb.util.geometry.helpers.OSMXmlReaderTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.heigit.ohsome.oshdb.util.xmlreader.OSMXmlReader;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+
+public class IncrementalWayGeometryBuilderTest {
+  private final GridOSHWays ways;
+  private final TagInterpreter areaDecider;
+
+  /**
+   * Initialize test framework by loading osm XML file and initializing {@link TagInterpreter} and
+   * {@link GridOSHWays}.
+   */
+  public IncrementalWayGeometryBuilderTest() throws IOException {
+    OSMXmlReader testData = new OSMXmlReader();
+    testData.add("./src/test/resources/different-timestamps/way.osm");
+    areaDecider = new OSMXmlReaderTagInterpreter(testData);
+    ways = GridOSHFactory.getGridOSHWays(testData);
+  }
+
+  private void assertSameGeometries(OSHEntity osh, List<OSHDBTimestamp> timestamps) {
+    IncrementalWayGeometryBuilder builder = new IncrementalWayGeometryBuilder();
+    for (OSHDBTimestamp timestamp : timestamps) {
+      OSMEntity way = OSHEntities.getByTimestamp(osh, timestamp);
+      if (way == null) {
+        continue;
+      }
+      Geometry expected = OSHDBGeometryBuilder.getGeometry(way, timestamp, areaDecider);
+      Geometry result = builder.getGeometry((OSMWay) way, timestamp, areaDecider);
+      assertTrue(
+          "way/" + osh.getId() + " at " + timestamp + ": " + result + " != " + expected,
+          expected.equalsExact(result)
+      );
+    }
+  }
+
+  @Test
+  public void testAllContributions() {
+    for (OSHEntity osh : ways.getEntities()) {
+      assertSameGeometries(osh, OSHEntities.getModificationTimestamps(osh));
+    }
+  }
+
+  @Test
+  public void testAllContributionsReverse() {
+    // requesting earlier timestamps must trigger a full rebuild
+    for (OSHEntity osh : ways.getEntities()) {
+      List<OSHDBTimestamp> timestamps = new ArrayList<>(OSHEntities.getModificationTimestamps(osh));
+      Collections.reverse(timestamps);
+      assertSameGeometries(osh, timestamps);
+    }
+  }
+
+  @Test
+  public void testUnchangedGeometryIsReused() {
+    for (OSHEntity osh : ways.getEntities()) {
+      List<OSHDBTimestamp> timestamps = OSHEntities.getModificationTimestamps(osh);
+      OSHDBTimestamp timestamp = timestamps.get(timestamps.size() - 1);
+      OSMWay way = (OSMWay) OSHEntities.getByTimestamp(osh, timestamp);
+      if (!way.isVisible()) {
+        continue;
+      }
+      IncrementalWayGeometryBuilder builder = new IncrementalWayGeometryBuilder();
+      Geometry geometry = builder.getGeometry(way, timestamp, areaDecider);
+      OSHDBTimestamp later = new OSHDBTimestamp(timestamp.getRawUnixTimestamp() + 1);
+      assertSame(geometry, builder.getGeometry(way, later, areaDecider));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.heigit.ohsome.oshdb.grid.GridOSHRelations;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
+import org.heigit.ohsome.oshdb.osh.OSHEntity;
+import org.heigit.ohsome.oshdb.osm.OSMEntity;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.celliterator.helpers.GridOSHFactory;
+import org.heigit.ohsome.oshdb.util.geometry.helpers.OSMXmlReaderTagInterpreter;
+import org.heigit.ohsome.oshdb.util.taginterpreter.TagInterpreter;
+import org.heigit.ohsome.oshdb.util.xmlreader.OSMXmlReader;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.util.AffineTransformation;
+
+public class MultipolygonAssemblyCacheTest {
+  private final GridOSHRelations relations;
+  private final TagInterpreter areaDecider;
+
+  /**
+   * Initialize test framework by loading osm XML file and initializing {@link TagInterpreter} and
+   * {@link GridOSHRelations}.
+   */
+  public MultipolygonAssemblyCacheTest() throws IOException {
+    OSMXmlReader testData = new OSMXmlReader();
+    testData.add("./src/test/resources/different-timestamps/polygon.osm");
+    areaDecider = new OSMXmlReaderTagInterpreter(testData);
+    relations = GridOSHFactory.getGridOSHRelations(testData);
+  }
+
+  @Test
+  public void testSameGeometries() {
+    MultipolygonAssemblyCache cache = new MultipolygonAssemblyCache();
+    for (int pass = 0; pass < 2; pass++) {
+      for (OSHEntity osh : relations.getEntities()) {
+        for (OSHDBTimestamp timestamp : OSHEntities.getModificationTimestamps(osh)) {
+          OSMEntity relation = OSHEntities.getByTimestamp(osh, timestamp);
+          Geometry expected = OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider);
+          Geometry result =
+              OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider, cache);
+          assertTrue(
+              "relation/" + osh.getId() + " at " + timestamp + ": " + result + " != " + expected,
+              expected.equalsExact(result)
+          );
+        }
+      }
+    }
+    assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  public void testUnchangedGeometryIsReused() {
+    int reused = 0;
+    for (OSHEntity osh : relations.getEntities()) {
+      for (OSHDBTimestamp timestamp : OSHEntities.getModificationTimestamps(osh)) {
+        OSMEntity relation = OSHEntities.getByTimestamp(osh, timestamp);
+        MultipolygonAssemblyCache cache = new MultipolygonAssemblyCache();
+        Geometry geometry =
+            OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider, cache);
+        if (!(geometry instanceof Polygonal)) {
+          continue;
+        }
+        OSHDBTimestamp later = new OSHDBTimestamp(timestamp.getRawUnixTimestamp() + 1);
+        if (OSHEntities.getModificationTimestamps(osh).contains(later)) {
+          continue;
+        }
+        Geometry reusedGeometry =
+            OSHDBGeometryBuilder.getGeometry(relation, later, areaDecider, cache);
+        assertTrue(geometry.equalsExact(reusedGeometry));
+        assertEquals(1, cache.size());
+        reused++;
+      }
+    }
+    assertTrue(reused > 0);
+  }
+
+  @Test
+  public void testCachedGeometriesAreNotShared() {
+    MultipolygonAssemblyCache cache = new MultipolygonAssemblyCache();
+    int checked = 0;
+    for (OSHEntity osh : relations.getEntities()) {
+      for (OSHDBTimestamp timestamp : OSHEntities.getModificationTimestamps(osh)) {
+        OSMEntity relation = OSHEntities.getByTimestamp(osh, timestamp);
+        Geometry geometry =
+            OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider, cache);
+        if (!(geometry instanceof Polygonal)) {
+          continue;
+        }
+        Geometry expected = geometry.copy();
+        // modifying a returned geometry must not affect the ones returned to later callers
+        geometry.apply(new AffineTransformation().translate(1, 1));
+        geometry.geometryChanged();
+        Geometry reused =
+            OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider, cache);
+        assertNotSame(geometry, reused);
+        assertTrue(expected.equalsExact(reused));
+        checked++;
+      }
+    }
+    assertTrue(checked > 0);
+  }
+
+  @Test
+  public void testEviction() {
+    MultipolygonAssemblyCache cache = new MultipolygonAssemblyCache(1);
+    for (OSHEntity osh : relations.getEntities()) {
+      for (OSHDBTimestamp timestamp : OSHEntities.getModificationTimestamps(osh)) {
+        OSMEntity relation = OSHEntities.getByTimestamp(osh, timestamp);
+        OSHDBGeometryBuilder.getGeometry(relation, timestamp, areaDecider, cache);
+        assertTrue(cache.size() <= 1);
+      }
+    }
+    assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,180 @@
+package org.heigit.ohsome.oshdb.util.geometry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.junit.Test;
+import org.locationtech.jts.algorithm.distance.DiscreteHausdorffDistance;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
+
+public class RectangleClipperTest {
+  private static final double DELTA = 1E-9;
+  private final GeometryFactory gf = new GeometryFactory();
+  private final Envelope rectangle = new Envelope(0, 10, 0, 10);
+
+  private Geometry jtsClip(Geometry geometry, Envelope rectangle) {
+    return geometry.intersection(gf.toGeometry(rectangle));
+  }
+
+  private void assertSameAsJts(Geometry geometry, Envelope rectangle) {
+    Geometry expected = jtsClip(geometry, rectangle);
+    Geometry result = RectangleClipper.clip(geometry, rectangle);
+    String message = geometry + " clipped to " + rectangle + ": " + result + " != " + expected;
+    assertEquals(message, expected.isEmpty(), result.isEmpty());
+    assertEquals(message, expected.getDimension(), result.getDimension());
+    if (expected.isEmpty()) {
+      return;
+    }
+    assertEquals(message, expected.getArea(), result.getArea(), DELTA);
+    assertEquals(message, expected.getLength(), result.getLength(), DELTA);
+    assertEquals(message, expected.getNumGeometries(), result.getNumGeometries());
+    assertEquals(message, 0.0, DiscreteHausdorffDistance.distance(expected, result), DELTA);
+    if (expected.getDimension() == 2) {
+      assertTrue(message, result.isValid());
+      assertEquals(message, 0.0, expected.symDifference(result).getArea(), DELTA);
+    }
+  }
+
+  private Polygon polygon(String wkt) throws ParseException {
+    return (Polygon) new WKTReader().read(wkt);
+  }
+
+  @Test
+  public void testPoint() {
+    Point inside = gf.createPoint(new Coordinate(5, 5));
+    assertSame(inside, RectangleClipper.clip(inside, rectangle));
+    assertTrue(RectangleClipper.clip(gf.createPoint(new Coordinate(15, 5)), rectangle).isEmpty());
+    assertSameAsJts(gf.createPoint(new Coordinate(10, 5)), rectangle);
+  }
+
+  @Test
+  public void testLine() throws ParseException {
+    // fully inside
+    Geometry line = new WKTReader().read("LINESTRING (1 1, 2 2, 3 1)");
+    assertSame(line, RectangleClipper.clip(line, rectangle));
+    // crossing
+    assertSameAsJts(new WKTReader().read("LINESTRING (-5 5, 15 5)"), rectangle);
+    assertSameAsJts(new WKTReader().read("LINESTRING (-5 -5, 5 5, 8 2)"), rectangle);
+    // leaving and re-entering
+    Geometry result = RectangleClipper.clip(
+        new WKTReader().read("LINESTRING (5 5, 15 5, 15 6, 5 6)"), rectangle);
+    assertTrue(result instanceof MultiLineString);
+    assertEquals(10.0, result.getLength(), DELTA);
+    // outside
+    assertSameAsJts(new WKTReader().read("LINESTRING (-5 -5, -1 20)"), rectangle);
+    // along the boundary
+    assertSameAsJts(new WKTReader().read("LINESTRING (-5 0, 15 0)"), rectangle);
+    // only touching a corner (JTS returns a point)
+    assertSameAsJts(new WKTReader().read("LINESTRING (-5 5, 0 10, -5 15)"), rectangle);
+  }
+
+  @Test
+  public void testPolygon() throws ParseException {
+    // fully inside
+    Polygon inside = polygon("POLYGON ((1 1, 2 1, 2 2, 1 1))");
+    assertSame(inside, RectangleClipper.clip(inside, rectangle));
+    // crossing one edge
+    assertSameAsJts(polygon("POLYGON ((5 5, 15 5, 15 6, 5 6, 5 5))"), rectangle);
+    // covering a corner
+    assertSameAsJts(polygon("POLYGON ((5 5, 15 5, 15 15, 5 15, 5 5))"), rectangle);
+    // covering the whole rectangle
+    assertSameAsJts(polygon("POLYGON ((-5 -5, 15 -5, 15 15, -5 15, -5 -5))"), rectangle);
+    // outside
+    assertSameAsJts(polygon("POLYGON ((-5 -5, -1 -5, -1 -1, -5 -5))"), rectangle);
+    // concave polygon, falling apart into two parts
+    Geometry result = RectangleClipper.clip(
+        polygon("POLYGON ((2 5, 8 5, 8 15, 7 15, 7 6, 3 6, 3 15, 2 15, 2 5))"), rectangle);
+    assertTrue(result instanceof Polygon);
+    assertSameAsJts(
+        polygon("POLYGON ((2 5, 8 5, 8 15, 7 15, 7 6, 3 6, 3 15, 2 15, 2 5))"), rectangle);
+    assertSameAsJts(
+        polygon("POLYGON ((2 12, 8 12, 8 5, 7 5, 7 11, 3 11, 3 5, 2 5, 2 12))"), rectangle);
+    // touching the rectangle along an edge (JTS returns a line)
+    assertSameAsJts(polygon("POLYGON ((10 2, 15 2, 15 4, 10 4, 10 2))"), rectangle);
+  }
+
+  @Test
+  public void testPolygonWithHoles() throws ParseException {
+    // hole inside
+    assertSameAsJts(polygon(
+        "POLYGON ((5 5, 15 5, 15 8, 5 8, 5 5), (6 6, 7 6, 7 7, 6 7, 6 6))"), rectangle);
+    // hole outside
+    assertSameAsJts(polygon(
+        "POLYGON ((5 5, 15 5, 15 8, 5 8, 5 5), (12 6, 13 6, 13 7, 12 7, 12 6))"), rectangle);
+    // hole crossing the rectangle's boundary
+    assertSameAsJts(polygon(
+        "POLYGON ((5 5, 15 5, 15 8, 5 8, 5 5), (9 6, 11 6, 11 7, 9 7, 9 6))"), rectangle);
+    // rectangle inside a hole
+    assertSameAsJts(polygon(
+        "POLYGON ((-10 -10, 20 -10, 20 20, -10 20, -10 -10), (-1 -1, 11 -1, 11 11, -1 11, -1 -1))"
+    ), rectangle);
+  }
+
+  @Test
+  public void testMultiGeometries() throws ParseException {
+    assertSameAsJts(new WKTReader().read(
+        "MULTIPOLYGON (((5 5, 15 5, 15 6, 5 6, 5 5)), ((-5 -5, -1 -5, -1 -1, -5 -5)),"
+            + " ((1 1, 2 1, 2 2, 1 1)))"), rectangle);
+    assertSameAsJts(new WKTReader().read(
+        "MULTILINESTRING ((-5 5, 15 5), (1 1, 2 2), (-5 -5, -1 -1))"), rectangle);
+    // other geometry types fall back to JTS
+    assertSameAsJts(new WKTReader().read("MULTIPOINT ((1 1), (20 20))"), rectangle);
+  }
+
+  @Test
+  public void testBoundingBox() throws ParseException {
+    Geometry line = new WKTReader().read("LINESTRING (-5 5, 15 5)");
+    OSHDBBoundingBox bbox = new OSHDBBoundingBox(0, 0, 10, 10);
+    assertEquals(10.0, RectangleClipper.clip(line, bbox).getLength(), DELTA);
+    assertEquals(10.0, Geo.clip(line, bbox).getLength(), DELTA);
+  }
+
+  @Test
+  public void testRandomGeometries() {
+    Random random = new Random(42);
+    for (int i = 0; i < 1000; i++) {
+      double cx = random.nextDouble() * 20 - 5;
+      double cy = random.nextDouble() * 20 - 5;
+      double radius = random.nextDouble() * 10;
+      int vertices = 3 + random.nextInt(50);
+      Coordinate[] coords = new Coordinate[vertices + 1];
+      for (int j = 0; j < vertices; j++) {
+        double angle = 2 * Math.PI * j / vertices;
+        double r = radius * (0.2 + 0.8 * random.nextDouble());
+        coords[j] = new Coordinate(cx + Math.cos(angle) * r, cy + Math.sin(angle) * r);
+      }
+      coords[vertices] = coords[0];
+      LinearRing shell = gf.createLinearRing(coords);
+      LinearRing hole = gf.createLinearRing(new Coordinate[] {
+          new Coordinate(cx - radius * 0.05, cy - radius * 0.05),
+          new Coordinate(cx + radius * 0.05, cy - radius * 0.05),
+          new Coordinate(cx + radius * 0.05, cy + radius * 0.05),
+          new Coordinate(cx - radius * 0.05, cy + radius * 0.05),
+          new Coordinate(cx - radius * 0.05, cy - radius * 0.05)
+      });
+      assertSameAsJts(gf.createPolygon(shell), rectangle);
+      assertSameAsJts(gf.createPolygon(shell, new LinearRing[] {hole}), rectangle);
+      LineString line = gf.createLineString(
+          Arrays.copyOf(coords, 2 + random.nextInt(vertices - 1)));
+      Geometry expected = jtsClip(line, rectangle);
+      Geometry result = RectangleClipper.clip(line, rectangle);
+      assertEquals(line.toString(), expected.getLength(), result.getLength(), DELTA);
+      assertEquals(line.toString(), 0.0,
+          DiscreteHausdorffDistance.distance(expected, result), DELTA);
+    }
+  }
+}
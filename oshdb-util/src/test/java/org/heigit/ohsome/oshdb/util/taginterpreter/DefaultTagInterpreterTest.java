@@ -0,0 +1,107 @@
+package org.heigit.ohsome.oshdb.util.taginterpreter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import org.heigit.ohsome.oshdb.osm.OSMMember;
+import org.heigit.ohsome.oshdb.osm.OSMRelation;
+import org.heigit.ohsome.oshdb.osm.OSMType;
+import org.heigit.ohsome.oshdb.osm.OSMWay;
+import org.heigit.ohsome.oshdb.util.OSHDBTag;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
+import org.heigit.ohsome.oshdb.util.tagtranslator.TagTranslator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DefaultTagInterpreterTest {
+  private static Connection conn;
+  private static TagTranslator tagTranslator;
+  private static TagInterpreter tagInterpreter;
+
+  /**
+   * Creates a tag interpreter using the keytables of the test database.
+   */
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    Class.forName("org.h2.Driver");
+    conn = DriverManager.getConnection(
+        "jdbc:h2:./src/test/resources/test-data;ACCESS_MODE_DATA=r", "sa", "");
+    tagTranslator = new TagTranslator(conn);
+    tagInterpreter = new DefaultTagInterpreter(tagTranslator);
+  }
+
+  @AfterClass
+  public static void breakDownClass() throws SQLException {
+    conn.close();
+  }
+
+  // returns the raw tags (sorted by key id) of the given key-value pairs
+  private static int[] tags(String... keyValues) {
+    SortedMap<Integer, Integer> tags = new TreeMap<>();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      OSHDBTag tag = tagTranslator.getOSHDBTagOf(keyValues[i], keyValues[i + 1]);
+      tags.put(tag.getKey(), tag.getValue());
+    }
+    return tags.entrySet().stream()
+        .flatMapToInt(tag -> IntStream.of(tag.getKey(), tag.getValue()))
+        .toArray();
+  }
+
+  private static OSMWay way(boolean closed, String... keyValues) {
+    OSMMember[] refs = IntStream.of(1, 2, 3, closed ? 1 : 4)
+        .mapToObj(id -> new OSMMember(id, OSMType.NODE, -1))
+        .toArray(OSMMember[]::new);
+    return new OSMWay(1, 1, new OSHDBTimestamp(0L), 1, 1, tags(keyValues), refs);
+  }
+
+  @Test
+  public void testWays() {
+    assertTrue(tagInterpreter.isArea(way(true, "building", "yes")));
+    assertFalse(tagInterpreter.isArea(way(false, "building", "yes")));
+    assertTrue(tagInterpreter.isLine(way(false, "building", "yes")));
+    assertFalse(tagInterpreter.isArea(way(true, "building", "no")));
+    assertFalse(tagInterpreter.isArea(way(true, "highway", "residential")));
+    assertTrue(tagInterpreter.isArea(way(true, "highway", "residential", "area", "yes")));
+    assertFalse(tagInterpreter.isArea(way(true, "building", "yes", "area", "no")));
+    assertTrue(tagInterpreter.isArea(way(true, "building", "does not exist")));
+  }
+
+  @Test
+  public void testRelations() {
+    OSMMember[] members = new OSMMember[] {
+        new OSMMember(1, OSMType.WAY, tagTranslator.getOSHDBRoleOf("outer").toInt())
+    };
+    OSMRelation multipolygon = new OSMRelation(1, 1, new OSHDBTimestamp(0L), 1, 1,
+        tags("type", "multipolygon"), members);
+    OSMRelation route = new OSMRelation(2, 1, new OSHDBTimestamp(0L), 1, 1,
+        tags("type", "route"), members);
+    assertTrue(tagInterpreter.isArea(multipolygon));
+    assertFalse(tagInterpreter.isLine(multipolygon));
+    assertFalse(tagInterpreter.isArea(route));
+    assertTrue(tagInterpreter.isLine(route));
+    assertTrue(tagInterpreter.isOldStyleMultipolygon(multipolygon));
+  }
+
+  @Test
+  public void testMemoizing() {
+    TagInterpreter memoized = new MemoizingTagInterpreter(tagInterpreter);
+    OSMWay area = way(true, "building", "yes");
+    OSMWay otherArea = way(true, "building", "yes");
+    OSMWay line = way(true, "highway", "residential");
+    for (int i = 0; i < 3; i++) {
+      assertTrue(memoized.isArea(area));
+      assertTrue(memoized.isArea(area));
+      assertFalse(memoized.isArea(line));
+      assertTrue(memoized.isLine(line));
+      assertTrue(memoized.isArea(otherArea));
+      assertFalse(memoized.isArea(way(false, "building", "yes")));
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package org.heigit.ohsome.oshdb.util.taginterpreter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Tests that a {@link TagLookup} contains the same tags as the sets it was created from.
+ */
+public class TagLookupTest {
+  @Test
+  public void testSameAsSets() {
+    Random random = new Random(42);
+    Map<Integer, Set<Integer>> tags = new HashMap<>();
+    for (int key = -5; key < 50; key += 1 + random.nextInt(3)) {
+      Set<Integer> values = random.nextBoolean() ? new HashSet<>() : new InvertedHashSet<>();
+      int numberOfValues = random.nextInt(20);
+      for (int i = 0; i < numberOfValues; i++) {
+        values.add(random.nextInt(30) - 5);
+      }
+      tags.put(key, values);
+    }
+    TagLookup lookup = TagLookup.of(tags);
+    for (int key = -10; key < 60; key++) {
+      assertEquals(tags.containsKey(key), lookup.containsKey(key));
+      for (int value = -10; value < 30; value++) {
+        assertEquals(key + "=" + value,
+            tags.containsKey(key) && tags.get(key).contains(value), lookup.contains(key, value));
+      }
+    }
+  }
+
+  @Test
+  public void testKeys() {
+    Set<Integer> keys = new HashSet<>();
+    keys.add(-3);
+    keys.add(2);
+    keys.add(7);
+    TagLookup lookup = TagLookup.ofKeys(keys);
+    for (int key = -5; key < 10; key++) {
+      assertEquals(keys.contains(key), lookup.containsKey(key));
+      assertEquals(keys.contains(key), lookup.contains(key, 0));
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package org.heigit.ohsome.oshdb.util.tagtranslator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.heigit.ohsome.oshdb.util.OSHDBRole;
+import org.heigit.ohsome.oshdb.util.OSHDBTag;
+import org.heigit.ohsome.oshdb.util.OSHDBTagKey;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBKeytablesNotFoundException;
+import org.heigit.ohsome.oshdb.util.exceptions.OSHDBTagOrRoleNotFoundException;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that tag translators using {@link PreloadedKeytables} behave like the ones querying the
+ * keytables on demand.
+ */
+public class PreloadedKeytablesTest {
+  private static Connection conn;
+  private static PreloadedKeytables keytables;
+
+  /**
+   * Opens a connection to the test database and preloads its keytables.
+   */
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    Class.forName("org.h2.Driver");
+    conn = DriverManager.getConnection(
+        "jdbc:h2:./src/test/resources/test-data;ACCESS_MODE_DATA=r", "sa", "");
+    keytables = PreloadedKeytables.load(conn);
+  }
+
+  @AfterClass
+  public static void breakDownClass() throws SQLException {
+    conn.close();
+  }
+
+  @Test
+  public void testSameAsDatabase() throws Exception {
+    TagTranslator database = new TagTranslator(conn);
+    TagTranslator preloaded = new TagTranslator(keytables);
+    try (Statement stmt = conn.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("select id, txt from key")) {
+        while (rs.next()) {
+          OSHDBTagKey key = new OSHDBTagKey(rs.getInt(1));
+          assertEquals(database.getOSMTagKeyOf(key), preloaded.getOSMTagKeyOf(key));
+          assertEquals(key, preloaded.getOSHDBTagKeyOf(rs.getString(2)));
+        }
+      }
+      try (ResultSet rs = stmt.executeQuery("select keyid, valueid from keyvalue")) {
+        while (rs.next()) {
+          OSHDBTag tag = new OSHDBTag(rs.getInt(1), rs.getInt(2));
+          OSMTag osmTag = database.getOSMTagOf(tag);
+          assertEquals(osmTag, preloaded.getOSMTagOf(tag));
+          assertEquals(tag, preloaded.getOSHDBTagOf(osmTag));
+        }
+      }
+      try (ResultSet rs = stmt.executeQuery("select id, txt from role")) {
+        while (rs.next()) {
+          OSHDBRole role = new OSHDBRole(rs.getInt(1));
+          assertEquals(database.getOSMRoleOf(role), preloaded.getOSMRoleOf(role));
+          assertEquals(role, preloaded.getOSHDBRoleOf(rs.getString(2)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNotFound() throws OSHDBKeytablesNotFoundException {
+    TagTranslator database = new TagTranslator(conn);
+    TagTranslator preloaded = new TagTranslator(keytables);
+    OSMTag tag = new OSMTag("building", "does not exist");
+    OSHDBTag tagId = preloaded.getOSHDBTagOf(tag);
+    assertEquals(database.getOSHDBTagOf(tag), tagId);
+    assertEquals(tag, preloaded.getOSMTagOf(tagId));
+    OSHDBTagKey keyId = preloaded.getOSHDBTagKeyOf("does not exist");
+    assertTrue(keyId.toInt() < 0);
+    assertEquals(new OSMTagKey("does not exist"), preloaded.getOSMTagKeyOf(keyId));
+    OSHDBRole roleId = preloaded.getOSHDBRoleOf("does not exist");
+    assertEquals(database.getOSHDBRoleOf("does not exist"), roleId);
+    assertEquals(new OSMRole("does not exist"), preloaded.getOSMRoleOf(roleId));
+    assertNull(keytables.getValue(-1, 0));
+    assertEquals(PreloadedKeytables.NOT_FOUND, keytables.getKeyId("does not exist"));
+  }
+
+  @Test
+  public void testInconsistentKeytables() throws Exception {
+    try (Connection mem = DriverManager.getConnection("jdbc:h2:mem:", "sa", "");
+        Statement stmt = mem.createStatement()) {
+      stmt.execute("create table key (id int primary key, txt varchar)");
+      stmt.execute("create table keyvalue (keyId int, valueId int, txt varchar)");
+      stmt.execute("create table role (id int primary key, txt varchar)");
+      stmt.execute("insert into key values (0, 'building')");
+      stmt.execute("insert into keyvalue values (0, 0, 'yes'), (7, 0, 'residential')");
+      PreloadedKeytables.load(mem);
+      fail("inconsistent keytables must not be loaded");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("key id 7"));
+    }
+  }
+
+  @Test(expected = OSHDBTagOrRoleNotFoundException.class)
+  public void testUnknownTagId() {
+    new TagTranslator(keytables).getOSMTagOf(1, Integer.MAX_VALUE);
+  }
+
+  @Test(expected = OSHDBTagOrRoleNotFoundException.class)
+  public void testUnknownKeyId() {
+    new TagTranslator(keytables).getOSMTagKeyOf(Integer.MAX_VALUE);
+  }
+
+  @Test(expected = OSHDBTagOrRoleNotFoundException.class)
+  public void testUnknownRoleId() {
+    new TagTranslator(keytables).getOSMRoleOf(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testSerialization() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(keytables);
+    }
+    PreloadedKeytables copy;
+    try (ObjectInputStream in = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (PreloadedKeytables) in.readObject();
+    }
+    TagTranslator preloaded = new TagTranslator(copy);
+    assertEquals(new OSHDBTag(1, 0), preloaded.getOSHDBTagOf("building", "yes"));
+    assertEquals(new OSMTag("building", "residential"), preloaded.getOSMTagOf(1, 2));
+  }
+
+  @Test
+  public void testMemoryUsage() {
+    assertTrue(keytables.getEstimatedMemoryUsage() > 0);
+  }
+}
@@ -1,11 +1,17 @@
 package org.heigit.ohsome.oshdb.grid;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 import org.heigit.ohsome.oshdb.index.XYGrid;
+import org.heigit.ohsome.oshdb.osh.OSHEntities;
 import org.heigit.ohsome.oshdb.osh.OSHEntity;
 import org.heigit.ohsome.oshdb.util.CellId;
 import org.heigit.ohsome.oshdb.util.OSHDBBoundingBox;
+import org.heigit.ohsome.oshdb.util.OSHDBTimestamp;
 
 public abstract class GridOSHEntity
     implements Serializable {
@@ -24,8 +30,48 @@ public abstract class GridOSHEntity
   protected final int[] index;
   protected final byte[] data;
 
+  /**
+   * Sorted list of all tag keys used by any version of any entity in this cell, or {@code null}
+   * if unknown (e.g. for cells created by an older version of the oshdb).
+   */
+  protected final int[] tagKeys;
+
+  /**
+   * Timestamps of the modifications of the entities in this cell, or {@code null} if unknown
+   * (e.g. for cells created by an older version of the oshdb).
+   */
+  protected final ModificationTimestamps modificationTimestamps;
+
   public GridOSHEntity(final long id, final int level, final long baseId, final long baseTimestamp,
       final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data) {
+    this(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, null);
+  }
+
+  /**
+   * Creates a grid cell including a summary of the tag keys used by the contained entities.
+   *
+   * @param tagKeys sorted list of all tag keys used by any version of any entity in this cell, or
+   *        {@code null} if unknown
+   */
+  public GridOSHEntity(final long id, final int level, final long baseId, final long baseTimestamp,
+      final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+      final int[] tagKeys) {
+    this(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys,
+        null);
+  }
+
+  /**
+   * Creates a grid cell including summaries of the tag keys used by the contained entities and of
+   * their modification timestamps.
+   *
+   * @param tagKeys sorted list of all tag keys used by any version of any entity in this cell, or
+   *        {@code null} if unknown
+   * @param modificationTimestamps the modification timestamps of the entities in this cell (in
+   *        the same order as the entities), or {@code null} if unknown
+   */
+  public GridOSHEntity(final long id, final int level, final long baseId, final long baseTimestamp,
+      final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+      final int[] tagKeys, final ModificationTimestamps modificationTimestamps) {
 
     this.id = id;
     this.level = level;
@@ -36,6 +82,8 @@ public abstract class GridOSHEntity
 
     this.index = index;
     this.data = data;
+    this.tagKeys = tagKeys;
+    this.modificationTimestamps = modificationTimestamps;
   }
 
   public long getId() {
@@ -48,6 +96,178 @@ public abstract class GridOSHEntity
   
   public abstract Iterable<? extends OSHEntity> getEntities();
 
+  /**
+   * Decodes the entity at the given position of this cell.
+   */
+  protected abstract OSHEntity getEntity(int pos);
+
+  /**
+   * Returns the entities of this cell which have been modified at or after the given timestamp.
+   *
+   * <p>Uses the {@link #getModificationTimestamps() modification timestamps} of this cell to skip
+   * the other entities without decoding them. If this cell doesn't hold this information, all
+   * entities are returned.</p>
+   *
+   * @param timestamp a timestamp in seconds since the epoch
+   */
+  public Iterable<? extends OSHEntity> getEntitiesModifiedSince(long timestamp) {
+    final ModificationTimestamps modifications = this.modificationTimestamps;
+    if (modifications == null || modifications.getFirst() >= timestamp) {
+      return getEntities();
+    }
+    return () -> new Iterator<OSHEntity>() {
+      private int pos = nextPos(0);
+
+      private int nextPos(int pos) {
+        while (pos < index.length && modifications.getLast(pos) < timestamp) {
+          pos++;
+        }
+        return pos;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return pos < index.length;
+      }
+
+      @Override
+      public OSHEntity next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        OSHEntity entity = getEntity(pos);
+        pos = nextPos(pos + 1);
+        return entity;
+      }
+    };
+  }
+
+  /**
+   * Returns the sorted list of all tag keys used by any version of any entity in this cell.
+   *
+   * @return the cell's tag keys, or {@code null} if this cell doesn't hold this information
+   */
+  public int[] getTagKeys() {
+    return tagKeys;
+  }
+
+  /**
+   * Checks if any entity in this cell might have the given tag key in any of its versions.
+   *
+   * @param key the tag key to check
+   * @return false if no entity of this cell has ever had the given tag key, true otherwise
+   *         (or if this cell doesn't hold this information)
+   */
+  public boolean mayContainTagKey(int key) {
+    return tagKeys == null || Arrays.binarySearch(tagKeys, key) >= 0;
+  }
+
+  /**
+   * Returns the modification timestamps of the entities in this cell.
+   *
+   * @return the cell's modification timestamps, or {@code null} if this cell doesn't hold this
+   *         information
+   */
+  public ModificationTimestamps getModificationTimestamps() {
+    return modificationTimestamps;
+  }
+
+  /**
+   * Checks if any entity in this cell might have been modified in the given time interval.
+   *
+   * @param from start of the time interval in seconds since the epoch (inclusive)
+   * @param to end of the time interval in seconds since the epoch (inclusive)
+   * @return false if no entity of this cell has been modified in the given time interval, true
+   *         otherwise (or if this cell doesn't hold this information)
+   */
+  public boolean mayBeModifiedBetween(long from, long to) {
+    return modificationTimestamps == null
+        || modificationTimestamps.getLast() >= from && modificationTimestamps.getFirst() <= to;
+  }
+
+  /**
+   * Collects the sorted list of all tag keys used by the given entities.
+   */
+  protected static int[] collectTagKeys(List<? extends OSHEntity> entities) {
+    return entities.stream()
+        .flatMapToInt(osh -> Arrays.stream(osh.getRawTagKeys()))
+        .distinct()
+        .sorted()
+        .toArray();
+  }
+
+  /**
+   * The first and last modification timestamps of the entities of a grid cell.
+   *
+   * <p>Modifications include changes of referenced member entities (e.g. the nodes of a way). The
+   * last modification of each entity is stored relative to the cell's first modification, which
+   * needs four bytes per entity.</p>
+   */
+  public static final class ModificationTimestamps implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long first;
+    private final long last;
+    private final int[] lastOfEntities;
+
+    private ModificationTimestamps(long first, long last, int[] lastOfEntities) {
+      this.first = first;
+      this.last = last;
+      this.lastOfEntities = lastOfEntities;
+    }
+
+    /**
+     * Collects the modification timestamps of the given entities.
+     *
+     * @return the modification timestamps, or {@code null} if they can't be stored (e.g. if
+     *         there are no entities)
+     */
+    public static ModificationTimestamps of(List<? extends OSHEntity> entities) {
+      long first = Long.MAX_VALUE;
+      long last = Long.MIN_VALUE;
+      long[] lastOfEntities = new long[entities.size()];
+      for (int i = 0; i < lastOfEntities.length; i++) {
+        List<OSHDBTimestamp> timestamps = OSHEntities.getModificationTimestamps(entities.get(i));
+        if (timestamps.isEmpty()) {
+          return null;
+        }
+        first = Math.min(first, timestamps.get(0).getRawUnixTimestamp());
+        lastOfEntities[i] = timestamps.get(timestamps.size() - 1).getRawUnixTimestamp();
+        last = Math.max(last, lastOfEntities[i]);
+      }
+      if (lastOfEntities.length == 0 || last - first > Integer.MAX_VALUE) {
+        return null;
+      }
+      int[] relative = new int[lastOfEntities.length];
+      for (int i = 0; i < relative.length; i++) {
+        relative[i] = (int) (lastOfEntities[i] - first);
+      }
+      return new ModificationTimestamps(first, last, relative);
+    }
+
+    /**
+     * Returns the first modification of any entity, in seconds since the epoch.
+     */
+    public long getFirst() {
+      return first;
+    }
+
+    /**
+     * Returns the last modification of any entity, in seconds since the epoch.
+     */
+    public long getLast() {
+      return last;
+    }
+
+    /**
+     * Returns the last modification of the entity at the given position, in seconds since the
+     * epoch.
+     */
+    public long getLast(int pos) {
+      return first + lastOfEntities[pos];
+    }
+  }
+
   @Override
   public String toString() {
     if (id >= 0) {
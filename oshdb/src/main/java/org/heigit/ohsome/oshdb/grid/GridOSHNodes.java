@@ -30,12 +30,20 @@ public class GridOSHNodes extends GridOSHEntity implements Iterable<OSHNode> {
     }
     final byte[] data = out.toByteArray();
     return new GridOSHNodes(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index,
-            data);
+            data, collectTagKeys(list), ModificationTimestamps.of(list));
   }
 
   private GridOSHNodes(final long id, final int level, final long baseId, final long baseTimestamp,
-          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data) {
-    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data);
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys);
+  }
+
+  private GridOSHNodes(final long id, final int level, final long baseId, final long baseTimestamp,
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys, final ModificationTimestamps modificationTimestamps) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys,
+        modificationTimestamps);
   }
   
   @Override
@@ -43,6 +51,19 @@ public class GridOSHNodes extends GridOSHEntity implements Iterable<OSHNode> {
     return this;
   }
   
+  @Override
+  protected OSHNode getEntity(int pos) {
+    int offset = index[pos];
+    int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
+    try {
+      return OSHNodeImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude,
+          baseLatitude);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
   @Override
   public Iterator<OSHNode> iterator() {
     return new Iterator<OSHNode>() {
@@ -50,16 +71,7 @@ public class GridOSHNodes extends GridOSHEntity implements Iterable<OSHNode> {
 
       @Override
       public OSHNode next() {
-        int offset = index[pos];
-        int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
-        pos++;
-        try {
-          return OSHNodeImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude,
-                  baseLatitude);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-        return null;
+        return getEntity(pos++);
       }
 
       @Override
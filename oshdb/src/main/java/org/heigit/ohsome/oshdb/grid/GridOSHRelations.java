@@ -32,12 +32,20 @@ public class GridOSHRelations extends GridOSHEntity implements Iterable<OSHRelat
     }
     final byte[] data = out.toByteArray();
     return new GridOSHRelations(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index,
-            data);
+            data, collectTagKeys(list), ModificationTimestamps.of(list));
   }
 
   private GridOSHRelations(final long id, final int level, final long baseId, final long baseTimestamp,
-          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data) {
-    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data);
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys);
+  }
+
+  private GridOSHRelations(final long id, final int level, final long baseId, final long baseTimestamp,
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys, final ModificationTimestamps modificationTimestamps) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys,
+        modificationTimestamps);
   }
   
   @Override
@@ -45,6 +53,19 @@ public class GridOSHRelations extends GridOSHEntity implements Iterable<OSHRelat
     return this;
   }
 
+  @Override
+  protected OSHRelation getEntity(int pos) {
+    int offset = index[pos];
+    int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
+    try {
+      return OSHRelationImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude,
+          baseLatitude);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
   @Override
   public Iterator<OSHRelation> iterator() {
     return new Iterator<OSHRelation>() {
@@ -52,15 +73,7 @@ public class GridOSHRelations extends GridOSHEntity implements Iterable<OSHRelat
 
       @Override
       public OSHRelation next() {
-        int offset = index[pos];
-        int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
-        pos++;
-        try {
-          return OSHRelationImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude, baseLatitude);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-        return null;
+        return getEntity(pos++);
       }
 
       @Override
@@ -30,19 +30,46 @@ public class GridOSHWays extends GridOSHEntity implements Iterable<OSHWay> {
     }
     final byte[] data = out.toByteArray();
 
-    return new GridOSHWays(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data);
+    return new GridOSHWays(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index,
+            data, collectTagKeys(list), ModificationTimestamps.of(list));
   }
 
   public GridOSHWays(final long id, final int level, final long baseId, final long baseTimestamp,
           final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data) {
     super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data);
   }
+
+  public GridOSHWays(final long id, final int level, final long baseId, final long baseTimestamp,
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys);
+  }
+
+  public GridOSHWays(final long id, final int level, final long baseId, final long baseTimestamp,
+          final long baseLongitude, final long baseLatitude, final int[] index, final byte[] data,
+          final int[] tagKeys, final ModificationTimestamps modificationTimestamps) {
+    super(id, level, baseId, baseTimestamp, baseLongitude, baseLatitude, index, data, tagKeys,
+        modificationTimestamps);
+  }
   
   @Override
   public Iterable<? extends OSHEntity> getEntities() {
     return this;
   }
 
+  @Override
+  protected OSHWay getEntity(int pos) {
+    int offset = index[pos];
+    int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
+    try {
+      return OSHWayImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude,
+          baseLatitude);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
   @Override
   public Iterator<OSHWay> iterator() {
     return new Iterator<OSHWay>() {
@@ -50,16 +77,7 @@ public class GridOSHWays extends GridOSHEntity implements Iterable<OSHWay> {
 
       @Override
       public OSHWay next() {
-        int offset = index[pos];
-        int length = ((pos < index.length - 1) ? index[pos + 1] : data.length) - offset;
-        pos++;
-        try {
-          return OSHWayImpl.instance(data, offset, length, baseId, baseTimestamp, baseLongitude,
-                  baseLatitude);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-        return null;
+        return getEntity(pos++);
       }
 
       @Override
@@ -1,6 +1,10 @@
 package org.heigit.ohsome.oshdb.grid;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -53,4 +57,73 @@ public class GridOSHWaysTest {
     assertEquals(expResult, result);
   }
 
+  @Test
+  public void testTagKeys() throws IOException {
+    List<OSHWay> hosmWays = new ArrayList<>();
+    List<OSMWay> versions = new ArrayList<>();
+    versions.add(new OSMWay(123, 1, new OSHDBTimestamp(3333L), 4444L, 23, new int[]{1, 1, 5, 1},
+        new OSMMember[]{new OSMMember(102, OSMType.NODE, 0)}));
+    hosmWays.add(OSHWayImpl.build(versions, Arrays.asList(node102)));
+    versions = new ArrayList<>();
+    versions.add(new OSMWay(124, 1, new OSHDBTimestamp(3333L), 4444L, 23, new int[]{3, 1},
+        new OSMMember[]{new OSMMember(104, OSMType.NODE, 0)}));
+    versions.add(new OSMWay(124, 2, new OSHDBTimestamp(5555L), 4444L, 23, new int[]{1, 2},
+        new OSMMember[]{new OSMMember(104, OSMType.NODE, 0)}));
+    hosmWays.add(OSHWayImpl.build(versions, Arrays.asList(node104)));
+
+    GridOSHWays instance = GridOSHWays.compact(2, 2, 100, 100000L, 86000000, 490000000, hosmWays);
+    // keys of nodes are not included, only the ones of the cell's entities (in any version)
+    assertArrayEquals(new int[]{1, 3, 5}, instance.getTagKeys());
+    assertTrue(instance.mayContainTagKey(3));
+    assertFalse(instance.mayContainTagKey(2));
+
+    // cells without tag key information might contain any key
+    GridOSHWays unknown = new GridOSHWays(2, 2, 100, 100000L, 86000000, 490000000, new int[0],
+        new byte[0]);
+    assertNull(unknown.getTagKeys());
+    assertTrue(unknown.mayContainTagKey(2));
+  }
+
+  @Test
+  public void testModificationTimestamps() throws IOException {
+    List<OSHWay> hosmWays = new ArrayList<>();
+    List<OSMWay> versions = new ArrayList<>();
+    versions.add(new OSMWay(123, 1, new OSHDBTimestamp(3333L), 4444L, 23, new int[]{1, 1},
+        new OSMMember[]{new OSMMember(102, OSMType.NODE, 0)}));
+    hosmWays.add(OSHWayImpl.build(versions, Arrays.asList(node102)));
+    versions = new ArrayList<>();
+    versions.add(new OSMWay(124, 2, new OSHDBTimestamp(5555L), 4444L, 23, new int[]{1, 2},
+        new OSMMember[]{new OSMMember(104, OSMType.NODE, 0)}));
+    versions.add(new OSMWay(124, 1, new OSHDBTimestamp(4444L), 4444L, 23, new int[]{3, 1},
+        new OSMMember[]{new OSMMember(104, OSMType.NODE, 0)}));
+    hosmWays.add(OSHWayImpl.build(versions, Arrays.asList(node104)));
+
+    GridOSHWays instance = GridOSHWays.compact(2, 2, 100, 100000L, 86000000, 490000000, hosmWays);
+    GridOSHEntity.ModificationTimestamps modifications = instance.getModificationTimestamps();
+    assertEquals(3333L, modifications.getFirst());
+    assertEquals(5555L, modifications.getLast());
+    assertEquals(3333L, modifications.getLast(0));
+    assertEquals(5555L, modifications.getLast(1));
+    assertTrue(instance.mayBeModifiedBetween(5000L, 6000L));
+    assertTrue(instance.mayBeModifiedBetween(1000L, 3333L));
+    assertFalse(instance.mayBeModifiedBetween(1000L, 2000L));
+    assertFalse(instance.mayBeModifiedBetween(6000L, 7000L));
+
+    // entities which haven't been modified since a timestamp are skipped
+    List<Long> ids = new ArrayList<>();
+    instance.getEntitiesModifiedSince(4000L).forEach(osh -> ids.add(osh.getId()));
+    assertEquals(List.of(124L), ids);
+    ids.clear();
+    instance.getEntitiesModifiedSince(3333L).forEach(osh -> ids.add(osh.getId()));
+    assertEquals(List.of(123L, 124L), ids);
+    ids.clear();
+    instance.getEntitiesModifiedSince(6000L).forEach(osh -> ids.add(osh.getId()));
+    assertTrue(ids.isEmpty());
+
+    // cells without modification timestamps might have been modified at any time
+    GridOSHWays unknown = new GridOSHWays(2, 2, 100, 100000L, 86000000, 490000000, new int[0],
+        new byte[0]);
+    assertNull(unknown.getModificationTimestamps());
+    assertTrue(unknown.mayBeModifiedBetween(1000L, 2000L));
+  }
 }